@@ -1,10 +1,10 @@
 package nl.uva.species.agent;
 
 import nl.uva.species.model.River;
+import nl.uva.species.model.TaskDescription;
 import nl.uva.species.utils.Messages;
 
 import org.rlcommunity.rlglue.codec.AgentInterface;
-import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
 import org.rlcommunity.rlglue.codec.types.Action;
 import org.rlcommunity.rlglue.codec.types.Observation;
 
@@ -21,7 +21,7 @@ public abstract class AbstractAgent implements AgentInterface {
 
     @Override
     public void agent_init(final String taskSpecification) {
-        this.init(new River(new TaskSpec(taskSpecification)));
+        this.init(TaskDescription.forTaskSpec(taskSpecification).getRiver());
     }
 
     public abstract void init(final River river);
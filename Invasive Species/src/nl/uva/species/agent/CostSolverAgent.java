@@ -55,6 +55,9 @@ public class CostSolverAgent extends AbstractAgent {
 
     Random mRand;
 
+    /** The seed of the random number generator, drawn from Utilities.RNG unless set */
+    private long mSeed = Utilities.RNG.nextLong();
+
     int mNumberOfSteps = 1; // 1 for start
     int mNumOfLastInvalidActions = 0;
     int mNumOfSkippedActions = 0;
@@ -68,7 +71,7 @@ public class CostSolverAgent extends AbstractAgent {
     @Override
     public void init(final River river) {
 
-        mRand = new Random();
+        mRand = new Random(mSeed);
 
         mRiver = river;
 
@@ -404,6 +407,17 @@ public class CostSolverAgent extends AbstractAgent {
         return mCostParameters;
     }
 
+    /**
+     * Seeds the random number generator that chooses the actions. Only has effect when called
+     * before the agent is initialised.
+     * 
+     * @param seed
+     *            The seed of the random number generator
+     */
+    public void setSeed(final long seed) {
+        mSeed = seed;
+    }
+
     @Override
     public void end(final double reward) {
         // TODO Auto-generated method stub
@@ -1,5 +1,7 @@
 package nl.uva.species.agent;
 
+import java.util.Random;
+
 import nl.uva.species.model.EnvModel;
 import nl.uva.species.model.River;
 import nl.uva.species.utils.Messages;
@@ -9,8 +11,8 @@ import org.rlcommunity.rlglue.codec.types.Observation;
 import org.rlcommunity.rlglue.codec.util.AgentLoader;
 
 /**
- * This wrapper can be used with ourExperiment.py
- * 
+ * This wrapper can be used with ourExperiment.py, or in-process with
+ * {@link nl.uva.species.experiment.OurExperiment} to run several seeds in parallel.
  */
 public class ExperimentWrapperAgent extends AbstractAgent {
 
@@ -23,11 +25,46 @@ public class ExperimentWrapperAgent extends AbstractAgent {
     private final GeneticLearner mLearner = new GeneticLearner();
 
     /** The Planner that plans on a model given by the genetic learner */
-    private final SparseCooperativeAgent mPlanner = new SparseCooperativeAgent();
+    private final SparseCooperativeAgent mPlanner;
 
     /** The really clever heuristic agent */
     private final SimpleHeuristicsAgent mHeuristicAgent = new SimpleHeuristicsAgent();
 
+    /**
+     * Create a wrapper whose planner uses all available processors
+     */
+    public ExperimentWrapperAgent() {
+        mPlanner = new SparseCooperativeAgent();
+    }
+
+    /**
+     * Create a wrapper whose planner uses at most the given amount of threads, to keep trials that
+     * run in parallel from competing for the processors
+     * 
+     * @param parallelism
+     *            The maximum amount of threads the planner trains with
+     */
+    public ExperimentWrapperAgent(final int parallelism) {
+        mPlanner = new SparseCooperativeAgent(parallelism);
+    }
+
+    /**
+     * Create a wrapper like {@link #ExperimentWrapperAgent(int)} whose agents draw their random
+     * numbers from generators derived from the given seed instead of Utilities.RNG. With a
+     * parallelism of 1 the same seed leads to the same actions on the same environment.
+     * 
+     * @param parallelism
+     *            The maximum amount of threads the planner trains with
+     * @param seed
+     *            The seed to derive the agents' seeds from
+     */
+    public ExperimentWrapperAgent(final int parallelism, final long seed) {
+        final Random random = new Random(seed);
+        mCostSolver.setSeed(random.nextLong());
+        mLearner.setSeed(random.nextLong());
+        mPlanner = new SparseCooperativeAgent(parallelism, random.nextLong());
+    }
+
     @Override
     public void init(final River river) {
         java.awt.Toolkit.getDefaultToolkit().beep();
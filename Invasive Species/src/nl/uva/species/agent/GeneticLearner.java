@@ -5,6 +5,7 @@ import nl.uva.species.model.EnvModel;
 import nl.uva.species.model.River;
 import nl.uva.species.model.RiverState;
 import nl.uva.species.utils.Messages;
+import nl.uva.species.utils.Utilities;
 
 import org.rlcommunity.rlglue.codec.types.Action;
 import org.rlcommunity.rlglue.codec.types.Observation;
@@ -21,6 +22,15 @@ public class GeneticLearner extends AbstractLearnerAgent {
     /** The amount of eradicate and restore action taken during learning */
     private final int AMOUNT_ERADICATE_RESTORE_ACTION = 100;
 
+    /** The amount of populations to evolve in parallel when learning the model */
+    private int mModelIslands = 1;
+
+    /** The maximum time to evolve the populations in milliseconds */
+    private long mModelTimeLimit = Long.MAX_VALUE;
+
+    /** The seed of the genetic algorithm's random number generators */
+    private long mSeed = Utilities.RNG.nextLong();
+
     /** The supported phases of the environment */
     private enum Phase {
         LEARNING,
@@ -73,7 +83,8 @@ public class GeneticLearner extends AbstractLearnerAgent {
         // }
 
         if (mModelGenerator == null) {
-            mModelGenerator = new GeneticModelCreator(mRiver);
+            mModelGenerator = new GeneticModelCreator(mRiver, mModelIslands, mModelTimeLimit,
+                    mSeed);
         }
     }
 
@@ -149,7 +160,36 @@ public class GeneticLearner extends AbstractLearnerAgent {
     }
 
     @Override
-    public void cleanup() {}
+    public void cleanup() {
+        if (mModelGenerator != null) {
+            mModelGenerator.shutdown();
+        }
+    }
+
+    /**
+     * Evolve the model on several populations in parallel instead of a single one. Only has
+     * effect when called before the learner is initialised.
+     * 
+     * @param islands
+     *            The amount of populations to evolve in parallel, 1 for a single population
+     * @param timeLimit
+     *            The maximum time to evolve the populations in milliseconds
+     */
+    public void setModelIslands(final int islands, final long timeLimit) {
+        mModelIslands = islands;
+        mModelTimeLimit = timeLimit;
+    }
+
+    /**
+     * Seeds the genetic algorithm, which is seeded from Utilities.RNG otherwise. Only has effect
+     * when called before the learner is initialised.
+     * 
+     * @param seed
+     *            The seed of the genetic algorithm's random number generators
+     */
+    public void setSeed(final long seed) {
+        mSeed = seed;
+    }
 
     @Override
     public void message(final Messages message) {
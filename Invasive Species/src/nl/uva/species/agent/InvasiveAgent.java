@@ -17,11 +17,11 @@ import java.util.List;
 import java.util.Random;
 import java.util.Vector;
 
+import nl.uva.species.model.TaskDescription;
 import nl.uva.species.utils.Utilities;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.rlcommunity.rlglue.codec.AgentInterface;
-import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
 import org.rlcommunity.rlglue.codec.types.Action;
 import org.rlcommunity.rlglue.codec.types.Observation;
 import org.rlcommunity.rlglue.codec.util.AgentLoader;
@@ -53,19 +53,17 @@ public class InvasiveAgent implements AgentInterface {
 	 */
 	@Override
 	public void agent_init(final String taskSpecification) {
-		TaskSpec theTaskSpec = new TaskSpec(taskSpecification);
+		TaskDescription theTask = TaskDescription.forTaskSpec(taskSpecification);
 		// Assume the message is valid
-		nbrReaches = theTaskSpec.getNumDiscreteActionDims();
-		Bad_Action_Penalty = theTaskSpec.getRewardRange().getMin();
-		rewardRangeMin = theTaskSpec.getRewardRange().getMin();
-		rewardRangeMax = theTaskSpec.getRewardRange().getMax();
-		habitatSize = theTaskSpec.getNumDiscreteObsDims() / this.nbrReaches;
-		sarsa_gamma = theTaskSpec.getDiscountFactor();
-
-		String[] theExtra = theTaskSpec.getExtraString().split("BUDGET");
-		edges = theExtra[0];
-		budget = Double.parseDouble(theExtra[1].split("by")[0]);
-		sarsa_gamma = theTaskSpec.getDiscountFactor();
+		nbrReaches = theTask.getNumDiscreteActions();
+		Bad_Action_Penalty = theTask.getRewardMin();
+		rewardRangeMin = theTask.getRewardMin();
+		rewardRangeMax = theTask.getRewardMax();
+		habitatSize = theTask.getNumDiscreteObservations() / this.nbrReaches;
+		sarsa_gamma = theTask.getDiscountFactor();
+
+		edges = theTask.getEdgeString();
+		budget = theTask.getBudget();
 
 		Q_value_function = new HashMap<Integer, Vector<Double>>();
 		all_allowed_actions = new HashMap<Integer, List<List<Integer>>>();
@@ -86,7 +84,7 @@ public class InvasiveAgent implements AgentInterface {
 			returnAction.intArray = thisIntAction;
 
 			this.lastAction = returnAction;
-			this.lastObservation = observation;
+			this.lastObservation = new Observation(observation);
 		}
 		return returnAction;
 	}
@@ -130,7 +128,7 @@ public class InvasiveAgent implements AgentInterface {
 		returnAction.intArray = newAction;
 
 		this.lastAction = returnAction;
-		this.lastObservation = observation;
+		this.lastObservation = new Observation(observation);
 		return returnAction;
 	}
 
@@ -0,0 +1,352 @@
+package nl.uva.species.agent;
+
+import java.util.Arrays;
+
+/**
+ * A table of Q values for local states encoded as non-negative long keys, with a value for each of
+ * the four actions. The table uses open addressing on primitive arrays so that lookups and updates
+ * don't allocate. It is split into segments with their own lock so that it can be trained by
+ * multiple threads at once.
+ */
+public class QTable {
+
+    /** The amount of actions to keep a value for per key */
+    public static final int NUM_ACTIONS = 4;
+
+    /** The key marking an empty slot */
+    private static final long EMPTY = -1;
+
+    /** The amount of segments; must be a power of two */
+    private static final int NUM_SEGMENTS = 16;
+
+    /** The initial amount of slots per segment; must be a power of two */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The segments that together hold the table's contents */
+    private final Segment[] mSegments = new Segment[NUM_SEGMENTS];
+
+    /**
+     * Prepares an empty table.
+     */
+    public QTable() {
+        for (int i = 0; i < NUM_SEGMENTS; ++i) {
+            mSegments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Retrieves a Q(s,a) value.
+     * 
+     * @param key
+     *            The key of local state s
+     * @param action
+     *            The action a
+     * 
+     * @return The Q value or NaN if no value is mapped
+     */
+    public double get(final long key, final int action) {
+        final int hash = hash(key);
+        return getSegment(hash).get(key, hash, action);
+    }
+
+    /**
+     * Checks if Q values are mapped for a local state.
+     * 
+     * @param key
+     *            The key of local state s
+     * 
+     * @return True iff values are mapped for any action on the state
+     */
+    public boolean contains(final long key) {
+        final int hash = hash(key);
+        return getSegment(hash).contains(key, hash);
+    }
+
+    /**
+     * Saves a Q(s,a) value.
+     * 
+     * @param key
+     *            The key of local state s
+     * @param action
+     *            The action a
+     * @param value
+     *            The value for the s,a pair
+     * 
+     * @return True iff no values were mapped for the state before
+     */
+    public boolean put(final long key, final int action, final double value) {
+        final int hash = hash(key);
+        return getSegment(hash).put(key, hash, action, value);
+    }
+
+    /**
+     * Moves a Q(s,a) value towards a target, treating a missing value as 0. The update is atomic
+     * with respect to other updates of the table.
+     * 
+     * @param key
+     *            The key of local state s
+     * @param action
+     *            The action a
+     * @param target
+     *            The target for the s,a pair
+     * @param learningRate
+     *            The fraction of the difference between the value and target to move
+     * 
+     * @return True iff no values were mapped for the state before
+     */
+    public boolean update(final long key, final int action, final double target,
+            final double learningRate) {
+        final int hash = hash(key);
+        return getSegment(hash).update(key, hash, action, target, learningRate);
+    }
+
+    /**
+     * Finds the action with the highest mapped Q value for a local state.
+     * 
+     * @param key
+     *            The key of local state s
+     * @param validActions
+     *            The actions to consider, with bit a set for action a
+     * 
+     * @return The best action or -1 if no value is mapped for any of the actions
+     */
+    public int getBestAction(final long key, final int validActions) {
+        final int hash = hash(key);
+        return getSegment(hash).getBestAction(key, hash, validActions);
+    }
+
+    /**
+     * Retrieves the amount of local states that have values mapped.
+     * 
+     * @return The table's size
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : mSegments) {
+            synchronized (segment) {
+                size += segment.mSize;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Retrieves the keys of all local states that have values mapped.
+     * 
+     * @return A copy of the mapped keys in no particular order
+     */
+    public long[] getKeys() {
+        long[] keys = new long[16];
+        int numKeys = 0;
+        for (final Segment segment : mSegments) {
+            synchronized (segment) {
+                if (numKeys + segment.mSize > keys.length) {
+                    keys = Arrays.copyOf(keys, Math.max(keys.length * 2, numKeys + segment.mSize));
+                }
+                for (final long key : segment.mKeys) {
+                    if (key != EMPTY) {
+                        keys[numKeys++] = key;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(keys, numKeys);
+    }
+
+    /**
+     * Removes all values from the table.
+     */
+    public void clear() {
+        for (final Segment segment : mSegments) {
+            synchronized (segment) {
+                segment.reset(INITIAL_CAPACITY);
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key into a hash.
+     * 
+     * @param key
+     *            The key to hash
+     * 
+     * @return The key's hash
+     */
+    private static int hash(final long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= (hash >>> 32);
+        return (int) hash;
+    }
+
+    /**
+     * Retrieves the segment responsible for a hash.
+     * 
+     * @param hash
+     *            The hash of the key
+     * 
+     * @return The segment holding the key
+     */
+    private Segment getSegment(final int hash) {
+        return mSegments[hash >>> (Integer.SIZE - Integer.numberOfTrailingZeros(NUM_SEGMENTS))];
+    }
+
+    /**
+     * A part of the table with its own slots, guarded by its own lock. Collisions are resolved by
+     * linear probing.
+     */
+    private static class Segment {
+
+        /** The key in each slot or EMPTY */
+        private long[] mKeys;
+
+        /** The values of each slot, NUM_ACTIONS values per slot and NaN for missing values */
+        private double[] mValues;
+
+        /** The amount of occupied slots */
+        private int mSize;
+
+        /**
+         * Prepares an empty segment.
+         */
+        public Segment() {
+            reset(INITIAL_CAPACITY);
+        }
+
+        /**
+         * Empties the segment with the given amount of slots.
+         * 
+         * @param capacity
+         *            The amount of slots; must be a power of two
+         */
+        private void reset(final int capacity) {
+            mKeys = new long[capacity];
+            mValues = new double[capacity * NUM_ACTIONS];
+            Arrays.fill(mKeys, EMPTY);
+            Arrays.fill(mValues, Double.NaN);
+            mSize = 0;
+        }
+
+        /**
+         * Finds the slot of a key or the empty slot where it would be inserted.
+         * 
+         * @param key
+         *            The key to find
+         * @param hash
+         *            The key's hash
+         * 
+         * @return The key's slot
+         */
+        private int findSlot(final long key, final int hash) {
+            final int mask = mKeys.length - 1;
+            int slot = hash & mask;
+            while (mKeys[slot] != key && mKeys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Finds the slot of a key, inserting the key if it isn't mapped yet.
+         * 
+         * @param key
+         *            The key to find
+         * @param hash
+         *            The key's hash
+         * 
+         * @return The key's slot
+         */
+        private int insertSlot(final long key, final int hash) {
+            int slot = findSlot(key, hash);
+            if (mKeys[slot] == EMPTY) {
+                // Keep at least half of the slots empty to keep probing short
+                if ((mSize + 1) * 2 > mKeys.length) {
+                    grow();
+                    slot = findSlot(key, hash);
+                }
+                mKeys[slot] = key;
+                ++mSize;
+            }
+            return slot;
+        }
+
+        /**
+         * Retrieves a Q(s,a) value, see {@link QTable#get(long, int)}.
+         */
+        public synchronized double get(final long key, final int hash, final int action) {
+            final int slot = findSlot(key, hash);
+            return (mKeys[slot] == key ? mValues[slot * NUM_ACTIONS + action - 1] : Double.NaN);
+        }
+
+        /**
+         * Checks if Q values are mapped, see {@link QTable#contains(long)}.
+         */
+        public synchronized boolean contains(final long key, final int hash) {
+            return mKeys[findSlot(key, hash)] == key;
+        }
+
+        /**
+         * Saves a Q(s,a) value, see {@link QTable#put(long, int, double)}.
+         */
+        public synchronized boolean put(final long key, final int hash, final int action,
+                final double value) {
+            final int size = mSize;
+            final int slot = insertSlot(key, hash);
+            mValues[slot * NUM_ACTIONS + action - 1] = value;
+            return mSize != size;
+        }
+
+        /**
+         * Moves a Q(s,a) value towards a target, see {@link QTable#update(long, int, double,
+         * double)}.
+         */
+        public synchronized boolean update(final long key, final int hash, final int action,
+                final double target, final double learningRate) {
+            final int size = mSize;
+            final int index = insertSlot(key, hash) * NUM_ACTIONS + action - 1;
+            final double value = (Double.isNaN(mValues[index]) ? 0 : mValues[index]);
+            mValues[index] = value + learningRate * (target - value);
+            return mSize != size;
+        }
+
+        /**
+         * Finds the best action, see {@link QTable#getBestAction(long, int)}.
+         */
+        public synchronized int getBestAction(final long key, final int hash,
+                final int validActions) {
+            final int slot = findSlot(key, hash);
+            if (mKeys[slot] != key) {
+                return -1;
+            }
+
+            int bestAction = -1;
+            double bestQ = Double.NEGATIVE_INFINITY;
+            for (int action = 1; action <= NUM_ACTIONS; ++action) {
+                final double Q = mValues[slot * NUM_ACTIONS + action - 1];
+                if ((validActions & (1 << action)) != 0 && !Double.isNaN(Q) && Q > bestQ) {
+                    bestAction = action;
+                    bestQ = Q;
+                }
+            }
+            return bestAction;
+        }
+
+        /**
+         * Doubles the amount of slots, moving all keys and values to their new slots.
+         */
+        private void grow() {
+            final long[] keys = mKeys;
+            final double[] values = mValues;
+            reset(keys.length * 2);
+
+            for (int oldSlot = 0; oldSlot < keys.length; ++oldSlot) {
+                if (keys[oldSlot] != EMPTY) {
+                    final int slot = findSlot(keys[oldSlot], hash(keys[oldSlot]));
+                    mKeys[slot] = keys[oldSlot];
+                    System.arraycopy(values, oldSlot * NUM_ACTIONS, mValues, slot * NUM_ACTIONS,
+                            NUM_ACTIONS);
+                    ++mSize;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package nl.uva.species.agent;
+
+import nl.uva.species.model.Reach;
+import nl.uva.species.model.River;
+import nl.uva.species.model.RiverState;
+
+/**
+ * Encodes reaches as keys to be mapped within a local state space. A key packs the reach's index
+ * together with the invasion categories of the reach and its environment into a long.
+ */
+final class ReachKey {
+
+    /** The amount of invasion categories within a key */
+    static final int NUM_CATEGORIES = 5;
+
+    /** The amount of bits used per invasion category */
+    static final int CATEGORY_BITS = 2;
+
+    /** The amount of bits used for all invasion categories together */
+    static final int CATEGORIES_BITS = NUM_CATEGORIES * CATEGORY_BITS;
+
+    /**
+     * Keys are only handled through the static methods.
+     */
+    private ReachKey() {}
+
+    /**
+     * Determines the key for a reach to be mapped within a local state space.
+     * 
+     * @param reach
+     *            The reach to map
+     * 
+     * @return The reach's key
+     */
+    public static long getKey(final Reach reach) {
+        final RiverState state = reach.getState();
+        final River river = state.getRiver();
+        final int index = reach.getIndex();
+
+        // Add the parent and sibling categories
+        int parentCategory = 0;
+        int siblingCategory = 0;
+        final int parent = river.getParents()[index];
+        if (parent != -1) {
+            parentCategory = getInvasionCategory(state, parent);
+
+            final int[] siblingOffsets = river.getSiblingOffsets();
+            if (siblingOffsets[index] < siblingOffsets[index + 1]) {
+                siblingCategory = getInvasionCategory(state,
+                        river.getSiblingIndices()[siblingOffsets[index]]);
+            }
+        }
+
+        // Add the categories of the first two children
+        final int[] childOffsets = river.getChildOffsets();
+        final int[] childIndices = river.getChildIndices();
+        final int numChildren = childOffsets[index + 1] - childOffsets[index];
+        final int firstChildCategory = (numChildren > 0 ? getInvasionCategory(state,
+                childIndices[childOffsets[index]]) : 0);
+        final int secondChildCategory = (numChildren > 1 ? getInvasionCategory(state,
+                childIndices[childOffsets[index] + 1]) : 0);
+
+        long key = index;
+        key = (key << CATEGORY_BITS) | getInvasionCategory(state, index);
+        key = (key << CATEGORY_BITS) | parentCategory;
+        key = (key << CATEGORY_BITS) | siblingCategory;
+        key = (key << CATEGORY_BITS) | firstChildCategory;
+        key = (key << CATEGORY_BITS) | secondChildCategory;
+        return key;
+    }
+
+    /**
+     * Retrieves the index of the reach from a key.
+     * 
+     * @param key
+     *            The reach key
+     * 
+     * @return The index of the reach
+     */
+    public static int getIndex(final long key) {
+        return (int) (key >>> CATEGORIES_BITS);
+    }
+
+    /**
+     * Retrieves all invasion categories from a key, packed as in the key.
+     * 
+     * @param key
+     *            The reach key
+     * 
+     * @return The packed invasion categories
+     */
+    public static int getCategories(final long key) {
+        return (int) key & ((1 << CATEGORIES_BITS) - 1);
+    }
+
+    /**
+     * Composes a key from a reach index and packed invasion categories.
+     * 
+     * @param index
+     *            The index of the reach
+     * @param categories
+     *            The packed invasion categories
+     * 
+     * @return The reach key
+     */
+    public static long getKey(final int index, final int categories) {
+        return ((long) index << CATEGORIES_BITS) | categories;
+    }
+
+    /**
+     * Retrieves one of the invasion categories from a key.
+     * 
+     * @param key
+     *            The reach key
+     * @param category
+     *            The position of the category: 0 for the reach, 1 for its parent, 2 for its
+     *            sibling and 3 and 4 for its children
+     * 
+     * @return The invasion category
+     */
+    public static int getCategory(final long key, final int category) {
+        final int shift = (NUM_CATEGORIES - 1 - category) * CATEGORY_BITS;
+        return (int) (key >>> shift) & ((1 << CATEGORY_BITS) - 1);
+    }
+
+    /**
+     * Determines which category a reach belongs to.
+     * 
+     * @param state
+     *            The state containing the reach
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The category for the reach
+     */
+    private static int getInvasionCategory(final RiverState state, final int index) {
+        final double habitatsInvaded = state.getHabitatsInvaded(index);
+
+        // Category 0 for a likely empty reach
+        if (habitatsInvaded < 0.5) {
+            return 0;
+        }
+
+        if (state.getReach(index).getNumHabitats() >= habitatsInvaded * 2) {
+            // Category 1 for little Tamarisk trees
+            return 1;
+        } else {
+            // Category 2 for many Tamarisk trees
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package nl.uva.species.agent;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An index over mapped reach keys to find the key closest to an unmapped one. Keys are bucketed
+ * per reach by their vector of invasion categories. Since there are only few possible vectors,
+ * every vector's candidates are sorted by distance once, after which a lookup walks the sorted
+ * candidates until it finds one that is mapped.
+ */
+class ReachKeyIndex {
+
+    /** The highest invasion category a key can contain */
+    private static final int MAX_CATEGORY = 2;
+
+    /** The distance added for a key of a different reach */
+    private static final int OTHER_REACH_DISTANCE = 11;
+
+    /** The amount of possible packed category vectors, including unused bit patterns */
+    private static final int NUM_VECTORS = 1 << ReachKey.CATEGORIES_BITS;
+
+    /** The factor for category differences per position, as in the reproduction scores */
+    private final double[] mWeights;
+
+    /** For every valid category vector, all valid vectors sorted by distance to it */
+    private final int[][] mCandidates = new int[NUM_VECTORS][];
+
+    /** The distance from every valid category vector to each of its sorted candidates */
+    private final int[][] mDistances = new int[NUM_VECTORS][];
+
+    /** Whether or not each category vector is mapped, per reach */
+    private final boolean[][] mMapped;
+
+    /** The amount of reaches that have each category vector mapped */
+    private final int[] mNumMapped = new int[NUM_VECTORS];
+
+    /** The amount of keys within the index */
+    private int mSize;
+
+    /**
+     * Prepares an empty index.
+     * 
+     * @param numReaches
+     *            The amount of reaches in the river
+     * @param parentRate
+     *            The factor for differences in the parent's category
+     * @param siblingRate
+     *            The factor for differences in the sibling's category
+     * @param childRate
+     *            The factor for differences in the children's categories
+     */
+    public ReachKeyIndex(final int numReaches, final double parentRate, final double siblingRate,
+            final double childRate) {
+        mWeights = new double[] { 1, parentRate, siblingRate, childRate, childRate };
+        mMapped = new boolean[numReaches][NUM_VECTORS];
+
+        // Gather all vectors of which every category is valid
+        int numValid = 0;
+        final Integer[] validVectors = new Integer[NUM_VECTORS];
+        for (int vector = 0; vector < NUM_VECTORS; ++vector) {
+            if (isValid(vector)) {
+                validVectors[numValid++] = vector;
+            }
+        }
+
+        for (int i = 0; i < numValid; ++i) {
+            final int vector = validVectors[i];
+            final Integer[] candidates = Arrays.copyOf(validVectors, numValid);
+
+            // Sort by distance, preferring lower categories on equal distances
+            Arrays.sort(candidates, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer first, final Integer second) {
+                    final int firstDistance = getDistance(vector, first);
+                    final int secondDistance = getDistance(vector, second);
+                    if (firstDistance != secondDistance) {
+                        return (firstDistance < secondDistance ? -1 : 1);
+                    }
+                    return first.compareTo(second);
+                }
+            });
+
+            mCandidates[vector] = new int[numValid];
+            mDistances[vector] = new int[numValid];
+            for (int j = 0; j < numValid; ++j) {
+                mCandidates[vector][j] = candidates[j];
+                mDistances[vector][j] = getDistance(vector, candidates[j]);
+            }
+        }
+    }
+
+    /**
+     * Adds a mapped key to the index.
+     * 
+     * @param key
+     *            The reach key to add
+     */
+    public synchronized void add(final long key) {
+        final boolean[] mapped = mMapped[ReachKey.getIndex(key)];
+        final int vector = ReachKey.getCategories(key);
+        if (!mapped[vector]) {
+            mapped[vector] = true;
+            ++mNumMapped[vector];
+            ++mSize;
+        }
+    }
+
+    /**
+     * Retrieves the amount of keys within the index.
+     * 
+     * @return The index's size
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Finds the mapped key closest to the given one. The distance between keys is the weighted
+     * difference between their invasion categories, plus a penalty for keys of different reaches.
+     * 
+     * @param key
+     *            The reach key to compare to
+     * 
+     * @return The closest mapped key or -1 if no keys are mapped
+     */
+    public synchronized long getClosest(final long key) {
+        final int index = ReachKey.getIndex(key);
+        final int[] candidates = mCandidates[ReachKey.getCategories(key)];
+        final int[] distances = mDistances[ReachKey.getCategories(key)];
+        final boolean[] mapped = mMapped[index];
+
+        // Find the closest vectors mapped for the same reach and for any other reach
+        int sameReach = -1;
+        int otherReach = -1;
+        for (int i = 0; i < candidates.length && (sameReach == -1 || otherReach == -1); ++i) {
+            final int vector = candidates[i];
+            if (sameReach == -1 && mapped[vector]) {
+                sameReach = i;
+            }
+            if (otherReach == -1 && mNumMapped[vector] > (mapped[vector] ? 1 : 0)) {
+                otherReach = i;
+            }
+        }
+
+        if (sameReach != -1 && (otherReach == -1
+                || distances[sameReach] <= distances[otherReach] + OTHER_REACH_DISTANCE)) {
+            return ReachKey.getKey(index, candidates[sameReach]);
+        }
+        if (otherReach != -1) {
+            final int vector = candidates[otherReach];
+            for (int other = 0; other < mMapped.length; ++other) {
+                if (other != index && mMapped[other][vector]) {
+                    return ReachKey.getKey(other, vector);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Calculates the distance between two category vectors. Every weighted difference is rounded
+     * down, as the distances have always been summed as integers.
+     * 
+     * @param first
+     *            The first packed category vector
+     * @param second
+     *            The second packed category vector
+     * 
+     * @return The distance between the vectors
+     */
+    private int getDistance(final int first, final int second) {
+        int distance = 0;
+        for (int category = 0; category < ReachKey.NUM_CATEGORIES; ++category) {
+            distance += Math.abs(ReachKey.getCategory(first, category)
+                    - ReachKey.getCategory(second, category)) * mWeights[category];
+        }
+        return distance;
+    }
+
+    /**
+     * Checks if all categories within a packed category vector are valid.
+     * 
+     * @param vector
+     *            The packed category vector
+     * 
+     * @return True iff no category exceeds the highest category
+     */
+    private static boolean isValid(final int vector) {
+        for (int category = 0; category < ReachKey.NUM_CATEGORIES; ++category) {
+            if (ReachKey.getCategory(vector, category) > MAX_CATEGORY) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,11 +1,16 @@
 package nl.uva.species.agent;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import nl.uva.species.model.EnvModel;
 import nl.uva.species.model.Reach;
@@ -34,7 +39,7 @@ public class SparseCooperativeAgent extends AbstractAgent {
     private static final double DISCOUNT = 0.9;
 
     /** Whether or not to print out the actions performed */
-    private static final boolean PRINT_ACTIONS = true;
+    private static final boolean PRINT_ACTIONS = false;
 
     /** The river in which the agent handles */
     private River mRiver;
@@ -42,11 +47,55 @@ public class SparseCooperativeAgent extends AbstractAgent {
     /** The model containing the environment's parameters */
     private EnvModel mModel;
 
-    /** A cache of reach keys to use in the Q mapping */
-    final Map<Reach, ReachKey> mKeyCache = new HashMap<>();
+    /** The Q values per local state, keyed by the reach keys */
+    private volatile QTable mQ = new QTable();
 
-    /** The Q values */
-    private final Map<ReachKey, HashMap<Integer, Double>> mQ = new HashMap<>();
+    /** The index to find the closest mapped reach keys in, or null if Q isn't trained yet */
+    private volatile ReachKeyIndex mKeyIndex;
+
+    /** The amount of threads that train Q in parallel */
+    private final int mNumTrainers;
+
+    /** The random number generator the seeds of the training threads are drawn from */
+    private final Random mRandom;
+
+    /** The threads that train Q, created when first needed and shut down on cleanup */
+    private ExecutorService mTrainers;
+
+    /** The training of Q currently in progress or null if none was started */
+    private volatile Training mTraining;
+
+    /**
+     * Create an agent that trains Q on all available processors
+     */
+    public SparseCooperativeAgent() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an agent that trains Q on the given amount of threads, seeded from Utilities.RNG
+     * 
+     * @param numTrainers
+     *            The amount of threads that train Q in parallel
+     */
+    public SparseCooperativeAgent(final int numTrainers) {
+        this(numTrainers, Utilities.RNG.nextLong());
+    }
+
+    /**
+     * Create an agent that trains Q on the given amount of threads. Every training thread draws
+     * its samples from its own generator seeded from the given seed, so a single training thread
+     * trains the same Q for the same seed.
+     * 
+     * @param numTrainers
+     *            The amount of threads that train Q in parallel
+     * @param seed
+     *            The seed to derive the seeds of the training threads from
+     */
+    public SparseCooperativeAgent(final int numTrainers, final long seed) {
+        mNumTrainers = Math.max(1, numTrainers);
+        mRandom = new Random(seed);
+    }
 
     @Override
     public void init(final River river) {
@@ -60,6 +109,20 @@ public class SparseCooperativeAgent extends AbstractAgent {
      *            The model containing the environment's parameters
      */
     public void setModel(final EnvModel model) {
+        setModel(model, Long.MAX_VALUE);
+    }
+
+    /**
+     * Sets the model to base the Q values on. Automatically trains Q to suit the new model for at
+     * most the given time, after which the Q values trained so far are used. The training can be
+     * stopped earlier from another thread through {@link #cancelTraining()}.
+     * 
+     * @param model
+     *            The model containing the environment's parameters
+     * @param timeLimit
+     *            The maximum time to train Q in milliseconds
+     */
+    public void setModel(final EnvModel model, final long timeLimit) {
         if (mModel != null && mModel.compareTo(model) == 0) {
             // Model did not change, no need for recalculation of Q
             System.out.println("Same model, not recalculating Q");
@@ -67,8 +130,20 @@ public class SparseCooperativeAgent extends AbstractAgent {
         }
 
         System.out.println("Recalculating Q");
+        cancelTraining();
         mModel = model;
-        trainQ();
+        trainQ(timeLimit);
+    }
+
+    /**
+     * Stops the training of Q as soon as possible, leaving the Q values trained so far. Any
+     * pending call to {@link #setModel(EnvModel)} returns once the training threads notice.
+     */
+    public void cancelTraining() {
+        final Training training = mTraining;
+        if (training != null) {
+            training.cancel();
+        }
     }
 
     @Override
@@ -92,7 +167,7 @@ public class SparseCooperativeAgent extends AbstractAgent {
                 bestAction = getBestAction(reach);
 
                 if (PRINT_ACTIONS) {
-                    if (!mQ.containsKey(getKey(reach))) {
+                    if (!mQ.contains(ReachKey.getKey(reach))) {
                         System.out.print("_");
                     }
                 }
@@ -132,171 +207,133 @@ public class SparseCooperativeAgent extends AbstractAgent {
     public void end(final double reward) {}
 
     @Override
-    public void cleanup() {}
+    public void cleanup() {
+        cancelTraining();
+        if (mTrainers != null) {
+            mTrainers.shutdownNow();
+            mTrainers = null;
+        }
+    }
 
     @Override
     public void message(final Messages message) {}
 
     /**
-     * Train the Q function based on the current model.
+     * Train the Q function based on the current model, using all training threads until Q stops
+     * growing, the time limit passes or the training is cancelled. Once the time limit passes the
+     * training threads are interrupted and the Q values trained so far are used.
+     * 
+     * @param timeLimit
+     *            The maximum time to train Q in milliseconds
      */
-    private void trainQ() {
-        final int numReaches = mRiver.getNumReaches();
-        final int numHabitats = numReaches * mRiver.getReachSize();
-
-        // Reset Q to remove traces of old models
-        mQ.clear();
-
-        int runs = 0;
-        int runsUnchanged = 0;
-        while (++runsUnchanged < PLAN_LIMIT) {
-            final int qSize = mQ.size();
-
-            // Generate a random state
-            final Observation observation = new Observation();
-            observation.intArray = new int[numHabitats];
-            for (int i = 0; i < numHabitats; ++i) {
-                observation.intArray[i] = Utilities.RNG.nextInt(2) + 1;
-            }
-            final RiverState state = new RiverState(mRiver, observation);
-
-            // Cache keys for each reach
-            putKeys(state);
-
-            // Generate global actions
-            final Action randomActions = getRandomAction(state);
-
-            // Update the local Q(s,a) value for each reach
-            for (final Reach reach : state.getReaches()) {
-                final int reachIndex = reach.getIndex();
-                final ReachKey reachKey = getKey(reach);
-
-                // Update the local Q(s,a) value for each action
-                final List<Integer> actions = reach.getValidActions();
-                actions.remove(new Integer(Utilities.ACTION_RESTORE));
-                for (final Integer action : actions) {
-                    final double qValue = getQ(reachKey, action);
-
-                    // Find the expected next state with the global random actions and local action
-                    final Action localActions = new Action();
-                    localActions.intArray = Arrays.copyOf(randomActions.intArray, numReaches);
-                    localActions.intArray[reachIndex] = action;
-                    final RiverState expectedNextState = mModel.getExpectedNextState(state,
-                            localActions);
-
-                    // Get the reward of the reward of transitioning to the expected state
-                    final double reward = mModel.getReachReward(expectedNextState
-                            .getReach(reachIndex)) + mModel.getSingleActionReward(reach, action);
-
-                    // Get the Q value of the optimal action in the expected state
-                    final Action bestNextActions = mModel.getBestAction(expectedNextState);
-                    final double maxNextQ = getQ(getKey(expectedNextState.getReach(reachIndex)),
-                            bestNextActions.intArray[reachIndex]);
-
-                    // Update Q
-                    putQ(reachKey, action, qValue + LEARNING_RATE
-                            * (reward + DISCOUNT * maxNextQ - qValue));
+    private void trainQ(final long timeLimit) {
+        if (mTrainers == null) {
+            mTrainers = Executors.newFixedThreadPool(mNumTrainers, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Q trainer");
+                    thread.setDaemon(true);
+                    return thread;
                 }
-            }
-
-            if (PRINT_ACTIONS) System.out.print(mQ.size() + " ");
+            });
+        }
 
-            // Keep track of changes
-            if (qSize != mQ.size()) {
-                runsUnchanged = 0;
-            }
+        // Start with an empty Q to remove traces of old models, which the policy uses right away
+        final Training training = new Training(mModel, timeLimit);
+        mKeyIndex = training.mKeyIndex;
+        mQ = training.mQ;
+        mTraining = training;
 
-            if (runs++ % 50 == 0) {
-                if (PRINT_ACTIONS) System.out.println();
-            }
+        final List<Future<?>> trainers = new ArrayList<>();
+        for (int i = 0; i < mNumTrainers; ++i) {
+            trainers.add(mTrainers.submit(training));
         }
-        if (PRINT_ACTIONS) System.out.println();
-    }
-
-    /**
-     * Converts the reaches in the given state to keys and caches them for later use.
-     * 
-     * @param state
-     *            The state to cache the reaches for
-     */
-    private void putKeys(final RiverState state) {
-        for (final Reach reach : state.getReaches()) {
-            if (!mKeyCache.containsKey(reach)) {
-                mKeyCache.put(reach, new ReachKey(reach));
+        if (!training.await()) {
+            // Don't wait for the samples in progress
+            training.cancel();
+            for (final Future<?> trainer : trainers) {
+                trainer.cancel(true);
             }
         }
     }
 
     /**
-     * Retrieves a cached reach key and creates the cache if needed.
-     * 
-     * @param reach
-     *            The reach to get the key for
-     * 
-     * @return The reach's key
-     */
-    private ReachKey getKey(final Reach reach) {
-        if (!mKeyCache.containsKey(reach)) {
-            mKeyCache.put(reach, new ReachKey(reach));
-        }
-        return mKeyCache.get(reach);
-    }
-
-    /**
-     * Finds a mapped reach key closest to the given one.
+     * Trains Q on a single randomly generated state with random global actions.
      * 
-     * @param reachKey
-     *            The reach key to compare to
+     * @param model
+     *            The model to base the Q values on
+     * @param q
+     *            The Q values to train
+     * @param keyIndex
+     *            The index to add newly mapped reach keys to
+     * @param random
+     *            The random number generator to generate the state and actions with
      * 
-     * @return The reach key closest to the given one or null if none was found
+     * @return True iff Q values were added for a previously unmapped local state
      */
-    private ReachKey getClosestKey(final ReachKey reachKey) {
-        ReachKey bestMatch = null;
-        int bestMatchScore = Integer.MAX_VALUE;
-
-        final double upstreamRate = mModel.getUpstreamRate();
-        final double downstreamRate = mModel.getDownstreamRate();
-
-        final double parentRate = Math.pow(upstreamRate, 2);
-        final double childRate = Math.pow(downstreamRate, 2);
-        final double siblingRate = upstreamRate * downstreamRate;
+    private boolean trainSample(final EnvModel model, final QTable q,
+            final ReachKeyIndex keyIndex, final Random random) {
+        final int numReaches = mRiver.getNumReaches();
+        final int numHabitats = numReaches * mRiver.getReachSize();
+        boolean mappedNewState = false;
 
-        for (final ReachKey key : mQ.keySet()) {
-            int matchScore = (reachKey.mIndex == key.mIndex ? 0 : 11);
+        // Generate a random state
+        final int[] habitats = new int[numHabitats];
+        for (int i = 0; i < numHabitats; ++i) {
+            habitats[i] = random.nextInt(2) + 1;
+        }
+        final RiverState state = new RiverState(mRiver, habitats);
 
-            matchScore += Math.abs(reachKey.mCategories[0] - key.mCategories[0]);
-            matchScore += Math.abs(reachKey.mCategories[1] - key.mCategories[1]) * parentRate;
-            matchScore += Math.abs(reachKey.mCategories[2] - key.mCategories[2]) * siblingRate;
-            matchScore += Math.abs(reachKey.mCategories[3] - key.mCategories[3]) * childRate;
-            matchScore += Math.abs(reachKey.mCategories[4] - key.mCategories[4]) * childRate;
+        // Generate global actions
+        final Action randomActions = getRandomAction(state, random);
 
-            if (matchScore < bestMatchScore) {
-                bestMatch = key;
-                bestMatchScore = matchScore;
+        // Update the local Q(s,a) value for each reach
+        for (final Reach reach : state.getReaches()) {
+            final int reachIndex = reach.getIndex();
+            final long reachKey = ReachKey.getKey(reach);
+
+            // Update the local Q(s,a) value for each action
+            final List<Integer> actions = reach.getValidActions();
+            actions.remove(new Integer(Utilities.ACTION_RESTORE));
+            for (final Integer action : actions) {
+                // Find the expected next state with the global random actions and local action
+                final Action localActions = new Action();
+                localActions.intArray = Arrays.copyOf(randomActions.intArray, numReaches);
+                localActions.intArray[reachIndex] = action;
+                final RiverState expectedNextState = model.getExpectedNextState(state,
+                        localActions);
+
+                // Get the reward of the reward of transitioning to the expected state
+                final double reward = model.getReachReward(expectedNextState
+                        .getReach(reachIndex)) + model.getSingleActionReward(reach, action);
+
+                // Get the Q value of the optimal action in the expected state
+                final Action bestNextActions = model.getBestAction(expectedNextState);
+                final double maxNextQ = getQ(q, ReachKey.getKey(expectedNextState
+                        .getReach(reachIndex)), bestNextActions.intArray[reachIndex]);
+
+                // Update Q
+                if (q.update(reachKey, action, reward + DISCOUNT * maxNextQ, LEARNING_RATE)) {
+                    keyIndex.add(reachKey);
+                    mappedNewState = true;
+                }
             }
         }
 
-        return bestMatch;
+        return mappedNewState;
     }
 
     /**
-     * Saves a Q(s,a) value.
+     * Finds a mapped reach key closest to the given one.
      * 
      * @param reachKey
-     *            The key of reach s
-     * @param action
-     *            The action a
-     * @param value
-     *            The value for the s,a pair
+     *            The reach key to compare to
+     * 
+     * @return The reach key closest to the given one or -1 if none was found
      */
-    private void putQ(final ReachKey reachKey, final int action, final double value) {
-        HashMap<Integer, Double> actionMap = mQ.get(reachKey);
-        if (actionMap == null) {
-            actionMap = new HashMap<Integer, Double>();
-            mQ.put(reachKey, actionMap);
-        }
-
-        actionMap.put(action, value);
+    private long getClosestKey(final long reachKey) {
+        final ReachKeyIndex keyIndex = mKeyIndex;
+        return (keyIndex != null ? keyIndex.getClosest(reachKey) : -1);
     }
 
     /**
@@ -308,12 +345,14 @@ public class SparseCooperativeAgent extends AbstractAgent {
      * @return True iff the given reach has Q values mapped to it
      */
     private boolean hasQ(final Reach reach) {
-        return mQ.containsKey(getKey(reach));
+        return mQ.contains(ReachKey.getKey(reach));
     }
 
     /**
      * Retrieves a mapped Q(s,a) value.
      * 
+     * @param q
+     *            The Q values to look in
      * @param reachKey
      *            The key for reach s
      * @param action
@@ -321,12 +360,9 @@ public class SparseCooperativeAgent extends AbstractAgent {
      * 
      * @return The mapped Q value or 0 is none was found
      */
-    private double getQ(final ReachKey reachKey, final int action) {
-        final HashMap<Integer, Double> actionMap = mQ.get(reachKey);
-        if (actionMap == null) {
-            return 0;
-        }
-        return (actionMap.containsKey(action) ? actionMap.get(action) : 0);
+    private static double getQ(final QTable q, final long reachKey, final int action) {
+        final double value = q.get(reachKey, action);
+        return (Double.isNaN(value) ? 0 : value);
     }
 
     /**
@@ -339,15 +375,15 @@ public class SparseCooperativeAgent extends AbstractAgent {
      * 
      * @return The mapped Q value or 0 is none was found
      */
-    private double getClosestQ(final ReachKey reachKey, final int action) {
-        final HashMap<Integer, Double> actionMap = mQ.get(reachKey);
+    private double getClosestQ(final long reachKey, final int action) {
+        final QTable q = mQ;
 
         // If a key is not found, return the Q value of the closest match
-        if (actionMap == null) {
-            final ReachKey bestMatch = getClosestKey(reachKey);
-            return (bestMatch != null ? getQ(bestMatch, action) : 0);
+        if (!q.contains(reachKey)) {
+            final long bestMatch = getClosestKey(reachKey);
+            return (bestMatch != -1 ? getQ(q, bestMatch, action) : 0);
         }
-        return (actionMap.containsKey(action) ? actionMap.get(action) : 0);
+        return getQ(q, reachKey, action);
     }
 
     /**
@@ -358,33 +394,26 @@ public class SparseCooperativeAgent extends AbstractAgent {
      * 
      * @return The best action for the given reach or NOTHING if the reach has no Q values
      */
-    private Integer getBestAction(final Reach reach) {
-        final ReachKey reachKey = getKey(reach);
-        final HashMap<Integer, Double> actionMap;
-
-        // Try to get the action map for the given key, or the closest one if given isn't mapped
-        if (mQ.containsKey(reachKey)) {
-            actionMap = mQ.get(reachKey);
-        } else {
-            final ReachKey closestKey = getClosestKey(reachKey);
-            if (closestKey == null) {
+    private int getBestAction(final Reach reach) {
+        final QTable q = mQ;
+        long reachKey = ReachKey.getKey(reach);
+
+        // Try to get the Q values for the given key, or the closest one if given isn't mapped
+        if (!q.contains(reachKey)) {
+            reachKey = getClosestKey(reachKey);
+            if (reachKey == -1) {
                 return Utilities.ACTION_NOTHING;
             }
-            actionMap = mQ.get(closestKey);
         }
 
         // Check all mapped actions for the one with the best Q value
-        Integer bestAction = null;
-        Double bestQ = Double.NEGATIVE_INFINITY;
+        int validActions = 0;
         for (final Integer action : reach.getValidActions()) {
-            final Double Q = actionMap.get(action);
-            if (Q != null && Q > bestQ) {
-                bestAction = action;
-                bestQ = Q;
-            }
+            validActions |= 1 << action;
         }
+        final int bestAction = q.getBestAction(reachKey, validActions);
 
-        return (bestAction != null ? bestAction : Utilities.ACTION_NOTHING);
+        return (bestAction != -1 ? bestAction : Utilities.ACTION_NOTHING);
     }
 
     /**
@@ -392,16 +421,18 @@ public class SparseCooperativeAgent extends AbstractAgent {
      * 
      * @param state
      *            The state for get actions for
+     * @param random
+     *            The random number generator to choose the actions with
      * 
      * @return A random action to be performed on the state
      */
-    private Action getRandomAction(final RiverState state) {
+    private Action getRandomAction(final RiverState state, final Random random) {
         final Action randomActions = new Action();
         randomActions.intArray = new int[mRiver.getNumReaches()];
 
         for (final Reach reach : state.getReaches()) {
             final List<Integer> validActions = reach.getValidActions();
-            randomActions.intArray[reach.getIndex()] = validActions.get(Utilities.RNG
+            randomActions.intArray[reach.getIndex()] = validActions.get(random
                     .nextInt(validActions.size()));
         }
 
@@ -454,7 +485,7 @@ public class SparseCooperativeAgent extends AbstractAgent {
                     return null;
                 }
 
-                qSum += getClosestQ(getKey(reach), currentAction.intArray[i]);
+                qSum += getClosestQ(ReachKey.getKey(reach), currentAction.intArray[i]);
             }
 
             return new Pair<Action, Double>(currentAction, qSum);
@@ -483,100 +514,120 @@ public class SparseCooperativeAgent extends AbstractAgent {
     }
 
     /**
-     * A class to serve as key for a reach to be mapped within a local state space.
+     * A training of Q for a single model, shared by all training threads. Each thread trains on
+     * random samples until Q stopped growing for a while, the time limit passed or the training
+     * was cancelled.
      */
-    private static class ReachKey {
+    private class Training implements Runnable {
+
+        /** The model to base the Q values on */
+        private final EnvModel mModel;
+
+        /** The Q values being trained */
+        private final QTable mQ = new QTable();
+
+        /** The random number generators of the training threads */
+        private final Random[] mRandoms = new Random[mNumTrainers];
 
-        /** The initial hash value; must be prime */
-        private static final int HASH_SEED = 7;
+        /** The index of the random number generator for the next training thread */
+        private final AtomicInteger mNextRandom = new AtomicInteger();
 
-        /** The hash offset for following numbers; must be prime */
-        private static final int HASH_OFFSET = 31;
+        /** The index over the reach keys mapped in Q */
+        private final ReachKeyIndex mKeyIndex;
 
-        /** The index of the reach */
-        private final int mIndex;
+        /** The time at which the training started in nanoseconds */
+        private final long mStartTime = System.nanoTime();
 
-        /** The reach categories for the reach and its environment */
-        private final int[] mCategories = new int[5];
+        /** The maximum time to train in nanoseconds */
+        private final long mTimeLimit;
+
+        /** The amount of samples in a row that did not yield new local states */
+        private final AtomicInteger mRunsUnchanged = new AtomicInteger();
+
+        /** Counts down the training threads that are still busy */
+        private final CountDownLatch mTrainersBusy = new CountDownLatch(mNumTrainers);
+
+        /** Whether or not the training was cancelled */
+        private volatile boolean mCancelled;
 
         /**
-         * Prepares a key for a reach to be mapped within a local state space.
+         * Prepares a training of Q for the given model.
          * 
-         * @param reach
-         *            The reach to map
+         * @param model
+         *            The model to base the Q values on
+         * @param timeLimit
+         *            The maximum time to train in milliseconds
          */
-        public ReachKey(final Reach reach) {
-            mIndex = reach.getIndex();
-
-            mCategories[0] = getInvasionCategory(reach);
-
-            // Add the parent category
-            final Reach parent = reach.getParent();
-            if (parent != null) {
-                mCategories[1] = getInvasionCategory(parent);
-
-                // Add the sibling category
-                final Set<Reach> siblings = parent.getChildren();
-                for (final Reach sibling : siblings) {
-                    if (sibling != reach) {
-                        mCategories[2] = getInvasionCategory(sibling);
-                        break;
-                    }
-                }
+        public Training(final EnvModel model, final long timeLimit) {
+            mModel = model;
+            mTimeLimit = TimeUnit.MILLISECONDS.toNanos(timeLimit);
+            for (int i = 0; i < mRandoms.length; ++i) {
+                mRandoms[i] = new Random(mRandom.nextLong());
             }
 
-            // Add the children's categories
-            int pos = 3;
-            final Set<Reach> children = reach.getChildren();
-            for (final Reach child : children) {
-                mCategories[pos++] = getInvasionCategory(child);
+            final double upstreamRate = model.getUpstreamRate();
+            final double downstreamRate = model.getDownstreamRate();
+            mKeyIndex = new ReachKeyIndex(mRiver.getNumReaches(), Math.pow(upstreamRate, 2),
+                    upstreamRate * downstreamRate, Math.pow(downstreamRate, 2));
+        }
+
+        @Override
+        public void run() {
+            final Random random = mRandoms[mNextRandom.getAndIncrement()];
+
+            try {
+                while (!isDone()) {
+                    if (trainSample(mModel, mQ, mKeyIndex, random)) {
+                        mRunsUnchanged.set(0);
+                    } else {
+                        mRunsUnchanged.incrementAndGet();
+                    }
+                }
+            } finally {
+                mTrainersBusy.countDown();
             }
         }
 
         /**
-         * Determines which category a reach belongs to.
-         * 
-         * @param reach
-         *            The reach
+         * Checks if the training should stop.
          * 
-         * @return The category for the reach
+         * @return True iff the training was cancelled, ran out of time or stopped yielding new
+         *         local states
          */
-        private static int getInvasionCategory(final Reach reach) {
-            final double habitatsInvaded = reach.getHabitatsInvaded();
-
-            // Category 0 for a likely empty reach
-            if (habitatsInvaded < 0.5) {
-                return 0;
-            }
+        private boolean isDone() {
+            return mCancelled || mRunsUnchanged.get() >= PLAN_LIMIT
+                    || Thread.currentThread().isInterrupted() || getRemainingTime() <= 0;
+        }
 
-            if (reach.getNumHabitats() >= habitatsInvaded * 2) {
-                // Category 1 for little Tamarisk trees
-                return 1;
-            } else {
-                // Category 2 for many Tamarisk trees
-                return 2;
-            }
+        /**
+         * Calculates the time left to train.
+         * 
+         * @return The remaining time in nanoseconds
+         */
+        private long getRemainingTime() {
+            return mTimeLimit - (System.nanoTime() - mStartTime);
         }
 
-        @Override
-        public int hashCode() {
-            int intHash = HASH_SEED;
-            intHash += HASH_OFFSET * mIndex;
-            for (int i = 0; i < mCategories.length; ++i) {
-                intHash += HASH_OFFSET * (mCategories[i] + (i + 1) * 10);
-            }
-            return intHash;
+        /**
+         * Stops the training as soon as the training threads finish their current sample.
+         */
+        public void cancel() {
+            mCancelled = true;
         }
 
-        @Override
-        public boolean equals(final Object other) {
-            if (!(other instanceof ReachKey)) {
+        /**
+         * Waits until all training threads stopped training, but no longer than the time limit.
+         * 
+         * @return True iff all training threads stopped in time
+         */
+        public boolean await() {
+            try {
+                return mTrainersBusy.await(getRemainingTime(), TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException ex) {
+                // Stop training and leave Q as is
+                Thread.currentThread().interrupt();
                 return false;
             }
-
-            final ReachKey reachKey = (ReachKey) other;
-            return mIndex == reachKey.mIndex
-                    && Objects.deepEquals(mCategories, reachKey.mCategories);
         }
     }
 
@@ -0,0 +1,98 @@
+package nl.uva.species.benchmark;
+
+/**
+ * A single operation to time, optionally for several values of one parameter. The runner calls
+ * {@link #setUp(int)} for every parameter value and then times {@link #operation()} over many
+ * calls. Every operation returns a value depending on its work, which the runner consumes so the
+ * JIT can't remove the work.
+ */
+public abstract class Benchmark {
+
+    /** The value of the parameter of benchmarks without a parameter */
+    private static final int[] NO_PARAMETER = { 0 };
+
+    /** The name of the benchmark */
+    private final String mName;
+
+    /** The name of the parameter or null if the benchmark has none */
+    private final String mParameterName;
+
+    /** The values of the parameter to run the benchmark for */
+    private final int[] mParameterValues;
+
+    /**
+     * Prepares a benchmark without a parameter.
+     * 
+     * @param name
+     *            The name of the benchmark
+     */
+    public Benchmark(final String name) {
+        this(name, null, NO_PARAMETER);
+    }
+
+    /**
+     * Prepares a benchmark with a parameter.
+     * 
+     * @param name
+     *            The name of the benchmark
+     * @param parameterName
+     *            The name of the parameter
+     * @param parameterValues
+     *            The values of the parameter to run the benchmark for
+     */
+    public Benchmark(final String name, final String parameterName,
+            final int... parameterValues) {
+        mName = name;
+        mParameterName = parameterName;
+        mParameterValues = parameterValues;
+    }
+
+    /**
+     * Retrieves the name of the benchmark.
+     * 
+     * @return The benchmark's name
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Retrieves the name of the parameter.
+     * 
+     * @return The parameter's name or null if the benchmark has none
+     */
+    public String getParameterName() {
+        return mParameterName;
+    }
+
+    /**
+     * Retrieves the values of the parameter to run the benchmark for.
+     * 
+     * @return The parameter's values
+     */
+    public int[] getParameterValues() {
+        return mParameterValues;
+    }
+
+    /**
+     * Prepares everything the operation needs for the given parameter value. Nothing done here is
+     * timed.
+     * 
+     * @param parameter
+     *            The value of the parameter, or 0 if the benchmark has none
+     */
+    protected abstract void setUp(int parameter) throws Exception;
+
+    /**
+     * Performs the operation to time once.
+     * 
+     * @return A value that depends on the work done
+     */
+    protected abstract long operation() throws Exception;
+
+    /**
+     * Releases what was prepared for a parameter value.
+     */
+    protected void tearDown() throws Exception {
+    }
+}
@@ -0,0 +1,198 @@
+package nl.uva.species.benchmark;
+
+import java.util.Locale;
+
+import org.apache.commons.math3.distribution.TDistribution;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+
+/**
+ * The measured average time per operation of a benchmark for one parameter value, with a 99.9%
+ * confidence interval over the measurement iterations like JMH reports it.
+ */
+public class BenchmarkResult {
+
+    /** The confidence level of the reported score error */
+    private static final double CONFIDENCE = 0.999;
+
+    /** The benchmark that was measured */
+    private final Benchmark mBenchmark;
+
+    /** The value of the benchmark's parameter */
+    private final int mParameter;
+
+    /** The average time per operation of every measurement iteration in microseconds */
+    private final double[] mScores;
+
+    /** The settings the benchmark was run with */
+    private final BenchmarkRunner mRunner;
+
+    /**
+     * Prepares a result.
+     * 
+     * @param benchmark
+     *            The benchmark that was measured
+     * @param parameter
+     *            The value of its parameter
+     * @param scores
+     *            The microseconds per operation of every measurement iteration
+     * @param runner
+     *            The runner that measured it
+     */
+    public BenchmarkResult(final Benchmark benchmark, final int parameter, final double[] scores,
+            final BenchmarkRunner runner) {
+        mBenchmark = benchmark;
+        mParameter = parameter;
+        mScores = scores;
+        mRunner = runner;
+    }
+
+    /**
+     * Retrieves the benchmark that was measured.
+     * 
+     * @return The benchmark
+     */
+    public Benchmark getBenchmark() {
+        return mBenchmark;
+    }
+
+    /**
+     * Retrieves the value of the benchmark's parameter.
+     * 
+     * @return The parameter value, or 0 if the benchmark has none
+     */
+    public int getParameter() {
+        return mParameter;
+    }
+
+    /**
+     * Retrieves the average time per operation over all measurement iterations.
+     * 
+     * @return The score in microseconds per operation
+     */
+    public double getScore() {
+        return getStatistics().getMean();
+    }
+
+    /**
+     * Retrieves the half width of the confidence interval around the score.
+     * 
+     * @return The error in microseconds per operation, or NaN with a single iteration
+     */
+    public double getScoreError() {
+        final SummaryStatistics statistics = getStatistics();
+        if (statistics.getN() < 2) {
+            return Double.NaN;
+        }
+        final TDistribution distribution = new TDistribution(statistics.getN() - 1);
+        return distribution.inverseCumulativeProbability(1 - (1 - CONFIDENCE) / 2)
+                * statistics.getStandardDeviation() / Math.sqrt(statistics.getN());
+    }
+
+    /**
+     * Collects the statistics of the measurement iterations.
+     * 
+     * @return The statistics of the scores
+     */
+    private SummaryStatistics getStatistics() {
+        final SummaryStatistics statistics = new SummaryStatistics();
+        for (final double score : mScores) {
+            statistics.addValue(score);
+        }
+        return statistics;
+    }
+
+    /**
+     * Formats the result as an entry of JMH's JSON output, so the usual JMH tooling can compare
+     * the results of different commits.
+     * 
+     * @return The result as a JSON object
+     */
+    public String toJson() {
+        final StringBuilder json = new StringBuilder();
+        json.append("    {\n");
+        json.append("        \"benchmark\" : \"")
+                .append(BenchmarkRunner.class.getPackage().getName()).append('.')
+                .append(mBenchmark.getName()).append("\",\n");
+        json.append("        \"mode\" : \"avgt\",\n");
+        json.append("        \"threads\" : 1,\n");
+        json.append("        \"forks\" : 1,\n");
+        json.append("        \"jvm\" : \"").append(escape(System.getProperty("java.home")))
+                .append("\",\n");
+        json.append("        \"jdkVersion\" : \"").append(System.getProperty("java.version"))
+                .append("\",\n");
+        json.append("        \"warmupIterations\" : ").append(mRunner.getWarmupIterations())
+                .append(",\n");
+        json.append("        \"warmupTime\" : \"").append(mRunner.getIterationTime())
+                .append(" ms\",\n");
+        json.append("        \"measurementIterations\" : ").append(mScores.length).append(",\n");
+        json.append("        \"measurementTime\" : \"").append(mRunner.getIterationTime())
+                .append(" ms\",\n");
+        if (mBenchmark.getParameterName() != null) {
+            json.append("        \"params\" : {\n");
+            json.append("            \"").append(mBenchmark.getParameterName()).append("\" : \"")
+                    .append(mParameter).append("\"\n");
+            json.append("        },\n");
+        }
+
+        final double score = getScore();
+        final double error = getScoreError();
+        json.append("        \"primaryMetric\" : {\n");
+        json.append("            \"score\" : ").append(format(score)).append(",\n");
+        json.append("            \"scoreError\" : ").append(format(error)).append(",\n");
+        json.append("            \"scoreConfidence\" : [\n");
+        json.append("                ").append(format(score - error)).append(",\n");
+        json.append("                ").append(format(score + error)).append("\n");
+        json.append("            ],\n");
+        json.append("            \"scoreUnit\" : \"us/op\",\n");
+        json.append("            \"rawData\" : [\n");
+        json.append("                [\n");
+        for (int i = 0; i < mScores.length; ++i) {
+            json.append("                    ").append(format(mScores[i]))
+                    .append(i + 1 < mScores.length ? ",\n" : "\n");
+        }
+        json.append("                ]\n");
+        json.append("            ]\n");
+        json.append("        },\n");
+        json.append("        \"secondaryMetrics\" : {\n");
+        json.append("        }\n");
+        json.append("    }");
+        return json.toString();
+    }
+
+    /**
+     * Formats a number for JSON, which has no NaN.
+     * 
+     * @param value
+     *            The number to format
+     * 
+     * @return The number's JSON representation
+     */
+    private static String format(final double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.US, "%.6f", value);
+    }
+
+    /**
+     * Escapes the characters of a string that can't appear in a JSON string as they are.
+     * 
+     * @param value
+     *            The string to escape
+     * 
+     * @return The escaped string
+     */
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Formats the result as a line of a table for the console.
+     * 
+     * @return The formatted result
+     */
+    @Override
+    public String toString() {
+        final String parameter = (mBenchmark.getParameterName() == null ? "" : mBenchmark
+                .getParameterName() + "=" + mParameter);
+        return String.format(Locale.US, "%-40s %-12s %14.3f +- %10.3f us/op",
+                mBenchmark.getName(), parameter, getScore(), getScoreError());
+    }
+}
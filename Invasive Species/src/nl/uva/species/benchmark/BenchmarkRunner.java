@@ -0,0 +1,224 @@
+package nl.uva.species.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the average time per operation of benchmarks the way JMH does in its average time mode:
+ * a number of warm-up iterations to let the JIT compile the operation, followed by measurement
+ * iterations of a fixed length. Every iteration runs the operation in batches and only reads the
+ * clock between batches, so the clock itself doesn't dominate short operations. The results can be
+ * written in JMH's JSON format.
+ */
+public class BenchmarkRunner {
+
+    /** The default amount of warm-up iterations */
+    public static final int DEFAULT_WARMUP_ITERATIONS = 5;
+
+    /** The default amount of measurement iterations */
+    public static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+
+    /** The default length of an iteration in milliseconds */
+    public static final long DEFAULT_ITERATION_TIME = 1000;
+
+    /** The amount of nanoseconds a single batch of operations aims to take */
+    private static final long BATCH_NANOS = 1000000;
+
+    /** The amount of warm-up iterations */
+    private final int mWarmupIterations;
+
+    /** The amount of measurement iterations */
+    private final int mMeasurementIterations;
+
+    /** The length of an iteration in milliseconds */
+    private final long mIterationTime;
+
+    /** The values returned by the operations, combined so the JIT can't leave out the work */
+    private volatile long mSink;
+
+    /**
+     * Prepares a runner with the default amounts of iterations and iteration length.
+     */
+    public BenchmarkRunner() {
+        this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS, DEFAULT_ITERATION_TIME);
+    }
+
+    /**
+     * Prepares a runner.
+     * 
+     * @param warmupIterations
+     *            The amount of iterations to run before measuring
+     * @param measurementIterations
+     *            The amount of iterations to measure
+     * @param iterationTime
+     *            The length of every iteration in milliseconds
+     */
+    public BenchmarkRunner(final int warmupIterations, final int measurementIterations,
+            final long iterationTime) {
+        mWarmupIterations = warmupIterations;
+        mMeasurementIterations = Math.max(1, measurementIterations);
+        mIterationTime = iterationTime;
+    }
+
+    /**
+     * Retrieves the amount of warm-up iterations.
+     * 
+     * @return The amount of iterations run before measuring
+     */
+    public int getWarmupIterations() {
+        return mWarmupIterations;
+    }
+
+    /**
+     * Retrieves the amount of measurement iterations.
+     * 
+     * @return The amount of iterations measured
+     */
+    public int getMeasurementIterations() {
+        return mMeasurementIterations;
+    }
+
+    /**
+     * Retrieves the length of an iteration.
+     * 
+     * @return The length of every iteration in milliseconds
+     */
+    public long getIterationTime() {
+        return mIterationTime;
+    }
+
+    /**
+     * Runs all benchmarks with a name matching the filter for all their parameter values, printing
+     * every result as it comes in.
+     * 
+     * @param benchmarks
+     *            The benchmarks to choose from
+     * @param filter
+     *            The regular expression to find in the names of the benchmarks to run
+     * 
+     * @return The results of all runs
+     * 
+     * @throws Exception
+     *             If any of the benchmarks failed
+     */
+    public List<BenchmarkResult> run(final List<Benchmark> benchmarks, final String filter)
+            throws Exception {
+        final Pattern pattern = Pattern.compile(filter);
+        final List<BenchmarkResult> results = new ArrayList<>();
+        for (final Benchmark benchmark : benchmarks) {
+            if (!pattern.matcher(benchmark.getName()).find()) {
+                continue;
+            }
+            for (final int parameter : benchmark.getParameterValues()) {
+                final BenchmarkResult result = run(benchmark, parameter);
+                System.out.println(result);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs a single benchmark for a single parameter value.
+     * 
+     * @param benchmark
+     *            The benchmark to run
+     * @param parameter
+     *            The value of its parameter
+     * 
+     * @return The measured result
+     * 
+     * @throws Exception
+     *             If the benchmark failed
+     */
+    public BenchmarkResult run(final Benchmark benchmark, final int parameter) throws Exception {
+        benchmark.setUp(parameter);
+        try {
+            int batchSize = 1;
+            for (int i = 0; i < mWarmupIterations; ++i) {
+                batchSize = iterate(benchmark, batchSize, null, i);
+            }
+
+            final double[] scores = new double[mMeasurementIterations];
+            for (int i = 0; i < mMeasurementIterations; ++i) {
+                batchSize = iterate(benchmark, batchSize, scores, i);
+            }
+            return new BenchmarkResult(benchmark, parameter, scores, this);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    /**
+     * Runs the operation of a benchmark for the length of one iteration.
+     * 
+     * @param benchmark
+     *            The benchmark to run
+     * @param batchSize
+     *            The amount of operations to start with between reading the clock
+     * @param scores
+     *            The array to store the microseconds per operation in, or null while warming up
+     * @param iteration
+     *            The index in the scores to store the result at
+     * 
+     * @return The batch size to continue with in the next iteration
+     * 
+     * @throws Exception
+     *             If the benchmark failed
+     */
+    private int iterate(final Benchmark benchmark, final int batchSize, final double[] scores,
+            final int iteration) throws Exception {
+        final long iterationNanos = mIterationTime * 1000000;
+        int batch = batchSize;
+        long operations = 0;
+        long elapsed = 0;
+        long sink = 0;
+        do {
+            final long start = System.nanoTime();
+            for (int i = 0; i < batch; ++i) {
+                sink ^= benchmark.operation();
+            }
+            final long time = System.nanoTime() - start;
+            operations += batch;
+            elapsed += time;
+
+            // Grow the batches of short operations until reading the clock becomes negligible
+            if (time < BATCH_NANOS / 2 && batch < Integer.MAX_VALUE / 2) {
+                batch *= 2;
+            }
+        } while (elapsed < iterationNanos);
+        mSink ^= sink;
+
+        if (scores != null) {
+            scores[iteration] = elapsed / 1000.0 / operations;
+        }
+        return batch;
+    }
+
+    /**
+     * Writes results in JMH's JSON format.
+     * 
+     * @param results
+     *            The results to write
+     * @param fileName
+     *            The name of the file to write to
+     * 
+     * @throws IOException
+     *             If the file could not be written
+     */
+    public static void writeJson(final List<BenchmarkResult> results, final String fileName)
+            throws IOException {
+        try (final PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("[");
+            for (int i = 0; i < results.size(); ++i) {
+                writer.print(results.get(i).toJson());
+                writer.println(i + 1 < results.size() ? "," : "");
+            }
+            writer.println("]");
+        }
+    }
+}
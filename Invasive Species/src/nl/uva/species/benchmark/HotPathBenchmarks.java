@@ -0,0 +1,462 @@
+package nl.uva.species.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nl.uva.species.agent.SimpleHeuristicsAgent;
+import nl.uva.species.environment.ActionParameters;
+import nl.uva.species.environment.GerminationDispersionParameters;
+import nl.uva.species.environment.InvasiveEnvironment;
+import nl.uva.species.environment.SimulationParameters;
+import nl.uva.species.model.EnvModel;
+import nl.uva.species.model.River;
+import nl.uva.species.model.RiverState;
+import nl.uva.species.model.TaskDescription;
+
+import org.rlcommunity.rlglue.codec.LocalGlue;
+import org.rlcommunity.rlglue.codec.network.Network;
+import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
+import org.rlcommunity.rlglue.codec.trace.RecordingEnvironment;
+import org.rlcommunity.rlglue.codec.trace.ReplayEnvironment;
+import org.rlcommunity.rlglue.codec.trace.TraceWriter;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
+
+/**
+ * The benchmarks of the hot paths of an experiment: encoding and decoding the observations and
+ * actions that RL-Glue sends every step, stepping through a LocalGlue, parsing the task
+ * specification into a river and the model operations the agents plan with. Every benchmark that
+ * depends on the size of the river runs for several amounts of reaches.
+ */
+public class HotPathBenchmarks {
+
+    /** The amounts of reaches to run the river size dependent benchmarks for */
+    private static final int[] REACHES = { 7, 15, 31 };
+
+    /** The amounts of reaches to find the best action for, which is exponential in the reaches */
+    private static final int[] BEST_ACTION_REACHES = { 3, 5, 7 };
+
+    /** The amount of different states and actions the model benchmarks cycle through */
+    private static final int NUM_SAMPLES = 16;
+
+    /** The amount of steps recorded for the replay benchmark */
+    private static final int NUM_RECORDED_STEPS = 1000;
+
+    /** The seed of all random numbers, so every run benchmarks the same rivers and states */
+    private static final long SEED = 42;
+
+    /**
+     * Creates an environment with the default parameters for the given size.
+     * 
+     * @param numReaches
+     *            The amount of reaches in the river
+     * 
+     * @return The environment
+     */
+    private static InvasiveEnvironment createEnvironment(final int numReaches) {
+        final Random random = new Random(SEED);
+        return new InvasiveEnvironment(SimulationParameters.createDefault(numReaches,
+                InvasiveEnvironment.DEFAULT_HABITAT_SIZE, random),
+                ActionParameters.createDefault(), GerminationDispersionParameters.createDefault(),
+                InvasiveEnvironment.DEFAULT_BAD_ACTION_PENALTY,
+                InvasiveEnvironment.DEFAULT_DISCOUNT_FACTOR, random);
+    }
+
+    /**
+     * Creates random observations of a river.
+     * 
+     * @param numReaches
+     *            The amount of reaches in the river
+     * @param random
+     *            The random number generator to draw the habitats from
+     * 
+     * @return The observations
+     */
+    private static Observation[] createObservations(final int numReaches, final Random random) {
+        final Observation[] observations = new Observation[NUM_SAMPLES];
+        for (int i = 0; i < NUM_SAMPLES; ++i) {
+            observations[i] = new Observation(numReaches
+                    * InvasiveEnvironment.DEFAULT_HABITAT_SIZE, 0);
+            for (int habitat = 0; habitat < observations[i].intArray.length; ++habitat) {
+                observations[i].intArray[habitat] = 1 + random.nextInt(3);
+            }
+        }
+        return observations;
+    }
+
+    /**
+     * Creates random actions for a river.
+     * 
+     * @param numReaches
+     *            The amount of reaches in the river
+     * @param random
+     *            The random number generator to draw the actions from
+     * 
+     * @return The actions
+     */
+    private static Action[] createActions(final int numReaches, final Random random) {
+        final Action[] actions = new Action[NUM_SAMPLES];
+        for (int i = 0; i < NUM_SAMPLES; ++i) {
+            actions[i] = new Action(numReaches, 0);
+            for (int reach = 0; reach < numReaches; ++reach) {
+                actions[i].intArray[reach] = 1 + random.nextInt(4);
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * A benchmark of the model of a river, with random states and actions to apply it to.
+     */
+    private static abstract class ModelBenchmark extends Benchmark {
+
+        /** The model to benchmark */
+        protected EnvModel mModel;
+
+        /** The states to apply the model to */
+        protected RiverState[] mStates;
+
+        /** The actions to apply the model to */
+        protected Action[] mActions;
+
+        /** The index of the sample to use next */
+        private int mSample;
+
+        /**
+         * Prepares a model benchmark.
+         * 
+         * @param name
+         *            The name of the benchmark
+         * @param reaches
+         *            The amounts of reaches to run the benchmark for
+         */
+        public ModelBenchmark(final String name, final int... reaches) {
+            super(name, "reaches", reaches);
+        }
+
+        @Override
+        protected void setUp(final int reaches) {
+            final River river = new River(new TaskSpec(createEnvironment(reaches).env_init()));
+            mModel = new EnvModel(river);
+
+            final Random random = new Random(SEED);
+            final Observation[] observations = createObservations(reaches, random);
+            mStates = new RiverState[NUM_SAMPLES];
+            for (int i = 0; i < NUM_SAMPLES; ++i) {
+                mStates[i] = new RiverState(river, observations[i]);
+            }
+            mActions = createActions(reaches, random);
+        }
+
+        /**
+         * Retrieves the index of the next state and action to use.
+         * 
+         * @return The index of the sample
+         */
+        protected int nextSample() {
+            mSample = (mSample + 1) % NUM_SAMPLES;
+            return mSample;
+        }
+    }
+
+    /**
+     * Creates all benchmarks.
+     * 
+     * @return The benchmarks
+     */
+    public static List<Benchmark> createBenchmarks() {
+        final List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(new Benchmark("network.encodeObservation", "reaches", REACHES) {
+            private Network mNetwork;
+            private Observation mObservation;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mNetwork = new Network();
+                mObservation = createObservations(reaches, new Random(SEED))[0];
+            }
+
+            @Override
+            protected long operation() {
+                mNetwork.clearSendBuffer();
+                mNetwork.putInt(Network.kAgentStep);
+                mNetwork.putInt(Network.sizeOf(mObservation));
+                mNetwork.putObservation(mObservation);
+                mNetwork.flipSendBuffer();
+                return mNetwork.getInt(8);
+            }
+        });
+
+        benchmarks.add(new Benchmark("network.encodeAction", "reaches", REACHES) {
+            private Network mNetwork;
+            private Action mAction;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mNetwork = new Network();
+                mAction = createActions(reaches, new Random(SEED))[0];
+            }
+
+            @Override
+            protected long operation() {
+                mNetwork.clearSendBuffer();
+                mNetwork.putInt(Network.kAgentStep);
+                mNetwork.putInt(Network.sizeOf(mAction));
+                mNetwork.putAction(mAction);
+                mNetwork.flipSendBuffer();
+                return mNetwork.getInt(8);
+            }
+        });
+
+        benchmarks.add(new Benchmark("network.transferObservation", "reaches", REACHES) {
+            private Network mSender;
+            private Network mReceiver;
+            private Observation mObservation;
+            private final Observation mReceived = new Observation();
+
+            @Override
+            protected void setUp(final int reaches) throws Exception {
+                try (final ServerSocketChannel server = ServerSocketChannel.open()) {
+                    server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+                    mSender = new Network(SocketChannel.open(server.socket()
+                            .getLocalSocketAddress()));
+                    mReceiver = new Network(server.accept());
+                }
+                mObservation = createObservations(reaches, new Random(SEED))[0];
+            }
+
+            @Override
+            protected long operation() throws Exception {
+                mSender.clearSendBuffer();
+                mSender.putInt(Network.kAgentStep);
+                mSender.putInt(Network.sizeOf(mObservation));
+                mSender.putObservation(mObservation);
+                mSender.flipSendBuffer();
+                mSender.send();
+
+                mReceiver.recvMessage();
+                mReceiver.getObservation(mReceived);
+                return mReceived.intArray[mReceived.intArray.length - 1];
+            }
+
+            @Override
+            protected void tearDown() throws Exception {
+                mSender.close();
+                mReceiver.close();
+            }
+        });
+
+        benchmarks.add(new Benchmark("localGlue.step", "reaches", REACHES) {
+            private LocalGlue mGlue;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mGlue = new LocalGlue(createEnvironment(reaches), new SimpleHeuristicsAgent());
+                mGlue.RL_init();
+                mGlue.RL_start();
+            }
+
+            @Override
+            protected long operation() {
+                final Reward_observation_action_terminal result = mGlue.RL_step();
+                if (result.isTerminal()) {
+                    mGlue.RL_start();
+                }
+                return result.o.intArray[0];
+            }
+
+            @Override
+            protected void tearDown() {
+                mGlue.RL_cleanup();
+            }
+        });
+
+        benchmarks.add(new Benchmark("localGlue.pooledStep", "reaches", REACHES) {
+            private LocalGlue mGlue;
+
+            @Override
+            protected void setUp(final int reaches) {
+                final InvasiveEnvironment environment = createEnvironment(reaches);
+                environment.setPooled(true);
+                mGlue = new LocalGlue(environment, new SimpleHeuristicsAgent(), true);
+                mGlue.RL_init();
+                mGlue.RL_start();
+            }
+
+            @Override
+            protected long operation() {
+                final Reward_observation_action_terminal result = mGlue.RL_step();
+                if (result.isTerminal()) {
+                    mGlue.RL_start();
+                }
+                return result.o.intArray[0];
+            }
+
+            @Override
+            protected void tearDown() {
+                mGlue.RL_cleanup();
+            }
+        });
+
+        benchmarks.add(new Benchmark("localGlue.replayStep", "reaches", REACHES) {
+            private File mTrace;
+            private LocalGlue mGlue;
+
+            @Override
+            protected void setUp(final int reaches) throws IOException {
+                // Record a run of the live environment to replay
+                mTrace = File.createTempFile("benchmark", ".trace");
+                final TraceWriter writer = new TraceWriter(mTrace);
+                final LocalGlue recorder = new LocalGlue(new RecordingEnvironment(
+                        createEnvironment(reaches), writer), new SimpleHeuristicsAgent());
+                recorder.RL_init();
+                recorder.RL_episode(NUM_RECORDED_STEPS);
+                recorder.RL_cleanup();
+                writer.close();
+
+                mGlue = new LocalGlue(new ReplayEnvironment(mTrace, true),
+                        new SimpleHeuristicsAgent(), true);
+                mGlue.RL_init();
+                mGlue.RL_start();
+            }
+
+            @Override
+            protected long operation() {
+                final Reward_observation_action_terminal result = mGlue.RL_step();
+                if (result.isTerminal()) {
+                    mGlue.RL_start();
+                }
+                return result.o.intArray[0];
+            }
+
+            @Override
+            protected void tearDown() {
+                mGlue.RL_cleanup();
+                mTrace.delete();
+            }
+        });
+
+        benchmarks.add(new Benchmark("taskSpec.parse", "reaches", REACHES) {
+            private String mTaskSpec;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mTaskSpec = createEnvironment(reaches).env_init();
+            }
+
+            @Override
+            protected long operation() {
+                return new TaskSpec(mTaskSpec).getNumDiscreteObsDims();
+            }
+        });
+
+        benchmarks.add(new Benchmark("river.create", "reaches", REACHES) {
+            private String mTaskSpec;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mTaskSpec = createEnvironment(reaches).env_init();
+            }
+
+            @Override
+            protected long operation() {
+                return new River(new TaskSpec(mTaskSpec)).getNumReaches();
+            }
+        });
+
+        benchmarks.add(new Benchmark("taskDescription.parse", "reaches", REACHES) {
+            private String mTaskSpec;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mTaskSpec = createEnvironment(reaches).env_init();
+            }
+
+            @Override
+            protected long operation() {
+                return TaskDescription.parse(mTaskSpec).getNumEdges();
+            }
+        });
+
+        benchmarks.add(new Benchmark("taskDescription.cachedRiver", "reaches", REACHES) {
+            private String mTaskSpec;
+
+            @Override
+            protected void setUp(final int reaches) {
+                mTaskSpec = createEnvironment(reaches).env_init();
+            }
+
+            @Override
+            protected long operation() {
+                return TaskDescription.forTaskSpec(mTaskSpec).getRiver().getNumReaches();
+            }
+        });
+
+        benchmarks.add(new ModelBenchmark("riverState.create", REACHES) {
+            @Override
+            protected long operation() {
+                final RiverState state = mStates[nextSample()];
+                return Double.doubleToLongBits(new RiverState(state.getRiver(), state.getHabitats())
+                        .getHabitatsInvaded(0));
+            }
+        });
+
+        benchmarks.add(new ModelBenchmark("envModel.getPossibleNextState", REACHES) {
+            @Override
+            protected long operation() {
+                final int sample = nextSample();
+                return mModel.getPossibleNextState(mStates[sample], mActions[sample])
+                        .getHabitats()[0];
+            }
+        });
+
+        benchmarks.add(new ModelBenchmark("envModel.getExpectedNextState", REACHES) {
+            @Override
+            protected long operation() {
+                final int sample = nextSample();
+                return Double.doubleToLongBits(mModel.getExpectedNextState(mStates[sample],
+                        mActions[sample]).getHabitatsInvaded(0));
+            }
+        });
+
+        benchmarks.add(new ModelBenchmark("envModel.getBestAction", BEST_ACTION_REACHES) {
+            @Override
+            protected long operation() {
+                return mModel.getBestAction(mStates[nextSample()]).intArray[0];
+            }
+        });
+
+        return benchmarks;
+    }
+
+    /**
+     * Runs the benchmarks, printing the results and writing them in JMH's JSON format so they can
+     * be compared between commits with the usual JMH tooling.
+     * 
+     * @param args
+     *            Optionally the file to write the JSON to, a regular expression selecting the
+     *            benchmarks to run by name and the amounts of warm-up and measurement iterations
+     */
+    public static void main(final String[] args) throws Exception {
+        final String fileName = (args.length > 0 ? args[0] : "benchmarks.json");
+        final String filter = (args.length > 1 ? args[1] : "");
+        final int warmupIterations = (args.length > 2 ? Integer.parseInt(args[2])
+                : BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS);
+        final int measurementIterations = (args.length > 3 ? Integer.parseInt(args[3])
+                : BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS);
+
+        final BenchmarkRunner runner = new BenchmarkRunner(warmupIterations,
+                measurementIterations, BenchmarkRunner.DEFAULT_ITERATION_TIME);
+        final List<BenchmarkResult> results = runner.run(createBenchmarks(), filter);
+        BenchmarkRunner.writeJson(results, fileName);
+        System.out.println("Results written to " + fileName);
+    }
+}
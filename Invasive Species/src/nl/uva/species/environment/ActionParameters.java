@@ -0,0 +1,202 @@
+package nl.uva.species.environment;
+
+/**
+ * The costs and effects of the actions and states of the invasive species domain.
+ */
+public class ActionParameters {
+
+    /** The cost per invaded habitat */
+    private final double mCostPerTree;
+
+    /** The fixed cost of eradicating a reach */
+    private final double mEradicationCost;
+
+    /** The fixed cost of restoring a reach */
+    private final double mRestorationCost;
+
+    /** The chance eradication empties an invaded habitat */
+    private final double mEradicationRate;
+
+    /** The chance restoration plants a native tree in an empty habitat */
+    private final double mRestorationRate;
+
+    /** The cost per invaded reach */
+    private final double mCostPerReach;
+
+    /** The cost per empty habitat */
+    private final double mEmptyCost;
+
+    /** The cost of eradicating per invaded habitat */
+    private final double mVarEradicationCost;
+
+    /** The cost of eradicating and restoring per invaded habitat */
+    private final double mVarInvasiveRestorationCost;
+
+    /** The cost of restoring per empty habitat */
+    private final double mVarEmptyRestorationCost;
+
+    /** The maximum cost of the actions in a single step */
+    private final double mBudget;
+
+    /**
+     * Prepares the action parameters of a domain.
+     * 
+     * @param costPerTree
+     *            The cost per invaded habitat
+     * @param eradicationCost
+     *            The fixed cost of eradicating a reach
+     * @param restorationCost
+     *            The fixed cost of restoring a reach
+     * @param eradicationRate
+     *            The chance eradication empties an invaded habitat
+     * @param restorationRate
+     *            The chance restoration plants a native tree in an empty habitat
+     * @param costPerReach
+     *            The cost per invaded reach
+     * @param emptyCost
+     *            The cost per empty habitat
+     * @param varEradicationCost
+     *            The cost of eradicating per invaded habitat
+     * @param varInvasiveRestorationCost
+     *            The cost of eradicating and restoring per invaded habitat
+     * @param varEmptyRestorationCost
+     *            The cost of restoring per empty habitat
+     * @param budget
+     *            The maximum cost of the actions in a single step
+     */
+    public ActionParameters(final double costPerTree, final double eradicationCost,
+            final double restorationCost, final double eradicationRate,
+            final double restorationRate, final double costPerReach, final double emptyCost,
+            final double varEradicationCost, final double varInvasiveRestorationCost,
+            final double varEmptyRestorationCost, final double budget) {
+        mCostPerTree = costPerTree;
+        mEradicationCost = eradicationCost;
+        mRestorationCost = restorationCost;
+        mEradicationRate = eradicationRate;
+        mRestorationRate = restorationRate;
+        mCostPerReach = costPerReach;
+        mEmptyCost = emptyCost;
+        mVarEradicationCost = varEradicationCost;
+        mVarInvasiveRestorationCost = varInvasiveRestorationCost;
+        mVarEmptyRestorationCost = varEmptyRestorationCost;
+        mBudget = budget;
+    }
+
+    /**
+     * Creates the default action parameters.
+     * 
+     * @return The default parameters
+     */
+    public static ActionParameters createDefault() {
+        return new ActionParameters(0.1, 0.5, 0.9, 0.85, 0.65, 10, 0.5, 0.4, 0.8, 0.4, 100);
+    }
+
+    /**
+     * Creates the action parameters of the "same" environment, which has a lower cost for empty
+     * habitats.
+     * 
+     * @return The parameters of the same environment
+     */
+    public static ActionParameters createSame() {
+        return new ActionParameters(0.1, 0.5, 0.9, 0.85, 0.65, 10, 0.05, 0.4, 0.8, 0.4, 100);
+    }
+
+    /**
+     * Retrieves the cost per invaded habitat.
+     * 
+     * @return The cost per tree
+     */
+    public double getCostPerTree() {
+        return mCostPerTree;
+    }
+
+    /**
+     * Retrieves the fixed cost of eradicating a reach.
+     * 
+     * @return The eradication cost
+     */
+    public double getEradicationCost() {
+        return mEradicationCost;
+    }
+
+    /**
+     * Retrieves the fixed cost of restoring a reach.
+     * 
+     * @return The restoration cost
+     */
+    public double getRestorationCost() {
+        return mRestorationCost;
+    }
+
+    /**
+     * Retrieves the chance eradication empties an invaded habitat.
+     * 
+     * @return The eradication rate
+     */
+    public double getEradicationRate() {
+        return mEradicationRate;
+    }
+
+    /**
+     * Retrieves the chance restoration plants a native tree in an empty habitat.
+     * 
+     * @return The restoration rate
+     */
+    public double getRestorationRate() {
+        return mRestorationRate;
+    }
+
+    /**
+     * Retrieves the cost per invaded reach.
+     * 
+     * @return The cost per reach
+     */
+    public double getCostPerReach() {
+        return mCostPerReach;
+    }
+
+    /**
+     * Retrieves the cost per empty habitat.
+     * 
+     * @return The empty cost
+     */
+    public double getEmptyCost() {
+        return mEmptyCost;
+    }
+
+    /**
+     * Retrieves the cost of eradicating per invaded habitat.
+     * 
+     * @return The variable eradication cost
+     */
+    public double getVarEradicationCost() {
+        return mVarEradicationCost;
+    }
+
+    /**
+     * Retrieves the cost of eradicating and restoring per invaded habitat.
+     * 
+     * @return The variable invasive restoration cost
+     */
+    public double getVarInvasiveRestorationCost() {
+        return mVarInvasiveRestorationCost;
+    }
+
+    /**
+     * Retrieves the cost of restoring per empty habitat.
+     * 
+     * @return The variable empty restoration cost
+     */
+    public double getVarEmptyRestorationCost() {
+        return mVarEmptyRestorationCost;
+    }
+
+    /**
+     * Retrieves the maximum cost of the actions in a single step.
+     * 
+     * @return The budget
+     */
+    public double getBudget() {
+        return mBudget;
+    }
+}
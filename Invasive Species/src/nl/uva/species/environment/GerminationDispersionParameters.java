@@ -0,0 +1,54 @@
+package nl.uva.species.environment;
+
+/**
+ * The chance that a seed which has spread to a reach germinates, per species.
+ */
+public class GerminationDispersionParameters {
+
+    /** The chance a native seed germinates */
+    private final double mGerminationSuccessNative;
+
+    /** The chance a tamarisk seed germinates */
+    private final double mGerminationSuccessTamarisk;
+
+    /**
+     * Prepares the germination parameters of a domain.
+     * 
+     * @param germinationSuccessNative
+     *            The chance a native seed germinates
+     * @param germinationSuccessTamarisk
+     *            The chance a tamarisk seed germinates
+     */
+    public GerminationDispersionParameters(final double germinationSuccessNative,
+            final double germinationSuccessTamarisk) {
+        mGerminationSuccessNative = germinationSuccessNative;
+        mGerminationSuccessTamarisk = germinationSuccessTamarisk;
+    }
+
+    /**
+     * Creates the default germination parameters, with which every seed germinates.
+     * 
+     * @return The default parameters
+     */
+    public static GerminationDispersionParameters createDefault() {
+        return new GerminationDispersionParameters(1, 1);
+    }
+
+    /**
+     * Retrieves the chance a native seed germinates.
+     * 
+     * @return The native germination success
+     */
+    public double getGerminationSuccessNative() {
+        return mGerminationSuccessNative;
+    }
+
+    /**
+     * Retrieves the chance a tamarisk seed germinates.
+     * 
+     * @return The tamarisk germination success
+     */
+    public double getGerminationSuccessTamarisk() {
+        return mGerminationSuccessTamarisk;
+    }
+}
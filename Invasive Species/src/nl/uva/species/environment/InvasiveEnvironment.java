@@ -0,0 +1,778 @@
+package nl.uva.species.environment;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import nl.uva.species.utils.Utilities;
+
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import org.rlcommunity.rlglue.codec.util.EnvironmentLoader;
+
+/**
+ * The invasive species domain as an RL-Glue environment, following the Python InvasiveEnvironment
+ * step for step. It can be loaded through the EnvironmentLoader like the Python environment, but
+ * also run in-process with the LocalGlue, without a socket or the Python interpreter. All
+ * randomness comes from a single generator, so an environment created with a seed behaves the
+ * same on every run.
+ */
+public class InvasiveEnvironment implements EnvironmentInterface {
+
+    /** The default amount of reaches */
+    public static final int DEFAULT_REACHES = 7;
+
+    /** The default amount of habitats per reach */
+    public static final int DEFAULT_HABITAT_SIZE = 4;
+
+    /** The default reward for actions that are not allowed or exceed the budget */
+    public static final double DEFAULT_BAD_ACTION_PENALTY = -10000;
+
+    /** The default discount factor */
+    public static final double DEFAULT_DISCOUNT_FACTOR = 0.9;
+
+    /** The observation returned for actions that are not allowed or exceed the budget */
+    private static final int[] BAD_ACTION_OBSERVATION = { -1 };
+
+    /** The largest amount of trials sampled at once, so that no chance underflows */
+    private static final double MAX_TRIALS_LOG = 600;
+
+    /** The parameters of the domain */
+    private final SimulationParameters mSimulation;
+
+    /** The costs and effects of the actions */
+    private final ActionParameters mActions;
+
+    /** The germination chances of spread seeds */
+    private final GerminationDispersionParameters mGermination;
+
+    /** The reward for actions that are not allowed or exceed the budget */
+    private final double mBadActionPenalty;
+
+    /** The discount factor reported in the task specification */
+    private final double mDiscountFactor;
+
+    /** The random number generator behind all randomness */
+    private final Random mRandom;
+
+    /** The chance of a seed spreading from each reach to each reach */
+    private final double[][] mDispersion;
+
+    /** The state to start every episode in or null to start in a random state */
+    private int[] mStartState;
+
+    /** The current state */
+    private int[] mState;
+
+    /** Working space for the next state */
+    private int[] mNextState;
+
+    /** Working space for the seeds produced by the tamarisk plants of each reach */
+    private final int[] mProducedTamarisk;
+
+    /** Working space for the seeds produced by the native plants of each reach */
+    private final int[] mProducedNative;
+
+    /** Working space for the tamarisk seeds arriving in each reach */
+    private final int[] mSeedsTamarisk;
+
+    /** Working space for the native seeds arriving in each reach */
+    private final int[] mSeedsNative;
+
+    /** Iff true the same observation and result are refilled and returned every step */
+    private boolean mPooled;
+
+    /** The observation returned every step when pooled */
+    private final Observation mObservation = new Observation();
+
+    /** The result returned every step when pooled */
+    private final Reward_observation_terminal mResult = new Reward_observation_terminal();
+
+    /**
+     * Prepares the default environment with random parameters drawn from the given seed.
+     * 
+     * @param seed
+     *            The seed of the random number generator
+     */
+    public InvasiveEnvironment(final long seed) {
+        this(new Random(seed));
+    }
+
+    /**
+     * Prepares the default environment with random parameters drawn from the given generator.
+     * 
+     * @param random
+     *            The random number generator to draw the parameters and dynamics from
+     */
+    private InvasiveEnvironment(final Random random) {
+        this(SimulationParameters.createDefault(DEFAULT_REACHES, DEFAULT_HABITAT_SIZE, random),
+                ActionParameters.createDefault(), GerminationDispersionParameters.createDefault(),
+                DEFAULT_BAD_ACTION_PENALTY, DEFAULT_DISCOUNT_FACTOR, random);
+    }
+
+    /**
+     * Prepares an environment with the given parameters.
+     * 
+     * @param simulation
+     *            The parameters of the domain
+     * @param actions
+     *            The costs and effects of the actions
+     * @param germination
+     *            The germination chances of spread seeds
+     * @param badActionPenalty
+     *            The reward for actions that are not allowed or exceed the budget
+     * @param discountFactor
+     *            The discount factor reported in the task specification
+     * @param random
+     *            The random number generator to draw the dynamics from
+     */
+    public InvasiveEnvironment(final SimulationParameters simulation,
+            final ActionParameters actions, final GerminationDispersionParameters germination,
+            final double badActionPenalty, final double discountFactor, final Random random) {
+        mSimulation = simulation;
+        mActions = actions;
+        mGermination = germination;
+        mBadActionPenalty = badActionPenalty;
+        mDiscountFactor = discountFactor;
+        mRandom = random;
+        mDispersion = getDispersionTable(simulation);
+
+        final int numReaches = simulation.getNumReaches();
+        mState = new int[numReaches * simulation.getHabitatSize()];
+        mNextState = new int[mState.length];
+        mProducedTamarisk = new int[numReaches];
+        mProducedNative = new int[numReaches];
+        mSeedsTamarisk = new int[numReaches];
+        mSeedsNative = new int[numReaches];
+    }
+
+    /**
+     * Creates the environment of SameInvasiveEnvironment.py, which has fixed arrival rates and a
+     * lower cost for empty habitats.
+     * 
+     * @param seed
+     *            The seed of the random number generator drawing the river and dynamics
+     * 
+     * @return The same environment
+     */
+    public static InvasiveEnvironment createSame(final long seed) {
+        final Random random = new Random(seed);
+        return new InvasiveEnvironment(
+                SimulationParameters.createSame(DEFAULT_HABITAT_SIZE, random),
+                ActionParameters.createSame(), GerminationDispersionParameters.createDefault(),
+                DEFAULT_BAD_ACTION_PENALTY, DEFAULT_DISCOUNT_FACTOR, random);
+    }
+
+    /**
+     * Reseeds the random number generator behind the start states and dynamics.
+     * 
+     * @param seed
+     *            The new seed
+     */
+    public void setSeed(final long seed) {
+        mRandom.setSeed(seed);
+    }
+
+    /**
+     * Sets whether the environment reuses its observation and result, refilling them every step
+     * instead of allocating new ones. Only use this with a pooled LocalGlue or another caller that
+     * doesn't keep them beyond the step.
+     * 
+     * @param pooled
+     *            True iff the observation and result are to be reused
+     */
+    public void setPooled(final boolean pooled) {
+        mPooled = pooled;
+    }
+
+    /**
+     * Retrieves the parameters of the domain.
+     * 
+     * @return The simulation parameters
+     */
+    public SimulationParameters getSimulationParameters() {
+        return mSimulation;
+    }
+
+    /**
+     * Retrieves the costs and effects of the actions.
+     * 
+     * @return The action parameters
+     */
+    public ActionParameters getActionParameters() {
+        return mActions;
+    }
+
+    @Override
+    public String env_init() {
+        final int numReaches = mSimulation.getNumReaches();
+        final int numHabitats = numReaches * mSimulation.getHabitatSize();
+
+        // The worst reward is restoring every reach of a fully invaded river
+        final int[] worstState = new int[numHabitats];
+        Arrays.fill(worstState, Utilities.HABITAT_INVADED);
+        final int[] worstActions = new int[numReaches];
+        Arrays.fill(worstActions, Utilities.ACTION_RESTORE);
+        final double worstReward = -(getActionCost(worstState, worstActions)
+                + getStateCost(worstState));
+
+        final StringBuilder edges = new StringBuilder("[");
+        for (final int[] edge : mSimulation.getEdges()) {
+            edges.append(edges.length() > 1 ? ", " : "").append('(').append(edge[0]).append(", ")
+                    .append(edge[1]).append(')');
+        }
+        edges.append(']');
+
+        return "VERSION RL-Glue-3.0 PROBLEMTYPE non-episodic DISCOUNTFACTOR "
+                + format(mDiscountFactor) + " OBSERVATIONS INTS (" + numHabitats
+                + " 1 3) ACTIONS INTS (" + numReaches + " 1 4) REWARDS ("
+                + format(mBadActionPenalty) + " " + format(worstReward) + ") EXTRA " + edges
+                + " BUDGET " + format(mActions.getBudget()) + " by Majid Taleghan.";
+    }
+
+    @Override
+    public Observation env_start() {
+        if (mStartState != null) {
+            if (mStartState.length != mState.length) {
+                throw new IllegalArgumentException("Expected a start state of " + mState.length
+                        + " habitats, got " + mStartState.length + ".");
+            }
+            System.arraycopy(mStartState, 0, mState, 0, mState.length);
+        } else {
+            for (int i = 0; i < mState.length; ++i) {
+                mState[i] = 1 + mRandom.nextInt(3);
+            }
+        }
+
+        return getObservation(mState);
+    }
+
+    @Override
+    public Reward_observation_terminal env_step(final Action action) {
+        final int[] actions = action.intArray;
+        if (actions.length != mSimulation.getNumReaches()) {
+            throw new IllegalArgumentException("Expected " + mSimulation.getNumReaches()
+                    + " integer action.");
+        }
+
+        final double actionCost = getActionCost(mState, actions);
+        if (!isAllowed(mState, actions) || actionCost > mActions.getBudget()) {
+            return getResult(mBadActionPenalty, getObservation(BAD_ACTION_OBSERVATION));
+        }
+
+        final double reward = -(actionCost + getStateCost(mState));
+        final int[] state = mState;
+        mState = getNextState(state, actions, mNextState);
+        mNextState = state;
+
+        return getResult(reward, getObservation(mState));
+    }
+
+    /**
+     * Prepares an observation of the given habitats, reusing the observation when pooled.
+     * 
+     * @param habitats
+     *            The habitats to observe
+     * 
+     * @return An observation holding a copy of the habitats
+     */
+    private Observation getObservation(final int[] habitats) {
+        final Observation observation = (mPooled ? mObservation : new Observation());
+        observation.setSize(habitats.length, 0, 0);
+        System.arraycopy(habitats, 0, observation.intArray, 0, habitats.length);
+        return observation;
+    }
+
+    /**
+     * Prepares the result of a step, reusing the result when pooled.
+     * 
+     * @param reward
+     *            The reward of the step
+     * @param observation
+     *            The observation after the step
+     * 
+     * @return The non-terminal result
+     */
+    private Reward_observation_terminal getResult(final double reward,
+            final Observation observation) {
+        if (!mPooled) {
+            return new Reward_observation_terminal(reward, observation, false);
+        }
+        mResult.setReward(reward);
+        mResult.setObservation(observation);
+        mResult.setTerminal(false);
+        return mResult;
+    }
+
+    @Override
+    public void env_cleanup() {}
+
+    @Override
+    public String env_message(final String message) {
+        if (message.startsWith("set-random-start-state")) {
+            mStartState = null;
+            return "Message understood.  Using random start state.";
+        }
+
+        if (message.startsWith("set-start-state")) {
+            final List<Integer> habitats = new ArrayList<>();
+            final Matcher matcher = Pattern.compile("\\d+").matcher(
+                    message.substring("set-start-state".length()));
+            while (matcher.find()) {
+                habitats.add(Integer.parseInt(matcher.group()));
+            }
+
+            mStartState = new int[habitats.size()];
+            for (int i = 0; i < mStartState.length; ++i) {
+                mStartState[i] = habitats.get(i);
+            }
+            return "Message understood.  Using fixed start state.";
+        }
+
+        return "InvasiveEnvironment(Java) does not respond to messages.";
+    }
+
+    /**
+     * Checks if every action is allowed on its reach: eradicating requires an invaded habitat and
+     * restoring an empty one.
+     * 
+     * @param state
+     *            The habitats of the state to act on
+     * @param actions
+     *            The action on each reach
+     * 
+     * @return True iff all actions are allowed
+     */
+    private boolean isAllowed(final int[] state, final int[] actions) {
+        for (int index = 0; index < actions.length; ++index) {
+            switch (actions[index]) {
+                case Utilities.ACTION_ERADICATE:
+                case Utilities.ACTION_ERADICATE_RESTORE:
+                    if (countHabitats(state, index, Utilities.HABITAT_INVADED) == 0) {
+                        return false;
+                    }
+                    break;
+                case Utilities.ACTION_RESTORE:
+                    if (countHabitats(state, index, Utilities.HABITAT_EMPTY) == 0) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the cost of the actions on all reaches.
+     * 
+     * @param state
+     *            The habitats of the state to act on
+     * @param actions
+     *            The action on each reach
+     * 
+     * @return The total cost of the actions
+     */
+    private double getActionCost(final int[] state, final int[] actions) {
+        double cost = 0;
+        for (int index = 0; index < actions.length; ++index) {
+            switch (actions[index]) {
+                case Utilities.ACTION_ERADICATE:
+                    cost += mActions.getEradicationCost() + mActions.getVarEradicationCost()
+                            * countHabitats(state, index, Utilities.HABITAT_INVADED);
+                    break;
+                case Utilities.ACTION_RESTORE:
+                    cost += mActions.getRestorationCost() + mActions.getVarEmptyRestorationCost()
+                            * countHabitats(state, index, Utilities.HABITAT_EMPTY);
+                    break;
+                case Utilities.ACTION_ERADICATE_RESTORE:
+                    cost += mActions.getRestorationCost()
+                            + mActions.getVarInvasiveRestorationCost()
+                            * countHabitats(state, index, Utilities.HABITAT_INVADED);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Calculates the cost of the invasion level of a state.
+     * 
+     * @param state
+     *            The habitats of the state
+     * 
+     * @return The cost of the invaded reaches, invaded habitats and empty habitats
+     */
+    private double getStateCost(final int[] state) {
+        int invadedReaches = 0;
+        for (int index = 0; index < mSimulation.getNumReaches(); ++index) {
+            if (countHabitats(state, index, Utilities.HABITAT_INVADED) > 0) {
+                ++invadedReaches;
+            }
+        }
+
+        int invaded = 0;
+        int empty = 0;
+        for (final int habitat : state) {
+            if (habitat == Utilities.HABITAT_INVADED) {
+                ++invaded;
+            } else if (habitat == Utilities.HABITAT_EMPTY) {
+                ++empty;
+            }
+        }
+
+        return invadedReaches * mActions.getCostPerReach() + invaded * mActions.getCostPerTree()
+                + empty * mActions.getEmptyCost();
+    }
+
+    /**
+     * Counts the habitats of a type within a reach.
+     * 
+     * @param state
+     *            The habitats of the state
+     * @param index
+     *            The index of the reach
+     * @param type
+     *            The habitat type to count
+     * 
+     * @return The amount of habitats of the type
+     */
+    private int countHabitats(final int[] state, final int index, final int type) {
+        final int habitatSize = mSimulation.getHabitatSize();
+        int count = 0;
+        for (int i = index * habitatSize; i < (index + 1) * habitatSize; ++i) {
+            if (state[i] == type) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Simulates a single step: plants die or are removed by the actions, the surviving plants
+     * spread their seeds along the river, seeds arrive from outside of the river and empty
+     * habitats are taken by the seeds landing in them.
+     * 
+     * @param state
+     *            The habitats of the current state
+     * @param actions
+     *            The action on each reach
+     * @param nextState
+     *            The array to write the habitats of the next state into
+     * 
+     * @return The habitats of the next state
+     */
+    private int[] getNextState(final int[] state, final int[] actions, final int[] nextState) {
+        final int numReaches = mSimulation.getNumReaches();
+        final int habitatSize = mSimulation.getHabitatSize();
+        final int tamarisk = SimulationParameters.TAMARISK;
+        final int nativ = SimulationParameters.NATIVE;
+
+        // Determine the habitats after death and the actions, and the seeds they produce
+        final int[] producedTamarisk = mProducedTamarisk;
+        final int[] producedNative = mProducedNative;
+        Arrays.fill(producedTamarisk, 0);
+        Arrays.fill(producedNative, 0);
+        for (int i = 0; i < state.length; ++i) {
+            nextState[i] = getHabitatAfterDeath(state[i], actions[i / habitatSize],
+                    mRandom.nextDouble());
+            if (nextState[i] == Utilities.HABITAT_INVADED) {
+                producedTamarisk[i / habitatSize] += mSimulation.getProductionRate(tamarisk);
+            } else if (nextState[i] == Utilities.HABITAT_NATIVE) {
+                producedNative[i / habitatSize] += mSimulation.getProductionRate(nativ);
+            }
+        }
+
+        // Seeds arriving from outside of the river
+        final int[] seedsTamarisk = mSeedsTamarisk;
+        final int[] seedsNative = mSeedsNative;
+        Arrays.fill(seedsTamarisk, 0);
+        Arrays.fill(seedsNative, 0);
+        if (mSimulation.hasExogenousArrival()) {
+            for (int index = 0; index < numReaches; ++index) {
+                seedsNative[index] = binomial(mSimulation.getArrivalRate(index, nativ),
+                        mSimulation.getArrivalProbability(index, nativ));
+                seedsTamarisk[index] = binomial(mSimulation.getArrivalRate(index, tamarisk),
+                        mSimulation.getArrivalProbability(index, tamarisk));
+            }
+        }
+
+        // Seeds spreading from every reach to every reach
+        for (int from = 0; from < numReaches; ++from) {
+            for (int to = 0; to < numReaches; ++to) {
+                seedsTamarisk[to] += binomial(producedTamarisk[from], mDispersion[from][to]);
+            }
+        }
+        for (int from = 0; from < numReaches; ++from) {
+            for (int to = 0; to < numReaches; ++to) {
+                seedsNative[to] += binomial(producedNative[from], mDispersion[from][to]);
+            }
+        }
+
+        // Germination
+        for (int index = 0; index < numReaches; ++index) {
+            seedsTamarisk[index] = binomial(seedsTamarisk[index],
+                    mGermination.getGerminationSuccessTamarisk());
+            seedsNative[index] = binomial(seedsNative[index],
+                    mGermination.getGerminationSuccessNative());
+        }
+
+        // Every seed lands in a random habitat of its reach, but only landing in an empty habitat
+        // has an effect, so the seeds landing in other habitats aren't drawn
+        final double landingChance = 1.0 / habitatSize;
+        final double competitionFactor = mSimulation.getCompetitionFactor();
+        for (int i = 0; i < nextState.length; ++i) {
+            if (nextState[i] != Utilities.HABITAT_EMPTY) {
+                continue;
+            }
+
+            final int landedTamarisk = binomial(seedsTamarisk[i / habitatSize], landingChance);
+            final int landedNative = binomial(seedsNative[i / habitatSize], landingChance);
+            if (landedTamarisk > 0 || landedNative > 0) {
+                final double tamariskChance = competitionFactor * landedTamarisk
+                        / (competitionFactor * landedTamarisk + landedNative);
+                nextState[i] = (mRandom.nextDouble() <= tamariskChance
+                        ? Utilities.HABITAT_INVADED : Utilities.HABITAT_NATIVE);
+            }
+        }
+
+        return nextState;
+    }
+
+    /**
+     * Determines the type of a habitat after natural death and the action on its reach.
+     * 
+     * @param habitat
+     *            The type of the habitat before death
+     * @param action
+     *            The action on the habitat's reach
+     * @param random
+     *            A uniformly drawn number deciding the outcome
+     * 
+     * @return The type of the habitat after death
+     */
+    private int getHabitatAfterDeath(final int habitat, final int action, final double random) {
+        final double tamariskDeathRate = mSimulation.getDeathRate(SimulationParameters.TAMARISK);
+        final double nativeDeathRate = mSimulation.getDeathRate(SimulationParameters.NATIVE);
+        final double eradicationRate = mActions.getEradicationRate();
+        final double restorationRate = mActions.getRestorationRate();
+
+        switch (habitat) {
+            case Utilities.HABITAT_INVADED:
+                if (action == Utilities.ACTION_ERADICATE) {
+                    return (random <= eradicationRate ? Utilities.HABITAT_EMPTY : habitat);
+                }
+                if (action == Utilities.ACTION_ERADICATE_RESTORE) {
+                    if (random <= eradicationRate * (1 - restorationRate)) {
+                        return Utilities.HABITAT_EMPTY;
+                    }
+                    return (random <= eradicationRate ? Utilities.HABITAT_NATIVE : habitat);
+                }
+                return (random <= tamariskDeathRate ? Utilities.HABITAT_EMPTY : habitat);
+
+            case Utilities.HABITAT_NATIVE:
+                return (random <= nativeDeathRate ? Utilities.HABITAT_EMPTY : habitat);
+
+            default:
+                if (action == Utilities.ACTION_RESTORE && random > 1 - restorationRate) {
+                    return Utilities.HABITAT_NATIVE;
+                }
+                return habitat;
+        }
+    }
+
+    /**
+     * Draws from a binomial distribution by inverting its cumulative distribution. Large amounts
+     * of trials are drawn in chunks that are small enough for the chance of no successes not to
+     * underflow.
+     * 
+     * @param trials
+     *            The amount of trials
+     * @param chance
+     *            The chance of success of each trial
+     * 
+     * @return The amount of successes
+     */
+    private int binomial(final int trials, final double chance) {
+        if (trials <= 0 || chance <= 0) {
+            return 0;
+        }
+        if (chance >= 1) {
+            return trials;
+        }
+        if (chance > 0.5) {
+            return trials - binomial(trials, 1 - chance);
+        }
+
+        final double logFailure = Math.log1p(-chance);
+        final int maxChunk = (int) Math.max(1, MAX_TRIALS_LOG / -logFailure);
+        final double odds = chance / (1 - chance);
+
+        int successes = 0;
+        for (int remaining = trials; remaining > 0;) {
+            final int chunk = Math.min(remaining, maxChunk);
+            remaining -= chunk;
+
+            double probability = Math.exp(chunk * logFailure);
+            double cumulative = probability;
+            final double target = mRandom.nextDouble();
+            int drawn = 0;
+            while (target > cumulative && drawn < chunk) {
+                probability *= odds * (chunk - drawn) / (drawn + 1);
+                cumulative += probability;
+                ++drawn;
+            }
+            successes += drawn;
+        }
+        return successes;
+    }
+
+    /**
+     * Determines the chance of seeds spreading between every pair of reaches following the Levin
+     * model. Seeds travel along the longest path between the end points of two reaches, at the
+     * downstream rate for every step along the flow and the upstream rate for every step against
+     * it.
+     * 
+     * @param simulation
+     *            The parameters of the domain
+     * 
+     * @return The normalised dispersion chance from each reach to each reach
+     */
+    private static double[][] getDispersionTable(final SimulationParameters simulation) {
+        final int[][] edges = simulation.getEdges();
+        final int numReaches = edges.length;
+        final int numNodes = numReaches + 1;
+        final double upstreamRate = simulation.getUpstreamRate();
+        final double downstreamRate = simulation.getDownstreamRate();
+
+        final int[] downstream = new int[numNodes];
+        Arrays.fill(downstream, -1);
+        final List<List<Integer>> neighbours = new ArrayList<>();
+        for (int node = 0; node < numNodes; ++node) {
+            neighbours.add(new ArrayList<Integer>());
+        }
+        for (final int[] edge : edges) {
+            downstream[edge[0]] = edge[1];
+            neighbours.get(edge[0]).add(edge[1]);
+            neighbours.get(edge[1]).add(edge[0]);
+        }
+
+        // Find the path from every node to every node through the undirected river
+        final int[][] previous = new int[numNodes][];
+        for (int node = 0; node < numNodes; ++node) {
+            previous[node] = new int[numNodes];
+            Arrays.fill(previous[node], -1);
+            previous[node][node] = node;
+
+            final ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(node);
+            while (!queue.isEmpty()) {
+                final int current = queue.poll();
+                for (final int neighbour : neighbours.get(current)) {
+                    if (previous[node][neighbour] == -1) {
+                        previous[node][neighbour] = current;
+                        queue.add(neighbour);
+                    }
+                }
+            }
+        }
+
+        final double normalisation = (1 - upstreamRate * downstreamRate)
+                / ((1 - 2 * upstreamRate) * (1 - downstreamRate));
+        final double[][] dispersion = new double[numReaches][numReaches];
+        for (int from = 0; from < numReaches; ++from) {
+            for (int to = 0; to < numReaches; ++to) {
+                if (from == to) {
+                    dispersion[from][to] = 1 / normalisation;
+                    continue;
+                }
+
+                // Take the longest of the paths between the reaches' end points
+                int start = -1;
+                int end = -1;
+                int longest = -1;
+                for (final int source : edges[from]) {
+                    for (final int target : edges[to]) {
+                        final int length = getPathLength(previous, source, target);
+                        if (length > longest) {
+                            start = source;
+                            end = target;
+                            longest = length;
+                        }
+                    }
+                }
+
+                // Walk the path backwards from its end, rating every step by its direction
+                double rate = 1;
+                for (int node = end; node != start;) {
+                    final int before = previous[start][node];
+                    rate *= (downstream[before] == node ? downstreamRate : upstreamRate);
+                    node = before;
+                }
+                dispersion[from][to] = rate / normalisation;
+            }
+        }
+
+        return dispersion;
+    }
+
+    /**
+     * Counts the steps on the path between two nodes.
+     * 
+     * @param previous
+     *            The node before every node on the path from every node
+     * @param start
+     *            The node the path starts at
+     * @param end
+     *            The node the path ends at
+     * 
+     * @return The amount of steps
+     */
+    private static int getPathLength(final int[][] previous, final int start, final int end) {
+        int length = 0;
+        for (int node = end; node != start; node = previous[start][node]) {
+            ++length;
+        }
+        return length;
+    }
+
+    /**
+     * Formats a number as the Python environment does within the task specification.
+     * 
+     * @param value
+     *            The number to format
+     * 
+     * @return The number with at most 12 significant digits
+     */
+    private static String format(final double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return new BigDecimal(value).round(new MathContext(12)).stripTrailingZeros()
+                .toPlainString();
+    }
+
+    /**
+     * Loads the default environment through the EnvironmentLoader and connects it to the RL-Glue
+     * server.
+     * 
+     * @param args
+     *            An optional seed
+     */
+    public static void main(final String[] args) {
+        final long seed = (args.length > 0 ? Long.parseLong(args[0]) : 1);
+        final EnvironmentLoader loader = new EnvironmentLoader(new InvasiveEnvironment(seed));
+        loader.run();
+    }
+}
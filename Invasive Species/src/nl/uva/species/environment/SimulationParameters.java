@@ -0,0 +1,330 @@
+package nl.uva.species.environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The parameters of the invasive species domain: the river's structure and the rates at which
+ * plants die, reproduce, arrive and spread. Rates that differ per species are given as pairs with
+ * the native rate first and the tamarisk rate second.
+ */
+public class SimulationParameters {
+
+    /** The position of the native rate within a pair of rates */
+    public static final int NATIVE = 0;
+
+    /** The position of the tamarisk rate within a pair of rates */
+    public static final int TAMARISK = 1;
+
+    /** The amount of reaches in the river */
+    private final int mNumReaches;
+
+    /** The amount of habitats per reach */
+    private final int mHabitatSize;
+
+    /** The amount of seeds produced by a single plant of each species */
+    private final int[] mProductionRates;
+
+    /** The chance a plant of each species dies every step */
+    private final double[] mDeathRates;
+
+    /** Iff true seeds also arrive from outside of the river */
+    private final boolean mExogenousArrival;
+
+    /** The amount of seeds of each species that may arrive from outside of each reach */
+    private final int[][] mArrivalRates;
+
+    /** The chance of each seed of each species arriving from outside of each reach */
+    private final double[][] mArrivalProbabilities;
+
+    /** The rate at which seeds spread against the flow of the river */
+    private final double mUpstreamRate;
+
+    /** The rate at which seeds spread along the flow of the river */
+    private final double mDownstreamRate;
+
+    /** The advantage of tamarisk seeds over native seeds when landing in an empty habitat */
+    private final double mCompetitionFactor;
+
+    /**
+     * The edges of the river as (node, node downstream) pairs. Edge i is reach i, so the edges are
+     * sorted by their first node and every node but the root has exactly one edge.
+     */
+    private final int[][] mEdges;
+
+    /**
+     * Prepares the parameters of a domain.
+     * 
+     * @param numReaches
+     *            The amount of reaches in the river
+     * @param habitatSize
+     *            The amount of habitats per reach
+     * @param productionRates
+     *            The amount of seeds produced by a single native and tamarisk plant
+     * @param deathRates
+     *            The chance a native and tamarisk plant dies every step
+     * @param exogenousArrival
+     *            Iff true seeds also arrive from outside of the river
+     * @param arrivalRates
+     *            The amount of native and tamarisk seeds that may arrive per reach
+     * @param arrivalProbabilities
+     *            The chance of each native and tamarisk seed arriving per reach
+     * @param upstreamRate
+     *            The rate at which seeds spread against the flow of the river
+     * @param downstreamRate
+     *            The rate at which seeds spread along the flow of the river
+     * @param competitionFactor
+     *            The advantage of tamarisk seeds over native seeds
+     * @param edges
+     *            The edges of the river as (node, node downstream) pairs, one per reach
+     */
+    public SimulationParameters(final int numReaches, final int habitatSize,
+            final int[] productionRates, final double[] deathRates,
+            final boolean exogenousArrival, final int[][] arrivalRates,
+            final double[][] arrivalProbabilities, final double upstreamRate,
+            final double downstreamRate, final double competitionFactor, final int[][] edges) {
+        if (edges.length != numReaches) {
+            throw new IllegalArgumentException("Expected " + numReaches + " edges, got "
+                    + edges.length);
+        }
+
+        mNumReaches = numReaches;
+        mHabitatSize = habitatSize;
+        mProductionRates = productionRates;
+        mDeathRates = deathRates;
+        mExogenousArrival = exogenousArrival;
+        mArrivalRates = arrivalRates;
+        mArrivalProbabilities = arrivalProbabilities;
+        mUpstreamRate = upstreamRate;
+        mDownstreamRate = downstreamRate;
+        mCompetitionFactor = competitionFactor;
+
+        // Order the edges by node so that reach i is the edge leaving node i
+        mEdges = edges.clone();
+        Arrays.sort(mEdges, new Comparator<int[]>() {
+            @Override
+            public int compare(final int[] first, final int[] second) {
+                if (first[0] != second[0]) {
+                    return (first[0] < second[0] ? -1 : 1);
+                }
+                return (first[1] < second[1] ? -1 : (first[1] == second[1] ? 0 : 1));
+            }
+        });
+    }
+
+    /**
+     * Creates the default parameters with random arrival rates and a random balanced river.
+     * 
+     * @param numReaches
+     *            The amount of reaches in the river
+     * @param habitatSize
+     *            The amount of habitats per reach
+     * @param random
+     *            The random number generator to draw the rates and river from
+     * 
+     * @return The default parameters
+     */
+    public static SimulationParameters createDefault(final int numReaches, final int habitatSize,
+            final Random random) {
+        final int[][] arrivalRates = new int[numReaches][2];
+        final double[][] arrivalProbabilities = new double[numReaches][2];
+        for (int index = 0; index < numReaches; ++index) {
+            for (int species = 0; species < 2; ++species) {
+                arrivalRates[index][species] = 100 + random.nextInt(901);
+            }
+        }
+        for (int index = 0; index < numReaches; ++index) {
+            for (int species = 0; species < 2; ++species) {
+                arrivalProbabilities[index][species] = random.nextDouble();
+            }
+        }
+
+        return new SimulationParameters(numReaches, habitatSize, new int[] { 200, 200 },
+                new double[] { 0.2, 0.2 }, true, arrivalRates, arrivalProbabilities, 0.1, 0.5, 1,
+                createRandomGraph(numReaches + 1, true, random));
+    }
+
+    /**
+     * Creates the default parameters with the fixed arrival rates of the "same" environment,
+     * which consists of 7 reaches. Only the river is random.
+     * 
+     * @param habitatSize
+     *            The amount of habitats per reach
+     * @param random
+     *            The random number generator to draw the river from
+     * 
+     * @return The parameters of the same environment
+     */
+    public static SimulationParameters createSame(final int habitatSize, final Random random) {
+        final int[][] arrivalRates = { { 718, 818 }, { 595, 342 }, { 659, 186 }, { 408, 592 },
+                { 747, 458 }, { 875, 671 }, { 221, 345 } };
+        final double[][] arrivalProbabilities = { { 0.62920654, 0.7858338 },
+                { 0.70960379, 0.60027096 }, { 0.44258255, 0.03024216 },
+                { 0.85840861, 0.03048955 }, { 0.36683029, 0.67278394 },
+                { 0.57153177, 0.89630076 }, { 0.64539133, 0.70667334 } };
+
+        return new SimulationParameters(arrivalRates.length, habitatSize, new int[] { 200, 200 },
+                new double[] { 0.2, 0.2 }, true, arrivalRates, arrivalProbabilities, 0.1, 0.5, 1,
+                createRandomGraph(arrivalRates.length + 1, true, random));
+    }
+
+    /**
+     * Creates a random river in which every node has a single node downstream and at most two
+     * nodes upstream. The highest node is the root and has no node downstream.
+     * 
+     * @param numNodes
+     *            The amount of nodes, one more than the amount of reaches
+     * @param balanced
+     *            Iff true nodes are filled up breadth first, otherwise nodes are picked randomly
+     * @param random
+     *            The random number generator to build the river with
+     * 
+     * @return The edges of the river as (node, node downstream) pairs
+     */
+    public static int[][] createRandomGraph(final int numNodes, final boolean balanced,
+            final Random random) {
+        final List<Integer> parents = new ArrayList<>();
+        for (int node = 0; node < numNodes - 1; ++node) {
+            parents.add(node);
+        }
+        final List<Integer> nodes = new ArrayList<>();
+        final int[] visited = new int[numNodes - 1];
+        final int[][] edges = new int[numNodes - 1][];
+        int numEdges = 0;
+
+        final int root = parents.remove(random.nextInt(parents.size()));
+        nodes.add(root);
+        edges[numEdges++] = new int[] { root, numNodes - 1 };
+
+        while (!parents.isEmpty()) {
+            final int node = nodes.get(balanced ? 0 : random.nextInt(nodes.size()));
+            final int parent = parents.remove(random.nextInt(parents.size()));
+            edges[numEdges++] = new int[] { parent, node };
+            nodes.add(parent);
+
+            if (++visited[node] == 2) {
+                nodes.remove(Integer.valueOf(node));
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * Retrieves the amount of reaches in the river.
+     * 
+     * @return The amount of reaches
+     */
+    public int getNumReaches() {
+        return mNumReaches;
+    }
+
+    /**
+     * Retrieves the amount of habitats per reach.
+     * 
+     * @return The amount of habitats
+     */
+    public int getHabitatSize() {
+        return mHabitatSize;
+    }
+
+    /**
+     * Retrieves the amount of seeds produced by a single plant.
+     * 
+     * @param species
+     *            NATIVE or TAMARISK
+     * 
+     * @return The species' production rate
+     */
+    public int getProductionRate(final int species) {
+        return mProductionRates[species];
+    }
+
+    /**
+     * Retrieves the chance a plant dies every step.
+     * 
+     * @param species
+     *            NATIVE or TAMARISK
+     * 
+     * @return The species' death rate
+     */
+    public double getDeathRate(final int species) {
+        return mDeathRates[species];
+    }
+
+    /**
+     * Checks if seeds arrive from outside of the river.
+     * 
+     * @return True iff exogenous arrival is on
+     */
+    public boolean hasExogenousArrival() {
+        return mExogenousArrival;
+    }
+
+    /**
+     * Retrieves the amount of seeds that may arrive from outside of a reach.
+     * 
+     * @param index
+     *            The index of the reach
+     * @param species
+     *            NATIVE or TAMARISK
+     * 
+     * @return The reach's arrival rate for the species
+     */
+    public int getArrivalRate(final int index, final int species) {
+        return mArrivalRates[index][species];
+    }
+
+    /**
+     * Retrieves the chance of each seed arriving from outside of a reach.
+     * 
+     * @param index
+     *            The index of the reach
+     * @param species
+     *            NATIVE or TAMARISK
+     * 
+     * @return The reach's arrival probability for the species
+     */
+    public double getArrivalProbability(final int index, final int species) {
+        return mArrivalProbabilities[index][species];
+    }
+
+    /**
+     * Retrieves the rate at which seeds spread against the flow of the river.
+     * 
+     * @return The upstream rate
+     */
+    public double getUpstreamRate() {
+        return mUpstreamRate;
+    }
+
+    /**
+     * Retrieves the rate at which seeds spread along the flow of the river.
+     * 
+     * @return The downstream rate
+     */
+    public double getDownstreamRate() {
+        return mDownstreamRate;
+    }
+
+    /**
+     * Retrieves the advantage of tamarisk seeds over native seeds.
+     * 
+     * @return The competition factor
+     */
+    public double getCompetitionFactor() {
+        return mCompetitionFactor;
+    }
+
+    /**
+     * Retrieves the edges of the river, the edge at position i being reach i.
+     * 
+     * @return The (node, node downstream) pairs; not to be modified
+     */
+    public int[][] getEdges() {
+        return mEdges;
+    }
+}
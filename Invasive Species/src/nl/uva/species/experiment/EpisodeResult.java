@@ -0,0 +1,132 @@
+package nl.uva.species.experiment;
+
+/**
+ * The outcome of a single episode run within a trial.
+ */
+public class EpisodeResult {
+
+    /** The names of the values within the formatted results */
+    public static final String HEADER = "trial,seed,phase,episode,return,steps,ms";
+
+    /** The name of the trial that ran the episode */
+    private final String mTrial;
+
+    /** The seed of the trial that ran the episode */
+    private final long mSeed;
+
+    /** The phase of the trial the episode belongs to */
+    private final String mPhase;
+
+    /** The number of the episode within its phase, starting at 0 */
+    private final int mEpisode;
+
+    /** The total reward of the episode */
+    private final double mReturn;
+
+    /** The amount of steps of the episode */
+    private final int mSteps;
+
+    /** The time the episode took in nanoseconds */
+    private final long mTime;
+
+    /**
+     * Prepares the result of an episode.
+     * 
+     * @param trial
+     *            The name of the trial that ran the episode
+     * @param seed
+     *            The seed of the trial
+     * @param phase
+     *            The phase of the trial the episode belongs to
+     * @param episode
+     *            The number of the episode within its phase
+     * @param totalReward
+     *            The total reward of the episode
+     * @param steps
+     *            The amount of steps of the episode
+     * @param time
+     *            The time the episode took in nanoseconds
+     */
+    public EpisodeResult(final String trial, final long seed, final String phase,
+            final int episode, final double totalReward, final int steps, final long time) {
+        mTrial = trial;
+        mSeed = seed;
+        mPhase = phase;
+        mEpisode = episode;
+        mReturn = totalReward;
+        mSteps = steps;
+        mTime = time;
+    }
+
+    /**
+     * Retrieves the name of the trial that ran the episode.
+     * 
+     * @return The trial's name
+     */
+    public String getTrial() {
+        return mTrial;
+    }
+
+    /**
+     * Retrieves the seed of the trial that ran the episode.
+     * 
+     * @return The trial's seed
+     */
+    public long getSeed() {
+        return mSeed;
+    }
+
+    /**
+     * Retrieves the phase of the trial the episode belongs to.
+     * 
+     * @return The episode's phase
+     */
+    public String getPhase() {
+        return mPhase;
+    }
+
+    /**
+     * Retrieves the number of the episode within its phase.
+     * 
+     * @return The episode number, starting at 0
+     */
+    public int getEpisode() {
+        return mEpisode;
+    }
+
+    /**
+     * Retrieves the total reward of the episode.
+     * 
+     * @return The episode's return
+     */
+    public double getReturn() {
+        return mReturn;
+    }
+
+    /**
+     * Retrieves the amount of steps of the episode.
+     * 
+     * @return The amount of steps
+     */
+    public int getSteps() {
+        return mSteps;
+    }
+
+    /**
+     * Retrieves the time the episode took.
+     * 
+     * @return The time in nanoseconds
+     */
+    public long getTime() {
+        return mTime;
+    }
+
+    /**
+     * Formats the result as a line of comma separated values, in the order of {@link #HEADER}.
+     */
+    @Override
+    public String toString() {
+        return mTrial + "," + mSeed + "," + mPhase + "," + mEpisode + "," + mReturn + "," + mSteps
+                + "," + (mTime / 1000000.0);
+    }
+}
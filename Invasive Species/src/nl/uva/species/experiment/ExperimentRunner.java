@@ -0,0 +1,138 @@
+package nl.uva.species.experiment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent trials in parallel on a pool of threads and gathers the results of all their
+ * episodes into a single stream. Every trial runs entirely on one thread with its own LocalGlue,
+ * agent and environment.
+ */
+public class ExperimentRunner {
+
+    /** The amount of threads to run trials on */
+    private final int mNumThreads;
+
+    /** The listener receiving the results as they come in or null if there is none */
+    private final ResultListener mListener;
+
+    /** The results of all finished episodes in the order they were reported */
+    private final List<EpisodeResult> mResults = new ArrayList<>();
+
+    /**
+     * Prepares a runner that uses a thread per available processor.
+     */
+    public ExperimentRunner() {
+        this(Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Prepares a runner.
+     * 
+     * @param numThreads
+     *            The amount of trials to run at once
+     * @param listener
+     *            The listener receiving every result as it comes in, or null
+     */
+    public ExperimentRunner(final int numThreads, final ResultListener listener) {
+        mNumThreads = Math.max(1, numThreads);
+        mListener = listener;
+    }
+
+    /**
+     * Runs the given trials and waits for all of them to finish.
+     * 
+     * @param trials
+     *            The trials to run
+     * 
+     * @return The results of the episodes of all trials, in the order they finished
+     * 
+     * @throws ExecutionException
+     *             If any of the trials failed; the other trials still ran to completion
+     * @throws InterruptedException
+     *             If the thread was interrupted while waiting for the trials
+     */
+    public List<EpisodeResult> run(final List<? extends Trial> trials)
+            throws ExecutionException, InterruptedException {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(mNumThreads,
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        // JGAP keys its configurations by the thread's name, so keep them unique
+                        final Thread thread = new Thread(runnable, "Experiment trial "
+                                + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        final int numResults;
+        synchronized (this) {
+            numResults = mResults.size();
+        }
+
+        try {
+            final List<Future<Void>> runs = new ArrayList<>();
+            for (final Trial trial : trials) {
+                runs.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        trial.execute(ExperimentRunner.this);
+                        return null;
+                    }
+                }));
+            }
+
+            ExecutionException failure = null;
+            for (final Future<Void> run : runs) {
+                try {
+                    run.get();
+                } catch (final ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        synchronized (this) {
+            return new ArrayList<>(mResults.subList(numResults, mResults.size()));
+        }
+    }
+
+    /**
+     * Retrieves the results of all episodes run so far.
+     * 
+     * @return The results in the order they finished
+     */
+    public synchronized List<EpisodeResult> getResults() {
+        return Collections.unmodifiableList(new ArrayList<>(mResults));
+    }
+
+    /**
+     * Adds the result of a finished episode to the stream.
+     * 
+     * @param result
+     *            The outcome of the episode
+     */
+    synchronized void report(final EpisodeResult result) {
+        mResults.add(result);
+        if (mListener != null) {
+            mListener.episodeFinished(result);
+        }
+    }
+}
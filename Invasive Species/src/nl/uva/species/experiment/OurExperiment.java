@@ -0,0 +1,187 @@
+package nl.uva.species.experiment;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nl.uva.species.agent.ExperimentWrapperAgent;
+import nl.uva.species.environment.InvasiveEnvironment;
+import nl.uva.species.utils.Messages;
+
+import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+
+/**
+ * The experiment of ourExperiment.py as a trial: the ExperimentWrapperAgent learns a model of the
+ * environment, plans on it and is evaluated, after which the heuristic agent is evaluated on the
+ * same environment for comparison. Running it for several seeds runs the trials in parallel.
+ */
+public class OurExperiment extends Trial {
+
+    /** The amount of steps to learn the model in */
+    public static final int DEFAULT_LEARNING_STEPS = 10000;
+
+    /** The amount of episodes to evaluate each policy for */
+    private static final int EVALUATION_EPISODES = 10;
+
+    /** The amount of steps of each evaluation episode */
+    private static final int EVALUATION_STEPS = 100;
+
+    /** The file the evaluation summaries are appended to */
+    private static final String SUMMARY_FILE = "experiments.txt";
+
+    /** The amount of steps to learn the model in */
+    private final int mLearningSteps;
+
+    /** The maximum amount of threads the agent uses within the trial */
+    private final int mParallelism;
+
+    /** The environment of the trial */
+    private InvasiveEnvironment mEnvironment;
+
+    /**
+     * Prepares a trial of the experiment.
+     * 
+     * @param seed
+     *            The seed for the environment, the start state and the agent
+     * @param learningSteps
+     *            The amount of steps to learn the model in
+     * @param parallelism
+     *            The maximum amount of threads the agent uses within the trial. Only with a single
+     *            thread the seed reproduces the trial, as several threads share the training of Q
+     */
+    public OurExperiment(final long seed, final int learningSteps, final int parallelism) {
+        super("our experiment", seed);
+        mLearningSteps = learningSteps;
+        mParallelism = parallelism;
+    }
+
+    @Override
+    protected EnvironmentInterface createEnvironment() {
+        mEnvironment = new InvasiveEnvironment(getSeed());
+        return mEnvironment;
+    }
+
+    @Override
+    protected AgentInterface createAgent() {
+        return new ExperimentWrapperAgent(mParallelism, getSeed());
+    }
+
+    @Override
+    protected void run() {
+        // Start every episode in the same random state
+        final Random random = new Random(getSeed());
+        final int numHabitats = mEnvironment.getSimulationParameters().getNumReaches()
+                * mEnvironment.getSimulationParameters().getHabitatSize();
+        final StringBuilder startState = new StringBuilder();
+        for (int i = 0; i < numHabitats; ++i) {
+            startState.append(i > 0 ? "," : "").append(1 + random.nextInt(3));
+        }
+        environmentMessage("set-start-state " + startState);
+
+        setPhase(Messages.LEARN_MODEL.incomingMessage());
+        agentMessage(Messages.LEARN_MODEL.incomingMessage());
+        episode(mLearningSteps);
+
+        agentMessage(Messages.PLAN.incomingMessage());
+
+        setPhase(Messages.EVALUATE.incomingMessage());
+        agentMessage(Messages.EVALUATE.incomingMessage());
+        for (int i = 0; i < EVALUATION_EPISODES; ++i) {
+            episode(EVALUATION_STEPS);
+        }
+
+        setPhase(Messages.FOLLOW_HEURISTICS.incomingMessage());
+        agentMessage(Messages.FOLLOW_HEURISTICS.incomingMessage());
+        for (int i = 0; i < EVALUATION_EPISODES; ++i) {
+            episode(EVALUATION_STEPS);
+        }
+    }
+
+    /**
+     * Calculates the mean and standard deviation of the returns of one phase of one trial.
+     * 
+     * @param results
+     *            The results of all episodes
+     * @param seed
+     *            The seed of the trial
+     * @param phase
+     *            The phase to summarise
+     * 
+     * @return The mean and standard deviation
+     */
+    private static double[] getSummary(final List<EpisodeResult> results, final long seed,
+            final String phase) {
+        final List<Double> returns = new ArrayList<>();
+        for (final EpisodeResult result : results) {
+            if (result.getSeed() == seed && result.getPhase().equals(phase)) {
+                returns.add(result.getReturn());
+            }
+        }
+
+        final int n = returns.size();
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (final double value : returns) {
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        final double mean = sum / n;
+        final double variance = (sumOfSquares - n * mean * mean) / (n - 1.0);
+        return new double[] { mean, Math.sqrt(variance) };
+    }
+
+    /**
+     * Runs the experiment for a range of seeds in parallel, printing every episode's result and
+     * appending the evaluation of every seed to experiments.txt.
+     * 
+     * @param args
+     *            Optionally the amount of seeds, the amount of threads and the amount of learning
+     *            steps
+     */
+    public static void main(final String[] args) throws Exception {
+        final int numSeeds = (args.length > 0 ? Integer.parseInt(args[0]) : 1);
+        final int numThreads = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+                .getRuntime().availableProcessors());
+        final int learningSteps = (args.length > 2 ? Integer.parseInt(args[2])
+                : DEFAULT_LEARNING_STEPS);
+
+        // Trials running side by side already use every processor, so each trial gets one thread
+        final int parallelism = (numThreads > 1 ? 1 : Runtime.getRuntime().availableProcessors());
+
+        final List<OurExperiment> trials = new ArrayList<>();
+        for (int seed = 1; seed <= numSeeds; ++seed) {
+            trials.add(new OurExperiment(seed, learningSteps, parallelism));
+        }
+
+        System.out.println(EpisodeResult.HEADER);
+        final ExperimentRunner runner = new ExperimentRunner(numThreads, new ResultListener() {
+            @Override
+            public void episodeFinished(final EpisodeResult result) {
+                System.out.println(result);
+            }
+        });
+        final List<EpisodeResult> results = runner.run(trials);
+
+        try (final PrintWriter writer = new PrintWriter(new FileWriter(SUMMARY_FILE, true))) {
+            for (final OurExperiment trial : trials) {
+                final double[] invasive = getSummary(results, trial.getSeed(),
+                        Messages.EVALUATE.incomingMessage());
+                final double[] heuristic = getSummary(results, trial.getSeed(),
+                        Messages.FOLLOW_HEURISTICS.incomingMessage());
+
+                writer.println();
+                writer.println("--> seed = " + trial.getSeed() + " ");
+                writer.println("    INVASIVE AGENT  :   mean: " + invasive[0] + " , std: "
+                        + invasive[1]);
+                writer.println("    HEURISTIC AGENT :   mean: " + heuristic[0] + " , std: "
+                        + heuristic[1]);
+            }
+        } catch (final IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
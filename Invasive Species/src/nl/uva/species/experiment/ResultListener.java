@@ -0,0 +1,16 @@
+package nl.uva.species.experiment;
+
+/**
+ * Receives the results of the episodes run by an experiment runner. The runner never calls a
+ * listener from more than one thread at a time.
+ */
+public interface ResultListener {
+
+    /**
+     * Called after every finished episode.
+     * 
+     * @param result
+     *            The outcome of the episode
+     */
+    void episodeFinished(EpisodeResult result);
+}
@@ -0,0 +1,157 @@
+package nl.uva.species.experiment;
+
+import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+import org.rlcommunity.rlglue.codec.LocalGlue;
+
+/**
+ * A single run of an agent on an environment, following a script of messages and episodes. Every
+ * trial is connected through its own LocalGlue, so trials don't share any RL-Glue state and can
+ * run at the same time. Subclasses create the agent and environment for the trial's seed and
+ * script the trial in {@link #run()}, in which every episode is reported to the runner.
+ */
+public abstract class Trial {
+
+    /** The name of the trial */
+    private final String mName;
+
+    /** The seed of the trial */
+    private final long mSeed;
+
+    /** The glue connecting the trial's agent and environment while it runs */
+    private LocalGlue mGlue;
+
+    /** The runner to report the episodes to while the trial runs */
+    private ExperimentRunner mRunner;
+
+    /** The phase the next episodes belong to */
+    private String mPhase = "";
+
+    /** The amount of episodes run within the current phase */
+    private int mPhaseEpisodes;
+
+    /**
+     * Prepares a trial.
+     * 
+     * @param name
+     *            The name of the trial, used to tell its results apart
+     * @param seed
+     *            The seed for the trial's agent and environment
+     */
+    public Trial(final String name, final long seed) {
+        mName = name;
+        mSeed = seed;
+    }
+
+    /**
+     * Retrieves the name of the trial.
+     * 
+     * @return The trial's name
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Retrieves the seed of the trial.
+     * 
+     * @return The trial's seed
+     */
+    public long getSeed() {
+        return mSeed;
+    }
+
+    /**
+     * Creates the environment to run the trial on.
+     * 
+     * @return A new environment, not shared with any other trial
+     */
+    protected abstract EnvironmentInterface createEnvironment();
+
+    /**
+     * Creates the agent to run the trial with.
+     * 
+     * @return A new agent, not shared with any other trial
+     */
+    protected abstract AgentInterface createAgent();
+
+    /**
+     * Runs the trial's script. The glue is initialised before and cleaned up after the script.
+     */
+    protected abstract void run();
+
+    /**
+     * Starts a new phase; the following episodes are reported as part of it.
+     * 
+     * @param phase
+     *            The name of the phase
+     */
+    protected void setPhase(final String phase) {
+        mPhase = phase;
+        mPhaseEpisodes = 0;
+    }
+
+    /**
+     * Runs a single episode and reports its result.
+     * 
+     * @param maxSteps
+     *            The maximum amount of steps, or 0 for no limit
+     * 
+     * @return The episode's return
+     */
+    protected double episode(final int maxSteps) {
+        final long start = System.nanoTime();
+        mGlue.RL_episode(maxSteps);
+        final long time = System.nanoTime() - start;
+
+        final double totalReward = mGlue.RL_return();
+        mRunner.report(new EpisodeResult(mName, mSeed, mPhase, mPhaseEpisodes++, totalReward,
+                mGlue.RL_num_steps(), time));
+        return totalReward;
+    }
+
+    /**
+     * Sends a message to the trial's agent.
+     * 
+     * @param message
+     *            The message to send
+     * 
+     * @return The agent's response
+     */
+    protected String agentMessage(final String message) {
+        return mGlue.RL_agent_message(message);
+    }
+
+    /**
+     * Sends a message to the trial's environment.
+     * 
+     * @param message
+     *            The message to send
+     * 
+     * @return The environment's response
+     */
+    protected String environmentMessage(final String message) {
+        return mGlue.RL_env_message(message);
+    }
+
+    /**
+     * Connects a new agent and environment and runs the script on them.
+     * 
+     * @param runner
+     *            The runner to report the episodes to
+     */
+    void execute(final ExperimentRunner runner) {
+        mRunner = runner;
+        mGlue = new LocalGlue(createEnvironment(), createAgent());
+        setPhase("");
+
+        mGlue.RL_init();
+        try {
+            run();
+        } finally {
+            mGlue.RL_cleanup();
+            mGlue = null;
+            mRunner = null;
+        }
+    }
+}
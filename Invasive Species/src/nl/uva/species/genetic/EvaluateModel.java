@@ -1,14 +1,14 @@
 package nl.uva.species.genetic;
 
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import nl.uva.species.model.EnvModel;
 import nl.uva.species.model.River;
-import nl.uva.species.model.RiverState;
+import nl.uva.species.model.TransitionStatistics;
 
 import org.jgap.FitnessFunction;
 import org.jgap.IChromosome;
-import org.rlcommunity.rlglue.codec.types.Action;
 
 public class EvaluateModel extends FitnessFunction {
 
@@ -17,19 +17,37 @@ public class EvaluateModel extends FitnessFunction {
 	 */
 	private static final long serialVersionUID = 3905984536032544547L;
 
-	/** The list of all previous river states */
-	private final List<List<RiverState>> mRiverState;
+	/** The maximum amount of contexts evaluated by a single task before splitting it */
+	private static final int TASK_CONTEXTS = 256;
 
-	/** The list of all previous actions */
-	private final List<List<Action>> mActions;
+	/** The pool to evaluate transitions in when no other pool is given */
+	private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+	/** The aggregated outcomes of all previous transitions */
+	private final TransitionStatistics mStatistics;
 
 	/** The current river */
 	private final River mRiver;
 
-	public EvaluateModel(final List<List<RiverState>> riverStates, final List<List<Action>> actions, final River river) {
-		mRiverState = riverStates;
-		mActions = actions;
-		mRiver = river;
+	/** The pool to evaluate the contexts in */
+	private transient ForkJoinPool mPool;
+
+	public EvaluateModel(final TransitionStatistics statistics) {
+		this(statistics, DEFAULT_POOL);
+	}
+
+	/**
+	 * Prepares a fitness function that evaluates the aggregated transitions in the given pool.
+	 * 
+	 * @param statistics
+	 *            The aggregated outcomes of the recorded transitions, which may still grow
+	 * @param pool
+	 *            The pool to evaluate the contexts in
+	 */
+	public EvaluateModel(final TransitionStatistics statistics, final ForkJoinPool pool) {
+		mStatistics = statistics;
+		mRiver = statistics.getRiver();
+		mPool = pool;
 	}
 
 	@Override
@@ -41,15 +59,54 @@ public class EvaluateModel extends FitnessFunction {
 		}
 
 		EnvModel model = new EnvModel(mRiver, genes);
-		double result = 0;
-		int steps = 0;
-		for (int i = 0; i < mRiverState.size(); ++i) {
-			for (int j = 0; j < mRiverState.get(i).size() - 1; ++j) {
-				steps++;
-				result += model.evaluateModel(mRiverState.get(i).get(j), mActions.get(i).get(j), mRiverState.get(i)
-						.get(j + 1));
+		final ForkJoinPool pool = (mPool != null ? mPool : DEFAULT_POOL);
+		final double reward = pool.invoke(new EvaluateTask(model, mStatistics, 0, mStatistics.getNumContexts()));
+		return model.getEvaluationScore(mStatistics, reward);
+	}
+
+	/**
+	 * Sums the rewards of a model on a range of aggregated contexts, splitting large ranges into
+	 * tasks that run in parallel. Ranges are always split in the same way, so the sum does not
+	 * depend on the amount of threads.
+	 */
+	private static class EvaluateTask extends RecursiveTask<Double> {
+
+		/**
+		 * Generated default serial UID
+		 */
+		private static final long serialVersionUID = -2751468205063522617L;
+
+		/** The model to evaluate */
+		private final EnvModel mModel;
+
+		/** The aggregated transitions */
+		private final TransitionStatistics mStatistics;
+
+		/** The first context to evaluate */
+		private final int mStart;
+
+		/** The context after the last one to evaluate */
+		private final int mEnd;
+
+		public EvaluateTask(final EnvModel model, final TransitionStatistics statistics, final int start,
+				final int end) {
+			mModel = model;
+			mStatistics = statistics;
+			mStart = start;
+			mEnd = end;
+		}
+
+		@Override
+		protected Double compute() {
+			if (mEnd - mStart > TASK_CONTEXTS) {
+				final int middle = (mStart + mEnd) >>> 1;
+				final EvaluateTask first = new EvaluateTask(mModel, mStatistics, mStart, middle);
+				final EvaluateTask second = new EvaluateTask(mModel, mStatistics, middle, mEnd);
+				first.fork();
+				final double secondResult = second.compute();
+				return first.join() + secondResult;
 			}
+			return mModel.getEvaluationReward(mStatistics, mStart, mEnd);
 		}
-		return result / steps;
 	}
 }
@@ -3,25 +3,44 @@ package nl.uva.species.genetic;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import nl.uva.species.model.EnvModel;
 import nl.uva.species.model.River;
 import nl.uva.species.model.RiverState;
+import nl.uva.species.model.TransitionStatistics;
+import nl.uva.species.utils.Utilities;
 
 import org.jgap.Chromosome;
 import org.jgap.Configuration;
+import org.jgap.Gene;
 import org.jgap.Genotype;
 import org.jgap.IChromosome;
 import org.jgap.InvalidConfigurationException;
 import org.jgap.impl.DefaultConfiguration;
+import org.jgap.impl.StockRandomGenerator;
 import org.rlcommunity.rlglue.codec.types.Action;
 
 public class GeneticModelCreator {
 
-    /** The past river states */
-    private final List<List<RiverState>> mStates = new ArrayList<>();
+    /** The aggregated outcomes of all past transitions */
+    private final TransitionStatistics mStatistics;
 
-    private final List<List<Action>> mActions = new ArrayList<>();
+    /** The river states of the current episode that are not part of a recorded transition yet */
+    private final List<RiverState> mStates = new ArrayList<>();
+
+    /** The actions of the current episode that are not part of a recorded transition yet */
+    private final List<Action> mActions = new ArrayList<>();
+
+    /** The amount of river states added */
+    private int mNumStates;
 
     private final List<IChromosome> mFittestChromosomes = new ArrayList<>();
 
@@ -39,9 +58,39 @@ public class GeneticModelCreator {
      */
     public final int ADD_BEST_CHROMOSOMES_TIME = -5;
 
+    /** The amount of evolutions each island performs between migrations */
+    public final int MIGRATION_INTERVAL = 5;
+
+    /** The amount of fittest chromosomes that migrate from each island to the next */
+    public final int MIGRANTS = 2;
+
+    /** The amount of migration intervals without improvement after which the islands stop */
+    public final int PLATEAU_INTERVALS = 3;
+
+    /** The minimum increase of the best fitness that counts as an improvement */
+    public final double PLATEAU_TOLERANCE = 1e-6;
+
+    /** The maximum amount of evolutions per island */
+    public final int MAX_ISLAND_EVOLUTIONS = 200;
+
     /** The currently calculated genotype */
     private Genotype mGenotype;
 
+    /** The amount of independently evolving genotypes, 1 to evolve a single genotype */
+    private final int mNumIslands;
+
+    /** The maximum time to evolve the islands in milliseconds */
+    private final long mTimeLimit;
+
+    /** The genotypes evolving in parallel, or null if a single genotype is evolved */
+    private Genotype[] mIslands;
+
+    /** The threads that evolve the islands, created when first needed */
+    private ExecutorService mIslandThreads;
+
+    /** The random number generator the seeds of the genotypes are drawn from */
+    private final Random mRandom;
+
     /**
      * Create a genetic model creator with standard values and the given river
      * 
@@ -49,9 +98,49 @@ public class GeneticModelCreator {
      *            The river as the basis of the model
      */
     public GeneticModelCreator(final River river) {
+        this(river, 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a genetic model creator that evolves several populations in parallel. Every
+     * MIGRATION_INTERVAL evolutions the fittest chromosomes of each island migrate to the next one.
+     * The islands stop when their best fitness stops improving or when the time limit passes.
+     * 
+     * @param river
+     *            The river as the basis of the model
+     * @param numIslands
+     *            The amount of independently evolving populations, 1 to evolve a single
+     *            population as the standard creator does
+     * @param timeLimit
+     *            The maximum time to evolve the islands in milliseconds
+     */
+    public GeneticModelCreator(final River river, final int numIslands, final long timeLimit) {
+        this(river, numIslands, timeLimit, Utilities.RNG.nextLong());
+    }
+
+    /**
+     * Create a genetic model creator that evolves the given amount of populations, each with its
+     * own random number generator seeded from the given seed. A single population evolves the
+     * same way for the same seed and transitions.
+     * 
+     * @param river
+     *            The river as the basis of the model
+     * @param numIslands
+     *            The amount of independently evolving populations, 1 to evolve a single
+     *            population as the standard creator does
+     * @param timeLimit
+     *            The maximum time to evolve the islands in milliseconds
+     * @param seed
+     *            The seed to derive the seeds of the populations from
+     */
+    public GeneticModelCreator(final River river, final int numIslands, final long timeLimit,
+            final long seed) {
         mEvolutions = STANDARD_EVOLUTIONS;
-        int geneNumber = EnvModel.Parameter.values().length + river.getNumReaches() * 2;
-        mGenotype = initialiseGenotype(STANDARD_POP_SIZE, river, geneNumber);
+        mNumIslands = numIslands;
+        mTimeLimit = timeLimit;
+        mRandom = new Random(seed);
+        mStatistics = new TransitionStatistics(river);
+        initialise(river);
     }
 
     /**
@@ -60,10 +149,43 @@ public class GeneticModelCreator {
      * @param river
      */
     public void reinitialise(final River river) {
-        mFittestChromosomes.add(mGenotype.getFittestChromosome());
+        if (mIslands != null) {
+            mFittestChromosomes.add(getFittestIslandChromosome());
+        } else {
+            mFittestChromosomes.add(mGenotype.getFittestChromosome());
+        }
 
-        mGenotype = initialiseGenotype(STANDARD_POP_SIZE, river, EnvModel.Parameter.values().length
-                + river.getNumReaches() * 2);
+        initialise(river);
+    }
+
+    /**
+     * Stop the threads that evolve the islands, they are created again when needed
+     */
+    public void shutdown() {
+        if (mIslandThreads != null) {
+            mIslandThreads.shutdownNow();
+            mIslandThreads = null;
+        }
+    }
+
+    /**
+     * Initialise either the single genotype or all islands
+     * 
+     * @param river
+     *            The river as the basis of the model
+     */
+    private void initialise(final River river) {
+        final int geneNumber = EnvModel.Parameter.values().length + river.getNumReaches() * 2;
+        if (mNumIslands > 1) {
+            mIslands = new Genotype[mNumIslands];
+            for (int i = 0; i < mNumIslands; ++i) {
+                mIslands[i] = initialiseGenotype(STANDARD_POP_SIZE, river, geneNumber, "island"
+                        + i);
+            }
+            mGenotype = mIslands[0];
+        } else {
+            mGenotype = initialiseGenotype(STANDARD_POP_SIZE, river, geneNumber, "");
+        }
     }
 
     /**
@@ -71,10 +193,12 @@ public class GeneticModelCreator {
      * 
      * @param populationSize
      *            The size of the population
+     * @param id
+     *            The id of the genotype's configuration, unique among the genotypes evolved at once
      * @return The generated genotype
      */
     private Genotype initialiseGenotype(final int populationSize, final River river,
-            final int geneNumber) {
+            final int geneNumber, final String id) {
 
         // if (mGenotype != null) {
         // // We already calculated once, take the best chromosomes to the next round
@@ -90,20 +214,24 @@ public class GeneticModelCreator {
         // return mGenotype;
         // }
 
-        Configuration.reset();
-        Configuration gaConf = new DefaultConfiguration();
+        Configuration.reset(id);
+        Configuration gaConf = new DefaultConfiguration(id, null);
         gaConf.setPreservFittestIndividual(true);
         gaConf.setKeepPopulationSizeConstant(false);
 
         Genotype genotype = null;
         try {
+            final StockRandomGenerator generator = new StockRandomGenerator();
+            generator.setSeed(mRandom.nextLong());
+            gaConf.setRandomGenerator(generator);
+
             IChromosome sampleChromosome = new Chromosome(gaConf, new SuperGene(gaConf), geneNumber);
 
             gaConf.setAlwaysCaculateFitness(true);
             gaConf.setSampleChromosome(sampleChromosome);
             gaConf.setPopulationSize(populationSize);
 
-            gaConf.setFitnessFunction(new EvaluateModel(mStates, mActions, river));
+            gaConf.setFitnessFunction(new EvaluateModel(mStatistics));
             genotype = Genotype.randomInitialGenotype(gaConf);
 
         } catch (InvalidConfigurationException e) {
@@ -134,16 +262,15 @@ public class GeneticModelCreator {
      * @return The best fitting model
      */
     public EnvModel getBestModel(final River river, final EnvModel trueModel) {
-        int stateCounter = 0;
-        for (List<RiverState> riverList : mStates) {
-            stateCounter += riverList.size();
-        }
-
-        if (stateCounter < 3) {
+        if (mNumStates < 3) {
             // we have no data return our prior
             return new EnvModel(river, false);
         }
 
+        if (mIslands != null) {
+            return getBestIslandModel(river, trueModel);
+        }
+
         IChromosome fittest = null;
         double start = System.currentTimeMillis(), total = System.currentTimeMillis();
         EnvModel lastModel = null;
@@ -208,12 +335,188 @@ public class GeneticModelCreator {
                 SuperGene[].class));
     }
 
+    /**
+     * Calculate the best fitting model by evolving all islands in parallel, migrating the fittest
+     * chromosomes between them
+     * 
+     * @param river
+     *            The currently used river
+     * @param trueModel
+     *            The true model if available, only for printout comparison
+     * @return The best fitting model
+     */
+    private EnvModel getBestIslandModel(final River river, final EnvModel trueModel) {
+        if (mIslandThreads == null) {
+            mIslandThreads = Executors.newFixedThreadPool(mNumIslands, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Genetic island");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        // Let every island try the previously calculated fittest chromosomes
+        for (final Genotype island : mIslands) {
+            for (final IChromosome chromosome : mFittestChromosomes) {
+                island.getPopulation().addChromosome(copyChromosome(chromosome, island));
+            }
+        }
+
+        final long start = System.currentTimeMillis();
+        final long deadline = (mTimeLimit > Long.MAX_VALUE - start ? Long.MAX_VALUE : start
+                + mTimeLimit);
+        double bestFitness = Double.NEGATIVE_INFINITY;
+        int plateauIntervals = 0;
+        int evolutions = 0;
+        IChromosome fittest = null;
+
+        while (evolutions < MAX_ISLAND_EVOLUTIONS) {
+            evolveIslands(deadline);
+            evolutions += MIGRATION_INTERVAL;
+
+            fittest = getFittestIslandChromosome();
+            final EnvModel model = new EnvModel(river, Arrays.copyOf(fittest.getGenes(),
+                    fittest.getGenes().length, SuperGene[].class));
+            if (trueModel != null) {
+                trueModel.printComparison(model);
+            } else {
+                model.prettyPrint();
+            }
+            System.out.println("Best fitness after: " + evolutions + " steps on " + mNumIslands
+                    + " islands " + fittest.getFitnessValueDirectly());
+
+            // Stop when the fitness reached a plateau on all islands or the time is up
+            if (fittest.getFitnessValueDirectly() > bestFitness + PLATEAU_TOLERANCE) {
+                bestFitness = fittest.getFitnessValueDirectly();
+                plateauIntervals = 0;
+            } else if (++plateauIntervals == PLATEAU_INTERVALS) {
+                System.out.println("Genetic model stops due to: No improvement");
+                break;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                System.out.println("Genetic model stops due to: Time limit");
+                break;
+            }
+
+            migrate();
+        }
+
+        System.out.println("Total: " + (System.currentTimeMillis() - start) / 1000 / 60
+                + " Minutes");
+
+        return new EnvModel(river, Arrays.copyOf(fittest.getGenes(), fittest.getGenes().length,
+                SuperGene[].class));
+    }
+
+    /**
+     * Evolve every island MIGRATION_INTERVAL times on its own thread, or until the deadline
+     * passes
+     * 
+     * @param deadline
+     *            The time in milliseconds after which no evolutions are started anymore
+     */
+    private void evolveIslands(final long deadline) {
+        final List<Future<Void>> evolutions = new ArrayList<>();
+        for (final Genotype island : mIslands) {
+            evolutions.add(mIslandThreads.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = 0; i < MIGRATION_INTERVAL
+                            && System.currentTimeMillis() < deadline; ++i) {
+                        island.evolve();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (final Future<Void> evolution : evolutions) {
+                evolution.get();
+            }
+        } catch (final InterruptedException ex) {
+            // Stop waiting and use the islands as they are
+            for (final Future<Void> evolution : evolutions) {
+                evolution.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException ex) {
+            throw new IllegalStateException("An island failed to evolve", ex.getCause());
+        }
+    }
+
+    /**
+     * Copy the fittest chromosomes of every island to the next island in a ring
+     */
+    private void migrate() {
+        final List<List<IChromosome>> migrants = new ArrayList<>();
+        for (final Genotype island : mIslands) {
+            final List<IChromosome> fittest = new ArrayList<>();
+            for (final Object chromosome : island.getFittestChromosomes(MIGRANTS)) {
+                fittest.add((IChromosome) chromosome);
+            }
+            migrants.add(fittest);
+        }
+
+        for (int i = 0; i < mNumIslands; ++i) {
+            final Genotype target = mIslands[(i + 1) % mNumIslands];
+            for (final IChromosome migrant : migrants.get(i)) {
+                target.getPopulation().addChromosome(copyChromosome(migrant, target));
+            }
+        }
+    }
+
+    /**
+     * Find the fittest chromosome among all islands
+     * 
+     * @return The fittest chromosome
+     */
+    private IChromosome getFittestIslandChromosome() {
+        IChromosome fittest = null;
+        for (final Genotype island : mIslands) {
+            final IChromosome chromosome = island.getFittestChromosome();
+            if (fittest == null
+                    || chromosome.getFitnessValueDirectly() > fittest.getFitnessValueDirectly()) {
+                fittest = chromosome;
+            }
+        }
+        return fittest;
+    }
+
+    /**
+     * Copy a chromosome into the configuration of another genotype, so that every island only
+     * works with its own configuration
+     * 
+     * @param chromosome
+     *            The chromosome to copy
+     * @param target
+     *            The genotype to copy the chromosome to
+     * @return The copied chromosome
+     */
+    private IChromosome copyChromosome(final IChromosome chromosome, final Genotype target) {
+        final Configuration conf = target.getConfiguration();
+        try {
+            final Gene[] genes = new Gene[chromosome.size()];
+            for (int i = 0; i < genes.length; ++i) {
+                genes[i] = new SuperGene(conf);
+                genes[i].setAllele(chromosome.getGene(i).getAllele());
+            }
+            final IChromosome copy = new Chromosome(conf, genes);
+            copy.setFitnessValueDirectly(chromosome.getFitnessValueDirectly());
+            return copy;
+        } catch (final InvalidConfigurationException ex) {
+            throw new IllegalStateException(ex.getMessage());
+        }
+    }
+
     /**
      * Finish the current episode, creating space for new states and actions
      */
     public void finishEpisode() {
-        mStates.add(new ArrayList<RiverState>());
-        mActions.add(new ArrayList<Action>());
+        mStates.clear();
+        mActions.clear();
     }
 
     /**
@@ -223,7 +526,10 @@ public class GeneticModelCreator {
      * @return true if the action was successful
      */
     public boolean addRiverState(final RiverState riverState) {
-        return mStates.get(mStates.size() - 1).add(riverState);
+        ++mNumStates;
+        mStates.add(riverState);
+        recordTransitions();
+        return true;
     }
 
     /**
@@ -234,6 +540,17 @@ public class GeneticModelCreator {
      * @return true if the action was successful
      */
     public boolean addAction(final Action a) {
-        return mActions.get(mStates.size() - 1).add(a);
+        mActions.add(a);
+        recordTransitions();
+        return true;
+    }
+
+    /**
+     * Record all transitions of the current episode of which the states and action are known
+     */
+    private void recordTransitions() {
+        while (mStates.size() > 1 && !mActions.isEmpty()) {
+            mStatistics.add(mStates.remove(0), mActions.remove(0), mStates.get(0));
+        }
     }
 }
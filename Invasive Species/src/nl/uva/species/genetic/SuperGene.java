@@ -1,7 +1,5 @@
 package nl.uva.species.genetic;
 
-import nl.uva.species.utils.Utilities;
-
 import org.jgap.BaseGene;
 import org.jgap.Configuration;
 import org.jgap.Gene;
@@ -215,7 +213,7 @@ public class SuperGene extends BaseGene implements Gene, java.io.Serializable {
     }
 
     private double randomNumber(final int max) {
-        return ((double) Utilities.RNG.nextInt(max)) / 100;
+        return ((double) getConfiguration().getRandomGenerator().nextInt(max)) / 100;
     }
 
     @Override
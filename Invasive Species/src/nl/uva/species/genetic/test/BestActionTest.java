@@ -0,0 +1,139 @@
+package nl.uva.species.genetic.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import nl.uva.species.model.EnvModel;
+import nl.uva.species.model.River;
+import nl.uva.species.model.RiverState;
+import nl.uva.species.model.TaskDescription;
+import nl.uva.species.utils.Utilities;
+
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+
+/**
+ * Checks that the model plans a valid action within the budget for star-shaped rivers, including
+ * rivers with more reaches sharing a parent than the dynamic programming planner can handle.
+ */
+public class BestActionTest {
+
+    /** The amounts of children of the star's centre reach to check */
+    private static final int[] NUM_CHILDREN = { 3, 6, 16, 20 };
+
+    /** The amount of habitats per reach */
+    private static final int HABITAT_SIZE = 4;
+
+    /** The amount of random states to plan for on every river */
+    private static final int STATES = 5;
+
+    /** The amount of failed checks */
+    private static int sFailures = 0;
+
+    public static void main(final String[] args) {
+        for (final int numChildren : NUM_CHILDREN) {
+            testStar(numChildren);
+        }
+
+        if (sFailures == 0) {
+            System.out.println("PASS");
+        } else {
+            System.out.println("FAIL: " + sFailures + " checks failed");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plans actions on a river of one reach with the given amount of children flowing into it.
+     * 
+     * @param numChildren
+     *            The amount of reaches flowing into the centre reach
+     */
+    public static void testStar(final int numChildren) {
+        final River river = createStar(numChildren);
+        final EnvModel model = new EnvModel(river);
+        final int numReaches = river.getNumReaches();
+        final Random random = new Random(numChildren);
+        final String name = "star of " + numChildren + " children";
+
+        for (int i = 0; i < STATES; ++i) {
+            final Observation observation = new Observation(numReaches * HABITAT_SIZE, 0, 0);
+            for (int habitat = 0; habitat < observation.intArray.length; ++habitat) {
+                observation.intArray[habitat] = 1 + random.nextInt(3);
+            }
+            final RiverState state = new RiverState(river, observation);
+
+            final Action action = model.getBestAction(state);
+            check(action.intArray.length == numReaches, name + ": wrong amount of actions");
+            for (int index = 0; index < numReaches; ++index) {
+                check(state.getReach(index).getValidActions().contains(action.intArray[index]),
+                        name + ": invalid action on reach " + index);
+            }
+            check(model.getActionReward(state, action) != river.getPenalty(), name
+                    + ": the action crosses the budget");
+
+            // Doing nothing is always possible, so the best action can't be worse
+            final Action nothing = new Action(numReaches, 0, 0);
+            Arrays.fill(nothing.intArray, Utilities.ACTION_NOTHING);
+            check(getReward(model, state, action) >= getReward(model, state, nothing), name
+                    + ": the action is worse than doing nothing");
+        }
+    }
+
+    /**
+     * Calculates the reward of performing an action, including its cost.
+     * 
+     * @param model
+     *            The model to calculate the reward with
+     * @param state
+     *            The state to perform the action on
+     * @param action
+     *            The action to perform
+     * 
+     * @return The expected reward
+     */
+    private static double getReward(final EnvModel model, final RiverState state,
+            final Action action) {
+        return model.getExpectedNextStateReward(state, action)
+                + model.getActionReward(state, action);
+    }
+
+    /**
+     * Creates a river in which the given amount of reaches flow into reach 0, which flows into the
+     * root node.
+     * 
+     * @param numChildren
+     *            The amount of reaches flowing into reach 0
+     * 
+     * @return The river
+     */
+    private static River createStar(final int numChildren) {
+        final int numReaches = numChildren + 1;
+        final StringBuilder edges = new StringBuilder("[(0, " + numReaches + ")");
+        for (int child = 1; child <= numChildren; ++child) {
+            edges.append(", (").append(child).append(", 0)");
+        }
+        edges.append(']');
+
+        return TaskDescription.forTaskSpec(
+                "VERSION RL-Glue-3.0 PROBLEMTYPE non-episodic DISCOUNTFACTOR 0.9 "
+                        + "OBSERVATIONS INTS (" + numReaches * HABITAT_SIZE
+                        + " 1 3) ACTIONS INTS (" + numReaches + " 1 4) REWARDS (-10000.0 -1000.0) EXTRA " + edges
+                        + " BUDGET 100 by Majid Taleghan.").getRiver();
+    }
+
+    /**
+     * Reports a failed check.
+     * 
+     * @param condition
+     *            The condition that has to hold
+     * @param message
+     *            The message to print if it doesn't
+     */
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            System.out.println("FAIL: " + message);
+            ++sFailures;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package nl.uva.species.genetic.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import nl.uva.species.environment.InvasiveEnvironment;
+import nl.uva.species.environment.SimulationParameters;
+import nl.uva.species.model.River;
+import nl.uva.species.model.TaskDescription;
+import nl.uva.species.utils.Utilities;
+
+import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+
+/**
+ * Checks the Java invasive species environment: a fixed seed has to give a fixed trajectory, and
+ * the task specification it sends has to describe the river the agents build from it.
+ */
+public class InvasiveEnvironmentTest {
+
+    /** The seeds to check the environment for */
+    private static final long[] SEEDS = { 1, 2, 42 };
+
+    /** The amount of steps of every trajectory */
+    private static final int STEPS = 200;
+
+    /** The amount of failed checks */
+    private static int sFailures = 0;
+
+    public static void main(final String[] args) {
+        for (final long seed : SEEDS) {
+            testTrajectory(seed);
+            testTaskSpec(seed);
+            testStartState(seed);
+        }
+
+        if (sFailures == 0) {
+            System.out.println("PASS");
+        } else {
+            System.out.println("FAIL: " + sFailures + " checks failed");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs two environments with the same seed and the same actions and compares their
+     * observations and rewards.
+     * 
+     * @param seed
+     *            The seed of both environments and the actions
+     */
+    public static void testTrajectory(final long seed) {
+        final List<int[]> first = new ArrayList<>();
+        final List<Double> firstRewards = new ArrayList<>();
+        runTrajectory(seed, first, firstRewards);
+
+        final List<int[]> second = new ArrayList<>();
+        final List<Double> secondRewards = new ArrayList<>();
+        runTrajectory(seed, second, secondRewards);
+
+        for (int step = 0; step < first.size(); ++step) {
+            check(Arrays.equals(first.get(step), second.get(step)), "seed " + seed
+                    + ": observation " + step + " differs");
+        }
+        for (int step = 0; step < firstRewards.size(); ++step) {
+            check(firstRewards.get(step).equals(secondRewards.get(step)), "seed " + seed
+                    + ": reward " + step + " differs");
+        }
+    }
+
+    /**
+     * Runs an environment for STEPS steps, doing nothing except for one random action per step.
+     * 
+     * @param seed
+     *            The seed of the environment and the actions
+     * @param observations
+     *            The list to add the start observation and every following observation to
+     * @param rewards
+     *            The list to add the reward of every step to
+     */
+    private static void runTrajectory(final long seed, final List<int[]> observations,
+            final List<Double> rewards) {
+        final InvasiveEnvironment environment = new InvasiveEnvironment(seed);
+        final int numReaches = environment.getSimulationParameters().getNumReaches();
+        final Random random = new Random(seed);
+
+        environment.env_init();
+        observations.add(environment.env_start().intArray.clone());
+        for (int step = 0; step < STEPS; ++step) {
+            final Action action = new Action(numReaches, 0, 0);
+            Arrays.fill(action.intArray, Utilities.ACTION_NOTHING);
+            action.intArray[random.nextInt(numReaches)] = 1 + random.nextInt(4);
+
+            final Reward_observation_terminal result = environment.env_step(action);
+            observations.add(result.getObservation().intArray.clone());
+            rewards.add(result.getReward());
+        }
+        environment.env_cleanup();
+    }
+
+    /**
+     * Sets a fixed start state on an environment, which has to start in it, and one of the wrong
+     * length, which has to be refused.
+     * 
+     * @param seed
+     *            The seed of the environment
+     */
+    public static void testStartState(final long seed) {
+        final InvasiveEnvironment environment = new InvasiveEnvironment(seed);
+        final int numHabitats = environment.getSimulationParameters().getNumReaches()
+                * environment.getSimulationParameters().getHabitatSize();
+        environment.env_init();
+
+        final int[] startState = new int[numHabitats];
+        final StringBuilder message = new StringBuilder("set-start-state");
+        for (int habitat = 0; habitat < numHabitats; ++habitat) {
+            startState[habitat] = 1 + habitat % 3;
+            message.append(' ').append(startState[habitat]);
+        }
+        environment.env_message(message.toString());
+        check(Arrays.equals(environment.env_start().intArray, startState), "seed " + seed
+                + ": the fixed start state is not used");
+
+        environment.env_message(message.append(" 1").toString());
+        try {
+            environment.env_start();
+            check(false, "seed " + seed + ": a start state of the wrong length is used");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+        environment.env_cleanup();
+    }
+
+    /**
+     * Parses the task specification of an environment, both in a single pass and with the codec's
+     * parser, and compares the descriptions and rivers with the environment's parameters.
+     * 
+     * @param seed
+     *            The seed of the environment
+     */
+    public static void testTaskSpec(final long seed) {
+        final InvasiveEnvironment environment = new InvasiveEnvironment(seed);
+        final String taskSpec = environment.env_init();
+
+        checkTask(environment, TaskDescription.parse(taskSpec), "seed " + seed + " (single pass)");
+        checkTask(environment, new TaskDescription(new TaskSpec(taskSpec)), "seed " + seed
+                + " (codec)");
+        check(TaskDescription.forTaskSpec(taskSpec) == TaskDescription.forTaskSpec(taskSpec),
+                "seed " + seed + ": the description is not cached");
+        checkRiver(environment, new River(new TaskSpec(taskSpec)), "seed " + seed + " (codec)");
+    }
+
+    /**
+     * Compares a description of the task specification and its river with the environment.
+     * 
+     * @param environment
+     *            The environment that sent the task specification
+     * @param task
+     *            The description of the task specification
+     * @param name
+     *            The name of the check to report failures with
+     */
+    private static void checkTask(final InvasiveEnvironment environment,
+            final TaskDescription task, final String name) {
+        final SimulationParameters simulation = environment.getSimulationParameters();
+        final int numReaches = simulation.getNumReaches();
+
+        check(task.getNumDiscreteActions() == numReaches, name + ": wrong amount of actions");
+        check(task.getNumDiscreteObservations() == numReaches * simulation.getHabitatSize(),
+                name + ": wrong amount of observations");
+        check(task.getNumEdges() == simulation.getEdges().length, name
+                + ": wrong amount of edges");
+        check(task.getBudget() == environment.getActionParameters().getBudget(), name
+                + ": wrong budget");
+        check(task.getRewardMin() == InvasiveEnvironment.DEFAULT_BAD_ACTION_PENALTY, name
+                + ": wrong penalty");
+        check(task.getDiscountFactor() == InvasiveEnvironment.DEFAULT_DISCOUNT_FACTOR, name
+                + ": wrong discount factor");
+
+        checkRiver(environment, task.getRiver(), name);
+    }
+
+    /**
+     * Compares a river built from the task specification with the environment.
+     * 
+     * @param environment
+     *            The environment that sent the task specification
+     * @param river
+     *            The river built from the task specification
+     * @param name
+     *            The name of the check to report failures with
+     */
+    private static void checkRiver(final InvasiveEnvironment environment, final River river,
+            final String name) {
+        final SimulationParameters simulation = environment.getSimulationParameters();
+
+        check(river.getNumReaches() == simulation.getNumReaches(), name
+                + ": wrong amount of reaches");
+        check(river.getReachSize() == simulation.getHabitatSize(), name + ": wrong reach size");
+        check(river.getBudget() == environment.getActionParameters().getBudget(), name
+                + ": wrong river budget");
+        check(river.getPenalty() == InvasiveEnvironment.DEFAULT_BAD_ACTION_PENALTY, name
+                + ": wrong river penalty");
+
+        // Every reach flows into the node downstream, or into the root node
+        for (final int[] edge : simulation.getEdges()) {
+            final int parent = (edge[1] == river.getRootNode() ? -1 : edge[1]);
+            check(river.getParent(edge[0]) == parent, name + ": wrong parent of reach "
+                    + edge[0]);
+        }
+
+        // The structure is shared, so nobody may change it
+        try {
+            river.getStructure().get(river.getRootNode()).clear();
+            check(false, name + ": the river structure can be changed");
+        } catch (final UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Reports a failed check.
+     * 
+     * @param condition
+     *            The condition that has to hold
+     * @param message
+     *            The message to print if it doesn't
+     */
+    private static void check(final boolean condition, final String message) {
+        if (!condition) {
+            System.out.println("FAIL: " + message);
+            ++sFailures;
+        }
+    }
+}
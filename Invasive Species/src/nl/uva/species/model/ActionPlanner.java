@@ -0,0 +1,403 @@
+package nl.uva.species.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.rlcommunity.rlglue.codec.types.Action;
+
+/**
+ * Plans the action with the highest expected reward for a single state, considering a horizon of
+ * 1. The expected reward of a reach only depends on the actions on the reach itself, its parent,
+ * its siblings and its children, so the joint action is found by dynamic programming over the
+ * river tree: the best reward of a reach's subtree is cached for every combination of the actions
+ * on its parent and on all children of its parent.
+ */
+class ActionPlanner {
+
+    /** The amount of entries per reach in the action tables, enough to index all actions */
+    private static final int ACTION_STRIDE = 5;
+
+    /**
+     * The maximum amount of reaches sharing a parent that can be planned for. The subtree tables
+     * grow by a factor of 4 for every reach in a group, so wider rivers have to be searched
+     * otherwise.
+     */
+    static final int MAX_GROUP_SIZE = 6;
+
+    /** The group of children of a reach without children */
+    private static final int[] NO_CHILDREN = new int[0];
+
+    /** The model to plan with */
+    private final EnvModel mModel;
+
+    /** The river defining the structure */
+    private final River mRiver;
+
+    /** The group of reaches sharing the parent of each reach, including the reach itself */
+    private final int[][] mGroups;
+
+    /** The reaches that flow into the root node */
+    private final int[] mRootGroup;
+
+    /** The valid actions on each reach */
+    private final int[][] mValidActions;
+
+    /** The reward of each action on each reach, indexed by reach and action */
+    private final double[] mActionRewards;
+
+    /** The expected invaded habitats after each action on each reach, before germination */
+    private final double[] mActionInvaded;
+
+    /** The expected native habitats after each action on each reach, before germination */
+    private final double[] mActionNative;
+
+    /** The expected empty habitats after each action on each reach, before germination */
+    private final double[] mActionEmpty;
+
+    /** The factor for the parent's plants within a reach's reproduction score */
+    private final double mParentRate;
+
+    /** The factor for the siblings' plants within a reach's reproduction score */
+    private final double mSiblingRate;
+
+    /** The factor for the children's plants within a reach's reproduction score */
+    private final double mChildRate;
+
+    /** The actions currently considered for each reach */
+    private final int[] mActions;
+
+    /** The best reward of each reach's subtree per context, NaN when not yet determined */
+    private final double[][] mSubtreeRewards;
+
+    /** The encoded actions on each reach's children leading to the best subtree reward */
+    private final int[][] mSubtreeChoices;
+
+    /** Working space for the expected contents of a single reach */
+    private final double[] mContents = new double[3];
+
+    /** Iff true the action rewards count towards the planned reward */
+    private boolean mIncludeActionRewards;
+
+    /** The reward of the last planned action */
+    private double mPlannedReward;
+
+    /**
+     * Prepares a planner for the given state.
+     * 
+     * @param model
+     *            The model to plan with
+     * @param state
+     *            The state to plan the action for
+     */
+    ActionPlanner(final EnvModel model, final RiverState state) {
+        if (!canPlan(model.getRiver())) {
+            throw new IllegalArgumentException("More than " + MAX_GROUP_SIZE
+                    + " reaches share a parent");
+        }
+        mModel = model;
+        mRiver = model.getRiver();
+
+        final int numReaches = mRiver.getNumReaches();
+        final int[] parents = mRiver.getParents();
+        final int[] childOffsets = mRiver.getChildOffsets();
+        final int[] childIndices = mRiver.getChildIndices();
+
+        // Gather the reaches that share a parent into groups
+        int numRootReaches = 0;
+        for (int index = 0; index < numReaches; ++index) {
+            if (parents[index] == -1) {
+                ++numRootReaches;
+            }
+        }
+        mRootGroup = new int[numRootReaches];
+        mGroups = new int[numReaches][];
+        for (int index = 0, pos = 0; index < numReaches; ++index) {
+            if (parents[index] == -1) {
+                mRootGroup[pos++] = index;
+                mGroups[index] = mRootGroup;
+            }
+        }
+        for (int index = 0; index < numReaches; ++index) {
+            final int[] group = Arrays.copyOfRange(childIndices, childOffsets[index],
+                    childOffsets[index + 1]);
+            for (final int child : group) {
+                mGroups[child] = group;
+            }
+        }
+
+        // Determine the effect of every valid action on every reach
+        mValidActions = new int[numReaches][];
+        mActionRewards = new double[numReaches * ACTION_STRIDE];
+        mActionInvaded = new double[numReaches * ACTION_STRIDE];
+        mActionNative = new double[numReaches * ACTION_STRIDE];
+        mActionEmpty = new double[numReaches * ACTION_STRIDE];
+        for (int index = 0; index < numReaches; ++index) {
+            final Reach reach = state.getReach(index);
+            final List<Integer> validActions = reach.getValidActions();
+
+            mValidActions[index] = new int[validActions.size()];
+            for (int i = 0; i < mValidActions[index].length; ++i) {
+                final int action = validActions.get(i);
+                final int entry = index * ACTION_STRIDE + action;
+                mValidActions[index][i] = action;
+
+                mActionRewards[entry] = model.getSingleActionReward(reach, action);
+                model.getExpectedActionContents(reach.getHabitatsInvaded(),
+                        reach.getHabitatsNative(), reach.getHabitatsEmpty(), action, mContents);
+                mActionInvaded[entry] = mContents[0];
+                mActionNative[entry] = mContents[1];
+                mActionEmpty[entry] = mContents[2];
+            }
+        }
+
+        final double upstreamRate = model.getUpstreamRate();
+        final double downstreamRate = model.getDownstreamRate();
+        mParentRate = upstreamRate * upstreamRate;
+        mSiblingRate = upstreamRate * downstreamRate;
+        mChildRate = downstreamRate * downstreamRate;
+
+        mActions = new int[numReaches];
+        mSubtreeRewards = new double[numReaches][];
+        mSubtreeChoices = new int[numReaches][];
+        for (int index = 0; index < numReaches; ++index) {
+            final int numContexts = ACTION_STRIDE << (2 * mGroups[index].length);
+            mSubtreeRewards[index] = new double[numContexts];
+            mSubtreeChoices[index] = new int[numContexts];
+        }
+    }
+
+    /**
+     * Checks if no group of reaches sharing a parent is too wide to plan for.
+     * 
+     * @param river
+     *            The river to plan for
+     * 
+     * @return True iff every group has at most MAX_GROUP_SIZE reaches
+     */
+    static boolean canPlan(final River river) {
+        final int[] parents = river.getParents();
+        final int[] childOffsets = river.getChildOffsets();
+
+        int numRootReaches = 0;
+        for (int index = 0; index < parents.length; ++index) {
+            if (parents[index] == -1) {
+                ++numRootReaches;
+            }
+            if (childOffsets[index + 1] - childOffsets[index] > MAX_GROUP_SIZE) {
+                return false;
+            }
+        }
+        return numRootReaches <= MAX_GROUP_SIZE;
+    }
+
+    /**
+     * Plans the action with the highest expected reward.
+     * 
+     * @param includeActionRewards
+     *            Iff true the rewards of the actions themselves count towards the reward,
+     *            otherwise only the expected reward of the next state does
+     * 
+     * @return The best action
+     */
+    Action plan(final boolean includeActionRewards) {
+        mIncludeActionRewards = includeActionRewards;
+        for (final double[] subtreeRewards : mSubtreeRewards) {
+            Arrays.fill(subtreeRewards, Double.NaN);
+        }
+
+        final int[] choice = new int[1];
+        mPlannedReward = getBestGroupReward(-1, mRootGroup, choice);
+
+        // Follow the best choices from the root down to the leaves
+        setChoice(mRootGroup, choice[0]);
+        for (final int index : mRiver.getTopologicalOrder()) {
+            final int[] group = getChildGroup(index);
+            if (group.length > 0) {
+                setChoice(group, mSubtreeChoices[index][getContext(index)]);
+            }
+        }
+
+        final Action action = new Action();
+        action.intArray = Arrays.copyOf(mActions, mActions.length);
+        return action;
+    }
+
+    /**
+     * Retrieves the reward of the last planned action.
+     * 
+     * @return The expected reward of the next state, including the action rewards if requested
+     */
+    double getPlannedReward() {
+        return mPlannedReward;
+    }
+
+    /**
+     * Determines the best combination of actions for a group of reaches, given the actions on all
+     * reaches upstream of the group.
+     * 
+     * @param owner
+     *            The reach the group flows into, of which the expected reward is included, or -1
+     *            if the group flows into the root node
+     * @param group
+     *            The reaches to choose the actions for
+     * @param choice
+     *            The array to write the encoded best combination of actions into
+     * 
+     * @return The best reward of the owner and the group's subtrees
+     */
+    private double getBestGroupReward(final int owner, final int[] group, final int[] choice) {
+        final int[] counters = new int[group.length];
+
+        double bestReward = Double.NEGATIVE_INFINITY;
+        int bestChoice = 0;
+        while (true) {
+            int encoded = 0;
+            for (int i = 0; i < group.length; ++i) {
+                final int action = mValidActions[group[i]][counters[i]];
+                mActions[group[i]] = action;
+                encoded |= (action - 1) << (2 * i);
+            }
+
+            double reward = (owner != -1 ? getExpectedReachReward(owner) : 0);
+            for (final int index : group) {
+                if (mIncludeActionRewards) {
+                    reward += mActionRewards[index * ACTION_STRIDE + mActions[index]];
+                }
+                reward += getSubtreeReward(index);
+            }
+
+            if (reward > bestReward) {
+                bestReward = reward;
+                bestChoice = encoded;
+            }
+
+            // Move on to the next combination of valid actions
+            int i = 0;
+            while (i < group.length && ++counters[i] == mValidActions[group[i]].length) {
+                counters[i++] = 0;
+            }
+            if (i == group.length) {
+                break;
+            }
+        }
+
+        choice[0] = bestChoice;
+        return bestReward;
+    }
+
+    /**
+     * Determines the best reward of a reach's subtree, given the actions on the reach's parent and
+     * on all children of its parent.
+     * 
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The best expected reward of the reach and all reaches upstream of it
+     */
+    private double getSubtreeReward(final int index) {
+        final int context = getContext(index);
+
+        double reward = mSubtreeRewards[index][context];
+        if (Double.isNaN(reward)) {
+            final int[] choice = new int[1];
+            reward = getBestGroupReward(index, getChildGroup(index), choice);
+
+            // Determining the best children's actions changes them, which doesn't affect the
+            // context of this reach
+            mSubtreeRewards[index][context] = reward;
+            mSubtreeChoices[index][context] = choice[0];
+        }
+
+        return reward;
+    }
+
+    /**
+     * Calculates the expected reward of a reach after germination given the current actions on
+     * the reach and its neighbours.
+     * 
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The reach's expected reward
+     */
+    private double getExpectedReachReward(final int index) {
+        final int entry = index * ACTION_STRIDE + mActions[index];
+        double tamariskScore = mActionInvaded[entry];
+        double nativeScore = mActionNative[entry];
+
+        final int parent = mRiver.getParents()[index];
+        if (parent != -1) {
+            final int parentEntry = parent * ACTION_STRIDE + mActions[parent];
+            tamariskScore += mActionInvaded[parentEntry] * mParentRate;
+            nativeScore += mActionNative[parentEntry] * mParentRate;
+        }
+
+        final int[] siblingOffsets = mRiver.getSiblingOffsets();
+        final int[] siblingIndices = mRiver.getSiblingIndices();
+        for (int i = siblingOffsets[index]; i < siblingOffsets[index + 1]; ++i) {
+            final int siblingEntry = siblingIndices[i] * ACTION_STRIDE
+                    + mActions[siblingIndices[i]];
+            tamariskScore += mActionInvaded[siblingEntry] * mSiblingRate;
+            nativeScore += mActionNative[siblingEntry] * mSiblingRate;
+        }
+
+        final int[] childOffsets = mRiver.getChildOffsets();
+        final int[] childIndices = mRiver.getChildIndices();
+        for (int i = childOffsets[index]; i < childOffsets[index + 1]; ++i) {
+            final int childEntry = childIndices[i] * ACTION_STRIDE + mActions[childIndices[i]];
+            tamariskScore += mActionInvaded[childEntry] * mChildRate;
+            nativeScore += mActionNative[childEntry] * mChildRate;
+        }
+
+        mModel.getExpectedGerminationContents(index, mActionInvaded[entry], mActionNative[entry],
+                mActionEmpty[entry], tamariskScore, nativeScore, mContents);
+        return mModel.getReachReward(mContents[0], mContents[2]);
+    }
+
+    /**
+     * Encodes the current actions on a reach's parent and on all children of its parent.
+     * 
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The reach's context
+     */
+    private int getContext(final int index) {
+        final int parent = mRiver.getParents()[index];
+        int context = (parent != -1 ? mActions[parent] : 0);
+        for (final int member : mGroups[index]) {
+            context = (context << 2) | (mActions[member] - 1);
+        }
+        return context;
+    }
+
+    /**
+     * Retrieves the children of a reach as a group.
+     * 
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The reach's children
+     */
+    private int[] getChildGroup(final int index) {
+        final int[] childOffsets = mRiver.getChildOffsets();
+        if (childOffsets[index] == childOffsets[index + 1]) {
+            return NO_CHILDREN;
+        }
+        return mGroups[mRiver.getChildIndices()[childOffsets[index]]];
+    }
+
+    /**
+     * Sets the actions of a group of reaches to an encoded combination of actions.
+     * 
+     * @param group
+     *            The reaches to set the actions for
+     * @param choice
+     *            The encoded combination of actions
+     */
+    private void setChoice(final int[] group, final int choice) {
+        for (int i = 0; i < group.length; ++i) {
+            mActions[group[i]] = ((choice >> (2 * i)) & 3) + 1;
+        }
+    }
+}
@@ -2,7 +2,7 @@ package nl.uva.species.model;
 
 import java.text.DecimalFormat;
 import java.util.Arrays;
-import java.util.Set;
+import java.util.Random;
 
 import nl.uva.species.genetic.SuperGene;
 import nl.uva.species.utils.Pair;
@@ -33,6 +33,9 @@ public class EnvModel {
     /** The threshold for when we believe exogenous germination is activated */
     private final static double EXO_ACTIVATED_THRESHOLD = 0.98;
 
+    /** The amount of transition table entries per action, enough to index all habitat types */
+    private final static int TRANSITION_STRIDE = 4;
+
     /** The river this model is specific to */
     private final River mRiver;
 
@@ -93,6 +96,18 @@ public class EnvModel {
     /** The chance that a native plant randomly dies */
     private double mDeathRateNative = 0.2;
 
+    /** The chance of a habitat's first transition, indexed by action and habitat type */
+    private final double[] mFirstTransitionChances = new double[5 * TRANSITION_STRIDE];
+
+    /** The habitat type after a habitat's first transition, indexed by action and habitat type */
+    private final int[] mFirstTransitionHabitats = new int[5 * TRANSITION_STRIDE];
+
+    /** The chance of a habitat's first or second transition, indexed by action and habitat type */
+    private final double[] mSecondTransitionChances = new double[5 * TRANSITION_STRIDE];
+
+    /** The habitat type after a habitat's second transition, indexed by action and habitat type */
+    private final int[] mSecondTransitionHabitats = new int[5 * TRANSITION_STRIDE];
+
     /**
      * Prepares a model for the given river with default parameters.
      * 
@@ -140,6 +155,8 @@ public class EnvModel {
             mExoTamarisk = new double[river.getNumReaches()];
             Arrays.fill(mExoTamarisk, mDefaultExoTamarisk);
         }
+
+        prepareTransitions();
     }
 
     public EnvModel(final River river, final double[] values) {
@@ -162,6 +179,8 @@ public class EnvModel {
             mExoToEndoRatio[i] = values[7 + i];
             mExoTamarisk[i] = values[7 + river.getNumReaches() + i];
         }
+
+        prepareTransitions();
     }
 
     /**
@@ -193,6 +212,80 @@ public class EnvModel {
             mExoTamarisk[i] = genes[i + river.getNumReaches() + Parameter.values().length]
                     .doubleValue();
         }
+
+        prepareTransitions();
+    }
+
+    /**
+     * Fills the habitat transition tables based on the model's rates. For each action and habitat
+     * type, a random value below the first chance changes the habitat to the first type, otherwise
+     * a value below the second chance changes it to the second type and otherwise it stays as is.
+     */
+    private void prepareTransitions() {
+        final int[] actions = { Utilities.ACTION_NOTHING, Utilities.ACTION_ERADICATE,
+                Utilities.ACTION_RESTORE, Utilities.ACTION_ERADICATE_RESTORE };
+        final int[] habitats = { Utilities.HABITAT_INVADED, Utilities.HABITAT_NATIVE,
+                Utilities.HABITAT_EMPTY };
+
+        // By default no transition occurs
+        for (int i = 0; i < mFirstTransitionHabitats.length; ++i) {
+            mFirstTransitionHabitats[i] = i % TRANSITION_STRIDE;
+            mSecondTransitionHabitats[i] = i % TRANSITION_STRIDE;
+        }
+
+        for (final int action : actions) {
+            for (final int habitat : habitats) {
+                final int transition = action * TRANSITION_STRIDE + habitat;
+
+                switch (habitat) {
+                case Utilities.HABITAT_NATIVE:
+                    // Native plants may die during any action
+                    setTransition(transition, mDeathRateNative, Utilities.HABITAT_EMPTY);
+                    break;
+
+                case Utilities.HABITAT_INVADED:
+                    switch (action) {
+                    case Utilities.ACTION_ERADICATE:
+                        setTransition(transition, mEradicationRate, Utilities.HABITAT_EMPTY);
+                        break;
+                    case Utilities.ACTION_ERADICATE_RESTORE:
+                        // Eradicated habitats may directly be restored with a native plant
+                        setTransition(transition, mEradicationRate * (1 - mRestorationRate),
+                                Utilities.HABITAT_EMPTY);
+                        mSecondTransitionChances[transition] = mEradicationRate;
+                        mSecondTransitionHabitats[transition] = Utilities.HABITAT_NATIVE;
+                        break;
+                    default:
+                        setTransition(transition, mDeathRateTamarisk, Utilities.HABITAT_EMPTY);
+                    }
+                    break;
+
+                case Utilities.HABITAT_EMPTY:
+                    // Only restoration brings empty habitats to life before germination
+                    if (action == Utilities.ACTION_RESTORE) {
+                        setTransition(transition, mRestorationRate, Utilities.HABITAT_NATIVE);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a single possible transition for an action and habitat type.
+     * 
+     * @param transition
+     *            The index of the action and habitat type within the transition tables
+     * @param chance
+     *            The chance that the transition occurs
+     * @param habitat
+     *            The habitat type after the transition
+     */
+    private void setTransition(final int transition, final double chance, final int habitat) {
+        mFirstTransitionChances[transition] = chance;
+        mFirstTransitionHabitats[transition] = habitat;
+        mSecondTransitionChances[transition] = chance;
+        mSecondTransitionHabitats[transition] = habitat;
     }
 
     /**
@@ -207,177 +300,172 @@ public class EnvModel {
      * @return A random next possible state
      */
     public RiverState getPossibleNextState(final RiverState state, final Action actions) {
-        final int reachSize = mRiver.getReachSize();
-        final int[] newHabitats = new int[mRiver.getNumReaches() * reachSize];
+        final StateBatch batch = new StateBatch(mRiver, 1);
+        getPossibleNextStates(state, actions, 1, batch, Utilities.RNG);
 
-        // Perform the action on the different reaches
-        for (final Reach reach : state.getReaches()) {
-            final int[] habitats = reach.getHabitats();
+        // A batch of one holds exactly one state's contents, so the state can use them directly
+        return new RiverState(state.getRiver(), batch.mHabitats, batch.mReachesInvaded,
+                batch.mReachesNative, batch.mReachesEmpty);
+    }
 
-            final int action = actions.intArray[reach.getIndex()];
+    /**
+     * Samples multiple possible next states based on the model for the given state, performing the
+     * specified actions. The states are written into the batch, replacing its previous contents.
+     * 
+     * @param state
+     *            The starting state
+     * @param actions
+     *            The action to perform
+     * @param numStates
+     *            The amount of states to sample
+     * @param batch
+     *            The batch to write the sampled states into
+     */
+    public void getPossibleNextStates(final RiverState state, final Action actions,
+            final int numStates, final StateBatch batch) {
+        getPossibleNextStates(state, actions, numStates, batch, Utilities.RNG);
+    }
 
-            for (int i = 0; i < habitats.length; ++i) {
-                final double random = Utilities.RNG.nextDouble();
+    /**
+     * Samples multiple possible next states based on the model for the given state, performing the
+     * specified actions. The states are written into the batch, replacing its previous contents.
+     * 
+     * @param state
+     *            The starting state
+     * @param actions
+     *            The action to perform
+     * @param numStates
+     *            The amount of states to sample
+     * @param batch
+     *            The batch to write the sampled states into
+     * @param random
+     *            The random number generator to sample with
+     */
+    public void getPossibleNextStates(final RiverState state, final Action actions,
+            final int numStates, final StateBatch batch, final Random random) {
+        if (numStates > batch.getCapacity()) {
+            throw new IllegalArgumentException("Can't sample " + numStates
+                    + " states into a batch of " + batch.getCapacity());
+        }
 
-                // Perform action on each habitat in reach
-                switch (action) {
-                case Utilities.ACTION_ERADICATE:
-                    // During eradication, both type of plants may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_NATIVE:
-                        if (random < mDeathRateNative) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
-                        break;
-                    case Utilities.HABITAT_INVADED:
-                        if (random < mEradicationRate) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
-                        break;
-                    }
+        final int reachSize = mRiver.getReachSize();
+        final int numReaches = mRiver.getNumReaches();
+        final int numHabitats = numReaches * reachSize;
+        final int[] habitats = state.getHabitats();
+
+        final int[] newHabitats = batch.mHabitats;
+        final double[] reachesInvaded = batch.mReachesInvaded;
+        final double[] reachesNative = batch.mReachesNative;
+        final double[] reachesEmpty = batch.mReachesEmpty;
+        final double[] firstChances = batch.mFirstChances;
+        final int[] firstHabitats = batch.mFirstHabitats;
+        final double[] secondChances = batch.mSecondChances;
+        final int[] secondHabitats = batch.mSecondHabitats;
+        final double[] tamariskScores = batch.mTamariskScores;
+        final double[] nativeScores = batch.mNativeScores;
+
+        // Look up the transitions of each habitat for the action performed on its reach
+        for (int index = 0; index < numReaches; ++index) {
+            final int actionOffset = actions.intArray[index] * TRANSITION_STRIDE;
+
+            for (int i = index * reachSize; i < (index + 1) * reachSize; ++i) {
+                final int transition = actionOffset + habitats[i];
+                firstChances[i] = mFirstTransitionChances[transition];
+                firstHabitats[i] = mFirstTransitionHabitats[transition];
+                secondChances[i] = mSecondTransitionChances[transition];
+                secondHabitats[i] = mSecondTransitionHabitats[transition];
+            }
+        }
 
-                    break;
+        final boolean exogenousActivated = isexogenousActivated();
 
-                case Utilities.ACTION_RESTORE:
-                    // During restoration, empty spaces may come to life and plants may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_EMPTY:
-                        if (random < mRestorationRate) {
-                            habitats[i] = Utilities.HABITAT_NATIVE;
-                        }
-                        break;
-                    case Utilities.HABITAT_NATIVE:
-                        if (random < mDeathRateNative) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
-                        break;
-                    case Utilities.HABITAT_INVADED:
-                        if (random < mDeathRateTamarisk) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
-                        break;
+        for (int sample = 0; sample < numStates; ++sample) {
+            final int habitatOffset = sample * numHabitats;
+            final int reachOffset = sample * numReaches;
+
+            // Perform the actions on each habitat, counting the resulting reach contents
+            for (int index = 0; index < numReaches; ++index) {
+                int reachInvaded = 0;
+                int reachNative = 0;
+                int reachEmpty = 0;
+
+                for (int i = index * reachSize; i < (index + 1) * reachSize; ++i) {
+                    final double chance = random.nextDouble();
+
+                    int habitat = habitats[i];
+                    if (chance < firstChances[i]) {
+                        habitat = firstHabitats[i];
+                    } else if (chance < secondChances[i]) {
+                        habitat = secondHabitats[i];
                     }
-                    break;
+                    newHabitats[habitatOffset + i] = habitat;
 
-                case Utilities.ACTION_ERADICATE_RESTORE:
-                    // During eradication, invaded habitats may die and/or come to life and native
-                    // species may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_NATIVE:
-                        if (random < mDeathRateNative) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
-                        break;
+                    switch (habitat) {
                     case Utilities.HABITAT_INVADED:
-                        if (random < mEradicationRate * (1 - mRestorationRate)) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        } else if (random < mEradicationRate) {
-                            habitats[i] = Utilities.HABITAT_NATIVE;
-                        }
+                        ++reachInvaded;
                         break;
-                    }
-                    break;
-
-                case Utilities.ACTION_NOTHING:
-                    // When doing nothing, both type of plants may die
-                    switch (habitats[i]) {
                     case Utilities.HABITAT_NATIVE:
-                        if (random < mDeathRateNative) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
+                        ++reachNative;
                         break;
-                    case Utilities.HABITAT_INVADED:
-                        if (random < mDeathRateTamarisk) {
-                            habitats[i] = Utilities.HABITAT_EMPTY;
-                        }
+                    case Utilities.HABITAT_EMPTY:
+                        ++reachEmpty;
                         break;
                     }
                 }
 
-                // Update the habitats with the new reach values
-                newHabitats[reach.getIndex() * reachSize + i] = habitats[i];
-            }
-        }
-
-        // Create a new state based on the new habitats as observation
-        final Observation newObservation = new Observation();
-        newObservation.intArray = newHabitats;
-        final RiverState newState = new RiverState(state.getRiver(), newObservation);
-
-        final boolean exogenousActivated = isexogenousActivated();
-
-        // Germination of empty habitats
-        for (final Reach reach : newState.getReaches()) {
-            // Skip full reaches
-            if (reach.getHabitatsEmpty() == 0) {
-                continue;
+                reachesInvaded[reachOffset + index] = reachInvaded;
+                reachesNative[reachOffset + index] = reachNative;
+                reachesEmpty[reachOffset + index] = reachEmpty;
             }
 
-            final int index = reach.getIndex();
-
-            final double endoToExoRatio = (1 - mExoToEndoRatio[index]);
-
-            final double exoTamariskWeight = (exogenousActivated ? mExoToEndoRatio[index]
-                    * mExoTamarisk[index] : 0);
-            final double exoNativeWeight = (exogenousActivated ? mExoToEndoRatio[index]
-                    * (1 - mExoTamarisk[index]) : 0);
-
-            final double endoTamarisWeight = endoToExoRatio * mEndoTamarisk;
-            final double endoNativeWeight = endoToExoRatio * (1 - mEndoTamarisk);
-
-            // Calculate the reproduction scores for Tamarisk and native trees
-            double tamariskScore = reach.getHabitatsInvaded();
-            double nativeScore = reach.getHabitatsNative();
-            final Reach parent = reach.getParent();
-            if (parent != null) {
-                // Add the parent's scores
-                tamariskScore += parent.getHabitatsInvaded() * Math.pow(mUpstreamRate, 2);
-                nativeScore += parent.getHabitatsNative() * Math.pow(mUpstreamRate, 2);
-
-                // Add the sibling's scores
-                final Set<Reach> siblings = parent.getChildren();
-                for (final Reach sibling : siblings) {
-                    if (sibling != reach) {
-                        tamariskScore += sibling.getHabitatsInvaded() * mUpstreamRate
-                                * mDownstreamRate;
-                        nativeScore += sibling.getHabitatsNative() * mUpstreamRate
-                                * mDownstreamRate;
-                    }
+            // Germination of empty habitats, based on the contents after performing the actions
+            getReproductionScores(reachesInvaded, reachOffset, tamariskScores);
+            getReproductionScores(reachesNative, reachOffset, nativeScores);
+            for (int index = 0; index < numReaches; ++index) {
+                // Skip full reaches
+                if (reachesEmpty[reachOffset + index] == 0) {
+                    continue;
                 }
-            }
-            // Add the children's scores
-            final Set<Reach> children = reach.getChildren();
-            for (final Reach child : children) {
-                tamariskScore += child.getHabitatsInvaded() * Math.pow(mDownstreamRate, 2);
-                nativeScore += child.getHabitatsNative() * Math.pow(mDownstreamRate, 2);
-            }
-
-            // Determine the chance of each plant and normalise
-            final double tamariskChance = exoTamariskWeight + endoTamarisWeight * tamariskScore
-                    / (5 * reachSize);
-            final double nativeChance = exoNativeWeight + endoNativeWeight * nativeScore
-                    / (5 * reachSize);
-            final double chanceSum = tamariskChance + nativeChance;
 
-            if (chanceSum > 0) {
-                final double tamariskChanceNorm = tamariskChance / chanceSum;
-
-                // Update the habitats with the new regrown tree
-                final int[] habitats = reach.getHabitats();
-                for (int i = 0; i < habitats.length; ++i) {
-                    if (habitats[i] == Utilities.HABITAT_EMPTY) {
-                        habitats[i] = (Utilities.RNG.nextDouble() < tamariskChanceNorm ? Utilities.HABITAT_INVADED
-                                : Utilities.HABITAT_NATIVE);
-                        newHabitats[index * reachSize + i] = habitats[i];
+                final double endoToExoRatio = (1 - mExoToEndoRatio[index]);
+
+                final double exoTamariskWeight = (exogenousActivated ? mExoToEndoRatio[index]
+                        * mExoTamarisk[index] : 0);
+                final double exoNativeWeight = (exogenousActivated ? mExoToEndoRatio[index]
+                        * (1 - mExoTamarisk[index]) : 0);
+
+                final double endoTamarisWeight = endoToExoRatio * mEndoTamarisk;
+                final double endoNativeWeight = endoToExoRatio * (1 - mEndoTamarisk);
+
+                // Determine the chance of each plant and normalise
+                final double tamariskChance = exoTamariskWeight + endoTamarisWeight
+                        * tamariskScores[index] / (5 * reachSize);
+                final double nativeChance = exoNativeWeight + endoNativeWeight
+                        * nativeScores[index] / (5 * reachSize);
+                final double chanceSum = tamariskChance + nativeChance;
+
+                if (chanceSum > 0) {
+                    final double tamariskChanceNorm = tamariskChance / chanceSum;
+
+                    // Update the habitats with the new regrown tree
+                    for (int i = habitatOffset + index * reachSize; i < habitatOffset
+                            + (index + 1) * reachSize; ++i) {
+                        if (newHabitats[i] == Utilities.HABITAT_EMPTY) {
+                            if (random.nextDouble() < tamariskChanceNorm) {
+                                newHabitats[i] = Utilities.HABITAT_INVADED;
+                                ++reachesInvaded[reachOffset + index];
+                            } else {
+                                newHabitats[i] = Utilities.HABITAT_NATIVE;
+                                ++reachesNative[reachOffset + index];
+                            }
+                        }
                     }
+                    reachesEmpty[reachOffset + index] = 0;
                 }
             }
         }
 
-        // Create a new state based on the new habitats as observation
-        final Observation finalObservation = new Observation();
-        finalObservation.intArray = newHabitats;
-        return new RiverState(state.getRiver(), finalObservation);
+        batch.setNumStates(numStates);
     }
 
     /**
@@ -411,129 +499,146 @@ public class EnvModel {
      * @return The expected average state after performing the actions
      */
     public RiverState getExpectedNextState(final RiverState state, final Action actions) {
-        final int reachSize = mRiver.getReachSize();
         final int numReaches = mRiver.getNumReaches();
         final double[] reachesInvaded = new double[numReaches];
         final double[] reachesNative = new double[numReaches];
         final double[] reachesEmpty = new double[numReaches];
+        final double[] contents = new double[3];
 
         // Perform the action on the different reaches
-        for (final Reach reach : state.getReaches()) {
-            final double reachInvaded = reach.getHabitatsInvaded();
-            final double reachNative = reach.getHabitatsNative();
-            final double reachEmpty = reach.getHabitatsEmpty();
-
-            double deathsInvaded = 0;
-            double deathsNative = 0;
-            double growthsNative = 0;
-
-            // Perform action on each habitat in reach
-            switch (actions.intArray[reach.getIndex()]) {
-            case Utilities.ACTION_ERADICATE:
-                // During eradication, both type of plants may die
-                deathsNative = reachNative * mDeathRateNative;
-                deathsInvaded = reachInvaded * mEradicationRate;
-                break;
-
-            case Utilities.ACTION_RESTORE:
-                // During restoration, empty spaces may come to life and plants may die
-                growthsNative = reachEmpty * mRestorationRate;
-                deathsNative = reachNative * mDeathRateNative;
-                deathsInvaded = reachInvaded * mDeathRateTamarisk;
-                break;
-
-            case Utilities.ACTION_ERADICATE_RESTORE:
-                // During eradication/restoration, invaded habitats may die and/or come to life and
-                // native species may die
-                deathsNative = reachNative * mDeathRateNative;
-                deathsInvaded = reachInvaded * mEradicationRate;
-                growthsNative = deathsInvaded * mRestorationRate;
-                break;
-
-            case Utilities.ACTION_NOTHING:
-                // When doing nothing, both type of plants may die
-                deathsNative = reachNative * mDeathRateNative;
-                deathsInvaded = reachInvaded * mDeathRateTamarisk;
-            }
-
-            // Update the expected reach contents
-            reachesInvaded[reach.getIndex()] = reachInvaded - deathsInvaded;
-            reachesNative[reach.getIndex()] = reachNative - deathsNative + growthsNative;
-            reachesEmpty[reach.getIndex()] = reachEmpty - growthsNative + deathsInvaded
-                    + deathsNative;
+        for (int index = 0; index < numReaches; ++index) {
+            getExpectedActionContents(state.getHabitatsInvaded(index),
+                    state.getHabitatsNative(index), state.getHabitatsEmpty(index),
+                    actions.intArray[index], contents);
+
+            reachesInvaded[index] = contents[0];
+            reachesNative[index] = contents[1];
+            reachesEmpty[index] = contents[2];
         }
 
         // Germinate empty habitats
         final double[] expectedReachesInvaded = new double[numReaches];
         final double[] expectedReachesNative = new double[numReaches];
         final double[] expectedReachesEmpty = new double[numReaches];
-        for (final Reach reach : state.getReaches()) {
-            final int index = reach.getIndex();
-
-            double reachInvaded = reachesInvaded[index];
-            double reachNative = reachesNative[index];
-            double reachEmpty = reachesEmpty[index];
-
-            final double exoTamariskWeight = mExoToEndoRatio[index] * mExoTamarisk[index];
-            final double exoNativeWeight = mExoToEndoRatio[index] * (1 - mExoTamarisk[index]);
-
-            final double endoTamarisWeight = (1 - mExoToEndoRatio[index]) * mEndoTamarisk;
-            final double endoNativeWeight = (1 - mExoToEndoRatio[index]) * (1 - mEndoTamarisk);
-
-            // Calculate the reproduction scores for Tamarisk and native trees
-            double tamariskScore = reachesInvaded[index];
-            double nativeScore = reachesNative[index];
-            final Reach parent = reach.getParent();
-            if (parent != null) {
-                final int parentIndex = parent.getIndex();
-
-                // Add the parent's scores
-                tamariskScore += reachesInvaded[parentIndex] * Math.pow(mUpstreamRate, 2);
-                nativeScore += reachesNative[parentIndex] * Math.pow(mUpstreamRate, 2);
-
-                // Add the sibling's scores
-                final Set<Reach> siblings = parent.getChildren();
-                for (final Reach sibling : siblings) {
-                    if (sibling != reach) {
-                        final int siblingIndex = sibling.getIndex();
-                        tamariskScore += reachesInvaded[siblingIndex] * mUpstreamRate
-                                * mDownstreamRate;
-                        nativeScore += reachesNative[siblingIndex] * mUpstreamRate
-                                * mDownstreamRate;
-                    }
-                }
-            }
-            // Add the children's scores
-            final Set<Reach> children = reach.getChildren();
-            for (final Reach child : children) {
-                final int childIndex = child.getIndex();
-                tamariskScore += reachesInvaded[childIndex] * Math.pow(mDownstreamRate, 2);
-                nativeScore += reachesNative[childIndex] * Math.pow(mDownstreamRate, 2);
-            }
+        final double[] tamariskScores = getReproductionScores(reachesInvaded);
+        final double[] nativeScores = getReproductionScores(reachesNative);
+        for (int index = 0; index < numReaches; ++index) {
+            getExpectedGerminationContents(index, reachesInvaded[index], reachesNative[index],
+                    reachesEmpty[index], tamariskScores[index], nativeScores[index], contents);
+
+            expectedReachesInvaded[index] = contents[0];
+            expectedReachesNative[index] = contents[1];
+            expectedReachesEmpty[index] = contents[2];
+        }
 
-            // Determine the chance of each plant and normalise
-            final double tamariskChance = exoTamariskWeight + endoTamarisWeight * tamariskScore
-                    / (5 * reachSize);
-            final double nativeChance = exoNativeWeight + endoNativeWeight * nativeScore
-                    / (5 * reachSize);
-            final double chanceSum = tamariskChance + nativeChance;
+        return new RiverState(mRiver, expectedReachesInvaded, expectedReachesNative,
+                expectedReachesEmpty);
+    }
 
-            if (chanceSum > 0) {
-                final double tamariskChanceNorm = tamariskChance / chanceSum;
+    /**
+     * Calculates the expected contents of a reach after performing an action on it, before any
+     * germination takes place.
+     * 
+     * @param reachInvaded
+     *            The amount of habitats invaded by Tamarisk plants before the action
+     * @param reachNative
+     *            The amount of habitats containing natural plants before the action
+     * @param reachEmpty
+     *            The amount of empty habitats before the action
+     * @param action
+     *            The action to perform
+     * @param contents
+     *            The array to write the expected invaded, native and empty habitats into
+     */
+    void getExpectedActionContents(final double reachInvaded, final double reachNative,
+            final double reachEmpty, final int action, final double[] contents) {
+        double deathsInvaded = 0;
+        double deathsNative = 0;
+        double growthsNative = 0;
 
-                // Update the habitats with the new regrown tree
-                reachInvaded += reachEmpty * tamariskChanceNorm;
-                reachNative += reachEmpty * (1 - tamariskChanceNorm);
-                reachEmpty = 0;
-            }
+        // Perform action on each habitat in reach
+        switch (action) {
+        case Utilities.ACTION_ERADICATE:
+            // During eradication, both type of plants may die
+            deathsNative = reachNative * mDeathRateNative;
+            deathsInvaded = reachInvaded * mEradicationRate;
+            break;
 
-            expectedReachesInvaded[index] = reachInvaded;
-            expectedReachesNative[index] = reachNative;
-            expectedReachesEmpty[index] = reachEmpty;
+        case Utilities.ACTION_RESTORE:
+            // During restoration, empty spaces may come to life and plants may die
+            growthsNative = reachEmpty * mRestorationRate;
+            deathsNative = reachNative * mDeathRateNative;
+            deathsInvaded = reachInvaded * mDeathRateTamarisk;
+            break;
+
+        case Utilities.ACTION_ERADICATE_RESTORE:
+            // During eradication/restoration, invaded habitats may die and/or come to life and
+            // native species may die
+            deathsNative = reachNative * mDeathRateNative;
+            deathsInvaded = reachInvaded * mEradicationRate;
+            growthsNative = deathsInvaded * mRestorationRate;
+            break;
+
+        case Utilities.ACTION_NOTHING:
+            // When doing nothing, both type of plants may die
+            deathsNative = reachNative * mDeathRateNative;
+            deathsInvaded = reachInvaded * mDeathRateTamarisk;
         }
 
-        return new RiverState(mRiver, expectedReachesInvaded, expectedReachesNative,
-                expectedReachesEmpty);
+        // Update the expected reach contents
+        contents[0] = reachInvaded - deathsInvaded;
+        contents[1] = reachNative - deathsNative + growthsNative;
+        contents[2] = reachEmpty - growthsNative + deathsInvaded + deathsNative;
+    }
+
+    /**
+     * Calculates the expected contents of a reach after its empty habitats germinate.
+     * 
+     * @param index
+     *            The index of the reach
+     * @param reachInvaded
+     *            The amount of habitats invaded by Tamarisk plants before germination
+     * @param reachNative
+     *            The amount of habitats containing natural plants before germination
+     * @param reachEmpty
+     *            The amount of empty habitats before germination
+     * @param tamariskScore
+     *            The reproduction score of the reach for Tamarisk plants
+     * @param nativeScore
+     *            The reproduction score of the reach for native plants
+     * @param contents
+     *            The array to write the expected invaded, native and empty habitats into
+     */
+    void getExpectedGerminationContents(final int index, double reachInvaded, double reachNative,
+            double reachEmpty, final double tamariskScore, final double nativeScore,
+            final double[] contents) {
+        final int reachSize = mRiver.getReachSize();
+
+        final double exoTamariskWeight = mExoToEndoRatio[index] * mExoTamarisk[index];
+        final double exoNativeWeight = mExoToEndoRatio[index] * (1 - mExoTamarisk[index]);
+
+        final double endoTamarisWeight = (1 - mExoToEndoRatio[index]) * mEndoTamarisk;
+        final double endoNativeWeight = (1 - mExoToEndoRatio[index]) * (1 - mEndoTamarisk);
+
+        // Determine the chance of each plant and normalise
+        final double tamariskChance = exoTamariskWeight + endoTamarisWeight * tamariskScore
+                / (5 * reachSize);
+        final double nativeChance = exoNativeWeight + endoNativeWeight * nativeScore
+                / (5 * reachSize);
+        final double chanceSum = tamariskChance + nativeChance;
+
+        if (chanceSum > 0) {
+            final double tamariskChanceNorm = tamariskChance / chanceSum;
+
+            // Update the habitats with the new regrown tree
+            reachInvaded += reachEmpty * tamariskChanceNorm;
+            reachNative += reachEmpty * (1 - tamariskChanceNorm);
+            reachEmpty = 0;
+        }
+
+        contents[0] = reachInvaded;
+        contents[1] = reachNative;
+        contents[2] = reachEmpty;
     }
 
     /**
@@ -552,6 +657,34 @@ public class EnvModel {
      */
     public double evaluateModel(final RiverState state, final Action actions,
             final RiverState resultState) {
+        return evaluateModel(state.getHabitats(), 0, actions.intArray, 0,
+                resultState.getHabitats(), 0);
+    }
+
+    /**
+     * Compares the resulting habitats to how the model would predict them and returns a score
+     * based on how much they correlate. The habitats and actions are read from flat arrays, which
+     * allows evaluating many recorded transitions without creating river states.
+     * 
+     * @param habitats
+     *            The array containing the habitats of the starting state
+     * @param habitatOffset
+     *            The position of the starting state's first habitat within the array
+     * @param actions
+     *            The array containing the action to perform on each reach
+     * @param actionOffset
+     *            The position of the first reach's action within the array
+     * @param resultHabitats
+     *            The array containing the habitats actually resulting from the actions
+     * @param resultOffset
+     *            The position of the first resulting habitat within the array
+     * 
+     * @return A score representing the correlation between model's expectation and the actual
+     *         outcome where 1 is the highest and 0 the lowest
+     */
+    public double evaluateModel(final int[] habitats, final int habitatOffset,
+            final int[] actions, final int actionOffset, final int[] resultHabitats,
+            final int resultOffset) {
         double reward = 0;
         final int reachSize = mRiver.getReachSize();
         final int numReaches = mRiver.getNumReaches();
@@ -563,158 +696,41 @@ public class EnvModel {
         final double[] reachesNative = new double[numReaches];
         final double[] reachesEmpty = new double[numReaches];
 
-        // Perform the action on the different reaches
-        for (final Reach reach : state.getReaches()) {
-            final int reachIndex = reach.getIndex();
-            final int[] habitats = reach.getHabitats();
-
-            final int action = actions.intArray[reachIndex];
+        final double[] contents = new double[3];
 
-            for (int i = 0; i < habitats.length; ++i) {
-                double habitatInvaded = 0;
-                double habitatNative = 0;
-                double habitatEmpty = 0;
+        // Perform the action on the different reaches
+        for (int reachIndex = 0; reachIndex < numReaches; ++reachIndex) {
+            final int action = actions[actionOffset + reachIndex];
 
+            for (int habitatIndex = reachIndex * reachSize; habitatIndex < (reachIndex + 1)
+                    * reachSize; ++habitatIndex) {
                 // Perform action on each habitat in reach
-                switch (action) {
-                case Utilities.ACTION_ERADICATE:
-                    // During eradication, both type of plants may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_NATIVE:
-                        habitatNative = 1 - mDeathRateNative;
-                        habitatEmpty = mDeathRateNative;
-                        break;
-                    case Utilities.HABITAT_INVADED:
-                        habitatInvaded = 1 - mEradicationRate;
-                        habitatEmpty = mEradicationRate;
-                        break;
-                    }
-
-                    break;
-
-                case Utilities.ACTION_RESTORE:
-                    // During restoration, empty spaces may come to life and plants may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_EMPTY:
-                        habitatNative = mRestorationRate;
-                        habitatEmpty = 1 - mRestorationRate;
-                        break;
-                    case Utilities.HABITAT_NATIVE:
-                        habitatNative = 1 - mDeathRateNative;
-                        habitatEmpty = mDeathRateNative;
-                        break;
-                    case Utilities.HABITAT_INVADED:
-                        habitatInvaded = 1 - mDeathRateTamarisk;
-                        habitatEmpty = mDeathRateTamarisk;
-                        break;
-                    }
-                    break;
-
-                case Utilities.ACTION_ERADICATE_RESTORE:
-                    // During eradication, invaded habitats may die and/or come to life and native
-                    // species may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_NATIVE:
-                        habitatNative = 1 - mDeathRateNative;
-                        habitatEmpty = mDeathRateNative;
-                        break;
-                    case Utilities.HABITAT_INVADED:
-                        habitatEmpty = mEradicationRate * (1 - mRestorationRate);
-                        habitatNative = mEradicationRate * mRestorationRate;
-                        habitatInvaded = 1 - mEradicationRate;
-                        break;
-                    }
-                    break;
-
-                case Utilities.ACTION_NOTHING:
-                    // When doing nothing, both type of plants may die
-                    switch (habitats[i]) {
-                    case Utilities.HABITAT_NATIVE:
-                        habitatNative = 1 - mDeathRateNative;
-                        habitatEmpty = mDeathRateNative;
-                        break;
-                    case Utilities.HABITAT_INVADED:
-                        habitatInvaded = 1 - mDeathRateTamarisk;
-                        habitatEmpty = mDeathRateTamarisk;
-                        break;
-                    }
-                }
+                getEvaluationContents(action, habitats[habitatOffset + habitatIndex], contents);
 
                 // Update the habitats and reaches with the new values
-                final int habitatIndex = reach.getIndex() * reachSize + i;
-                habitatsInvaded[habitatIndex] = habitatInvaded;
-                habitatsNative[habitatIndex] = habitatNative;
-                habitatsEmpty[habitatIndex] = habitatEmpty;
-
-                reachesInvaded[reachIndex] += habitatInvaded;
-                reachesNative[reachIndex] += habitatNative;
-                reachesEmpty[reachIndex] += habitatEmpty;
+                habitatsInvaded[habitatIndex] = contents[0];
+                habitatsNative[habitatIndex] = contents[1];
+                habitatsEmpty[habitatIndex] = contents[2];
+
+                reachesInvaded[reachIndex] += contents[0];
+                reachesNative[reachIndex] += contents[1];
+                reachesEmpty[reachIndex] += contents[2];
             }
         }
 
         final boolean exogenousActivated = isexogenousActivated();
 
         // Germination of empty habitats
-        for (final Reach reach : state.getReaches()) {
-            final int reachIndex = reach.getIndex();
-
-            final int index = reach.getIndex();
-
-            final double endoToExoRatio = (1 - mExoToEndoRatio[index]);
-
-            final double exoTamariskWeight = (exogenousActivated ? mExoToEndoRatio[index]
-                    * mExoTamarisk[index] : 0);
-            final double exoNativeWeight = (exogenousActivated ? mExoToEndoRatio[index]
-                    * (1 - mExoTamarisk[index]) : 0);
-
-            final double endoTamarisWeight = endoToExoRatio * mEndoTamarisk;
-            final double endoNativeWeight = endoToExoRatio * (1 - mEndoTamarisk);
-
-            // Calculate the reproduction scores for Tamarisk and native trees
-            double tamariskScore = reachesInvaded[reachIndex];
-            double nativeScore = reachesNative[reachIndex];
-            final Reach parent = reach.getParent();
-            if (parent != null) {
-                final int parentIndex = parent.getIndex();
-
-                // Add the parent's scores
-                tamariskScore += reachesInvaded[parentIndex] * Math.pow(mUpstreamRate, 2);
-                nativeScore += reachesNative[parentIndex] * Math.pow(mUpstreamRate, 2);
-
-                // Add the sibling's scores
-                final Set<Reach> siblings = parent.getChildren();
-                for (final Reach sibling : siblings) {
-                    if (sibling != reach) {
-                        final int siblingIndex = sibling.getIndex();
-                        tamariskScore += reachesInvaded[siblingIndex] * mUpstreamRate
-                                * mDownstreamRate;
-                        nativeScore += reachesNative[siblingIndex] * mUpstreamRate
-                                * mDownstreamRate;
-                    }
-                }
-            }
-            // Add the children's scores
-            final Set<Reach> children = reach.getChildren();
-            for (final Reach child : children) {
-                final int childIndex = child.getIndex();
-                tamariskScore += reachesInvaded[childIndex] * Math.pow(mDownstreamRate, 2);
-                nativeScore += reachesNative[childIndex] * Math.pow(mDownstreamRate, 2);
-            }
-
-            // Determine the chance of each plant and normalise
-            final double tamariskChance = exoTamariskWeight + endoTamarisWeight * tamariskScore
-                    / (5 * reachSize);
-            final double nativeChance = exoNativeWeight + endoNativeWeight * nativeScore
-                    / (5 * reachSize);
-            final double chanceSum = tamariskChance + nativeChance;
-
-            if (chanceSum > 0) {
-                final double tamariskChanceNorm = tamariskChance / chanceSum;
+        final double[] tamariskScores = getReproductionScores(reachesInvaded);
+        final double[] nativeScores = getReproductionScores(reachesNative);
+        for (int index = 0; index < numReaches; ++index) {
+            final double tamariskChanceNorm = getGerminationChance(index, tamariskScores[index],
+                    nativeScores[index], exogenousActivated);
 
+            if (!Double.isNaN(tamariskChanceNorm)) {
                 // Update the habitats with the new regrown tree
-                final int[] habitats = reach.getHabitats();
-                for (int i = 0; i < habitats.length; ++i) {
-                    final int habitatIndex = reachIndex * reachSize + i;
+                for (int habitatIndex = index * reachSize; habitatIndex < (index + 1)
+                        * reachSize; ++habitatIndex) {
                     habitatsInvaded[habitatIndex] += habitatsEmpty[habitatIndex]
                             * tamariskChanceNorm;
                     habitatsNative[habitatIndex] += habitatsEmpty[habitatIndex]
@@ -725,33 +741,330 @@ public class EnvModel {
         }
 
         // Compare the expected habitats to the actual returned ones
-        for (final Reach reach : resultState.getReaches()) {
-            final int reachIndex = reach.getIndex();
+        for (int habitatIndex = 0; habitatIndex < numHabitats; ++habitatIndex) {
+            final double prediction;
+            switch (resultHabitats[resultOffset + habitatIndex]) {
+            case Utilities.HABITAT_EMPTY:
+                prediction = habitatsEmpty[habitatIndex];
+                break;
+            case Utilities.HABITAT_NATIVE:
+                prediction = habitatsNative[habitatIndex];
+                break;
+            case Utilities.HABITAT_INVADED:
+                prediction = habitatsInvaded[habitatIndex];
+                break;
+            default:
+                prediction = Double.NaN;
+            }
+            reward += getPredictionReward(prediction);
+        }
 
-            final int[] habitats = reach.getHabitats();
-            for (int i = 0; i < habitats.length; ++i) {
-                final int habitatIndex = reachIndex * reachSize + i;
+        // Return the normalised reward, based on the maximum score (1 per habitat)
+        return 2 * (1 + reward / numHabitats);
+    }
 
-                final double prediction;
-                switch (habitats[i]) {
-                case Utilities.HABITAT_EMPTY:
-                    prediction = habitatsEmpty[habitatIndex];
-                    break;
-                case Utilities.HABITAT_NATIVE:
-                    prediction = habitatsNative[habitatIndex];
-                    break;
-                case Utilities.HABITAT_INVADED:
-                    prediction = habitatsInvaded[habitatIndex];
-                    break;
-                default:
-                    prediction = Double.NaN;
+    /**
+     * Compares the aggregated outcomes of recorded transitions to how the model would predict
+     * them and returns the mean score, as if each transition was evaluated separately.
+     * 
+     * @param statistics
+     *            The aggregated transitions
+     * 
+     * @return A score representing the correlation between model's expectation and the actual
+     *         outcomes where 1 is the highest and 0 the lowest, or NaN if no transitions were
+     *         recorded
+     */
+    public double evaluateModel(final TransitionStatistics statistics) {
+        return getEvaluationScore(statistics,
+                getEvaluationReward(statistics, 0, statistics.getNumContexts()));
+    }
+
+    /**
+     * Sums the rewards of the model's predictions for a range of the aggregated local contexts.
+     * Rewards of separate ranges can be added up and turned into a score with
+     * {@link #getEvaluationScore(TransitionStatistics, double)}.
+     * 
+     * @param statistics
+     *            The aggregated transitions
+     * @param start
+     *            The first context to evaluate
+     * @param end
+     *            The context after the last one to evaluate
+     * 
+     * @return The summed reward of the predictions of all habitats within the contexts
+     */
+    public double getEvaluationReward(final TransitionStatistics statistics, final int start,
+            final int end) {
+        final int[] parents = mRiver.getParents();
+        final int[] childOffsets = mRiver.getChildOffsets();
+        final int[] siblingOffsets = mRiver.getSiblingOffsets();
+
+        final double parentRate = mUpstreamRate * mUpstreamRate;
+        final double siblingRate = mUpstreamRate * mDownstreamRate;
+        final double childRate = mDownstreamRate * mDownstreamRate;
+
+        final boolean exogenousActivated = isexogenousActivated();
+        final int[] keys = statistics.mKeys;
+        final double[] contents = new double[3];
+
+        double reward = 0;
+        for (int context = start; context < end; ++context) {
+            final int index = statistics.mContextReaches[context];
+            int key = statistics.mKeyOffsets[context];
+
+            // The reach itself, its parent, its siblings and its children each take part in the
+            // reproduction scores
+            getEvaluationReachContents(keys, key, contents);
+            double tamariskScore = contents[0];
+            double nativeScore = contents[1];
+            key += TransitionStatistics.KEY_STRIDE;
+
+            if (parents[index] != -1) {
+                getEvaluationReachContents(keys, key, contents);
+                tamariskScore += contents[0] * parentRate;
+                nativeScore += contents[1] * parentRate;
+                key += TransitionStatistics.KEY_STRIDE;
+            }
+            for (int i = siblingOffsets[index]; i < siblingOffsets[index + 1]; ++i) {
+                getEvaluationReachContents(keys, key, contents);
+                tamariskScore += contents[0] * siblingRate;
+                nativeScore += contents[1] * siblingRate;
+                key += TransitionStatistics.KEY_STRIDE;
+            }
+            for (int i = childOffsets[index]; i < childOffsets[index + 1]; ++i) {
+                getEvaluationReachContents(keys, key, contents);
+                tamariskScore += contents[0] * childRate;
+                nativeScore += contents[1] * childRate;
+                key += TransitionStatistics.KEY_STRIDE;
+            }
+
+            final double tamariskChanceNorm = getGerminationChance(index, tamariskScore,
+                    nativeScore, exogenousActivated);
+
+            // Score every observed pair of initial and resulting habitat
+            final int action = keys[statistics.mKeyOffsets[context]];
+            final int countOffset = context * TransitionStatistics.NUM_OUTCOMES;
+            for (int habitat = 1; habitat <= 3; ++habitat) {
+                getEvaluationContents(action, habitat, contents);
+                if (!Double.isNaN(tamariskChanceNorm)) {
+                    contents[0] += contents[2] * tamariskChanceNorm;
+                    contents[1] += contents[2] * (1 - tamariskChanceNorm);
+                    contents[2] = 0;
+                }
+
+                for (int result = 1; result <= 3; ++result) {
+                    final int count = statistics.mCounts[countOffset
+                            + TransitionStatistics.getOutcome(habitat, result)];
+                    if (count > 0) {
+                        reward += count * getPredictionReward(contents[getContentsIndex(result)]);
+                    }
                 }
-                reward += -Math.pow((1 - prediction / 2), 2) - Math.pow((prediction / 2), 2);
             }
         }
 
-        // Return the normalised reward, based on the maximum score (1 per habitat)
-        return 2 * (1 + reward / numHabitats);
+        return reward;
+    }
+
+    /**
+     * Turns the summed reward of the predictions of all aggregated contexts into the mean score
+     * of the recorded transitions.
+     * 
+     * @param statistics
+     *            The aggregated transitions
+     * @param reward
+     *            The summed reward of all contexts
+     * 
+     * @return The mean score of the transitions or NaN if no transitions were recorded
+     */
+    public double getEvaluationScore(final TransitionStatistics statistics, final double reward) {
+        final int numHabitats = mRiver.getNumReaches() * mRiver.getReachSize();
+        return 2 * (1 + reward / ((double) numHabitats * statistics.getNumTransitions()));
+    }
+
+    /**
+     * Determines the expected contents of a single habitat after performing an action on it, as
+     * used to evaluate the model.
+     * 
+     * @param action
+     *            The action performed on the habitat
+     * @param habitat
+     *            The habitat's type
+     * @param contents
+     *            The array to write the chance of being invaded, native and empty into
+     */
+    private void getEvaluationContents(final int action, final int habitat,
+            final double[] contents) {
+        double habitatInvaded = 0;
+        double habitatNative = 0;
+        double habitatEmpty = 0;
+
+        switch (action) {
+        case Utilities.ACTION_ERADICATE:
+            // During eradication, both type of plants may die
+            switch (habitat) {
+            case Utilities.HABITAT_NATIVE:
+                habitatNative = 1 - mDeathRateNative;
+                habitatEmpty = mDeathRateNative;
+                break;
+            case Utilities.HABITAT_INVADED:
+                habitatInvaded = 1 - mEradicationRate;
+                habitatEmpty = mEradicationRate;
+                break;
+            }
+
+            break;
+
+        case Utilities.ACTION_RESTORE:
+            // During restoration, empty spaces may come to life and plants may die
+            switch (habitat) {
+            case Utilities.HABITAT_EMPTY:
+                habitatNative = mRestorationRate;
+                habitatEmpty = 1 - mRestorationRate;
+                break;
+            case Utilities.HABITAT_NATIVE:
+                habitatNative = 1 - mDeathRateNative;
+                habitatEmpty = mDeathRateNative;
+                break;
+            case Utilities.HABITAT_INVADED:
+                habitatInvaded = 1 - mDeathRateTamarisk;
+                habitatEmpty = mDeathRateTamarisk;
+                break;
+            }
+            break;
+
+        case Utilities.ACTION_ERADICATE_RESTORE:
+            // During eradication, invaded habitats may die and/or come to life and native
+            // species may die
+            switch (habitat) {
+            case Utilities.HABITAT_NATIVE:
+                habitatNative = 1 - mDeathRateNative;
+                habitatEmpty = mDeathRateNative;
+                break;
+            case Utilities.HABITAT_INVADED:
+                habitatEmpty = mEradicationRate * (1 - mRestorationRate);
+                habitatNative = mEradicationRate * mRestorationRate;
+                habitatInvaded = 1 - mEradicationRate;
+                break;
+            }
+            break;
+
+        case Utilities.ACTION_NOTHING:
+            // When doing nothing, both type of plants may die
+            switch (habitat) {
+            case Utilities.HABITAT_NATIVE:
+                habitatNative = 1 - mDeathRateNative;
+                habitatEmpty = mDeathRateNative;
+                break;
+            case Utilities.HABITAT_INVADED:
+                habitatInvaded = 1 - mDeathRateTamarisk;
+                habitatEmpty = mDeathRateTamarisk;
+                break;
+            }
+        }
+
+        contents[0] = habitatInvaded;
+        contents[1] = habitatNative;
+        contents[2] = habitatEmpty;
+    }
+
+    /**
+     * Determines the expected contents of a reach from an aggregated context after performing
+     * its action, summing the contents of its habitats as used to evaluate the model.
+     * 
+     * @param keys
+     *            The array containing the context's keys
+     * @param key
+     *            The position of the reach's key within the array
+     * @param contents
+     *            The array to write the expected invaded, native and empty habitats into
+     */
+    private void getEvaluationReachContents(final int[] keys, final int key,
+            final double[] contents) {
+        final int action = keys[key];
+        double reachInvaded = 0;
+        double reachNative = 0;
+        double reachEmpty = 0;
+        for (int habitat = 1; habitat <= 3; ++habitat) {
+            final int count = keys[key + habitat];
+            if (count > 0) {
+                getEvaluationContents(action, habitat, contents);
+                reachInvaded += count * contents[0];
+                reachNative += count * contents[1];
+                reachEmpty += count * contents[2];
+            }
+        }
+        contents[0] = reachInvaded;
+        contents[1] = reachNative;
+        contents[2] = reachEmpty;
+    }
+
+    /**
+     * Calculates the chance of an empty habitat becoming invaded during germination, relative to
+     * the chance of it being filled at all.
+     * 
+     * @param index
+     *            The index of the reach
+     * @param tamariskScore
+     *            The Tamarisk reproduction score of the reach
+     * @param nativeScore
+     *            The native reproduction score of the reach
+     * @param exogenousActivated
+     *            Whether or not exogenous germination takes place
+     * 
+     * @return The normalised Tamarisk chance or NaN if empty habitats stay empty
+     */
+    private double getGerminationChance(final int index, final double tamariskScore,
+            final double nativeScore, final boolean exogenousActivated) {
+        final int reachSize = mRiver.getReachSize();
+        final double endoToExoRatio = (1 - mExoToEndoRatio[index]);
+
+        final double exoTamariskWeight = (exogenousActivated ? mExoToEndoRatio[index]
+                * mExoTamarisk[index] : 0);
+        final double exoNativeWeight = (exogenousActivated ? mExoToEndoRatio[index]
+                * (1 - mExoTamarisk[index]) : 0);
+
+        final double endoTamarisWeight = endoToExoRatio * mEndoTamarisk;
+        final double endoNativeWeight = endoToExoRatio * (1 - mEndoTamarisk);
+
+        // Determine the chance of each plant and normalise
+        final double tamariskChance = exoTamariskWeight + endoTamarisWeight * tamariskScore
+                / (5 * reachSize);
+        final double nativeChance = exoNativeWeight + endoNativeWeight * nativeScore
+                / (5 * reachSize);
+        final double chanceSum = tamariskChance + nativeChance;
+
+        return (chanceSum > 0 ? tamariskChance / chanceSum : Double.NaN);
+    }
+
+    /**
+     * Calculates the reward of predicting the actual outcome of a habitat with a given chance.
+     * 
+     * @param prediction
+     *            The predicted chance of the actual outcome
+     * 
+     * @return The prediction's reward, between -1 for a wrong and 0 for a right prediction
+     */
+    private static double getPredictionReward(final double prediction) {
+        return -Math.pow((1 - prediction / 2), 2) - Math.pow((prediction / 2), 2);
+    }
+
+    /**
+     * Retrieves the position of a habitat type within an array of contents.
+     * 
+     * @param habitat
+     *            The habitat's type
+     * 
+     * @return 0 for invaded, 1 for native and 2 for empty habitats
+     */
+    private static int getContentsIndex(final int habitat) {
+        switch (habitat) {
+        case Utilities.HABITAT_INVADED:
+            return 0;
+        case Utilities.HABITAT_NATIVE:
+            return 1;
+        default:
+            return 2;
+        }
     }
 
     /**
@@ -868,10 +1181,21 @@ public class EnvModel {
      * @return The reward of the reach's state
      */
     public double getReachReward(final Reach reach) {
-        double reward = 0;
+        return getReachReward(reach.getHabitatsInvaded(), reach.getHabitatsEmpty());
+    }
 
-        final double reachInvaded = reach.getHabitatsInvaded();
-        final double reachEmpty = reach.getHabitatsEmpty();
+    /**
+     * Calculates the reward for a reach's contents.
+     * 
+     * @param reachInvaded
+     *            The amount of habitats invaded by Tamarisk plants
+     * @param reachEmpty
+     *            The amount of empty habitats
+     * 
+     * @return The reward of the reach's contents
+     */
+    double getReachReward(final double reachInvaded, final double reachEmpty) {
+        double reward = 0;
 
         // Adjust the reward for this reach
         reward -= mCostInvadedReach * (Math.tanh(2.5 * reachInvaded - 3) + 1) / 2;
@@ -882,21 +1206,103 @@ public class EnvModel {
     }
 
     /**
-     * Brute-force method to determine the best possible action, considering a horizon of 1.
+     * Determines the best possible action, considering a horizon of 1. The joint action is
+     * optimised over the river tree as each reach's expected reward only depends on the actions
+     * performed on the reach, its parent, siblings and children. As the budget couples all
+     * reaches, the exhaustive search is used whenever the optimum may cross the budget. Rivers
+     * with too many reaches sharing a parent are searched one reach at a time instead.
      * 
      * @param riverState
      *            The current state
-     * @param model
-     *            The current model
      * 
      * @return The best possible action
      */
     public Action getBestAction(final RiverState riverState) {
-        return getBestAction(riverState, 0, new int[riverState.getReaches().size()]).getLeft();
+        if (!ActionPlanner.canPlan(mRiver)) {
+            return getBestActionPerReach(riverState);
+        }
+
+        final ActionPlanner planner = new ActionPlanner(this, riverState);
+        final Action bestAction = planner.plan(true);
+        final double bestReward = planner.getPlannedReward();
+
+        // Actions crossing the budget only get the penalty, so they can't beat the best action
+        // within the budget when even the highest expected reward can't make up for it
+        if (isWithinBudget(riverState, bestAction)) {
+            planner.plan(false);
+            if (planner.getPlannedReward() + mRiver.getPenalty() <= bestReward) {
+                return bestAction;
+            }
+        }
+
+        return getBestAction(riverState, 0, new int[mRiver.getNumReaches()]).getLeft();
+    }
+
+    /**
+     * Checks if the costs of the given actions stay within the budget.
+     * 
+     * @param state
+     *            The state to perform the actions on
+     * @param actions
+     *            The actions to perform
+     * 
+     * @return True iff the actions can be afforded
+     */
+    private boolean isWithinBudget(final RiverState state, final Action actions) {
+        double reward = 0;
+        for (int i = 0; i < mRiver.getNumReaches(); ++i) {
+            reward += getSingleActionReward(state.getReach(i), actions.intArray[i]);
+        }
+        return Math.abs(reward) <= mRiver.getBudget();
+    }
+
+    /**
+     * Searches a good action by improving the action on one reach at a time, starting from doing
+     * nothing, until no single reach's action can improve the reward anymore. Used for rivers too
+     * wide for both the planner and the exhaustive search; the result may be a local optimum.
+     * 
+     * @param riverState
+     *            The current state
+     * 
+     * @return The best action found
+     */
+    private Action getBestActionPerReach(final RiverState riverState) {
+        final int numReaches = mRiver.getNumReaches();
+        final Action action = new Action();
+        action.intArray = new int[numReaches];
+        Arrays.fill(action.intArray, Utilities.ACTION_NOTHING);
+
+        double bestReward = getExpectedNextStateReward(riverState, action)
+                + getActionReward(riverState, action);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int index = 0; index < numReaches; ++index) {
+                final int current = action.intArray[index];
+                int bestReachAction = current;
+                for (final int reachAction : riverState.getReach(index).getValidActions()) {
+                    if (reachAction == current) {
+                        continue;
+                    }
+                    action.intArray[index] = reachAction;
+                    final double reward = getExpectedNextStateReward(riverState, action)
+                            + getActionReward(riverState, action);
+                    if (reward > bestReward) {
+                        bestReward = reward;
+                        bestReachAction = reachAction;
+                        improved = true;
+                    }
+                }
+                action.intArray[index] = bestReachAction;
+            }
+        }
+
+        return action;
     }
 
     /**
-     * Search recursive through all possible actions to determine the best action.
+     * Search recursive through all possible actions to determine the best action. Brute-force
+     * method used when the budget limits the actions.
      * 
      * @param riverState
      *            The current state
@@ -940,6 +1346,64 @@ public class EnvModel {
         return resultAction;
     }
 
+    /**
+     * Calculates the endogenous reproduction score of each reach for a single type of plant. A
+     * reach's score consists of its own plants and those of its parent, siblings and children,
+     * weighted by how far the seeds have to travel up- and downstream.
+     * 
+     * @param reachesPlants
+     *            The amount of plants of the given type in each reach
+     * 
+     * @return The reproduction score of each reach
+     */
+    private double[] getReproductionScores(final double[] reachesPlants) {
+        final double[] scores = new double[reachesPlants.length];
+        getReproductionScores(reachesPlants, 0, scores);
+        return scores;
+    }
+
+    /**
+     * Calculates the endogenous reproduction score of each reach for a single type of plant,
+     * reading the plants from a part of a larger array of reach contents.
+     * 
+     * @param reachesPlants
+     *            The amount of plants of the given type in each reach of one or more states
+     * @param offset
+     *            The position of the first reach within the reach contents
+     * @param scores
+     *            The array to write the reproduction score of each reach into
+     */
+    private void getReproductionScores(final double[] reachesPlants, final int offset,
+            final double[] scores) {
+        final int numReaches = scores.length;
+        final int[] parents = mRiver.getParents();
+        final int[] childOffsets = mRiver.getChildOffsets();
+        final int[] childIndices = mRiver.getChildIndices();
+        final int[] siblingOffsets = mRiver.getSiblingOffsets();
+        final int[] siblingIndices = mRiver.getSiblingIndices();
+
+        final double parentRate = mUpstreamRate * mUpstreamRate;
+        final double siblingRate = mUpstreamRate * mDownstreamRate;
+        final double childRate = mDownstreamRate * mDownstreamRate;
+
+        for (int index = 0; index < numReaches; ++index) {
+            double score = reachesPlants[offset + index];
+
+            final int parentIndex = parents[index];
+            if (parentIndex != -1) {
+                score += reachesPlants[offset + parentIndex] * parentRate;
+            }
+            for (int i = siblingOffsets[index]; i < siblingOffsets[index + 1]; ++i) {
+                score += reachesPlants[offset + siblingIndices[i]] * siblingRate;
+            }
+            for (int i = childOffsets[index]; i < childOffsets[index + 1]; ++i) {
+                score += reachesPlants[offset + childIndices[i]] * childRate;
+            }
+
+            scores[index] = score;
+        }
+    }
+
     /**
      * Checks if all reaches are above the activated threshold and thus do not seem to have
      * exogenous germination.
@@ -1,114 +1,47 @@
 package nl.uva.species.model;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 import nl.uva.species.utils.Utilities;
 
 /**
- * A reach as defined within a state.
+ * A reach as defined within a state. Reaches are views on their state's habitat counts and the
+ * river's index tables, they do not hold any contents of their own.
  */
 public class Reach {
 
+    /** The state this reach belongs to */
+    private final RiverState mState;
+
     /** The reach's index within the experiment's edges */
     private final int mIndex;
 
-    /** The parent reach or null if it's a root reach */
-    private final Reach mParent;
-
-    /** The children that flow into this reach */
-    private final Set<Reach> mChildren = new HashSet<>();
-
-    /** The habitats within this reach */
-    private final int[] mHabitats;
-
-    /** The amount of habitats invaded by Tamarisk plants in this reach */
-    private final double mHabitatsInvaded;
-
-    /** The amount of habitats containing natural plants in this reach */
-    private final double mHabitatsNative;
-
-    /** The amount of empty habitats in this reach */
-    private final double mHabitatsEmpty;
-
-    /** The amount of habitats within the reach */
-    private final int mNumHabitats;
+    /** The children that flow into this reach, created when first requested */
+    private List<Reach> mChildren;
 
     /**
      * Prepares a reach with the specified properties.
      * 
+     * @param state
+     *            The state the reach belongs to
      * @param index
      *            The reach's index within the experiment's edges
-     * @param parent
-     *            The parent reach or null if it's a root reach
-     * @param habitats
-     *            The contents of the habitats
      */
-    public Reach(final int index, final Reach parent, final int[] habitats) {
+    Reach(final RiverState state, final int index) {
+        mState = state;
         mIndex = index;
-        mParent = parent;
-        mHabitats = habitats;
-        mNumHabitats = habitats.length;
-
-        int habitatsInvaded = 0;
-        int habitatsNative = 0;
-        int habitatsEmpty = 0;
-        for (int i = 0; i < habitats.length; ++i) {
-            switch (habitats[i]) {
-            case Utilities.HABITAT_INVADED:
-                ++habitatsInvaded;
-                break;
-            case Utilities.HABITAT_NATIVE:
-                ++habitatsNative;
-                break;
-            case Utilities.HABITAT_EMPTY:
-                ++habitatsEmpty;
-                break;
-            }
-        }
-
-        mHabitatsInvaded = habitatsInvaded;
-        mHabitatsNative = habitatsNative;
-        mHabitatsEmpty = habitatsEmpty;
-
-        // Inform the parent that it has a child
-        if (mParent != null) {
-            mParent.addChild(this);
-        }
     }
 
     /**
-     * Prepares a reach with the specified properties.
+     * Retrieves the state this reach belongs to.
      * 
-     * @param index
-     *            The reach's index within the experiment's edges
-     * @param parent
-     *            The parent reach or null if it's a root reach
-     * @param habitatsInvaded
-     *            The amount of habitats invaded by Tamarisk plants in this reach
-     * @param habitatsNatural
-     *            The amount of habitats containing natural plants in this reach
-     * @param habitatsEmpty
-     *            The amount of empty habitats in this reach
+     * @return The reach's state
      */
-    public Reach(final int index, final Reach parent, final double habitatsInvaded, final double habitatsNative,
-            final double habitatsEmpty) {
-        mIndex = index;
-        mParent = parent;
-        mHabitats = null;
-
-        mHabitatsInvaded = habitatsInvaded;
-        mHabitatsNative = habitatsNative;
-        mHabitatsEmpty = habitatsEmpty;
-
-        mNumHabitats = (int) Math.round(habitatsInvaded + habitatsNative + habitatsEmpty);
-
-        // Inform the parent that it has a child
-        if (mParent != null) {
-            mParent.addChild(this);
-        }
+    public RiverState getState() {
+        return mState;
     }
 
     /**
@@ -135,7 +68,8 @@ public class Reach {
      * @return The reach's parent
      */
     public Reach getParent() {
-        return mParent;
+        final int parent = mState.getRiver().getParent(mIndex);
+        return (parent != -1 ? mState.getReach(parent) : null);
     }
 
     /**
@@ -143,27 +77,34 @@ public class Reach {
      * 
      * @return The reach's children
      */
-    public Set<Reach> getChildren() {
+    public List<Reach> getChildren() {
+        if (mChildren == null) {
+            final int[] childOffsets = mState.getRiver().getChildOffsets();
+            final int[] childIndices = mState.getRiver().getChildIndices();
+            final int offset = childOffsets[mIndex];
+
+            final Reach[] children = new Reach[childOffsets[mIndex + 1] - offset];
+            for (int i = 0; i < children.length; ++i) {
+                children[i] = mState.getReach(childIndices[offset + i]);
+            }
+            mChildren = Collections.unmodifiableList(Arrays.asList(children));
+        }
         return mChildren;
     }
 
     /**
-     * Adds a child that has this reach as a parent to this reach.
-     * 
-     * @param reach
-     *            The reach that has this reach as its parent
-     */
-    private void addChild(final Reach reach) {
-        mChildren.add(reach);
-    }
-
-    /**
-     * Retrieves the habitats within the reach.
+     * Retrieves a copy of the habitats within the reach.
      * 
      * @return The reach's habitats or null if this reach is an expectation
      */
     public int[] getHabitats() {
-        return mHabitats;
+        final int[] habitats = mState.getHabitats();
+        if (habitats == null) {
+            return null;
+        }
+
+        final int reachSize = mState.getRiver().getReachSize();
+        return Arrays.copyOfRange(habitats, mIndex * reachSize, (mIndex + 1) * reachSize);
     }
 
     /**
@@ -172,7 +113,7 @@ public class Reach {
      * @return The amount of invaded habitats
      */
     public double getHabitatsInvaded() {
-        return mHabitatsInvaded;
+        return mState.getHabitatsInvaded(mIndex);
     }
 
     /**
@@ -181,7 +122,7 @@ public class Reach {
      * @return The amount of natural habitats
      */
     public double getHabitatsNative() {
-        return mHabitatsNative;
+        return mState.getHabitatsNative(mIndex);
     }
 
     /**
@@ -190,7 +131,7 @@ public class Reach {
      * @return The amount of empty habitats
      */
     public double getHabitatsEmpty() {
-        return mHabitatsEmpty;
+        return mState.getHabitatsEmpty(mIndex);
     }
 
     /**
@@ -199,7 +140,10 @@ public class Reach {
      * @return The amount of habitats
      */
     public int getNumHabitats() {
-        return mNumHabitats;
+        if (mState.getHabitats() != null) {
+            return mState.getRiver().getReachSize();
+        }
+        return (int) Math.round(getHabitatsInvaded() + getHabitatsNative() + getHabitatsEmpty());
     }
 
     /**
@@ -1,10 +1,11 @@
 package nl.uva.species.model;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
 import org.rlcommunity.rlglue.codec.types.Observation;
@@ -27,8 +28,8 @@ public class River {
     /** The discount factor per timestep */
     private final double mDiscountFactor;
 
-    /** The mapping from parent to child reaches using indices */
-    private final HashMap<Integer, Set<Integer>> mStructure = new HashMap<>();
+    /** The unmodifiable mapping from parent to child reaches using indices */
+    private final Map<Integer, Set<Integer>> mStructure;
 
     /** The index that specifies the root reach */
     private final int mRootIndex;
@@ -36,6 +37,24 @@ public class River {
     /** The root node */
     private final int mRootNode;
 
+    /** The index of each reach's parent reach or -1 if it flows into the root node */
+    private final int[] mParents;
+
+    /** The offsets of each reach's children in the child indices, with one trailing offset */
+    private final int[] mChildOffsets;
+
+    /** The indices of the children that flow into each reach, in ascending order per reach */
+    private final int[] mChildIndices;
+
+    /** The offsets of each reach's siblings in the sibling indices, with one trailing offset */
+    private final int[] mSiblingOffsets;
+
+    /** The indices of the reaches sharing each reach's parent, in ascending order per reach */
+    private final int[] mSiblingIndices;
+
+    /** The reach indices ordered such that every parent comes before its children */
+    private final int[] mTopologicalOrder;
+
     /**
      * Prepares a new river based on the task specification.
      * 
@@ -43,25 +62,31 @@ public class River {
      *            The task specification for the experiment
      */
     public River(final TaskSpec taskSpec) {
-        final String extraString = taskSpec.getExtraString();
-        mReachSize = taskSpec.getNumDiscreteObsDims() / taskSpec.getNumDiscreteActionDims();
+        this(new TaskDescription(taskSpec));
+    }
 
-        final String budgetSplit = " BUDGET ";
-        final int budgetIndex = extraString.indexOf(budgetSplit);
+    /**
+     * Prepares a new river based on the description of the task specification. Use
+     * {@link TaskDescription#getRiver()} to share the river of a specification instead.
+     * 
+     * @param task
+     *            The description of the task specification for the experiment
+     */
+    River(final TaskDescription task) {
+        mReachSize = task.getNumDiscreteObservations() / task.getNumDiscreteActions();
 
-        // Parse the edges to determine the river's structure
+        // Determine the river's structure from the edges
+        final HashMap<Integer, Set<Integer>> structure = new HashMap<>();
         int rootNode = -1;
-        final String edgeString = extraString.substring(0, budgetIndex);
-        final Matcher matcher = Pattern.compile("\\((\\d+), ?(\\d+)\\)").matcher(edgeString);
-        while (matcher.find()) {
-            final int left = Integer.parseInt(matcher.group(1));
-            final int right = Integer.parseInt(matcher.group(2));
+        for (int edge = 0; edge < task.getNumEdges(); ++edge) {
+            final int left = task.getEdgeChild(edge);
+            final int right = task.getEdgeParent(edge);
 
             // Map the reaches from the right hand parent to the left hand child
-            if (!mStructure.containsKey(right)) {
-                mStructure.put(right, new HashSet<Integer>());
+            if (!structure.containsKey(right)) {
+                structure.put(right, new HashSet<Integer>());
             }
-            mStructure.get(right).add(left);
+            structure.get(right).add(left);
 
             // Keep track of the higher index as this is the root
             if (right > rootNode) {
@@ -69,16 +94,86 @@ public class River {
             }
         }
 
-        mBudget = Double.parseDouble(extraString.substring(budgetIndex + budgetSplit.length(), extraString.indexOf(" by ")));
+        // Don't let users of the structure change the river behind the flat indices' back
+        for (final Map.Entry<Integer, Set<Integer>> entry : structure.entrySet()) {
+            entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+        }
+        mStructure = Collections.unmodifiableMap(structure);
+
+        mBudget = task.getBudget();
 
-        mPenalty = taskSpec.getRewardRange().getMin();
+        mPenalty = task.getRewardMin();
 
-        mDiscountFactor = taskSpec.getDiscountFactor();
+        mDiscountFactor = task.getDiscountFactor();
 
         mRootNode = rootNode;
 
         // Set the root reach index as the left hand value of the highest right hand mapping
         mRootIndex = mStructure.get(rootNode).iterator().next();
+
+        // Compile the structure into flat index arrays for the model computations
+        final int numReaches = mRootNode;
+        mParents = new int[numReaches];
+        mChildOffsets = new int[numReaches + 1];
+        Arrays.fill(mParents, -1);
+        for (int index = 0; index < numReaches; ++index) {
+            final Set<Integer> children = mStructure.get(index);
+            mChildOffsets[index + 1] = mChildOffsets[index]
+                    + (children != null ? children.size() : 0);
+        }
+
+        mChildIndices = new int[mChildOffsets[numReaches]];
+        for (int index = 0; index < numReaches; ++index) {
+            final Set<Integer> children = mStructure.get(index);
+            if (children == null) {
+                continue;
+            }
+
+            int pos = mChildOffsets[index];
+            for (final int child : children) {
+                mChildIndices[pos++] = child;
+                mParents[child] = index;
+            }
+            Arrays.sort(mChildIndices, mChildOffsets[index], pos);
+        }
+
+        // Siblings are the parent's children, except for the reach itself
+        mSiblingOffsets = new int[numReaches + 1];
+        for (int index = 0; index < numReaches; ++index) {
+            final int parent = mParents[index];
+            mSiblingOffsets[index + 1] = mSiblingOffsets[index]
+                    + (parent != -1 ? mChildOffsets[parent + 1] - mChildOffsets[parent] - 1 : 0);
+        }
+
+        mSiblingIndices = new int[mSiblingOffsets[numReaches]];
+        for (int index = 0; index < numReaches; ++index) {
+            final int parent = mParents[index];
+            if (parent == -1) {
+                continue;
+            }
+
+            int pos = mSiblingOffsets[index];
+            for (int i = mChildOffsets[parent]; i < mChildOffsets[parent + 1]; ++i) {
+                if (mChildIndices[i] != index) {
+                    mSiblingIndices[pos++] = mChildIndices[i];
+                }
+            }
+        }
+
+        // Order the reaches breadth first, starting at the reaches flowing into the root node
+        mTopologicalOrder = new int[numReaches];
+        int ordered = 0;
+        for (int index = 0; index < numReaches; ++index) {
+            if (mParents[index] == -1) {
+                mTopologicalOrder[ordered++] = index;
+            }
+        }
+        for (int i = 0; i < ordered; ++i) {
+            final int index = mTopologicalOrder[i];
+            for (int j = mChildOffsets[index]; j < mChildOffsets[index + 1]; ++j) {
+                mTopologicalOrder[ordered++] = mChildIndices[j];
+            }
+        }
     }
 
     /**
@@ -97,12 +192,87 @@ public class River {
      * Retrieves the base structure of the river, defined as a mapping from parent reach indices to
      * its children.
      * 
-     * @return The river structure as an index mapping
+     * @return The river structure as an unmodifiable index mapping
      */
-    public HashMap<Integer, Set<Integer>> getStructure() {
+    public Map<Integer, Set<Integer>> getStructure() {
         return mStructure;
     }
 
+    /**
+     * Retrieves the index of the reach that the given reach flows into.
+     * 
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The parent's index or -1 if the reach flows into the root node
+     */
+    public int getParent(final int index) {
+        return mParents[index];
+    }
+
+    /**
+     * Retrieves the index of each reach's parent. The returned array is shared and should not be
+     * modified.
+     * 
+     * @return The parents' indices, -1 for reaches that flow into the root node
+     */
+    public int[] getParents() {
+        return mParents;
+    }
+
+    /**
+     * Retrieves where each reach's children start within the child indices; the children of reach
+     * i are found from offset i up to offset i + 1. The returned array is shared and should not be
+     * modified.
+     * 
+     * @return The child offsets, one per reach plus a trailing offset
+     */
+    public int[] getChildOffsets() {
+        return mChildOffsets;
+    }
+
+    /**
+     * Retrieves the indices of the reaches that flow into other reaches, grouped per parent as
+     * given by the child offsets. The returned array is shared and should not be modified.
+     * 
+     * @return The child indices
+     */
+    public int[] getChildIndices() {
+        return mChildIndices;
+    }
+
+    /**
+     * Retrieves where each reach's siblings start within the sibling indices; the siblings of
+     * reach i are found from offset i up to offset i + 1. The returned array is shared and should
+     * not be modified.
+     * 
+     * @return The sibling offsets, one per reach plus a trailing offset
+     */
+    public int[] getSiblingOffsets() {
+        return mSiblingOffsets;
+    }
+
+    /**
+     * Retrieves the indices of the reaches that share a parent with other reaches, grouped per
+     * reach as given by the sibling offsets. The returned array is shared and should not be
+     * modified.
+     * 
+     * @return The sibling indices
+     */
+    public int[] getSiblingIndices() {
+        return mSiblingIndices;
+    }
+
+    /**
+     * Retrieves the reach indices ordered such that every parent comes before its children. The
+     * returned array is shared and should not be modified.
+     * 
+     * @return The reach indices in topological order
+     */
+    public int[] getTopologicalOrder() {
+        return mTopologicalOrder;
+    }
+
     /**
      * Retrieves the budget for actions per time step.
      * 
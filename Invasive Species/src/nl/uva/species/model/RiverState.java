@@ -1,21 +1,27 @@
 package nl.uva.species.model;
 
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+
+import nl.uva.species.utils.Utilities;
+
 import org.rlcommunity.rlglue.codec.types.Observation;
 
 /**
- * Represents the state of a river given an observation as base river structure.
+ * Represents the state of a river given an observation as base river structure. The state is
+ * backed by a single flat array of habitats and per reach counts of their contents; the river
+ * structure is shared through the river's index tables.
  */
 public class RiverState {
 
     /** The river defining the structure */
     private final River mRiver;
 
-    /** The observation used for this state */
-    private final Observation mObservation;
+    /** The observation of this state's habitats, created when first requested */
+    private Observation mObservation;
+
+    /** The habitats of all reaches, reach after reach, or null if this state is an expectation */
+    private final int[] mHabitats;
 
     /** The amount of habitats invaded by Tamarisk plants in each reach */
     private final double[] mHabitatsInvaded;
@@ -26,14 +32,12 @@ public class RiverState {
     /** The amount of empty habitats in each reach */
     private final double[] mHabitatsEmpty;
 
-    /** The reaches within this state */
-    private final Map<Integer, Reach> mReaches = new HashMap<>();
-
-    /** The root reach that all other reaches stream into */
-    private final Reach mRootReach;
+    /** The reaches within this state, created when first requested */
+    private Reach[] mReaches;
 
     /**
-     * Prepares a new river state based on the base structure and observation.
+     * Prepares a new river state based on the base structure and observation. The observation's
+     * habitats are copied, so the observation may be reused for later steps.
      * 
      * @param river
      *            The river to use as base structure
@@ -41,98 +45,169 @@ public class RiverState {
      *            The observation for this state
      */
     public RiverState(final River river, final Observation observation) {
+        this(river, observation.intArray.clone());
+    }
+
+    /**
+     * Prepares a new river state based on the base structure and habitats. The habitats are used
+     * directly and should not be modified afterwards.
+     * 
+     * @param river
+     *            The river to use as base structure
+     * @param habitats
+     *            The habitats of all reaches, reach after reach
+     */
+    public RiverState(final River river, final int[] habitats) {
         mRiver = river;
-        mObservation = observation;
-        mHabitatsInvaded = null;
-        mHabitatsNative = null;
-        mHabitatsEmpty = null;
+        mHabitats = habitats;
+
+        final int numReaches = river.getNumReaches();
+        final int reachSize = river.getReachSize();
+        mHabitatsInvaded = new double[numReaches];
+        mHabitatsNative = new double[numReaches];
+        mHabitatsEmpty = new double[numReaches];
+
+        // Count the contents of every reach in a single pass
+        for (int i = 0; i < habitats.length; ++i) {
+            switch (habitats[i]) {
+            case Utilities.HABITAT_INVADED:
+                ++mHabitatsInvaded[i / reachSize];
+                break;
+            case Utilities.HABITAT_NATIVE:
+                ++mHabitatsNative[i / reachSize];
+                break;
+            case Utilities.HABITAT_EMPTY:
+                ++mHabitatsEmpty[i / reachSize];
+                break;
+            }
+        }
+    }
 
-        mRootReach = generateReachAt(river.getRootIndex(), null);
+    /**
+     * Prepares a new river state based on the base structure and expected reach contents.
+     * 
+     * @param river
+     *            The river to use as base structure
+     * @param habitatsInvaded
+     *            The amount of habitats invaded by Tamarisk plants in each reach
+     * @param habitatsNative
+     *            The amount of habitats containing natural plants in each reach
+     * @param habitatsEmpty
+     *            The amount of empty habitats in each reach
+     */
+    public RiverState(final River river, final double[] habitatsInvaded,
+            final double[] habitatsNative, final double[] habitatsEmpty) {
+        this(river, null, habitatsInvaded, habitatsNative, habitatsEmpty);
     }
 
     /**
-     * Prepares a new river state based on the base structure and observation.
+     * Prepares a new river state of which the reach contents have already been counted. All arrays
+     * are used directly and should not be modified afterwards.
      * 
      * @param river
      *            The river to use as base structure
+     * @param habitats
+     *            The habitats of all reaches or null if this state is an expectation
      * @param habitatsInvaded
-     *            The amount of habitats invaded by Tamarisk plants in this reach
-     * @param habitatsNatural
-     *            The amount of habitats containing natural plants in this reach
+     *            The amount of habitats invaded by Tamarisk plants in each reach
+     * @param habitatsNative
+     *            The amount of habitats containing natural plants in each reach
      * @param habitatsEmpty
-     *            The amount of empty habitats in this reach
+     *            The amount of empty habitats in each reach
      */
-    public RiverState(final River river, final double[] habitatsInvaded, final double[] habitatsNative,
-            final double[] habitatsEmpty) {
+    RiverState(final River river, final int[] habitats, final double[] habitatsInvaded,
+            final double[] habitatsNative, final double[] habitatsEmpty) {
         mRiver = river;
-        mObservation = null;
+        mHabitats = habitats;
         mHabitatsInvaded = habitatsInvaded;
         mHabitatsNative = habitatsNative;
         mHabitatsEmpty = habitatsEmpty;
-
-        mRootReach = generateReachAt(river.getRootIndex(), null);
     }
 
     /**
-     * Recursively creates and maps the reaches that belong in the state. Should not be called more
-     * than once.
+     * Retrieves the river that this state was based on.
      * 
-     * @param index
-     *            The index of the reach to generate
-     * @param parent
-     *            The reach's parent in the river structure
+     * @return The state's river
+     */
+    public River getRiver() {
+        return mRiver;
+    }
+
+    /**
+     * Retrieves the observation that this state was based on.
      * 
-     * @return The reach that was generated
+     * @return The state's observation or null if this state is an expectation
      */
-    private Reach generateReachAt(final int index, final Reach parent) {
-        final int reachSize = mRiver.getReachSize();
-        final int startPosition = reachSize * index;
-
-        // Create the reach object and add it to the set of reaches
-        final Reach reach;
-        if (mObservation != null) {
-            reach = new Reach(index, parent, Arrays.copyOfRange(mObservation.intArray, startPosition, startPosition
-                    + reachSize));
-        } else {
-            reach = new Reach(index, parent, mHabitatsInvaded[index], mHabitatsNative[index], mHabitatsEmpty[index]);
+    public Observation getObservation() {
+        if (mObservation == null && mHabitats != null) {
+            mObservation = new Observation();
+            mObservation.intArray = mHabitats;
         }
-        mReaches.put(index, reach);
+        return mObservation;
+    }
 
-        // Generate the reach's children
-        if (mRiver.getStructure().containsKey(index)) {
-            for (final int childIndex : mRiver.getStructure().get(index)) {
-                generateReachAt(childIndex, reach);
-            }
-        }
+    /**
+     * Retrieves the habitats of all reaches, reach after reach. The returned array is shared and
+     * should not be modified.
+     * 
+     * @return The state's habitats or null if this state is an expectation
+     */
+    public int[] getHabitats() {
+        return mHabitats;
+    }
 
-        return reach;
+    /**
+     * Retrieves the amount of habitats invaded by Tamarisk plants in the given reach.
+     * 
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The amount of invaded habitats
+     */
+    public double getHabitatsInvaded(final int index) {
+        return mHabitatsInvaded[index];
     }
 
     /**
-     * Retrieves the river that this state was based on.
+     * Retrieves the amount of habitats containing natural plants in the given reach.
      * 
-     * @return The state's river
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The amount of natural habitats
      */
-    public River getRiver() {
-        return mRiver;
+    public double getHabitatsNative(final int index) {
+        return mHabitatsNative[index];
     }
 
     /**
-     * Retrieves the observation that this state was based on.
+     * Retrieves the amount of empty habitats in the given reach.
      * 
-     * @return The state's observation
+     * @param index
+     *            The index of the reach
+     * 
+     * @return The amount of empty habitats
      */
-    public Observation getObservation() {
-        return mObservation;
+    public double getHabitatsEmpty(final int index) {
+        return mHabitatsEmpty[index];
+    }
+
+    /**
+     * Retrieves the amount of reaches within this state.
+     * 
+     * @return The amount of reaches
+     */
+    public int getNumReaches() {
+        return mHabitatsInvaded.length;
     }
 
     /**
-     * Retrieves all reaches within this state.
+     * Retrieves all reaches within this state, ordered by index.
      * 
      * @return The state's reaches
      */
-    public Collection<Reach> getReaches() {
-        return mReaches.values();
+    public List<Reach> getReaches() {
+        return Arrays.asList(getReachArray());
     }
 
     /**
@@ -141,7 +216,7 @@ public class RiverState {
      * @return The state's root reach
      */
     public Reach getRootReach() {
-        return mRootReach;
+        return getReach(mRiver.getRootIndex());
     }
 
     /**
@@ -153,6 +228,22 @@ public class RiverState {
      * @return The reach with the given index
      */
     public Reach getReach(final int index) {
-        return mReaches.get(index);
+        return getReachArray()[index];
+    }
+
+    /**
+     * Retrieves the reaches within this state, creating them if this hasn't been done yet.
+     * 
+     * @return The state's reaches indexed by their index
+     */
+    private Reach[] getReachArray() {
+        if (mReaches == null) {
+            final Reach[] reaches = new Reach[getNumReaches()];
+            for (int i = 0; i < reaches.length; ++i) {
+                reaches[i] = new Reach(this, i);
+            }
+            mReaches = reaches;
+        }
+        return mReaches;
     }
 }
@@ -0,0 +1,213 @@
+package nl.uva.species.model;
+
+import java.util.Arrays;
+
+/**
+ * A preallocated buffer of sampled river states. The states are stored as structure of arrays: one
+ * flat array of habitats and one flat array per type of reach content, state after state, so that
+ * large amounts of successors can be sampled without creating an object per state.
+ */
+public class StateBatch {
+
+    /** The river defining the structure of all states */
+    private final River mRiver;
+
+    /** The maximum amount of states the batch can hold */
+    private final int mCapacity;
+
+    /** The amount of habitats within each state */
+    private final int mNumHabitats;
+
+    /** The amount of reaches within each state */
+    private final int mNumReaches;
+
+    /** The amount of states currently held */
+    private int mNumStates;
+
+    /** The habitats of all states, state after state and reach after reach */
+    final int[] mHabitats;
+
+    /** The amount of habitats invaded by Tamarisk plants in each reach, state after state */
+    final double[] mReachesInvaded;
+
+    /** The amount of habitats containing natural plants in each reach, state after state */
+    final double[] mReachesNative;
+
+    /** The amount of empty habitats in each reach, state after state */
+    final double[] mReachesEmpty;
+
+    /** Working space for the chance of each habitat's first transition */
+    final double[] mFirstChances;
+
+    /** Working space for the habitat resulting from each habitat's first transition */
+    final int[] mFirstHabitats;
+
+    /** Working space for the chance of each habitat's first or second transition */
+    final double[] mSecondChances;
+
+    /** Working space for the habitat resulting from each habitat's second transition */
+    final int[] mSecondHabitats;
+
+    /** Working space for the Tamarisk reproduction scores of each reach */
+    final double[] mTamariskScores;
+
+    /** Working space for the native reproduction scores of each reach */
+    final double[] mNativeScores;
+
+    /**
+     * Prepares an empty batch for states of the given river.
+     * 
+     * @param river
+     *            The river defining the structure of all states
+     * @param capacity
+     *            The maximum amount of states the batch can hold
+     */
+    public StateBatch(final River river, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A batch should hold at least one state");
+        }
+
+        mRiver = river;
+        mCapacity = capacity;
+
+        mNumReaches = river.getNumReaches();
+        mNumHabitats = mNumReaches * river.getReachSize();
+        mHabitats = new int[capacity * mNumHabitats];
+        mReachesInvaded = new double[capacity * mNumReaches];
+        mReachesNative = new double[capacity * mNumReaches];
+        mReachesEmpty = new double[capacity * mNumReaches];
+
+        mFirstChances = new double[mNumHabitats];
+        mFirstHabitats = new int[mNumHabitats];
+        mSecondChances = new double[mNumHabitats];
+        mSecondHabitats = new int[mNumHabitats];
+        mTamariskScores = new double[mNumReaches];
+        mNativeScores = new double[mNumReaches];
+    }
+
+    /**
+     * Retrieves the river defining the structure of all states.
+     * 
+     * @return The batch's river
+     */
+    public River getRiver() {
+        return mRiver;
+    }
+
+    /**
+     * Retrieves the maximum amount of states the batch can hold.
+     * 
+     * @return The batch's capacity
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Retrieves the amount of states currently held.
+     * 
+     * @return The amount of states
+     */
+    public int getNumStates() {
+        return mNumStates;
+    }
+
+    /**
+     * Sets the amount of states currently held.
+     * 
+     * @param numStates
+     *            The amount of states
+     */
+    void setNumStates(final int numStates) {
+        mNumStates = numStates;
+    }
+
+    /**
+     * Retrieves the habitats of all states, state after state and reach after reach. The returned
+     * array is shared and should not be modified.
+     * 
+     * @return The habitats of all states
+     */
+    public int[] getHabitats() {
+        return mHabitats;
+    }
+
+    /**
+     * Retrieves the habitat at the given position within a state.
+     * 
+     * @param state
+     *            The index of the state
+     * @param habitat
+     *            The index of the habitat within the state
+     * 
+     * @return The habitat's type
+     */
+    public int getHabitat(final int state, final int habitat) {
+        return mHabitats[state * mNumHabitats + habitat];
+    }
+
+    /**
+     * Retrieves the amount of habitats invaded by Tamarisk plants in a reach of a state.
+     * 
+     * @param state
+     *            The index of the state
+     * @param reach
+     *            The index of the reach
+     * 
+     * @return The amount of invaded habitats
+     */
+    public double getHabitatsInvaded(final int state, final int reach) {
+        return mReachesInvaded[state * mNumReaches + reach];
+    }
+
+    /**
+     * Retrieves the amount of habitats containing natural plants in a reach of a state.
+     * 
+     * @param state
+     *            The index of the state
+     * @param reach
+     *            The index of the reach
+     * 
+     * @return The amount of natural habitats
+     */
+    public double getHabitatsNative(final int state, final int reach) {
+        return mReachesNative[state * mNumReaches + reach];
+    }
+
+    /**
+     * Retrieves the amount of empty habitats in a reach of a state.
+     * 
+     * @param state
+     *            The index of the state
+     * @param reach
+     *            The index of the reach
+     * 
+     * @return The amount of empty habitats
+     */
+    public double getHabitatsEmpty(final int state, final int reach) {
+        return mReachesEmpty[state * mNumReaches + reach];
+    }
+
+    /**
+     * Copies one of the states held into a separate river state.
+     * 
+     * @param state
+     *            The index of the state
+     * 
+     * @return The river state with a copy of the state's contents
+     */
+    public RiverState getState(final int state) {
+        if (state < 0 || state >= mNumStates) {
+            throw new IndexOutOfBoundsException("State " + state + " of " + mNumStates);
+        }
+
+        final int habitatOffset = state * mNumHabitats;
+        final int reachOffset = state * mNumReaches;
+
+        return new RiverState(mRiver,
+                Arrays.copyOfRange(mHabitats, habitatOffset, habitatOffset + mNumHabitats),
+                Arrays.copyOfRange(mReachesInvaded, reachOffset, reachOffset + mNumReaches),
+                Arrays.copyOfRange(mReachesNative, reachOffset, reachOffset + mNumReaches),
+                Arrays.copyOfRange(mReachesEmpty, reachOffset, reachOffset + mNumReaches));
+    }
+}
@@ -0,0 +1,543 @@
+package nl.uva.species.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
+
+/**
+ * The parts of a task specification the agents use, including the river's edges and the budget
+ * that the invasive species environment puts in the extra string. Descriptions are immutable, so
+ * the ones created through {@link #forTaskSpec(String)} are cached and shared: initialising an
+ * agent with a task specification seen before neither parses it nor builds its river again.
+ * 
+ * RL-Glue 3.0 specifications are read in a single pass over the string. Anything the single pass
+ * doesn't understand, such as older versions or unknown reward bounds, is left to the codec's
+ * TaskSpec parser.
+ */
+public class TaskDescription {
+
+    /** The amount of descriptions cached before the cache is emptied */
+    private static final int MAX_CACHED = 1024;
+
+    /** The cached descriptions by their task specification */
+    private static final ConcurrentHashMap<String, TaskDescription> sCache =
+            new ConcurrentHashMap<>();
+
+    /** The label in the extra string that precedes the budget */
+    private static final String BUDGET_LABEL = " BUDGET ";
+
+    /** The text in the extra string that follows the budget */
+    private static final String BUDGET_END = " by ";
+
+    /** The discount factor per time step */
+    private final double mDiscountFactor;
+
+    /** The amount of discrete observation dimensions */
+    private final int mNumDiscreteObservations;
+
+    /** The amount of discrete action dimensions */
+    private final int mNumDiscreteActions;
+
+    /** The minimum reward */
+    private final double mRewardMin;
+
+    /** The maximum reward */
+    private final double mRewardMax;
+
+    /** The extra string of the specification */
+    private final String mExtraString;
+
+    /** The edges of the river as pairs of the child and the parent it flows into */
+    private final int[] mEdges;
+
+    /** The budget for actions per time step */
+    private final double mBudget;
+
+    /** The river described by the specification, built when it's first needed */
+    private volatile River mRiver;
+
+    /**
+     * Prepares a description of the given parts of a specification.
+     * 
+     * @param discountFactor
+     *            The discount factor per time step
+     * @param numDiscreteObservations
+     *            The amount of discrete observation dimensions
+     * @param numDiscreteActions
+     *            The amount of discrete action dimensions
+     * @param rewardMin
+     *            The minimum reward
+     * @param rewardMax
+     *            The maximum reward
+     * @param extraString
+     *            The extra string holding the edges and budget
+     */
+    private TaskDescription(final double discountFactor, final int numDiscreteObservations,
+            final int numDiscreteActions, final double rewardMin, final double rewardMax,
+            final String extraString) {
+        mDiscountFactor = discountFactor;
+        mNumDiscreteObservations = numDiscreteObservations;
+        mNumDiscreteActions = numDiscreteActions;
+        mRewardMin = rewardMin;
+        mRewardMax = rewardMax;
+        mExtraString = extraString;
+
+        final int budgetIndex = extraString.indexOf(BUDGET_LABEL);
+        if (budgetIndex == -1) {
+            throw new IllegalArgumentException("No budget in the extra string: " + extraString);
+        }
+        mEdges = parseEdges(extraString, budgetIndex);
+
+        final int budgetStart = budgetIndex + BUDGET_LABEL.length();
+        final int budgetEnd = extraString.indexOf(BUDGET_END, budgetStart);
+        mBudget = Double.parseDouble(extraString.substring(budgetStart,
+                budgetEnd != -1 ? budgetEnd : extraString.length()).trim());
+    }
+
+    /**
+     * Prepares a description of a specification already parsed by the codec.
+     * 
+     * @param taskSpec
+     *            The task specification for the experiment
+     */
+    public TaskDescription(final TaskSpec taskSpec) {
+        this(taskSpec.getDiscountFactor(), taskSpec.getNumDiscreteObsDims(), taskSpec
+                .getNumDiscreteActionDims(), taskSpec.getRewardRange().getMin(), taskSpec
+                .getRewardRange().getMax(), taskSpec.getExtraString());
+    }
+
+    /**
+     * Retrieves the description of a task specification, parsing it only if it wasn't seen before.
+     * The cache is keyed by the string itself; strings cache their hash, so looking up the string
+     * an agent received before costs a hash lookup and a reference comparison.
+     * 
+     * @param taskSpec
+     *            The task specification string
+     * 
+     * @return The shared description of the specification
+     */
+    public static TaskDescription forTaskSpec(final String taskSpec) {
+        TaskDescription description = sCache.get(taskSpec);
+        if (description == null) {
+            description = parse(taskSpec);
+
+            // Sweeps over many random environments see every specification only once
+            if (sCache.size() >= MAX_CACHED) {
+                sCache.clear();
+            }
+            final TaskDescription cached = sCache.putIfAbsent(taskSpec, description);
+            if (cached != null) {
+                description = cached;
+            }
+        }
+        return description;
+    }
+
+    /**
+     * Parses a task specification without consulting the cache.
+     * 
+     * @param taskSpec
+     *            The task specification string
+     * 
+     * @return A new description of the specification
+     */
+    public static TaskDescription parse(final String taskSpec) {
+        final TaskDescription description = parseRLGlue3(taskSpec);
+        return (description != null ? description : new TaskDescription(new TaskSpec(taskSpec)));
+    }
+
+    /**
+     * Parses an RL-Glue 3.0 task specification in a single pass, following the grammar of the
+     * codec's TaskSpecVRLGLUE3.
+     * 
+     * @param taskSpec
+     *            The task specification string
+     * 
+     * @return The description or null if the specification needs the codec's parser
+     */
+    private static TaskDescription parseRLGlue3(final String taskSpec) {
+        final Tokenizer tokens = new Tokenizer(taskSpec);
+        try {
+            if (!tokens.next("VERSION") || !tokens.next("RL-Glue-3.0")
+                    || !tokens.next("PROBLEMTYPE") || tokens.next() == null
+                    || !tokens.next("DISCOUNTFACTOR")) {
+                return null;
+            }
+            final double discountFactor = Double.parseDouble(tokens.next());
+
+            if (!tokens.next("OBSERVATIONS")) {
+                return null;
+            }
+            String token = tokens.next();
+            int numDiscreteObservations = 0;
+            if ("INTS".equals(token)) {
+                while ((token = tokens.next()) != null && token.startsWith("(")) {
+                    numDiscreteObservations += tokens.rangeDimensions(token);
+                }
+            }
+            token = skipUnusedRanges(tokens, token);
+
+            if (!"ACTIONS".equals(token)) {
+                return null;
+            }
+            token = tokens.next();
+            int numDiscreteActions = 0;
+            if ("INTS".equals(token)) {
+                while ((token = tokens.next()) != null && token.startsWith("(")) {
+                    numDiscreteActions += tokens.rangeDimensions(token);
+                }
+            }
+            token = skipUnusedRanges(tokens, token);
+
+            if (!"REWARDS".equals(token)) {
+                return null;
+            }
+            token = tokens.next();
+            if (token == null || !token.startsWith("(") || tokens.rangeDimensions(token) != 1
+                    || tokens.getNumRangeValues() != 2) {
+                return null;
+            }
+            final double rewardMin = Double.parseDouble(tokens.getRangeValue(0));
+            final double rewardMax = Double.parseDouble(tokens.getRangeValue(1));
+
+            if (!tokens.next("EXTRA")) {
+                return null;
+            }
+            return new TaskDescription(discountFactor, numDiscreteObservations,
+                    numDiscreteActions, rewardMin, rewardMax, tokens.rest());
+        } catch (final NumberFormatException | NullPointerException ex) {
+            // Special bounds such as UNSPEC and truncated specifications are left to the codec
+            return null;
+        }
+    }
+
+    /**
+     * Skips the double ranges and char count of the observations or actions, which the agents
+     * don't use.
+     * 
+     * @param tokens
+     *            The tokens of the specification
+     * @param token
+     *            The current token
+     * 
+     * @return The first token after the skipped ones
+     */
+    private static String skipUnusedRanges(final Tokenizer tokens, final String token) {
+        String next = token;
+        if ("DOUBLES".equals(next)) {
+            while ((next = tokens.next()) != null && next.startsWith("(")) {
+                tokens.rangeDimensions(next);
+            }
+        }
+        if ("CHARCOUNT".equals(next)) {
+            Integer.parseInt(tokens.next());
+            next = tokens.next();
+        }
+        return next;
+    }
+
+    /**
+     * Reads the edges of the river from the extra string, which lists them as "(child, parent)".
+     * 
+     * @param extraString
+     *            The extra string of the specification
+     * @param end
+     *            The index in the extra string at which the edges end
+     * 
+     * @return The pairs of children and parents
+     */
+    private static int[] parseEdges(final String extraString, final int end) {
+        int[] edges = new int[16];
+        int numValues = 0;
+        int pos = extraString.indexOf('(');
+        while (pos != -1 && pos < end) {
+            // Read "(<digits>," followed by an optional space and "<digits>)"
+            int child = 0;
+            int i = pos + 1;
+            final int childStart = i;
+            while (i < end && Character.isDigit(extraString.charAt(i))) {
+                child = child * 10 + extraString.charAt(i++) - '0';
+            }
+            boolean valid = (i > childStart && i < end && extraString.charAt(i++) == ',');
+            if (valid && i < end && extraString.charAt(i) == ' ') {
+                ++i;
+            }
+
+            int parent = 0;
+            final int parentStart = i;
+            while (valid && i < end && Character.isDigit(extraString.charAt(i))) {
+                parent = parent * 10 + extraString.charAt(i++) - '0';
+            }
+            valid &= (i > parentStart && i < end && extraString.charAt(i) == ')');
+
+            if (valid) {
+                if (numValues == edges.length) {
+                    edges = Arrays.copyOf(edges, edges.length * 2);
+                }
+                edges[numValues++] = child;
+                edges[numValues++] = parent;
+            }
+            pos = extraString.indexOf('(', pos + 1);
+        }
+        return Arrays.copyOf(edges, numValues);
+    }
+
+    /**
+     * Retrieves the river described by the specification. The river is built once and shared by
+     * everyone using this description.
+     * 
+     * @return The river
+     */
+    public River getRiver() {
+        River river = mRiver;
+        if (river == null) {
+            river = new River(this);
+            mRiver = river;
+        }
+        return river;
+    }
+
+    /**
+     * Retrieves the discount factor.
+     * 
+     * @return The discount factor per time step
+     */
+    public double getDiscountFactor() {
+        return mDiscountFactor;
+    }
+
+    /**
+     * Retrieves the amount of discrete observation dimensions.
+     * 
+     * @return The amount of habitats in the river
+     */
+    public int getNumDiscreteObservations() {
+        return mNumDiscreteObservations;
+    }
+
+    /**
+     * Retrieves the amount of discrete action dimensions.
+     * 
+     * @return The amount of reaches in the river
+     */
+    public int getNumDiscreteActions() {
+        return mNumDiscreteActions;
+    }
+
+    /**
+     * Retrieves the minimum reward, which is the penalty for bad actions.
+     * 
+     * @return The minimum reward
+     */
+    public double getRewardMin() {
+        return mRewardMin;
+    }
+
+    /**
+     * Retrieves the maximum reward.
+     * 
+     * @return The maximum reward
+     */
+    public double getRewardMax() {
+        return mRewardMax;
+    }
+
+    /**
+     * Retrieves the extra string of the specification.
+     * 
+     * @return The extra string, with single spaces between its words
+     */
+    public String getExtraString() {
+        return mExtraString;
+    }
+
+    /**
+     * Retrieves the part of the extra string listing the edges of the river.
+     * 
+     * @return The edges as written in the specification
+     */
+    public String getEdgeString() {
+        return mExtraString.substring(0, mExtraString.indexOf(BUDGET_LABEL));
+    }
+
+    /**
+     * Retrieves the amount of edges in the river.
+     * 
+     * @return The amount of edges
+     */
+    public int getNumEdges() {
+        return mEdges.length / 2;
+    }
+
+    /**
+     * Retrieves the reach an edge flows from.
+     * 
+     * @param edge
+     *            The index of the edge
+     * 
+     * @return The child of the edge
+     */
+    public int getEdgeChild(final int edge) {
+        return mEdges[2 * edge];
+    }
+
+    /**
+     * Retrieves the reach or root node an edge flows into.
+     * 
+     * @param edge
+     *            The index of the edge
+     * 
+     * @return The parent of the edge
+     */
+    public int getEdgeParent(final int edge) {
+        return mEdges[2 * edge + 1];
+    }
+
+    /**
+     * Retrieves the budget.
+     * 
+     * @return The budget for actions per time step
+     */
+    public double getBudget() {
+        return mBudget;
+    }
+
+    /**
+     * Splits a task specification into the words separated by whitespace, like the codec's
+     * StringTokenizer, without copying the parts it skips.
+     */
+    private static class Tokenizer {
+
+        /** The string to split */
+        private final String mString;
+
+        /** The index of the first character not read yet */
+        private int mPos;
+
+        /** The values of the last range read */
+        private final String[] mRangeValues = new String[3];
+
+        /** The amount of values of the last range read */
+        private int mNumRangeValues;
+
+        /**
+         * Prepares a tokenizer.
+         * 
+         * @param string
+         *            The string to split
+         */
+        public Tokenizer(final String string) {
+            mString = string;
+        }
+
+        /**
+         * Reads the next word.
+         * 
+         * @return The word or null at the end of the string
+         */
+        public String next() {
+            final int length = mString.length();
+            while (mPos < length && Character.isWhitespace(mString.charAt(mPos))) {
+                ++mPos;
+            }
+            if (mPos == length) {
+                return null;
+            }
+
+            final int start = mPos;
+            while (mPos < length && !Character.isWhitespace(mString.charAt(mPos))) {
+                ++mPos;
+            }
+            return mString.substring(start, mPos);
+        }
+
+        /**
+         * Reads the next word and checks it.
+         * 
+         * @param expected
+         *            The expected word
+         * 
+         * @return True iff the next word is the expected one
+         */
+        public boolean next(final String expected) {
+            return expected.equals(next());
+        }
+
+        /**
+         * Reads a range such as "(28 1 3)" or "(1 3)" and counts the dimensions it covers.
+         * 
+         * @param first
+         *            The first word of the range, starting with the opening parenthesis
+         * 
+         * @return The amount of dimensions of the range
+         */
+        public int rangeDimensions(final String first) {
+            mNumRangeValues = 0;
+            String word = first.substring(1);
+            while (true) {
+                final boolean last = word.endsWith(")");
+                if (last) {
+                    word = word.substring(0, word.length() - 1);
+                }
+                if (!word.isEmpty()) {
+                    if (mNumRangeValues == mRangeValues.length) {
+                        throw new NumberFormatException("Too many values in range");
+                    }
+                    mRangeValues[mNumRangeValues++] = word;
+                }
+                if (last) {
+                    break;
+                }
+                word = next();
+                if (word == null) {
+                    throw new NumberFormatException("Unterminated range");
+                }
+            }
+
+            if (mNumRangeValues == 3) {
+                return Integer.parseInt(mRangeValues[0]);
+            } else if (mNumRangeValues == 2) {
+                return 1;
+            }
+            throw new NumberFormatException("Malformed range");
+        }
+
+        /**
+         * Retrieves the amount of values of the last range read.
+         * 
+         * @return The amount of values, including the repeat count
+         */
+        public int getNumRangeValues() {
+            return mNumRangeValues;
+        }
+
+        /**
+         * Retrieves a value of the last range read.
+         * 
+         * @param index
+         *            The index of the value
+         * 
+         * @return The value
+         */
+        public String getRangeValue(final int index) {
+            return mRangeValues[index];
+        }
+
+        /**
+         * Reads the rest of the string, with single spaces between its words.
+         * 
+         * @return The rest of the string
+         */
+        public String rest() {
+            final StringBuilder rest = new StringBuilder(mString.length() - mPos);
+            for (String word = next(); word != null; word = next()) {
+                if (rest.length() > 0) {
+                    rest.append(' ');
+                }
+                rest.append(word);
+            }
+            return rest.toString();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package nl.uva.species.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.rlcommunity.rlglue.codec.types.Action;
+
+/**
+ * Aggregated outcomes of recorded transitions. A model predicts a habitat's outcome from the
+ * habitat's type and from the actions on and contents of its reach, the reach's parent, siblings
+ * and children. Every distinct combination of those is stored once as a local context, together
+ * with how often each habitat type was observed to turn into each other type within it. This way
+ * a model can be evaluated in time proportional to the amount of distinct contexts, which stops
+ * growing once most contexts have been seen, rather than to the amount of transitions.
+ * 
+ * Adding transitions should not overlap with evaluating models on the statistics.
+ */
+public class TransitionStatistics {
+
+    /** The amount of key entries per reach: its action and the amount of habitats of each type */
+    static final int KEY_STRIDE = 4;
+
+    /** The amount of pairs of initial and resulting habitat types */
+    static final int NUM_OUTCOMES = 9;
+
+    /** The river defining the structure of the transitions */
+    private final River mRiver;
+
+    /** The amount of reaches within the key of each reach's contexts */
+    private final int[] mKeyReaches;
+
+    /** The index of each context by its key */
+    private final HashMap<ContextKey, Integer> mContexts = new HashMap<>();
+
+    /** The amount of distinct contexts */
+    private int mNumContexts;
+
+    /** The amount of recorded transitions */
+    private int mNumTransitions;
+
+    /** The reach of each context */
+    int[] mContextReaches = new int[16];
+
+    /** The position of each context's key within the keys */
+    int[] mKeyOffsets = new int[16];
+
+    /**
+     * The keys of all contexts, context after context. Each key holds an action and the amount of
+     * invaded, native and empty habitats for the reach itself, its parent, its siblings and its
+     * children in that order.
+     */
+    int[] mKeys = new int[64];
+
+    /** How often each outcome was observed in each context, context after context */
+    int[] mCounts = new int[16 * NUM_OUTCOMES];
+
+    /** The amount of key entries in use */
+    private int mKeysLength;
+
+    /**
+     * Prepares empty statistics for transitions within the given river.
+     * 
+     * @param river
+     *            The river defining the structure of the transitions
+     */
+    public TransitionStatistics(final River river) {
+        mRiver = river;
+
+        final int numReaches = river.getNumReaches();
+        final int[] parents = river.getParents();
+        final int[] childOffsets = river.getChildOffsets();
+        final int[] siblingOffsets = river.getSiblingOffsets();
+
+        mKeyReaches = new int[numReaches];
+        for (int index = 0; index < numReaches; ++index) {
+            mKeyReaches[index] = 1 + (parents[index] != -1 ? 1 : 0)
+                    + (siblingOffsets[index + 1] - siblingOffsets[index])
+                    + (childOffsets[index + 1] - childOffsets[index]);
+        }
+    }
+
+    /**
+     * Retrieves the river defining the structure of the transitions.
+     * 
+     * @return The statistics' river
+     */
+    public River getRiver() {
+        return mRiver;
+    }
+
+    /**
+     * Retrieves the amount of distinct local contexts.
+     * 
+     * @return The amount of contexts
+     */
+    public int getNumContexts() {
+        return mNumContexts;
+    }
+
+    /**
+     * Retrieves the amount of recorded transitions.
+     * 
+     * @return The amount of transitions
+     */
+    public int getNumTransitions() {
+        return mNumTransitions;
+    }
+
+    /**
+     * Records a transition.
+     * 
+     * @param state
+     *            The starting state
+     * @param actions
+     *            The performed actions
+     * @param resultState
+     *            The actual resulting state
+     */
+    public void add(final RiverState state, final Action actions, final RiverState resultState) {
+        add(state.getHabitats(), 0, actions.intArray, 0, resultState.getHabitats(), 0);
+    }
+
+    /**
+     * Records a transition read from flat arrays.
+     * 
+     * @param habitats
+     *            The array containing the habitats of the starting state
+     * @param habitatOffset
+     *            The position of the starting state's first habitat within the array
+     * @param actions
+     *            The array containing the action performed on each reach
+     * @param actionOffset
+     *            The position of the first reach's action within the array
+     * @param resultHabitats
+     *            The array containing the actual resulting habitats
+     * @param resultOffset
+     *            The position of the first resulting habitat within the array
+     */
+    public void add(final int[] habitats, final int habitatOffset, final int[] actions,
+            final int actionOffset, final int[] resultHabitats, final int resultOffset) {
+        final int numReaches = mRiver.getNumReaches();
+        final int reachSize = mRiver.getReachSize();
+        final int[] parents = mRiver.getParents();
+        final int[] childOffsets = mRiver.getChildOffsets();
+        final int[] childIndices = mRiver.getChildIndices();
+        final int[] siblingOffsets = mRiver.getSiblingOffsets();
+        final int[] siblingIndices = mRiver.getSiblingIndices();
+
+        // Determine the action and contents of every reach
+        final int[] reachKeys = new int[numReaches * KEY_STRIDE];
+        for (int index = 0; index < numReaches; ++index) {
+            reachKeys[index * KEY_STRIDE] = actions[actionOffset + index];
+            for (int i = index * reachSize; i < (index + 1) * reachSize; ++i) {
+                ++reachKeys[index * KEY_STRIDE + habitats[habitatOffset + i]];
+            }
+        }
+
+        for (int index = 0; index < numReaches; ++index) {
+            final int[] key = new int[mKeyReaches[index] * KEY_STRIDE];
+            int pos = copyReachKey(reachKeys, index, key, 0);
+            if (parents[index] != -1) {
+                pos = copyReachKey(reachKeys, parents[index], key, pos);
+            }
+            for (int i = siblingOffsets[index]; i < siblingOffsets[index + 1]; ++i) {
+                pos = copyReachKey(reachKeys, siblingIndices[i], key, pos);
+            }
+            for (int i = childOffsets[index]; i < childOffsets[index + 1]; ++i) {
+                pos = copyReachKey(reachKeys, childIndices[i], key, pos);
+            }
+
+            // Count the outcome of every habitat within the reach's context
+            final int countOffset = getContext(index, key) * NUM_OUTCOMES;
+            for (int i = index * reachSize; i < (index + 1) * reachSize; ++i) {
+                final int outcome = getOutcome(habitats[habitatOffset + i],
+                        resultHabitats[resultOffset + i]);
+                ++mCounts[countOffset + outcome];
+            }
+        }
+
+        ++mNumTransitions;
+    }
+
+    /**
+     * Retrieves the position of a pair of initial and resulting habitat types within a context's
+     * counts.
+     * 
+     * @param habitat
+     *            The initial habitat type
+     * @param result
+     *            The resulting habitat type
+     * 
+     * @return The position of the outcome
+     */
+    static int getOutcome(final int habitat, final int result) {
+        return (habitat - 1) * 3 + (result - 1);
+    }
+
+    /**
+     * Copies the key entries of a single reach into a context's key.
+     * 
+     * @param reachKeys
+     *            The key entries of all reaches
+     * @param index
+     *            The index of the reach to copy
+     * @param key
+     *            The context's key
+     * @param pos
+     *            The position within the context's key to copy to
+     * 
+     * @return The position after the copied entries
+     */
+    private static int copyReachKey(final int[] reachKeys, final int index, final int[] key,
+            final int pos) {
+        System.arraycopy(reachKeys, index * KEY_STRIDE, key, pos, KEY_STRIDE);
+        return pos + KEY_STRIDE;
+    }
+
+    /**
+     * Finds the index of a context, adding the context if it wasn't seen before.
+     * 
+     * @param index
+     *            The index of the context's reach
+     * @param key
+     *            The context's key
+     * 
+     * @return The index of the context
+     */
+    private int getContext(final int index, final int[] key) {
+        final ContextKey contextKey = new ContextKey(index, key);
+        final Integer context = mContexts.get(contextKey);
+        if (context != null) {
+            return context;
+        }
+
+        if (mNumContexts == mContextReaches.length) {
+            mContextReaches = Arrays.copyOf(mContextReaches, mNumContexts * 2);
+            mKeyOffsets = Arrays.copyOf(mKeyOffsets, mNumContexts * 2);
+            mCounts = Arrays.copyOf(mCounts, mNumContexts * 2 * NUM_OUTCOMES);
+        }
+        if (mKeysLength + key.length > mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, Math.max(mKeys.length * 2, mKeysLength + key.length));
+        }
+
+        mContextReaches[mNumContexts] = index;
+        mKeyOffsets[mNumContexts] = mKeysLength;
+        System.arraycopy(key, 0, mKeys, mKeysLength, key.length);
+        mKeysLength += key.length;
+
+        mContexts.put(contextKey, mNumContexts);
+        return mNumContexts++;
+    }
+
+    /**
+     * The key of a context as used to find it.
+     */
+    private static class ContextKey {
+
+        /** The index of the context's reach */
+        private final int mIndex;
+
+        /** The context's key entries */
+        private final int[] mKey;
+
+        /**
+         * Prepares a key for the given context.
+         * 
+         * @param index
+         *            The index of the context's reach
+         * @param key
+         *            The context's key entries
+         */
+        public ContextKey(final int index, final int[] key) {
+            mIndex = index;
+            mKey = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mIndex + Arrays.hashCode(mKey);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof ContextKey)) {
+                return false;
+            }
+            final ContextKey otherKey = (ContextKey) other;
+            return mIndex == otherKey.mIndex && Arrays.equals(mKey, otherKey.mKey);
+        }
+    }
+}
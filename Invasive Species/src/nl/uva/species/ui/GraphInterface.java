@@ -1,5 +1,6 @@
 package nl.uva.species.ui;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
@@ -135,7 +136,7 @@ public class GraphInterface extends JApplet {
 	 * @param graph
 	 * @param reach
 	 */
-	private void addOrUpdateChildren(final Set<Reach> reaches, final River river, final int currentRiverID,
+	private void addOrUpdateChildren(final Collection<Reach> reaches, final River river, final int currentRiverID,
 			final boolean update) {
 
 		Set<Integer> riverChildrens = river.getStructure().get(currentRiverID);
@@ -60,7 +60,7 @@ public class Utilities {
      * @param state
      * @return
      */
-    public static int getStateId(int[] state) {
+    public static synchronized int getStateId(int[] state) {
         int sid = 0;
 
         List<Integer> s = Arrays.asList(ArrayUtils.toObject(state));
@@ -78,7 +78,7 @@ public class Utilities {
      * @param sid
      * @return
      */
-    public static List<Integer> getStateValue(int sid) {
+    public static synchronized List<Integer> getStateValue(int sid) {
         int index = Arrays.asList(sMap.values().toArray()).indexOf(sid);
         return (List<Integer>) sMap.keySet().toArray()[index];
 
@@ -20,13 +20,33 @@ package org.rlcommunity.rlglue.codec;
 import org.rlcommunity.rlglue.codec.types.Action;
 import org.rlcommunity.rlglue.codec.types.Observation;
 import org.rlcommunity.rlglue.codec.types.Observation_action;
+import org.rlcommunity.rlglue.codec.types.RL_abstract_type;
 
 import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
 
 /**
  * This is a local implementation of RL-Glue. It should be identical in behavior
  * to the RL-Glue code in the C/C++ RLGlueCore project.
+ * <p>
+ * In pooled mode the glue doesn't allocate anything per step: RL_start and
+ * RL_step refill and return the same result holders every time, and the
+ * agent and environment are free to do the same with their observations and
+ * actions.  This comes with the following ownership rules:
+ * <ul>
+ * <li>Every observation, action and result handed out is only valid until the
+ * next call to RL_start or RL_step on this glue.  Copy whatever you want to
+ * keep.</li>
+ * <li>The agent must not keep a reference to an observation it gets, and the
+ * environment must not keep a reference to an action it gets.</li>
+ * <li>The receiver of an observation or action must not modify it.</li>
+ * </ul>
+ * With checking enabled (the default when assertions are enabled) the glue
+ * enforces these rules at some cost: it hands out copies that it poisons once
+ * they are no longer valid, so retained references read obviously invalid
+ * values, and it throws an IllegalStateException when such a copy was written
+ * to after it was handed out.
  * @since 2.03
  * @author btanner
  */
@@ -40,9 +60,53 @@ public class LocalGlue implements RLGlueInterface {
     double totalReward = 0.0d;
     int numEpisodes = 0;
 
+    /** Whether the holders passed around each step are reused. */
+    final boolean pooled;
+    /** Whether the ownership rules of pooled mode are checked. */
+    boolean checkingPool = LocalGlue.class.desiredAssertionStatus();
+    /** The holders returned by RL_start and RL_step in pooled mode. */
+    final Observation_action pooledStart = new Observation_action(null, null);
+    final Reward_observation_action_terminal pooledStep = new Reward_observation_action_terminal(0, null, null, false);
+    /** The copies handed out in turns when checking, and which were last handed out. */
+    final Observation[] checkedObservations = {new Observation(), new Observation()};
+    final Action[] checkedActions = {new Action(), new Action()};
+    int lastCheckedObservation = -1;
+    int lastCheckedAction = -1;
+
     public LocalGlue(EnvironmentInterface E, AgentInterface A) {
+        this(E, A, false);
+    }
+
+    /**
+     * Create a glue that is optionally pooled.
+     * @param E The environment
+     * @param A The agent
+     * @param pooled Whether to reuse the holders passed around each step, see
+     * the class description for the rules that come with it.
+     */
+    public LocalGlue(EnvironmentInterface E, AgentInterface A, boolean pooled) {
         this.E = E;
         this.A = A;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Turn checking of the ownership rules of pooled mode on or off.  Has no
+     * effect if the glue isn't pooled.
+     * @param checking Whether to check
+     */
+    public synchronized void setPoolChecking(boolean checking) {
+        this.checkingPool = checking;
+        for (int i = 0; i < checkedObservations.length; i++) {
+            poison(checkedObservations[i]);
+            poison(checkedActions[i]);
+        }
+        lastCheckedObservation = -1;
+        lastCheckedAction = -1;
+    }
+
+    public boolean isPooled() {
+        return pooled;
     }
 
     public synchronized String RL_env_message(String theString) {
@@ -80,6 +144,11 @@ public class LocalGlue implements RLGlueInterface {
     public synchronized Observation_action RL_start() {
         Observation o = RL_env_start();
         lastAction = RL_agent_start(o);
+        if (pooled) {
+            pooledStart.setObservation(o);
+            pooledStart.setAction(lastAction);
+            return pooledStart;
+        }
         Observation_action ao = new Observation_action(o, lastAction);
         return ao;
     }
@@ -93,14 +162,14 @@ public class LocalGlue implements RLGlueInterface {
         if (o == null) {
             System.err.println("o came back as null from RL_start");
         }
-        return o;
+        return handOut(o);
     }
     public synchronized Action RL_agent_start(Observation theObservation) {
         Action theAction=A.agent_start(theObservation);
             if (theAction == null) {
             System.err.println("theAction came back as null from RL_start");
         }
-        return theAction;
+        return handOut(theAction);
     }
     
     public synchronized Reward_observation_terminal RL_env_step(Action theAction) {
@@ -119,6 +188,9 @@ public class LocalGlue implements RLGlueInterface {
         } else {
             numSteps++;
         }
+        if (pooled && checkingPool && RO.getObservation() != null) {
+            RO.setObservation(handOut(RO.getObservation()));
+        }
         return RO;
     }
 
@@ -128,7 +200,7 @@ public class LocalGlue implements RLGlueInterface {
             if (theAction == null) {
                 System.err.println("theAction came back as null from agent_step");
             }
-        return theAction;
+        return handOut(theAction);
     }
 
     public synchronized void RL_agent_end(double theReward) {
@@ -147,9 +219,100 @@ public class LocalGlue implements RLGlueInterface {
         } else {
            lastAction = RL_agent_step(RO.getReward(), RO.getObservation());
         }
+        if (pooled) {
+            pooledStep.setReward(RO.getReward());
+            pooledStep.setObservation(RO.getObservation());
+            pooledStep.setAction(lastAction);
+            pooledStep.setTerminal(RO.isTerminal());
+            return pooledStep;
+        }
         return new Reward_observation_action_terminal(RO.getReward(), RO.getObservation(), lastAction, RO.isTerminal());
     }
 
+    /**
+     * The observations in the batch are copies, so this is fine in pooled mode too.
+     * @since 2.08
+     */
+    public synchronized Reward_observation_terminal_batch RL_step_batch(int maxSteps, boolean withObservations) {
+        // The episode may end long before maxSteps, the batch grows as needed
+        int capacity = Math.min(maxSteps, Reward_observation_terminal_batch.DEFAULT_CAPACITY);
+        Reward_observation_terminal_batch batch = new Reward_observation_terminal_batch(capacity, withObservations);
+        boolean terminal = false;
+        while (!terminal && (maxSteps == 0 || batch.numSteps < maxSteps)) {
+            Reward_observation_action_terminal step = RL_step();
+            terminal = step.isTerminal();
+            batch.addStep(step.getReward(), withObservations ? new Observation(step.getObservation()) : null, terminal);
+        }
+        return batch;
+    }
+
+    /**
+     * When checking a pooled glue, replace an observation by the next of the
+     * checked copies, poisoning the copy handed out before it.
+     */
+    private Observation handOut(Observation o) {
+        if (!pooled || !checkingPool || o == null) {
+            return o;
+        }
+        lastCheckedObservation = handOut(o, checkedObservations, lastCheckedObservation);
+        return checkedObservations[lastCheckedObservation];
+    }
+
+    /**
+     * When checking a pooled glue, replace an action by the next of the
+     * checked copies, poisoning the copy handed out before it.
+     */
+    private Action handOut(Action a) {
+        if (!pooled || !checkingPool || a == null) {
+            return a;
+        }
+        lastCheckedAction = handOut(a, checkedActions, lastCheckedAction);
+        return checkedActions[lastCheckedAction];
+    }
+
+    /**
+     * Copy a holder into the copy that wasn't handed out last and poison the
+     * one that was, as it is no longer valid.
+     * @return the index of the copy handed out now
+     */
+    private static int handOut(RL_abstract_type original, RL_abstract_type[] copies, int last) {
+        int next = (last + 1) % copies.length;
+        if (last != -1) {
+            if (!isPoisoned(copies[next])) {
+                throw new IllegalStateException("A pooled observation or action was modified after it stopped being valid; it must not be kept or written to by its receiver.");
+            }
+            poison(copies[last]);
+        }
+        copies[next].setSize(original.getNumInts(), original.getNumDoubles(), original.getNumChars());
+        RL_abstract_type.RLStructCopy(original, copies[next]);
+        return next;
+    }
+
+    private static void poison(RL_abstract_type holder) {
+        java.util.Arrays.fill(holder.intArray, Integer.MIN_VALUE);
+        java.util.Arrays.fill(holder.doubleArray, Double.NaN);
+        java.util.Arrays.fill(holder.charArray, Character.MAX_VALUE);
+    }
+
+    private static boolean isPoisoned(RL_abstract_type holder) {
+        for (int value : holder.intArray) {
+            if (value != Integer.MIN_VALUE) {
+                return false;
+            }
+        }
+        for (double value : holder.doubleArray) {
+            if (!Double.isNaN(value)) {
+                return false;
+            }
+        }
+        for (char value : holder.charArray) {
+            if (value != Character.MAX_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public synchronized void RL_cleanup() {
         E.env_cleanup();
         A.agent_cleanup();
@@ -158,16 +321,16 @@ public class LocalGlue implements RLGlueInterface {
 //Btanner: Jan 13 : Changing this to make it more like RL_glue.c
 //Btanner: Sept 19 2008 : Re-ported directly from RL_glue.c
     public synchronized int RL_episode(int maxStepsThisEpisode) {
-        Reward_observation_action_terminal rlStepResult = new Reward_observation_action_terminal(0, null, null, 0);
+        int terminal = 0;
         int currentStep = 0;
         RL_start();
         /* RL_start sets current step to 1, so we should start x at 1 */
-        for (currentStep = 1; rlStepResult.terminal != 1 && (maxStepsThisEpisode == 0 ? true : currentStep < maxStepsThisEpisode); currentStep++) {
-            rlStepResult = RL_step();
+        for (currentStep = 1; terminal != 1 && (maxStepsThisEpisode == 0 ? true : currentStep < maxStepsThisEpisode); currentStep++) {
+            terminal = RL_step().terminal;
         }
 
         /*Return the value of terminal to tell the caller whether the episode ended naturally or was cut off*/
-        return rlStepResult.terminal;
+        return terminal;
     }
 
     public synchronized int RL_num_episodes() {
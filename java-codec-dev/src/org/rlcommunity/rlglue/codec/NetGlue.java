@@ -33,6 +33,7 @@ import org.rlcommunity.rlglue.codec.types.Observation_action;
 import org.rlcommunity.rlglue.codec.types.RL_abstract_type;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
 
 /**
  * This is the network connection for an experiment program that will talk to the 
@@ -169,6 +170,33 @@ public class NetGlue implements RLGlueInterface {
         return roat;
     }
 
+    /**
+     * Sent as a single kRLStepBatch message, which only a GlueServer
+     * understands; the C rl_glue core doesn't.
+     * @since 2.08
+     */
+    public synchronized Reward_observation_terminal_batch RL_step_batch(int maxSteps, boolean withObservations) {
+        try {
+            network.clearSendBuffer();
+            network.putInt(Network.kRLStepBatch);
+            network.putInt(2 * Network.kIntSize);
+            network.putInt(maxSteps);
+            network.putInt(withObservations ? 1 : 0);
+            network.flipSendBuffer();
+            network.send();
+
+            doStandardRecv(Network.kRLStepBatch);
+        } catch (IOException ioException) {
+            ioException.printStackTrace();
+           System.exit(1);
+        } catch (NullPointerException nullException) {
+            System.err.println("You must call RL_init before calling RL_step_batch");
+            nullException.printStackTrace();
+           System.exit(1);
+        }
+        return network.getRewardObservationBatch();
+    }
+
     public synchronized void RL_cleanup() {
         sendEmpty(Network.kRLCleanup, "RL_cleanup");
     }
@@ -265,25 +293,8 @@ public class NetGlue implements RLGlueInterface {
      * @throws java.io.IOException
      */
     private synchronized void doStandardRecv(int state) throws IOException {
-        network.clearRecvBuffer();
         try{
-        int actualRecvSize=network.recv(8);
-        int recvSizeWithoutHeader = actualRecvSize-8;
-
-        int glueState = network.getInt(0);
-        int dataSize = network.getInt(Network.kIntSize);
-        int remaining = dataSize - recvSizeWithoutHeader;
-
-        if (remaining < 0) {
-            remaining = 0;
-        }
-        int remainingReceived = network.recv(remaining);
-
-        network.flipRecvBuffer();
-
-        // Discard the header - we should have a more elegant method for doing this.
-        network.getInt();
-        network.getInt();
+        int glueState = network.recvMessage();
 
         if (glueState != state) {
             System.err.println("Not synched with server. glueState = " + glueState + " but should be " + state);
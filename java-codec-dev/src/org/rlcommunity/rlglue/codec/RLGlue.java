@@ -22,6 +22,7 @@ import org.rlcommunity.rlglue.codec.types.Observation;
 import org.rlcommunity.rlglue.codec.types.Observation_action;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
 
 /**
  * This is the main RLGlue interface class for Experiment Programs.
@@ -250,6 +251,26 @@ public class RLGlue {
         currentEpisodeOver = (stepResponse.terminal == 1);
         return stepResponse;
     }
+    /**
+     * Codec extension: up to maxSteps calls of RL_step (0 for the rest of the
+     * episode) in one go.  Only NetGlue talking to a GlueServer understands
+     * it on the network, the C rl_glue core doesn't.
+     * @since 2.08
+     */
+    public static Reward_observation_terminal_batch RL_step_batch(int maxSteps, boolean withObservations) {
+        checkInstance();
+        if (!inited) {
+            System.err.println("-- Warning From RLGlue :: RL_step_batch() was called without RL_init().");
+        }
+        Reward_observation_terminal_batch batchResponse = instance.RL_step_batch(maxSteps, withObservations);
+        if (batchResponse == null) {
+            System.err.println("-- Warning From RLGlue :: RL_step_batch() response was NULL, that should be impossible.");
+            batchResponse = new Reward_observation_terminal_batch();
+        }
+
+        currentEpisodeOver = batchResponse.isTerminal();
+        return batchResponse;
+    }
     /**
      * RL-Glue Core Method.
      */
@@ -24,6 +24,7 @@ import org.rlcommunity.rlglue.codec.types.Observation;
 import org.rlcommunity.rlglue.codec.types.Observation_action;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
 
 /**
  * This is the definition of an RLGlue 'engine'.  The network codec is one such engine.
@@ -48,4 +49,12 @@ public interface RLGlueInterface {
 	public int RL_num_steps();
 	public int RL_num_episodes();
 	public int RL_episode(int numSteps);
+        /**
+         * Take up to maxSteps steps (0 for the rest of the episode) in one call,
+         * stopping at the end of the episode.
+         * @param maxSteps
+         * @param withObservations Whether to return the observation after every step.
+         * @since 2.08
+         */
+        public Reward_observation_terminal_batch RL_step_batch(int maxSteps, boolean withObservations);
 }
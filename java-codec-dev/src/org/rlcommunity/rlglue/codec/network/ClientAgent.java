@@ -37,6 +37,9 @@ public class ClientAgent {
     protected AgentInterface agent;
     protected boolean killedFromLocalProcess = false;
     private boolean debug = false;
+    /** Whether every observation is read into pooledObservation. */
+    protected final boolean pooled;
+    protected final Observation pooledObservation = new Observation();
 
     /**
      *If you are using ClientAgent in a local context (like from Matlab)
@@ -47,11 +50,32 @@ public class ClientAgent {
     }
 
     public ClientAgent(AgentInterface agent) {
+        this(agent, false);
+    }
+
+    /**
+     * In pooled mode every observation is read into the same Observation, so
+     * receiving observations of the same size doesn't allocate.  The agent
+     * must then copy whatever it wants to keep of an observation, because it
+     * is overwritten by the next one.
+     * @param agent
+     * @param pooled
+     * @since 2.08
+     */
+    public ClientAgent(AgentInterface agent, boolean pooled) {
         this.agent = agent;
         assert agent != null : "agent null in ClientAgent constructor";
+        this.pooled = pooled;
         this.network = new Network();
     }
 
+    private Observation getObservation() {
+        if (pooled) {
+            return network.getObservation(pooledObservation);
+        }
+        return network.getObservation();
+    }
+
     protected void onAgentInit() throws UnsupportedEncodingException {
         String taskSpec = network.getString();
 
@@ -68,7 +92,7 @@ public class ClientAgent {
         if (debug) {
             System.out.println("\tonAgentStart()");
         }
-        Observation observation = network.getObservation();
+        Observation observation = getObservation();
         if (debug) {
             System.out.println("\t\tgot observation");
         }
@@ -87,7 +111,7 @@ public class ClientAgent {
 
     protected void onAgentStep() {
         double reward = network.getDouble();
-        Observation observation = network.getObservation();
+        Observation observation = getObservation();
         Action action = agent.agent_step(reward, observation);
 
         int size = Network.sizeOf(action);
@@ -146,44 +170,26 @@ public class ClientAgent {
         network.close();
     }
 
+    /**
+     * @return the connection to RL-Glue, which keeps the message latencies
+     * @since 2.08
+     */
+    public Network getNetwork() {
+        return network;
+    }
+
     public void runAgentEventLoop() throws Exception {
         int agentState = 0;
-        int dataSize = 0;
-        int recvSize = 0;
-        int remaining = 0;
 
         do {
-
-            network.clearRecvBuffer();
-
-
             try {
-                recvSize = network.recv(8) - 8; // We may have received the header and part of the payload
-                // We need to keep track of how much of the payload was recv'd
-
-
-                agentState = network.getInt(0);
-                dataSize = network.getInt(Network.kIntSize);
-
-                remaining = dataSize - recvSize;
-                if (remaining < 0) {
-                    System.out.println("Remaining was less than 0!");
-                    remaining = 0;
-                }
+                // Reads the header and the whole payload, parking until it has arrived
+                agentState = network.recvMessage();
             } catch (RLGlueDisconnectException e) {
                 System.err.println(e.getMessage());
                System.exit(1);
             }
 
-
-            int amountReceived = network.recv(remaining);
-
-            network.flipRecvBuffer();
-
-            // We have already received the header, now we need to discard it.
-            network.getInt();
-            network.getInt();
-
             switch (agentState) {
                 case Network.kAgentInit:
                     onAgentInit();
@@ -37,12 +37,27 @@ public class ClientEnvironment {
     protected Network network;
     protected EnvironmentInterface env;
     protected volatile boolean killedFromAbove = false;
+    /** Whether every action is read into pooledAction. */
+    protected final boolean pooled;
+    protected final Action pooledAction = new Action();
 
     public ClientEnvironment(EnvironmentInterface env) {
+        this(env, false);
+    }
+
+    /**
+     * In pooled mode every action is read into the same Action, so receiving
+     * actions of the same size doesn't allocate.  The environment must then
+     * copy whatever it wants to keep of an action, because it is overwritten
+     * by the next one.
+     * @param env
+     * @param pooled
+     * @since 2.08
+     */
+    public ClientEnvironment(EnvironmentInterface env, boolean pooled) {
         this.env = env;
         assert env != null : "env null in ClientEnvironment constructor";
-        ;
-
+        this.pooled = pooled;
         this.network = new Network();
     }
 
@@ -65,7 +80,7 @@ public class ClientEnvironment {
     }
 
     protected void onEnvStep() {
-        Action action = network.getAction();
+        Action action = pooled ? network.getAction(pooledAction) : network.getAction();
         Reward_observation_terminal rewardObservation = env.env_step(action);
 
         network.clearSendBuffer();
@@ -106,38 +121,26 @@ public class ClientEnvironment {
         network.close();
     }
 
+    /**
+     * @return the connection to RL-Glue, which keeps the message latencies
+     * @since 2.08
+     */
+    public Network getNetwork() {
+        return network;
+    }
+
     public void runEnvironmentEventLoop() throws Exception {
         int envState = 0;
-        int dataSize = 0;
-        int recvSize = 0;
-        int remaining = 0;
 
         do {
             try {
-                network.clearRecvBuffer();
-                recvSize = network.recv(8) - 8; // We may have received the header and part of the payload
-                // We need to keep track of how much of the payload was recv'd
-
-                envState = network.getInt(0);
-                dataSize = network.getInt(Network.kIntSize);
-
-                remaining = dataSize - recvSize;
-                if (remaining < 0) {
-                    remaining = 0;
-                }
-
-                network.recv(remaining);
+                // Reads the header and the whole payload, parking until it has arrived
+                envState = network.recvMessage();
             } catch (RLGlueDisconnectException e) {
                 System.err.println(e.getMessage());
                System.exit(1);
             }
 
-            network.flipRecvBuffer();
-
-            // We have already received the header, now we need to discard it.
-            network.getInt();
-            network.getInt();
-
             switch (envState) {
                 case Network.kEnvInit:
                     onEnvInit();
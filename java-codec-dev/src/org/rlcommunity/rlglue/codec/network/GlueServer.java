@@ -0,0 +1,251 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import org.rlcommunity.rlglue.codec.RLGlueInterface;
+
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Observation_action;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
+
+/**
+ * A Java stand-in for the rl_glue core on the experiment side: it accepts a
+ * connection from a NetGlue and answers every call with a local glue, usually
+ * a LocalGlue with the agent and environment in this JVM.  Besides the
+ * standard calls it understands the kRLStepBatch extension, so it is the
+ * reference glue for RL_step_batch.
+ * <pre>
+ *     GlueServer server = new GlueServer(new LocalGlue(env, agent), Network.kDefaultPort);
+ *     server.run();
+ * </pre>
+ * @since 2.08
+ */
+public class GlueServer implements Runnable {
+
+    protected static final String kUnknownMessage = "GlueServer.java :: Unknown Message: ";
+    protected final RLGlueInterface glue;
+    private final ServerSocketChannel serverChannel;
+    protected Network network;
+    private volatile boolean killedFromAbove = false;
+
+    /**
+     * Listen for an experiment on port (0 picks a free port, see getPort).
+     * @param glue The glue that answers the calls.
+     * @param port
+     * @throws java.io.IOException
+     */
+    public GlueServer(RLGlueInterface glue, int port) throws IOException {
+        this.glue = glue;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(port));
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the connection to the experiment, which keeps the message
+     * latencies, or null before the experiment connected.
+     */
+    public Network getNetwork() {
+        return network;
+    }
+
+    public void killProcess() {
+        killedFromAbove = true;
+    }
+
+    /**
+     * Accepts an experiment connection and serves it until the experiment
+     * disconnects.
+     * @throws java.io.IOException
+     */
+    public void serve() throws IOException {
+        network = new Network(serverChannel.accept());
+        serverChannel.close();
+
+        int connectionType = network.recvMessage();
+        if (connectionType != Network.kExperimentConnection) {
+            network.close();
+            throw new IOException("Expected an experiment connection but got: " + connectionType);
+        }
+
+        try {
+            while (!killedFromAbove) {
+                int glueState = network.recvMessage();
+                network.clearSendBuffer();
+                switch (glueState) {
+                    case Network.kRLInit:
+                        onRLInit();
+                        break;
+                    case Network.kRLStart:
+                        onRLStart();
+                        break;
+                    case Network.kRLEnvStart:
+                        onRLEnvStart();
+                        break;
+                    case Network.kRLEnvStep:
+                        onRLEnvStep();
+                        break;
+                    case Network.kRLAgentStart:
+                        onRLAgentStart();
+                        break;
+                    case Network.kRLAgentStep:
+                        onRLAgentStep();
+                        break;
+                    case Network.kRLAgentEnd:
+                        glue.RL_agent_end(network.getDouble());
+                        putHeader(Network.kRLAgentEnd, 0);
+                        break;
+                    case Network.kRLStep:
+                        onRLStep();
+                        break;
+                    case Network.kRLStepBatch:
+                        onRLStepBatch();
+                        break;
+                    case Network.kRLCleanup:
+                        glue.RL_cleanup();
+                        putHeader(Network.kRLCleanup, 0);
+                        break;
+                    case Network.kRLAgentMessage:
+                        onMessage(Network.kRLAgentMessage, glue.RL_agent_message(network.getString()));
+                        break;
+                    case Network.kRLEnvMessage:
+                        onMessage(Network.kRLEnvMessage, glue.RL_env_message(network.getString()));
+                        break;
+                    case Network.kRLReturn:
+                        putHeader(Network.kRLReturn, Network.kDoubleSize);
+                        network.putDouble(glue.RL_return());
+                        break;
+                    case Network.kRLNumSteps:
+                        putHeader(Network.kRLNumSteps, Network.kIntSize);
+                        network.putInt(glue.RL_num_steps());
+                        break;
+                    case Network.kRLNumEpisodes:
+                        putHeader(Network.kRLNumEpisodes, Network.kIntSize);
+                        network.putInt(glue.RL_num_episodes());
+                        break;
+                    case Network.kRLEpisode:
+                        int exitStatus = glue.RL_episode(network.getInt());
+                        putHeader(Network.kRLEpisode, Network.kIntSize);
+                        network.putInt(exitStatus);
+                        break;
+                    default:
+                        throw new IOException(kUnknownMessage + glueState);
+                }
+                network.flipSendBuffer();
+                network.send();
+            }
+        } catch (RLGlueDisconnectException e) {
+            //The experiment is done
+        } finally {
+            network.close();
+        }
+    }
+
+    public void run() {
+        try {
+            serve();
+        } catch (IOException e) {
+            System.err.println("GlueServer run() threw Exception: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the server socket if no experiment connected yet.
+     * @throws java.io.IOException
+     */
+    public void close() throws IOException {
+        serverChannel.close();
+    }
+
+    private void putHeader(int state, int size) {
+        network.putInt(state);
+        network.putInt(size);
+    }
+
+    private void onRLInit() throws IOException {
+        String taskSpec = glue.RL_init();
+        putHeader(Network.kRLInit, Network.sizeOf(taskSpec));
+        network.putString(taskSpec);
+    }
+
+    private void onRLStart() {
+        Observation_action obsact = glue.RL_start();
+        putHeader(Network.kRLStart, Network.sizeOf(obsact.o) + Network.sizeOf(obsact.a));
+        network.putObservation(obsact.o);
+        network.putAction(obsact.a);
+    }
+
+    private void onRLEnvStart() {
+        Observation obs = glue.RL_env_start();
+        putHeader(Network.kRLEnvStart, Network.sizeOf(obs));
+        network.putObservation(obs);
+    }
+
+    private void onRLEnvStep() {
+        Reward_observation_terminal rot = glue.RL_env_step(network.getAction());
+        putHeader(Network.kRLEnvStep, Network.sizeOf(rot));
+        network.putRewardObservation(rot);
+    }
+
+    private void onRLAgentStart() {
+        Action action = glue.RL_agent_start(network.getObservation());
+        putHeader(Network.kRLAgentStart, Network.sizeOf(action));
+        network.putAction(action);
+    }
+
+    private void onRLAgentStep() {
+        double reward = network.getDouble();
+        Action action = glue.RL_agent_step(reward, network.getObservation());
+        putHeader(Network.kRLAgentStep, Network.sizeOf(action));
+        network.putAction(action);
+    }
+
+    private void onRLStep() {
+        Reward_observation_action_terminal roat = glue.RL_step();
+        putHeader(Network.kRLStep, Network.kIntSize + Network.kDoubleSize + Network.sizeOf(roat.o) + Network.sizeOf(roat.a));
+        network.putInt(roat.terminal);
+        network.putDouble(roat.r);
+        network.putObservation(roat.o);
+        network.putAction(roat.a);
+    }
+
+    private void onRLStepBatch() {
+        int maxSteps = network.getInt();
+        boolean withObservations = network.getInt() == 1;
+        Reward_observation_terminal_batch batch = glue.RL_step_batch(maxSteps, withObservations);
+        putHeader(Network.kRLStepBatch, Network.sizeOf(batch));
+        network.putRewardObservationBatch(batch);
+    }
+
+    private void onMessage(int state, String reply) throws IOException {
+        putHeader(state, Network.sizeOf(reply));
+        network.putString(reply);
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.network;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.rlcommunity.rlglue.codec.AgentInterface;
+
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+
+/**
+ * The core side of a kMultiplexedAgentConnection, standing in for rl_glue.
+ * It accepts one connection from a MultiplexedClientAgent, and every call to
+ * openSession gives an AgentInterface whose calls are forwarded to a separate
+ * agent on the other side.  The sessions can be used from different threads
+ * at the same time, for example each with its own LocalGlue:
+ * <pre>
+ *     MultiplexedAgentServer server = new MultiplexedAgentServer(Network.kDefaultPort);
+ *     server.accept();
+ *     LocalGlue glue = new LocalGlue(new MyEnvironment(), server.openSession());
+ * </pre>
+ * Calls are written under a lock and a single reader thread hands every reply
+ * to the session it belongs to, so 64 agents take one socket, one thread on
+ * the agent side and one reader thread here.
+ * @since 2.08
+ */
+public class MultiplexedAgentServer {
+
+    private final ServerSocketChannel serverChannel;
+    /** Only used by the reader thread. */
+    private Network recvNetwork;
+    /** Guarded by itself. */
+    private Network sendNetwork;
+    private final Map<Integer, Session> sessions = new HashMap<Integer, Session>();
+    private int nextSession = 0;
+    private volatile IOException failure = null;
+
+    /**
+     * Listen for the agent side on port (0 picks a free port, see getPort).
+     * @param port
+     * @throws java.io.IOException
+     */
+    public MultiplexedAgentServer(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(port));
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Waits for the agent side to connect and starts handing out the replies.
+     * @throws java.io.IOException if the connection is not a multiplexed agent connection.
+     */
+    public void accept() throws IOException {
+        recvNetwork = new Network(serverChannel.accept());
+        sendNetwork = new Network(recvNetwork.socketChannel);
+
+        int connectionType = recvNetwork.recvMessage();
+        if (connectionType != Network.kMultiplexedAgentConnection) {
+            recvNetwork.close();
+            throw new IOException("Expected a multiplexed agent connection but got: " + connectionType);
+        }
+
+        Thread reader = new Thread("MultiplexedAgentServer reader") {
+
+            public void run() {
+                readReplies();
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return A new agent on the other side of the connection.
+     */
+    public synchronized AgentInterface openSession() {
+        Session theSession = new Session(nextSession++);
+        sessions.put(theSession.id, theSession);
+        return theSession;
+    }
+
+    /**
+     * Drops the agent of a session on the other side; the session can't be
+     * used anymore afterwards.
+     * @param session An agent returned by openSession
+     */
+    public void closeSession(AgentInterface session) {
+        Session theSession = (Session) session;
+        theSession.terminate();
+        synchronized (this) {
+            sessions.remove(theSession.id);
+        }
+    }
+
+    /**
+     * @return the number of sessions that are open
+     */
+    public synchronized int getNumSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Tells the agent side to stop and closes the connection.
+     * @throws java.io.IOException
+     */
+    public void close() throws IOException {
+        if (sendNetwork != null && failure == null) {
+            synchronized (sendNetwork) {
+                sendNetwork.clearSendBuffer();
+                sendNetwork.putInt(Network.kRLTerm);
+                sendNetwork.putInt(Network.kIntSize);
+                sendNetwork.putInt(Network.kAllSessions);
+                sendNetwork.flipSendBuffer();
+                sendNetwork.send();
+            }
+            sendNetwork.close();
+        }
+        serverChannel.close();
+    }
+
+    private void readReplies() {
+        try {
+            while (true) {
+                int state = recvNetwork.recvMessage();
+                int session = recvNetwork.getInt();
+
+                Object value = null;
+                if (state == Network.kAgentStart || state == Network.kAgentStep) {
+                    value = recvNetwork.getAction();
+                } else if (state == Network.kAgentMessage) {
+                    value = recvNetwork.getString();
+                }
+
+                Session theSession;
+                synchronized (this) {
+                    theSession = sessions.get(session);
+                }
+                if (theSession == null) {
+                    throw new IOException("Reply for unknown session: " + session);
+                }
+                theSession.replies.add(new Reply(state, value));
+            }
+        } catch (IOException e) {
+            //Also ends up here when the connection is closed. Wake up everybody
+            //still waiting for a reply.
+            failure = e;
+            synchronized (this) {
+                for (Session theSession : sessions.values()) {
+                    theSession.replies.offer(new Reply(-1, e));
+                }
+            }
+        }
+    }
+
+    private static class Reply {
+
+        final int state;
+        final Object value;
+
+        Reply(int state, Object value) {
+            this.state = state;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Forwards every call to the agent of one session and waits for its reply.
+     * At most one call of a session is outstanding at a time.
+     */
+    private class Session implements AgentInterface {
+
+        final int id;
+        final BlockingQueue<Reply> replies = new ArrayBlockingQueue<Reply>(1);
+
+        Session(int id) {
+            this.id = id;
+        }
+
+        /** Call while holding the lock on sendNetwork. */
+        private void putHeader(int state, int size) {
+            sendNetwork.clearSendBuffer();
+            sendNetwork.putInt(state);
+            sendNetwork.putInt(Network.kIntSize + size);
+            sendNetwork.putInt(id);
+        }
+
+        /** Call while holding the lock on sendNetwork. */
+        private void putString(String theString) {
+            try {
+                sendNetwork.putString(theString);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** Call while holding the lock on sendNetwork. */
+        private void send() {
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                sendNetwork.flipSendBuffer();
+                sendNetwork.send();
+            } catch (IOException e) {
+                throw new IllegalStateException("Session " + id + " lost its connection", e);
+            }
+        }
+
+        private Object await(int state) {
+            Reply theReply;
+            try {
+                theReply = replies.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for session " + id, e);
+            }
+            if (theReply.state == -1) {
+                throw new IllegalStateException("Session " + id + " lost its connection", (IOException) theReply.value);
+            }
+            if (theReply.state != state) {
+                throw new IllegalStateException("Not synched with session " + id + ". state = " + theReply.state + " but should be " + state);
+            }
+            return theReply.value;
+        }
+
+        public void agent_init(String taskSpecification) {
+            synchronized (sendNetwork) {
+                putHeader(Network.kAgentInit, Network.sizeOf(taskSpecification));
+                putString(taskSpecification);
+                send();
+            }
+            await(Network.kAgentInit);
+        }
+
+        public Action agent_start(Observation observation) {
+            synchronized (sendNetwork) {
+                putHeader(Network.kAgentStart, Network.sizeOf(observation));
+                sendNetwork.putObservation(observation);
+                send();
+            }
+            return (Action) await(Network.kAgentStart);
+        }
+
+        public Action agent_step(double reward, Observation observation) {
+            synchronized (sendNetwork) {
+                putHeader(Network.kAgentStep, Network.kDoubleSize + Network.sizeOf(observation));
+                sendNetwork.putDouble(reward);
+                sendNetwork.putObservation(observation);
+                send();
+            }
+            return (Action) await(Network.kAgentStep);
+        }
+
+        public void agent_end(double reward) {
+            synchronized (sendNetwork) {
+                putHeader(Network.kAgentEnd, Network.kDoubleSize);
+                sendNetwork.putDouble(reward);
+                send();
+            }
+            await(Network.kAgentEnd);
+        }
+
+        public void agent_cleanup() {
+            synchronized (sendNetwork) {
+                putHeader(Network.kAgentCleanup, 0);
+                send();
+            }
+            await(Network.kAgentCleanup);
+        }
+
+        public String agent_message(String message) {
+            synchronized (sendNetwork) {
+                putHeader(Network.kAgentMessage, Network.sizeOf(message));
+                putString(message);
+                send();
+            }
+            return (String) await(Network.kAgentMessage);
+        }
+
+        /** Drops the agent on the other side. */
+        void terminate() {
+            synchronized (sendNetwork) {
+                putHeader(Network.kRLTerm, 0);
+                send();
+            }
+            await(Network.kRLTerm);
+        }
+    }
+}
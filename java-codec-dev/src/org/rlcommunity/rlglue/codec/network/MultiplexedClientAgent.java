@@ -0,0 +1,205 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.network;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import org.rlcommunity.rlglue.codec.AgentInterface;
+
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+
+/**
+ * Serves many agents over a single connection, on a single thread.  This is
+ * the agent side of the kMultiplexedAgentConnection extension: every message
+ * carries a session id and is routed to the agent of that session.  An agent
+ * is created by the factory when the first message for a new session arrives
+ * and is dropped again after a kRLTerm for its session.  A kRLTerm for
+ * Network.kAllSessions ends the event loop.
+ *
+ * The C rl_glue core doesn't speak this extension; the other side of the
+ * connection is a MultiplexedAgentServer.
+ * @since 2.08
+ */
+public class MultiplexedClientAgent {
+
+    /**
+     * Creates the agent for a new session.
+     */
+    public interface AgentFactory {
+
+        AgentInterface createAgent(int session);
+    }
+    protected static final String kUnknownMessage = "MultiplexedClientAgent.java :: Unknown Message: ";
+    protected Network network;
+    protected AgentFactory factory;
+    protected Map<Integer, AgentInterface> agents = new HashMap<Integer, AgentInterface>();
+    protected volatile boolean killedFromLocalProcess = false;
+
+    public MultiplexedClientAgent(AgentFactory factory) {
+        this.factory = factory;
+        assert factory != null : "factory null in MultiplexedClientAgent constructor";
+        this.network = new Network();
+    }
+
+    public void killProcess() {
+        killedFromLocalProcess = true;
+    }
+
+    /**
+     * @return the connection to the server, which keeps the message latencies
+     */
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return the number of sessions that currently have an agent
+     */
+    public int getNumSessions() {
+        return agents.size();
+    }
+
+    public void connect(String host, int port, int timeout) throws Exception {
+        network.connect(host, port, timeout);
+        network.clearSendBuffer();
+        network.putInt(Network.kMultiplexedAgentConnection);
+        network.putInt(0); // No body to this packet
+        network.flipSendBuffer();
+        network.send();
+    }
+
+    public void close() throws IOException {
+        network.close();
+    }
+
+    /**
+     * Starts the reply: the header, with the session id counted in the size.
+     */
+    private void putHeader(int state, int session, int size) {
+        network.clearSendBuffer();
+        network.putInt(state);
+        network.putInt(Network.kIntSize + size);
+        network.putInt(session);
+    }
+
+    protected void onAgentInit(AgentInterface agent, int session) throws UnsupportedEncodingException {
+        String taskSpec = network.getString();
+        agent.agent_init(taskSpec);
+        putHeader(Network.kAgentInit, session, 0);
+    }
+
+    protected void onAgentStart(AgentInterface agent, int session) {
+        Observation observation = network.getObservation();
+        Action action = agent.agent_start(observation);
+        putHeader(Network.kAgentStart, session, Network.sizeOf(action));
+        network.putAction(action);
+    }
+
+    protected void onAgentStep(AgentInterface agent, int session) {
+        double reward = network.getDouble();
+        Observation observation = network.getObservation();
+        Action action = agent.agent_step(reward, observation);
+        putHeader(Network.kAgentStep, session, Network.sizeOf(action));
+        network.putAction(action);
+    }
+
+    protected void onAgentEnd(AgentInterface agent, int session) {
+        double reward = network.getDouble();
+        agent.agent_end(reward);
+        putHeader(Network.kAgentEnd, session, 0);
+    }
+
+    protected void onAgentCleanup(AgentInterface agent, int session) {
+        agent.agent_cleanup();
+        putHeader(Network.kAgentCleanup, session, 0);
+    }
+
+    protected void onAgentMessage(AgentInterface agent, int session) throws UnsupportedEncodingException {
+        String message = network.getString();
+        String reply = agent.agent_message(message);
+        putHeader(Network.kAgentMessage, session, Network.sizeOf(reply));
+        network.putString(reply);
+    }
+
+    public void runAgentEventLoop() throws Exception {
+        while (!killedFromLocalProcess) {
+            int agentState = 0;
+            int session = 0;
+            try {
+                agentState = network.recvMessage();
+                session = network.getInt();
+            } catch (RLGlueDisconnectException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+
+            if (agentState == Network.kRLTerm && session == Network.kAllSessions) {
+                break;
+            }
+
+            AgentInterface agent = agents.get(session);
+            if (agent == null && agentState != Network.kRLTerm) {
+                agent = factory.createAgent(session);
+                agents.put(session, agent);
+            }
+
+            switch (agentState) {
+                case Network.kAgentInit:
+                    onAgentInit(agent, session);
+                    break;
+
+                case Network.kAgentStart:
+                    onAgentStart(agent, session);
+                    break;
+
+                case Network.kAgentStep:
+                    onAgentStep(agent, session);
+                    break;
+
+                case Network.kAgentEnd:
+                    onAgentEnd(agent, session);
+                    break;
+
+                case Network.kAgentCleanup:
+                    onAgentCleanup(agent, session);
+                    break;
+
+                case Network.kAgentMessage:
+                    onAgentMessage(agent, session);
+                    break;
+
+                case Network.kRLTerm:
+                    agents.remove(session);
+                    putHeader(Network.kRLTerm, session, 0);
+                    break;
+
+                default:
+                    System.err.println(kUnknownMessage + agentState);
+                    System.exit(1);
+                    break;
+            }
+
+            network.flipSendBuffer();
+            network.send();
+        }
+    }
+}
@@ -27,6 +27,8 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 
 import java.util.logging.Level;
@@ -35,6 +37,7 @@ import org.rlcommunity.rlglue.codec.types.Action;
 import org.rlcommunity.rlglue.codec.types.Observation;
 import org.rlcommunity.rlglue.codec.types.RL_abstract_type;
 import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
 
 /**
  * This class does the heavy lifting of sendig and receiving data over the
@@ -47,6 +50,15 @@ import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
  * experiment all from the same Thread in Java.  But why would you do that?
  * You would have them in different Threads or preferably different processes, so
  * none of this matters.
+ *
+ * In NON-BLOCKING mode, whenever recv or send can't make progress the calling
+ * thread is parked in a Selector until the socket is ready instead of spinning,
+ * so a codec that is waiting for the other side (an agent waiting while the
+ * environment thinks) doesn't use any CPU.  In BLOCKING mode the reads park by
+ * themselves.  recvMessage reads a whole message (header and payload) into
+ * the receive buffer, usually with a single read because the buffers keep the
+ * size of the largest message seen so far.  It also keeps track of how long
+ * every message took, see getLatencyReport.
  * @author btanner
  */
 public class Network {
@@ -81,6 +93,28 @@ public class Network {
     public static final int kRLAgentStart = 38;
     public static final int kRLAgentStep = 39;
     public static final int kRLAgentEnd = 40;
+    /**
+     * Codec extension, not understood by the C rl_glue core: the connection
+     * carries many agent sessions.  Every message on it has the session id as
+     * the first int of its payload (included in the size in the header).
+     * @since 2.08
+     */
+    public static final int kMultiplexedAgentConnection = 41;
+    /**
+     * Session id of a kRLTerm that ends a multiplexed connection as a whole.
+     * @since 2.08
+     */
+    public static final int kAllSessions = -1;
+    /**
+     * Codec extension, not understood by the C rl_glue core: run up to a
+     * number of steps (0 for the rest of the episode) in one call.  The
+     * payload is that number and whether to send back the observations
+     * (0 or 1).  The reply is the number of steps taken, terminal, whether
+     * observations follow, the rewards as doubles and then the observations.
+     * A GlueServer understands it.
+     * @since 2.08
+     */
+    public static final int kRLStepBatch = 42;
     public static final String kDefaultHost = "127.0.0.1";
     public static final int kDefaultPort = 4096;
     public static final int kRetryTimeout = 2;
@@ -94,12 +128,42 @@ public class Network {
     private ByteBuffer recvBuffer;
     private ByteBuffer sendBuffer;
     private boolean debug = false;
+    private Selector selector = null;
+    private SelectionKey selectionKey = null;
+    /** Number of messages received with recvMessage. */
+    private long numMessages = 0;
+    /** Time between starting to wait for a message and having all of it. */
+    private long lastWaitNanos = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+    /** Time between having a message and having sent the reply to it. */
+    private long lastServiceNanos = 0;
+    private long totalServiceNanos = 0;
+    private long maxServiceNanos = 0;
+    /** When the last message was received, or -1 if it has been replied to. */
+    private long lastRecvTime = -1;
+    /** Where the message returned by recvMessage ends in the receive buffer. */
+    private int recvMessageEnd = 0;
+    /** Bytes of following messages that recvMessage read after recvMessageEnd. */
+    private int recvPending = 0;
 
     public Network() {
         recvBuffer = ByteBuffer.allocateDirect(kByteBufferDefaultSize);
         sendBuffer = ByteBuffer.allocateDirect(kByteBufferDefaultSize);
     }
 
+    /**
+     * Use a channel that is already connected, for example one accepted by a
+     * server socket.
+     * @param connectedChannel
+     * @since 2.08
+     */
+    public Network(SocketChannel connectedChannel) throws IOException {
+        this();
+        socketChannel = connectedChannel;
+        socketChannel.socket().setTcpNoDelay(true);
+    }
+
     public void connect(String host, int port, int retryTimeout) {
         connect(host, port, retryTimeout, true);
     }
@@ -142,10 +206,37 @@ public class Network {
         boolean actuallyDidConnect = false;
         socketChannel = SocketChannel.open();
         socketChannel.configureBlocking(shouldBlock);
+        //Messages are written in one go and then we wait for the answer, so don't let
+        //Nagle hold on to them.
+        socketChannel.socket().setTcpNoDelay(true);
         actuallyDidConnect = socketChannel.connect(theAddress);
         return actuallyDidConnect;
     }
 
+    /**
+     * Park the calling thread until the socket is ready for ops (SelectionKey.OP_READ
+     * or SelectionKey.OP_WRITE).  The first call switches the (connected) channel to
+     * non-blocking and registers it with our Selector.  If the channel is still
+     * blocking because it isn't connected yet, there is nothing to wait for and this
+     * returns immediately.
+     * @param ops
+     * @throws java.io.IOException
+     */
+    private void waitUntilReady(int ops) throws IOException {
+        if (selector == null) {
+            if (!socketChannel.isConnected()) {
+                return;
+            }
+            selector = Selector.open();
+            socketChannel.configureBlocking(false);
+            selectionKey = socketChannel.register(selector, ops);
+        } else {
+            selectionKey.interestOps(ops);
+        }
+        selector.select();
+        selector.selectedKeys().clear();
+    }
+
     /**
      * This can be used in NON-BLOCKING mode to be sure that the connection was made.
      * Probably call this in a loop.  In BLOCKING mode, you don't need to call this.
@@ -173,11 +264,32 @@ public class Network {
     }
 
     public void close() throws IOException {
+        if (selector != null) {
+            selector.close();
+            selector = null;
+        }
         socketChannel.close();
     }
 
+    /**
+     * Writes everything between the position and the limit of the send buffer,
+     * waiting for the socket to accept more whenever it is full.
+     * @return the number of bytes sent
+     * @throws java.io.IOException
+     */
     public int send() throws IOException {
-        return socketChannel.write(sendBuffer);
+        int sendTotal = socketChannel.write(sendBuffer);
+        while (sendBuffer.hasRemaining()) {
+            waitUntilReady(SelectionKey.OP_WRITE);
+            sendTotal += socketChannel.write(sendBuffer);
+        }
+        if (lastRecvTime >= 0) {
+            lastServiceNanos = System.nanoTime() - lastRecvTime;
+            totalServiceNanos += lastServiceNanos;
+            maxServiceNanos = Math.max(maxServiceNanos, lastServiceNanos);
+            lastRecvTime = -1;
+        }
+        return sendTotal;
     }
 
     /**
@@ -185,7 +297,8 @@ public class Network {
      *
      * This method has been updated. It will work as it used to, before we added
      * NON-BLOCKING mode.  It will either return after reading size (or more) bytes
-     *  or it will throw an exception.
+     *  or it will throw an exception.  While nothing has arrived the thread is
+     * parked in the Selector instead of spinning.
      * @param size
      * @return
      * @throws java.io.IOException
@@ -196,12 +309,58 @@ public class Network {
 
         amountReceived = recvNonBlock(size);
         while (amountReceived == 0) {
-            Thread.yield();
+            waitUntilReady(SelectionKey.OP_READ);
             amountReceived = recvNonBlock(size);
         }
         return amountReceived;
     }
 
+    /**
+     * Reads one complete message into the receive buffer: the 8 byte header
+     * (state and payload size) and the whole payload.  Reads take everything
+     * that is available, so if the buffer is already big enough the message
+     * normally arrives in a single read.  Anything that was read beyond the
+     * message (when the other side sends several messages in a row, as on a
+     * multiplexed connection) is kept for the next call.  Afterwards the
+     * buffer is limited to the message and positioned at its payload.
+     * @return the state (message type) from the header
+     * @throws java.io.IOException
+     * @since 2.08
+     */
+    public int recvMessage() throws IOException {
+        long waitStart = System.nanoTime();
+        int received = recvPending;
+        if (recvPending > 0) {
+            recvBuffer.limit(recvMessageEnd + recvPending);
+            recvBuffer.position(recvMessageEnd);
+            recvBuffer.compact();
+        } else {
+            recvBuffer.clear();
+        }
+
+        if (received < 2 * kIntSize) {
+            received += recv(2 * kIntSize - received);
+        }
+        int state = recvBuffer.getInt(0);
+        int messageSize = 2 * kIntSize + recvBuffer.getInt(kIntSize);
+        if (received < messageSize) {
+            received += recv(messageSize - received);
+        }
+        recvMessageEnd = messageSize;
+        recvPending = received - messageSize;
+
+        recvBuffer.flip();
+        recvBuffer.limit(messageSize);
+        recvBuffer.position(2 * kIntSize);
+
+        lastRecvTime = System.nanoTime();
+        lastWaitNanos = lastRecvTime - waitStart;
+        totalWaitNanos += lastWaitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, lastWaitNanos);
+        numMessages++;
+        return state;
+    }
+
     /**
      *
      *
@@ -240,10 +399,56 @@ public class Network {
                 //if we receive 0 bytes on the first read.
                 return 0;
             }
+            if (recvSize == 0) {
+                //Part of the data is here, wait for the rest without spinning
+                waitUntilReady(SelectionKey.OP_READ);
+            }
         }
         return recvTotal;
     }
 
+    /**
+     * @return the number of messages received with recvMessage
+     * @since 2.08
+     */
+    public long getNumMessages() {
+        return numMessages;
+    }
+
+    /**
+     * @return how long the last call to recvMessage waited for its message, in nanoseconds
+     * @since 2.08
+     */
+    public long getLastWaitNanos() {
+        return lastWaitNanos;
+    }
+
+    /**
+     * @return how long it took from receiving the last answered message to sending
+     * the reply, in nanoseconds
+     * @since 2.08
+     */
+    public long getLastServiceNanos() {
+        return lastServiceNanos;
+    }
+
+    /**
+     * For a client (agent or environment) the wait time is the time spent idle
+     * between messages and the service time is the time the agent or environment
+     * needed to answer.  For the experiment, the wait time is the round trip of
+     * each RL-Glue call.
+     * @return A one line summary of the message latencies so far.
+     * @since 2.08
+     */
+    public String getLatencyReport() {
+        double toMillis = 1.0e-6;
+        long n = Math.max(1, numMessages);
+        return numMessages + " messages, wait: mean " + String.format("%.3f", totalWaitNanos * toMillis / n)
+                + " ms, max " + String.format("%.3f", maxWaitNanos * toMillis)
+                + " ms, service: mean " + String.format("%.3f", totalServiceNanos * toMillis / n)
+                + " ms, max " + String.format("%.3f", maxServiceNanos * toMillis) + " ms";
+    }
+
     public boolean isConnected() {
         return socketChannel.isConnected();
     }
@@ -265,21 +470,39 @@ public class Network {
     }
 
     public int[] getInts(int howMany) {
-        int currentPosition = recvBuffer.position();
         int[] returnArray = new int[howMany];
-        recvBuffer.asIntBuffer().get(returnArray);
-        recvBuffer.position(currentPosition + howMany * 4);
+        getInts(returnArray);
         return returnArray;
     }
 
-    public double[] getDoubles(int howMany) {
+    /**
+     * Bulk read exactly into.length ints into an existing array.
+     * @param into
+     * @since 2.08
+     */
+    public void getInts(int[] into) {
         int currentPosition = recvBuffer.position();
+        recvBuffer.asIntBuffer().get(into);
+        recvBuffer.position(currentPosition + into.length * kIntSize);
+    }
+
+    public double[] getDoubles(int howMany) {
         double[] returnArray = new double[howMany];
-        recvBuffer.asDoubleBuffer().get(returnArray);
-        recvBuffer.position(currentPosition + howMany * 8);
+        getDoubles(returnArray);
         return returnArray;
     }
 
+    /**
+     * Bulk read exactly into.length doubles into an existing array.
+     * @param into
+     * @since 2.08
+     */
+    public void getDoubles(double[] into) {
+        int currentPosition = recvBuffer.position();
+        recvBuffer.asDoubleBuffer().get(into);
+        recvBuffer.position(currentPosition + into.length * kDoubleSize);
+    }
+
     public int getInt() {
         return recvBuffer.getInt();
     }
@@ -332,12 +555,36 @@ public class Network {
         return returnVal;
     }
 
+    /**
+     * Read an observation into an existing one.  Its arrays are only
+     * reallocated if the sizes changed, so reading observations of the same
+     * size over and over doesn't allocate anything.
+     * @param into
+     * @return into
+     * @since 2.08
+     */
+    public Observation getObservation(Observation into) {
+        fillAbstractType(into);
+        return into;
+    }
+
     public Action getAction() {
         Action returnVal = new Action();
         fillAbstractType(returnVal);
         return returnVal;
     }
 
+    /**
+     * Read an action into an existing one, see getObservation(Observation).
+     * @param into
+     * @return into
+     * @since 2.08
+     */
+    public Action getAction(Action into) {
+        fillAbstractType(into);
+        return into;
+    }
+
     /*
      *
      * Hmm, this method might actually make it quite expensive to make abstract types because
@@ -367,10 +614,10 @@ public class Network {
         final int numDoubles = getInt();
         final int numChars = getInt();
 
-        toFill.intArray = getInts(numInts);
-        toFill.doubleArray = getDoubles(numDoubles);
+        toFill.setSize(numInts, numDoubles, numChars);
+        getInts(toFill.intArray);
+        getDoubles(toFill.doubleArray);
 
-        toFill.charArray = new char[numChars];
         for (int i = 0; i < numChars; ++i) {
             toFill.charArray[i] = this.getChar();
         }
@@ -492,23 +739,86 @@ public class Network {
         this.putObservation(rewardObservation.o);
     }
 
+    /**
+     * @since 2.08
+     */
+    public Reward_observation_terminal_batch getRewardObservationBatch() {
+        int numSteps = getInt();
+        int terminal = getInt();
+        boolean withObservations = getInt() == 1;
+
+        Reward_observation_terminal_batch batch = new Reward_observation_terminal_batch(numSteps, withObservations);
+        batch.numSteps = numSteps;
+        batch.terminal = terminal;
+        getDoubles(batch.rewards);
+        if (withObservations) {
+            for (int i = 0; i < numSteps; i++) {
+                batch.observations[i] = getObservation();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @since 2.08
+     */
+    public void putRewardObservationBatch(Reward_observation_terminal_batch batch) {
+        this.ensureSendCapacityRemains(Network.sizeOf(batch));
+
+        this.putInt(batch.numSteps);
+        this.putInt(batch.terminal);
+        this.putInt(batch.hasObservations() ? 1 : 0);
+        for (int i = 0; i < batch.numSteps; i++) {
+            this.putDouble(batch.rewards[i]);
+        }
+        if (batch.hasObservations()) {
+            for (int i = 0; i < batch.numSteps; i++) {
+                this.putObservation(batch.observations[i]);
+            }
+        }
+    }
+
+    /**
+     * The buffers only ever grow, so they keep the size of the largest message
+     * seen.  They grow to a power of two, so a message that is built up piece
+     * by piece doesn't copy the buffer over and over.  The put methods for
+     * whole observations, actions and messages make room for all of it at
+     * once, before anything of it is written.
+     * @param capacity
+     */
     protected void ensureSendCapacityRemains(int capacity) {
         if (sendBuffer.capacity() - sendBuffer.position() < capacity) {
-            sendBuffer = Network.cloneWithCapacity(sendBuffer, sendBuffer.capacity() + capacity);
+            sendBuffer = Network.cloneWithCapacity(sendBuffer, grownCapacity(sendBuffer.position() + capacity));
         }
     }
 
     protected void ensureRecvCapacityRemains(int capacity) {
         if (recvBuffer.capacity() - recvBuffer.position() < capacity) {
-            recvBuffer = Network.cloneWithCapacity(recvBuffer, recvBuffer.capacity() + capacity);
+            recvBuffer = Network.cloneWithCapacity(recvBuffer, grownCapacity(recvBuffer.position() + capacity));
         }
     }
 
+    /**
+     * @return the smallest power of two that is at least needed.
+     */
+    private static int grownCapacity(int needed) {
+        int capacity = Integer.highestOneBit(needed);
+        if (capacity < needed) {
+            capacity <<= 1;
+        }
+        return Math.max(capacity, kByteBufferDefaultSize);
+    }
+
+    /**
+     * A bigger buffer with the contents up to the position of original.  If
+     * there is nothing to keep nothing is copied.
+     */
     protected static ByteBuffer cloneWithCapacity(ByteBuffer original, int capacity) {
         ByteBuffer clone = ByteBuffer.allocateDirect(capacity);
-        original.flip();
-        clone.put(original);
-        clone.position(original.position());
+        if (original.position() > 0) {
+            original.flip();
+            clone.put(original);
+        }
         return clone;
     }
 
@@ -553,5 +863,19 @@ public class Network {
                 Network.kDoubleSize + // reward
                 Network.sizeOf(rewardObservation.o);
     }
+
+    /**
+     * @since 2.08
+     */
+    public static int sizeOf(Reward_observation_terminal_batch batch) {
+        int size = 3 * Network.kIntSize + // numSteps, terminal, withObservations
+                batch.numSteps * Network.kDoubleSize; // rewards
+        if (batch.hasObservations()) {
+            for (int i = 0; i < batch.numSteps; i++) {
+                size += Network.sizeOf(batch.observations[i]);
+            }
+        }
+        return size;
+    }
 }
 
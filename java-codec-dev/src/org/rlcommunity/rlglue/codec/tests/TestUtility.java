@@ -44,6 +44,15 @@ public static void set_k_chars_in_abstract_type(RL_abstract_type the_struct, int
             the_struct.charArray[i]=(char)(((int)'a')+i);
 }
 
+/**
+ * Same contents as set_k_ints_in_abstract_type and set_k_doubles_in_abstract_type
+ * together, but reusing the arrays when they already have the right size.
+ */
+public static void fill_k_ints_and_doubles_in_abstract_type(RL_abstract_type the_struct, int k){
+        the_struct.setSize(k, k, the_struct.getNumChars());
+	for(int i=0;i<k;i++) the_struct.intArray[i]=i;
+	for(int i=0;i<k;i++) the_struct.doubleArray[i]=(double)i/(double)k;
+}
 public static void clean_abstract_type(RL_abstract_type the_struct){
     the_struct.intArray=new int[0];
     the_struct.doubleArray=new double[0];
@@ -35,10 +35,20 @@ public class Test_Speed_Environment implements EnvironmentInterface {
    int stepCount=0;
    
    Observation o =new Observation();
+   Reward_observation_terminal pooledRO = new Reward_observation_terminal();
+   boolean pooled = false;
     
     public Test_Speed_Environment() {
     }
 
+    /**
+     * @param pooled Whether to refill the observation and result in place
+     * instead of allocating new ones every step (for a pooled LocalGlue).
+     */
+    public Test_Speed_Environment(boolean pooled) {
+        this.pooled = pooled;
+    }
+
     
     public String env_message(String inMessage) {
         return "";
@@ -63,31 +73,49 @@ public class Test_Speed_Environment implements EnvironmentInterface {
         stepCount++;
         Reward_observation_terminal ro=null;
         
-        TestUtility.clean_abstract_type(o);
+        if(!pooled)
+            TestUtility.clean_abstract_type(o);
         
         //Short episode with big observations
         if(whichEpisode%2==0){
-            TestUtility.set_k_ints_in_abstract_type(o, 50000);
-            TestUtility.set_k_doubles_in_abstract_type(o, 50000);
+            fill(50000);
 
             int terminal=0;
             if(stepCount==200)terminal=1;
-                ro=new Reward_observation_terminal(1.0d, o, terminal);
+                ro=result(terminal);
         }
         //Longer episode with smaller obserations
         if(whichEpisode%2==1){
-            TestUtility.set_k_ints_in_abstract_type(o, 5);
-            TestUtility.set_k_doubles_in_abstract_type(o, 5);
+            fill(5);
 
             int terminal=0;
             if(stepCount==5000)terminal=1;
-                ro=new Reward_observation_terminal(1.0d, o, terminal);
+                ro=result(terminal);
         }
         
                 
         return ro;
     }
 
+    private void fill(int k) {
+        if (pooled) {
+            TestUtility.fill_k_ints_and_doubles_in_abstract_type(o, k);
+        } else {
+            TestUtility.set_k_ints_in_abstract_type(o, k);
+            TestUtility.set_k_doubles_in_abstract_type(o, k);
+        }
+    }
+
+    private Reward_observation_terminal result(int terminal) {
+        if (!pooled) {
+            return new Reward_observation_terminal(1.0d, o, terminal);
+        }
+        pooledRO.setReward(1.0d);
+        pooledRO.setObservation(o);
+        pooledRO.setTerminal(terminal == 1);
+        return pooledRO;
+    }
+
     public void env_cleanup() {
     }
 }
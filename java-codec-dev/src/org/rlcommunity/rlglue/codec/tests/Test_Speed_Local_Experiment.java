@@ -0,0 +1,82 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.rlcommunity.rlglue.codec.tests;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.rlcommunity.rlglue.codec.LocalGlue;
+
+/**
+ * The episodes of Test_Speed_Experiment run in-process on a LocalGlue, once
+ * as before and once pooled, to compare the time and the allocation per step.
+ */
+public class Test_Speed_Local_Experiment {
+
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    static void runEpisodes(Glue_Test tester, String name, LocalGlue glue) {
+        glue.RL_init();
+//Run an episode to get the JVM warmed up, etc             
+        glue.RL_episode(500);
+
+        for (int type = 1; type <= 2; type++) {
+            long startBytes = allocatedBytes();
+            long startTime = System.currentTimeMillis();
+
+            int isTerminal = glue.RL_episode(0);
+            long endTime = System.currentTimeMillis();
+            long endBytes = allocatedBytes();
+
+            int steps = glue.RL_num_steps();
+            tester.check_fail(isTerminal != 1);
+            System.out.println(name + ": MS to run Episode Type " + type + " " + (endTime - startTime) + " (per step: " + ((double) (endTime - startTime) / (double) steps) + ", bytes allocated per step: " + ((endBytes - startBytes) / steps) + ")");
+        }
+        glue.RL_cleanup();
+    }
+
+    public static int runTest() {
+        Glue_Test tester = new Glue_Test("Test_Speed_Local_Experiment");
+
+        runEpisodes(tester, "Unpooled", new LocalGlue(new Test_Speed_Environment(), new Test_Empty_Agent()));
+
+        LocalGlue pooledGlue = new LocalGlue(new Test_Speed_Environment(true), new Test_Empty_Agent(), true);
+        pooledGlue.setPoolChecking(false);
+        runEpisodes(tester, "Pooled", pooledGlue);
+
+        LocalGlue checkedGlue = new LocalGlue(new Test_Speed_Environment(true), new Test_Empty_Agent(), true);
+        checkedGlue.setPoolChecking(true);
+        runEpisodes(tester, "Pooled and checked", checkedGlue);
+
+        System.out.println(tester);
+
+        return tester.getFailCount();
+    }
+
+    public static void main(String[] args) {
+        System.exit(runTest());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.trace;
+
+import java.io.IOException;
+import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+
+/**
+ * Wraps an agent and records what it sees and does to a trace, for when the
+ * environment runs elsewhere (in another process or language) and can't be
+ * wrapped by a RecordingEnvironment.  The traces are the same, except that
+ * the last step of an episode has an empty observation because agent_end
+ * doesn't get one.  Each step is written when the agent hears about its
+ * result, before it is asked for the next action, so an agent reusing its
+ * action holder is recorded correctly.  The buffered records are flushed on
+ * agent_cleanup; the writer is closed by whoever opened it.
+ * @since 2.08
+ */
+public class RecordingAgent implements AgentInterface {
+
+    private final AgentInterface agent;
+    private final TraceWriter writer;
+    private Action lastAction;
+
+    public RecordingAgent(AgentInterface agent, TraceWriter writer) {
+        this.agent = agent;
+        this.writer = writer;
+    }
+
+    public void agent_init(String taskSpecification) {
+        try {
+            writer.writeInit(taskSpecification);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        agent.agent_init(taskSpecification);
+    }
+
+    public Action agent_start(Observation observation) {
+        try {
+            writer.writeStart(observation);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        lastAction = agent.agent_start(observation);
+        return lastAction;
+    }
+
+    public Action agent_step(double reward, Observation observation) {
+        try {
+            writer.writeStep(lastAction, reward, false, observation);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        lastAction = agent.agent_step(reward, observation);
+        return lastAction;
+    }
+
+    public void agent_end(double reward) {
+        try {
+            writer.writeStep(lastAction, reward, true, null);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        lastAction = null;
+        agent.agent_end(reward);
+    }
+
+    public void agent_cleanup() {
+        agent.agent_cleanup();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+    }
+
+    public String agent_message(String message) {
+        return agent.agent_message(message);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.trace;
+
+import java.io.IOException;
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+
+/**
+ * Wraps an environment and records its task spec, start observations and
+ * every step to a trace.  The records are written as they happen, so a pooled
+ * environment that refills its observation every step can be recorded too.
+ * The buffered records are flushed on env_cleanup; the writer stays open and
+ * is closed by whoever opened it.
+ * <pre>
+ *     TraceWriter writer = new TraceWriter(new File("run.trace"));
+ *     LocalGlue glue = new LocalGlue(new RecordingEnvironment(env, writer), agent);
+ *     ...
+ *     writer.close();
+ * </pre>
+ * @since 2.08
+ */
+public class RecordingEnvironment implements EnvironmentInterface {
+
+    private final EnvironmentInterface env;
+    private final TraceWriter writer;
+
+    public RecordingEnvironment(EnvironmentInterface env, TraceWriter writer) {
+        this.env = env;
+        this.writer = writer;
+    }
+
+    public String env_init() {
+        String taskSpec = env.env_init();
+        try {
+            writer.writeInit(taskSpec);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        return taskSpec;
+    }
+
+    public Observation env_start() {
+        Observation observation = env.env_start();
+        try {
+            writer.writeStart(observation);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        return observation;
+    }
+
+    public Reward_observation_terminal env_step(Action action) {
+        Reward_observation_terminal result = env.env_step(action);
+        try {
+            writer.writeStep(action, result.getReward(), result.isTerminal(), result.getObservation());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+        return result;
+    }
+
+    public void env_cleanup() {
+        env.env_cleanup();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the trace", e);
+        }
+    }
+
+    public String env_message(String message) {
+        return env.env_message(message);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.trace;
+
+import java.io.File;
+import java.io.IOException;
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+
+/**
+ * Serves a recorded trace back as an environment, so agents and model
+ * learners can be run and benchmarked on recorded data without the live
+ * environment.  The recorded trajectory is replayed whatever actions the agent
+ * takes; getRecordedAction tells what was done originally.
+ * <p>
+ * env_start continues with the next recorded episode and wraps around to the
+ * first one at the end of the trace.  If a recorded episode was cut off (for
+ * example by RL_episode's step limit) and the agent steps past its end,
+ * env_step ends the episode with a reward of 0.
+ * <p>
+ * By default every observation is a fresh copy.  A pooled replay refills the
+ * same observation and result every step, which is allocation free but only
+ * safe with a pooled LocalGlue or an agent that doesn't keep observations.
+ * @since 2.08
+ */
+public class ReplayEnvironment implements EnvironmentInterface {
+
+    private final TraceReader reader;
+    private final boolean pooled;
+    private final Reward_observation_terminal result = new Reward_observation_terminal();
+    private Observation lastObservation = new Observation();
+    private boolean episodeOver = true;
+
+    public ReplayEnvironment(File traceFile) throws IOException {
+        this(traceFile, false);
+    }
+
+    public ReplayEnvironment(File traceFile, boolean pooled) throws IOException {
+        this.reader = new TraceReader(traceFile);
+        this.pooled = pooled;
+    }
+
+    /**
+     * @return the task spec of the first recorded init, or "" if none was
+     * recorded.
+     */
+    public String env_init() {
+        reader.rewind();
+        while (reader.next()) {
+            if (reader.getRecordType() == TraceWriter.kInitRecord) {
+                String taskSpec = reader.getTaskSpec();
+                reader.rewind();
+                return taskSpec;
+            }
+        }
+        reader.rewind();
+        return "";
+    }
+
+    public Observation env_start() {
+        boolean rewound = false;
+        while (true) {
+            if (!reader.next()) {
+                if (rewound) {
+                    throw new IllegalStateException("The trace has no episodes to replay");
+                }
+                reader.rewind();
+                rewound = true;
+            } else if (reader.getRecordType() == TraceWriter.kStartRecord) {
+                episodeOver = false;
+                return observation();
+            }
+        }
+    }
+
+    public Reward_observation_terminal env_step(Action action) {
+        long position = reader.getPosition();
+        if (!episodeOver && reader.next() && reader.getRecordType() == TraceWriter.kStepRecord) {
+            episodeOver = reader.isTerminal();
+            Reward_observation_terminal theResult = pooled ? result : new Reward_observation_terminal();
+            theResult.setReward(reader.getReward());
+            theResult.setTerminal(episodeOver);
+            // An agent's recording has no observation after the last step
+            Observation recorded = reader.getObservation();
+            boolean hasObservation = recorded.getNumInts() > 0 || recorded.getNumDoubles() > 0 || recorded.getNumChars() > 0;
+            theResult.setObservation(hasObservation ? observation() : lastObservation);
+            return theResult;
+        }
+
+        // The recorded episode ends here; leave its successor for env_start
+        reader.setPosition(position);
+        episodeOver = true;
+        Reward_observation_terminal theResult = pooled ? result : new Reward_observation_terminal();
+        theResult.setReward(0);
+        theResult.setTerminal(true);
+        theResult.setObservation(lastObservation);
+        return theResult;
+    }
+
+    private Observation observation() {
+        lastObservation = pooled ? reader.getObservation() : reader.getObservation().duplicate();
+        return lastObservation;
+    }
+
+    /**
+     * @return the action that was recorded for the last step, which is
+     * refilled by the next step.
+     */
+    public Action getRecordedAction() {
+        return reader.getAction();
+    }
+
+    public void env_cleanup() {
+    }
+
+    public String env_message(String message) {
+        return "";
+    }
+}
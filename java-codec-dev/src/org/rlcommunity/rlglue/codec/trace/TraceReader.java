@@ -0,0 +1,206 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.RL_abstract_type;
+
+/**
+ * Reads the records of a trace written by TraceWriter.  The file is memory
+ * mapped and every record is decoded into the same holders, so reading a
+ * trace doesn't allocate: the observation and action returned by the getters
+ * are refilled by the next call to next(), duplicate them to keep them.
+ * Traces are limited to 2 GB.
+ * <pre>
+ *     TraceReader reader = new TraceReader(new File("run.trace"));
+ *     while (reader.next()) {
+ *         if (reader.getRecordType() == TraceWriter.kStepRecord) {
+ *             learn(reader.getAction(), reader.getReward(), reader.getObservation());
+ *         }
+ *     }
+ * </pre>
+ * @since 2.08
+ */
+public class TraceReader {
+
+    private final ByteBuffer buffer;
+    private byte recordType;
+    private String taskSpec;
+    private final Observation observation = new Observation();
+    private final Action action = new Action();
+    private double reward;
+    private boolean terminal;
+
+    public TraceReader(File traceFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(traceFile, "r");
+        try {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+        checkHeader(buffer, traceFile);
+    }
+
+    /**
+     * The length of the part of a trace that holds whole records.
+     * @param traceFile
+     * @return
+     * @throws java.io.IOException if the file isn't a trace.
+     */
+    static long validLength(File traceFile) throws IOException {
+        TraceReader reader = new TraceReader(traceFile);
+        while (reader.next()) {
+        }
+        return reader.getPosition();
+    }
+
+    private static void checkHeader(ByteBuffer buffer, File traceFile) throws IOException {
+        if (buffer.remaining() < TraceWriter.kHeaderSize || buffer.getInt() != TraceWriter.kMagic) {
+            throw new IOException(traceFile + " is not a trace");
+        }
+        int version = buffer.getInt();
+        if (version != TraceWriter.kVersion) {
+            throw new IOException(traceFile + " has unknown trace version " + version);
+        }
+    }
+
+    /**
+     * Read the next record.
+     * @return false at the end of the trace, including at a partly written
+     * last record.
+     */
+    public boolean next() {
+        int start = buffer.position();
+        try {
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+            byte type = buffer.get();
+            if (type == TraceWriter.kInitRecord) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                taskSpec = new String(bytes, "UTF-8");
+            } else if (type == TraceWriter.kStartRecord) {
+                get(observation);
+            } else if (type == TraceWriter.kStepRecord) {
+                get(action);
+                reward = buffer.getDouble();
+                terminal = buffer.get() != 0;
+                get(observation);
+            } else {
+                throw new IllegalStateException("Unknown trace record type " + type + " at " + start);
+            }
+            recordType = type;
+            return true;
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return false;
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void get(RL_abstract_type into) {
+        int numInts = buffer.getInt();
+        int numDoubles = buffer.getInt();
+        int numChars = buffer.getInt();
+        if (numInts < 0 || numDoubles < 0 || numChars < 0
+                || buffer.remaining() < 4L * numInts + 8L * numDoubles + 2L * numChars) {
+            throw new BufferUnderflowException();
+        }
+        into.setSize(numInts, numDoubles, numChars);
+        buffer.asIntBuffer().get(into.intArray);
+        buffer.position(buffer.position() + 4 * numInts);
+        buffer.asDoubleBuffer().get(into.doubleArray);
+        buffer.position(buffer.position() + 8 * numDoubles);
+        buffer.asCharBuffer().get(into.charArray);
+        buffer.position(buffer.position() + 2 * numChars);
+    }
+
+    /**
+     * Go back to the first record.
+     */
+    public void rewind() {
+        buffer.position(TraceWriter.kHeaderSize);
+    }
+
+    /**
+     * @return the offset in the file of the record after the current one.
+     */
+    public long getPosition() {
+        return buffer.position();
+    }
+
+    /**
+     * Continue reading at an offset returned by getPosition.
+     * @param position
+     */
+    public void setPosition(long position) {
+        buffer.position((int) position);
+    }
+
+    /**
+     * @return kInitRecord, kStartRecord or kStepRecord.
+     */
+    public byte getRecordType() {
+        return recordType;
+    }
+
+    /**
+     * @return the task spec of the last kInitRecord.
+     */
+    public String getTaskSpec() {
+        return taskSpec;
+    }
+
+    /**
+     * @return the observation of the current start or step record.  It is
+     * empty at the end of an episode recorded by a RecordingAgent.
+     */
+    public Observation getObservation() {
+        return observation;
+    }
+
+    /**
+     * @return the action of the current step record.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    public double getReward() {
+        return reward;
+    }
+
+    public boolean isTerminal() {
+        return terminal;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.rlcommunity.rlglue.codec.types.RL_abstract_type;
+
+/**
+ * Appends the steps of experiments to a trace file, which a TraceReader or
+ * ReplayEnvironment can serve back later.  The file starts with kMagic and
+ * kVersion and holds a sequence of records, all big-endian:
+ * <pre>
+ *     kInitRecord:  int length, UTF-8 bytes of the task spec
+ *     kStartRecord: observation
+ *     kStepRecord:  action, double reward, byte terminal, observation
+ * </pre>
+ * where an observation or action is its numInts, numDoubles and numChars
+ * followed by the arrays.  Records are buffered and only whole records are
+ * written, so a trace cut off by a crash loses at most its last records; opening
+ * it again drops a partly written last record before appending.
+ * @since 2.08
+ */
+public class TraceWriter {
+
+    public static final int kMagic = 0x524c5452;
+    public static final int kVersion = 1;
+    public static final byte kInitRecord = 1;
+    public static final byte kStartRecord = 2;
+    public static final byte kStepRecord = 3;
+    static final int kHeaderSize = 8;
+    private static final int kBufferSize = 65536;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(kBufferSize);
+
+    /**
+     * Open a trace for appending, creating it if it doesn't exist.
+     * @param traceFile
+     * @throws java.io.IOException if the file exists but isn't a trace.
+     */
+    public TraceWriter(File traceFile) throws IOException {
+        long validLength = traceFile.length() > 0 ? TraceReader.validLength(traceFile) : 0;
+        file = new RandomAccessFile(traceFile, "rw");
+        channel = file.getChannel();
+        if (validLength == 0) {
+            channel.truncate(0);
+            buffer.putInt(kMagic);
+            buffer.putInt(kVersion);
+        } else {
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+    }
+
+    public void writeInit(String taskSpec) throws IOException {
+        byte[] bytes = taskSpec.getBytes("UTF-8");
+        ensureCapacity(1 + 4 + bytes.length);
+        buffer.put(kInitRecord);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    public void writeStart(RL_abstract_type observation) throws IOException {
+        ensureCapacity(1 + sizeOf(observation));
+        buffer.put(kStartRecord);
+        put(observation);
+    }
+
+    /**
+     * Append a step: the action taken and what the environment answered.
+     * @param action
+     * @param reward
+     * @param terminal
+     * @param observation The next observation, or null at the end of an
+     * episode when it isn't known (an agent doesn't see it).
+     * @throws java.io.IOException
+     */
+    public void writeStep(RL_abstract_type action, double reward, boolean terminal, RL_abstract_type observation) throws IOException {
+        ensureCapacity(1 + sizeOf(action) + 8 + 1 + sizeOf(observation));
+        buffer.put(kStepRecord);
+        put(action);
+        buffer.putDouble(reward);
+        buffer.put(terminal ? (byte) 1 : (byte) 0);
+        put(observation);
+    }
+
+    /**
+     * Write the buffered records to the file.
+     * @throws java.io.IOException
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public void close() throws IOException {
+        flush();
+        file.close();
+    }
+
+    private void ensureCapacity(int recordSize) throws IOException {
+        if (buffer.remaining() < recordSize) {
+            flush();
+            if (buffer.capacity() < recordSize) {
+                buffer = ByteBuffer.allocate(recordSize);
+            }
+        }
+    }
+
+    private static int sizeOf(RL_abstract_type theObject) {
+        if (theObject == null) {
+            return 12;
+        }
+        return 12 + 4 * theObject.getNumInts() + 8 * theObject.getNumDoubles() + 2 * theObject.getNumChars();
+    }
+
+    private void put(RL_abstract_type theObject) {
+        if (theObject == null) {
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            return;
+        }
+        int numInts = theObject.getNumInts();
+        int numDoubles = theObject.getNumDoubles();
+        int numChars = theObject.getNumChars();
+        buffer.putInt(numInts);
+        buffer.putInt(numDoubles);
+        buffer.putInt(numChars);
+        buffer.asIntBuffer().put(theObject.intArray, 0, numInts);
+        buffer.position(buffer.position() + 4 * numInts);
+        buffer.asDoubleBuffer().put(theObject.doubleArray, 0, numDoubles);
+        buffer.position(buffer.position() + 8 * numDoubles);
+        buffer.asCharBuffer().put(theObject.charArray, 0, numChars);
+        buffer.position(buffer.position() + 2 * numChars);
+    }
+}
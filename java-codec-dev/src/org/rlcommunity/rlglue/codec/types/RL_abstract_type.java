@@ -58,6 +58,27 @@ public class RL_abstract_type implements Comparable {
         RLStructCopy(src, this);
     }
 
+    /**
+     * Make the arrays exactly numInts, numDoubles and numChars long.  Arrays
+     * that already have the right length are kept as they are (their contents
+     * are not cleared), so a holder that is refilled every step with the same
+     * sizes never has to allocate.
+     * @param numInts  Size of the int array.
+     * @param numDoubles Size of the double array.
+     * @param numChars Size of the char array.
+     */
+    public void setSize(int numInts, int numDoubles, int numChars) {
+        if (intArray == null || intArray.length != numInts) {
+            intArray = new int[numInts];
+        }
+        if (doubleArray == null || doubleArray.length != numDoubles) {
+            doubleArray = new double[numDoubles];
+        }
+        if (charArray == null || charArray.length != numChars) {
+            charArray = new char[numChars];
+        }
+    }
+
     public int getInt(int which) {
         return this.intArray[which];
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.types;
+
+/**
+ * The outcome of RL_step_batch: the rewards of a number of steps in a row,
+ * whether the last of them ended the episode and, if they were asked for,
+ * the observations after every step.  A batch always stops at the end of
+ * an episode, so only the last step can be terminal.
+ * @since 2.08
+ */
+public class Reward_observation_terminal_batch {
+
+    /**
+     * Number of steps to make room for when the number of steps isn't known
+     * up front.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    public int numSteps;
+    public double[] rewards;
+    public int terminal;
+    /** null if the observations weren't asked for. */
+    public Observation[] observations;
+
+    public Reward_observation_terminal_batch() {
+        this(0, false);
+    }
+
+    /**
+     * @param capacity Number of steps to make room for.  More are added as needed.
+     * @param withObservations Whether to keep the observations.
+     */
+    public Reward_observation_terminal_batch(int capacity, boolean withObservations) {
+        numSteps = 0;
+        rewards = new double[capacity];
+        terminal = 0;
+        if (withObservations) {
+            observations = new Observation[capacity];
+        }
+    }
+
+    /**
+     * Add a step to the end of the batch.  The observation is kept as it
+     * is, pass a copy if it may change afterwards.
+     * @param reward
+     * @param observation Ignored if the batch doesn't keep observations.
+     * @param isTerminal
+     */
+    public void addStep(double reward, Observation observation, boolean isTerminal) {
+        if (numSteps == rewards.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, 2 * rewards.length);
+            double[] newRewards = new double[capacity];
+            System.arraycopy(rewards, 0, newRewards, 0, numSteps);
+            rewards = newRewards;
+            if (observations != null) {
+                Observation[] newObservations = new Observation[capacity];
+                System.arraycopy(observations, 0, newObservations, 0, numSteps);
+                observations = newObservations;
+            }
+        }
+        rewards[numSteps] = reward;
+        if (observations != null) {
+            observations[numSteps] = observation;
+        }
+        numSteps++;
+        setTerminal(isTerminal);
+    }
+
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    public double getReward(int step) {
+        return rewards[step];
+    }
+
+    /**
+     * @return The sum of the rewards of all steps in the batch.
+     */
+    public double getTotalReward() {
+        double total = 0.0d;
+        for (int i = 0; i < numSteps; i++) {
+            total += rewards[i];
+        }
+        return total;
+    }
+
+    public boolean hasObservations() {
+        return observations != null;
+    }
+
+    public Observation getObservation(int step) {
+        return observations[step];
+    }
+
+    /**
+     * @return Whether the last step of the batch ended the episode.
+     */
+    public boolean isTerminal() {
+        return terminal == 1;
+    }
+
+    public void setTerminal(boolean newTerminal) {
+        if (newTerminal) {
+            this.terminal = 1;
+        } else {
+            this.terminal = 0;
+        }
+    }
+}
@@ -126,6 +126,7 @@ public class AgentLoader implements Runnable {
             theClient.connect(host, port, Network.kRetryTimeout);
             System.out.println("\tAgent Codec Connected");
             theClient.runAgentEventLoop();
+            System.out.println("\tAgent Codec " + theClient.getNetwork().getLatencyReport());
             theClient.close();
         } catch (Exception e) {
             System.err.println("AgentLoader run(" + theAgent.getClass() + ") threw Exception: " + e);
@@ -104,6 +104,7 @@ public class EnvironmentLoader implements Runnable {
             theClient.connect(host, port, Network.kRetryTimeout);
             System.out.println("\tEnvironment Codec Connected");
             theClient.runEnvironmentEventLoop();
+            System.out.println("\tEnvironment Codec " + theClient.getNetwork().getLatencyReport());
             theClient.close();
         } catch (Exception e) {
             System.err.println("EnvironmentLoader run(" + theEnvironment.getClass() + ") threw Exception: " + e);
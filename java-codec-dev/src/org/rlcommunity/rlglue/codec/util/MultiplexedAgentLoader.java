@@ -0,0 +1,108 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.util;
+
+import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.RLGlueCore;
+import org.rlcommunity.rlglue.codec.network.MultiplexedClientAgent;
+import org.rlcommunity.rlglue.codec.network.Network;
+
+/**
+ * Like AgentLoader, but serves a new instance of the agent class for every
+ * session of a multiplexed connection, all over one socket and on one thread.
+ * The other side has to be a MultiplexedAgentServer; the C rl_glue core
+ * doesn't know about multiplexed connections.
+ * @since 2.08
+ */
+public class MultiplexedAgentLoader implements Runnable {
+
+    String host = Network.kDefaultHost;
+    int port = Network.kDefaultPort;
+    MultiplexedClientAgent.AgentFactory theFactory = null;
+    MultiplexedClientAgent theClient = null;
+
+    public MultiplexedAgentLoader(String host, int port, MultiplexedClientAgent.AgentFactory theFactory) {
+        this.host = host;
+        this.port = port;
+        this.theFactory = theFactory;
+    }
+
+    /**
+     * Uses RLGLUE_HOST and RLGLUE_PORT if they are set, like AgentLoader.
+     * @param agentClassName Class to create an agent of for every session.
+     */
+    public static MultiplexedAgentLoader loadAgent(final String agentClassName) {
+        String host = System.getenv("RLGLUE_HOST");
+        String portString = System.getenv("RLGLUE_PORT");
+        int port = Network.kDefaultPort;
+        if (portString != null) {
+            try {
+                port = Integer.parseInt(portString);
+            } catch (NumberFormatException e) {
+                System.err.println("Could not use port you requested: " + portString + " could not be parsed as an int.");
+            }
+        }
+
+        MultiplexedClientAgent.AgentFactory theFactory = new MultiplexedClientAgent.AgentFactory() {
+
+            public AgentInterface createAgent(int session) {
+                try {
+                    //System classloader for the same reason as in AgentLoader
+                    return (AgentInterface) ClassLoader.getSystemClassLoader().loadClass(agentClassName).newInstance();
+                } catch (Exception ex) {
+                    throw new IllegalArgumentException("Could not create a " + agentClassName + " for session " + session, ex);
+                }
+            }
+        };
+        return new MultiplexedAgentLoader(host != null ? host : Network.kDefaultHost, port, theFactory);
+    }
+
+    public void killProcess() {
+        theClient.killProcess();
+    }
+
+    public void run() {
+        String ImplementationVersion = RLGlueCore.getImplementationVersion();
+        String SpecVersion = RLGlueCore.getSpecVersion();
+
+        System.out.println("RL-Glue Java Multiplexed Agent Codec Version: " + SpecVersion + " (" + ImplementationVersion + ")");
+        System.out.println("\tConnecting to " + host + " on port " + port + "...");
+        theClient = new MultiplexedClientAgent(theFactory);
+
+        try {
+            theClient.connect(host, port, Network.kRetryTimeout);
+            System.out.println("\tMultiplexed Agent Codec Connected");
+            theClient.runAgentEventLoop();
+            System.out.println("\tMultiplexed Agent Codec " + theClient.getNetwork().getLatencyReport());
+            theClient.close();
+        } catch (Exception e) {
+            System.err.println("MultiplexedAgentLoader run() threw Exception: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String usage = "java MultiplexedAgentLoader <Agent> -classpath <Path To RLGlue>";
+        if (args.length < 1) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+        loadAgent(args[0]).run();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+import org.rlcommunity.rlglue.codec.LocalGlue;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import static org.junit.Assert.*;
+
+/**
+ * Runs many agents over one multiplexed connection against the Java stand-in
+ * for the core, and checks that they behave exactly like local agents.
+ */
+public class MultiplexedAgentTest {
+
+    private MultiplexedAgentServer server;
+    private MultiplexedClientAgent client;
+    private Thread clientThread;
+
+    /**
+     * Counts up; the observation is the last action plus a block of ints.
+     * Ends after 20 + seed steps.
+     */
+    static class CountingEnvironment implements EnvironmentInterface {
+
+        private final int seed;
+        private int steps;
+
+        CountingEnvironment(int seed) {
+            this.seed = seed;
+        }
+
+        public String env_init() {
+            return "env " + seed;
+        }
+
+        public Observation env_start() {
+            steps = 0;
+            return observation(seed);
+        }
+
+        public Reward_observation_terminal env_step(Action action) {
+            steps++;
+            return new Reward_observation_terminal(action.intArray[0] * 0.5, observation(action.intArray[0]), steps >= 20 + seed);
+        }
+
+        private Observation observation(int value) {
+            Observation o = new Observation(100 * (seed + 1), 1, 2);
+            for (int i = 0; i < o.intArray.length; i++) {
+                o.intArray[i] = value + i;
+            }
+            o.doubleArray[0] = steps;
+            o.charArray[0] = 'a';
+            o.charArray[1] = (char) ('a' + seed);
+            return o;
+        }
+
+        public void env_cleanup() {
+        }
+
+        public String env_message(String message) {
+            return "";
+        }
+    }
+
+    /**
+     * Answers with a sum over everything it has seen, so any mixup between
+     * sessions changes the return.
+     */
+    static class SummingAgent implements AgentInterface {
+
+        private String taskSpec;
+        private int total;
+
+        public void agent_init(String taskSpec) {
+            this.taskSpec = taskSpec;
+            total = 0;
+        }
+
+        private Action act(double reward, Observation o) {
+            total += (int) reward + o.intArray.length + o.intArray[o.intArray.length - 1] % 7 + (int) o.doubleArray[0] + o.charArray[1];
+            Action a = new Action(1, 0, 0);
+            a.intArray[0] = total % 1000;
+            return a;
+        }
+
+        public Action agent_start(Observation o) {
+            return act(0, o);
+        }
+
+        public Action agent_step(double reward, Observation o) {
+            return act(reward, o);
+        }
+
+        public void agent_end(double reward) {
+            total += (int) reward;
+        }
+
+        public void agent_cleanup() {
+        }
+
+        public String agent_message(String message) {
+            if (message.equals("total")) {
+                return taskSpec + ": " + total;
+            }
+            return null;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MultiplexedAgentServer(0);
+        client = new MultiplexedClientAgent(new MultiplexedClientAgent.AgentFactory() {
+
+            public AgentInterface createAgent(int session) {
+                return new SummingAgent();
+            }
+        });
+        clientThread = new Thread() {
+
+            public void run() {
+                try {
+                    client.connect("127.0.0.1", server.getPort(), Network.kRetryTimeout);
+                    client.runAgentEventLoop();
+                    client.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        clientThread.start();
+        server.accept();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        clientThread.join(5000);
+        assertFalse(clientThread.isAlive());
+    }
+
+    private static String runEpisodes(AgentInterface agent, int seed) {
+        LocalGlue glue = new LocalGlue(new CountingEnvironment(seed), agent);
+        glue.RL_init();
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            glue.RL_episode(0);
+            result.append(glue.RL_return()).append(' ').append(glue.RL_num_steps()).append(' ');
+        }
+        result.append(glue.RL_agent_message("total"));
+        glue.RL_cleanup();
+        return result.toString();
+    }
+
+    @Test
+    public void concurrentSessionsMatchLocalAgents() throws Exception {
+        final int numSessions = 16;
+        final String[] remote = new String[numSessions];
+        final Throwable[] errors = new Throwable[numSessions];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < numSessions; i++) {
+            final int seed = i;
+            final AgentInterface session = server.openSession();
+            Thread t = new Thread() {
+
+                public void run() {
+                    try {
+                        remote[seed] = runEpisodes(session, seed);
+                    } catch (Throwable e) {
+                        errors[seed] = e;
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        for (int i = 0; i < numSessions; i++) {
+            assertNull(errors[i]);
+            assertEquals(runEpisodes(new SummingAgent(), i), remote[i]);
+        }
+        assertEquals(numSessions, client.getNumSessions());
+    }
+
+    @Test
+    public void closedSessionsAreDropped() throws Exception {
+        AgentInterface first = server.openSession();
+        AgentInterface second = server.openSession();
+        first.agent_init("first");
+        second.agent_init("second");
+        assertEquals("first: 0", first.agent_message("total"));
+        assertEquals("second: 0", second.agent_message("total"));
+        //null goes over the network as an empty string, like on a normal connection
+        assertEquals("", second.agent_message("anything else"));
+
+        server.closeSession(first);
+        assertEquals(1, server.getNumSessions());
+        assertEquals(1, client.getNumSessions());
+        assertEquals("second: 0", second.agent_message("total"));
+    }
+}
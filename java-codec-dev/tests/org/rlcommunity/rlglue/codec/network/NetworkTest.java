@@ -0,0 +1,149 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.network;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import static org.junit.Assert.*;
+
+/**
+ * Sends messages between two Networks over a local socket.
+ */
+public class NetworkTest {
+
+    private Network sender;
+    private Network receiver;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        sender = new Network(SocketChannel.open(server.socket().getLocalSocketAddress()));
+        receiver = new Network(server.accept());
+        server.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sender.close();
+        receiver.close();
+    }
+
+    private static Observation observation(int numInts, int numDoubles, int seed) {
+        Observation o = new Observation(numInts, numDoubles, 2);
+        for (int i = 0; i < numInts; i++) {
+            o.intArray[i] = seed * i - 7;
+        }
+        for (int i = 0; i < numDoubles; i++) {
+            o.doubleArray[i] = seed + i / 3.0d;
+        }
+        o.charArray[0] = 'x';
+        o.charArray[1] = (char) ('a' + seed);
+        return o;
+    }
+
+    private void send(Observation o) throws Exception {
+        sender.clearSendBuffer();
+        sender.putInt(Network.kAgentStep);
+        sender.putInt(Network.sizeOf(o));
+        sender.putObservation(o);
+        sender.flipSendBuffer();
+        sender.send();
+    }
+
+    @Test
+    public void readsIntoExistingObservation() throws Exception {
+        Observation into = new Observation();
+        int[] previousInts = null;
+        double[] previousDoubles = null;
+        for (int seed = 0; seed < 5; seed++) {
+            Observation sent = observation(1000, 10, seed);
+            send(sent);
+            assertEquals(Network.kAgentStep, receiver.recvMessage());
+            assertSame(into, receiver.getObservation(into));
+            assertEquals(0, sent.compareTo(into));
+            if (previousInts != null) {
+                //Same sizes, so the arrays are refilled instead of replaced
+                assertSame(previousInts, into.intArray);
+                assertSame(previousDoubles, into.doubleArray);
+            }
+            previousInts = into.intArray;
+            previousDoubles = into.doubleArray;
+        }
+
+        Observation smaller = observation(3, 0, 9);
+        send(smaller);
+        receiver.recvMessage();
+        receiver.getObservation(into);
+        assertEquals(0, smaller.compareTo(into));
+        assertEquals(3, into.intArray.length);
+    }
+
+    @Test
+    public void growsForLargeMessages() throws Exception {
+        Observation large = observation(300000, 50000, 3);
+        Action action = new Action(2, 0, 0);
+        action.intArray[1] = 42;
+
+        for (int i = 0; i < 2; i++) {
+            send(large);
+            assertEquals(Network.kAgentStep, receiver.recvMessage());
+            assertEquals(0, large.compareTo(receiver.getObservation()));
+
+            sender.clearSendBuffer();
+            sender.putInt(Network.kEnvStep);
+            sender.putInt(Network.sizeOf(action));
+            sender.putAction(action);
+            sender.flipSendBuffer();
+            sender.send();
+            assertEquals(Network.kEnvStep, receiver.recvMessage());
+            assertEquals(0, action.compareTo(receiver.getAction(new Action())));
+        }
+    }
+
+    @Test
+    public void bulkReadsFillArrays() throws Exception {
+        int[] ints = {1, -2, 3, Integer.MAX_VALUE};
+        double[] doubles = {0.5d, -1e300d};
+        sender.clearSendBuffer();
+        sender.putInt(Network.kEnvMessage);
+        sender.putInt(Network.kIntSize * ints.length + Network.kDoubleSize * doubles.length);
+        sender.putInts(ints);
+        sender.putDoubles(doubles);
+        sender.flipSendBuffer();
+        sender.send();
+
+        receiver.recvMessage();
+        int[] intsInto = new int[ints.length];
+        double[] doublesInto = new double[doubles.length];
+        receiver.getInts(intsInto);
+        receiver.getDoubles(doublesInto);
+        for (int i = 0; i < ints.length; i++) {
+            assertEquals(ints[i], intsInto[i]);
+        }
+        assertEquals(doubles[0], doublesInto[0], 0.0d);
+        assertEquals(doubles[1], doublesInto[1], 0.0d);
+    }
+}
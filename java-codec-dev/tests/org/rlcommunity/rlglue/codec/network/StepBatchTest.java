@@ -0,0 +1,134 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.network;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rlcommunity.rlglue.codec.LocalGlue;
+import org.rlcommunity.rlglue.codec.NetGlue;
+import org.rlcommunity.rlglue.codec.RLGlueInterface;
+import org.rlcommunity.rlglue.codec.network.MultiplexedAgentTest.CountingEnvironment;
+import org.rlcommunity.rlglue.codec.network.MultiplexedAgentTest.SummingAgent;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_action_terminal;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal_batch;
+import static org.junit.Assert.*;
+
+/**
+ * Checks RL_step_batch against single steps, locally and through a NetGlue
+ * talking to the Java GlueServer.
+ */
+public class StepBatchTest {
+
+    private RLGlueInterface reference;
+
+    @Before
+    public void setUp() {
+        reference = new LocalGlue(new CountingEnvironment(3), new SummingAgent());
+    }
+
+    private static NetGlue serveOverNetwork() throws Exception {
+        GlueServer server = new GlueServer(new LocalGlue(new CountingEnvironment(3), new SummingAgent()), 0);
+        Thread serverThread = new Thread(server);
+        serverThread.setDaemon(true);
+        serverThread.start();
+        return new NetGlue("127.0.0.1", server.getPort());
+    }
+
+    /**
+     * Runs a few steps in a batch, then the rest of the episode in another,
+     * and compares them with the same steps on the reference glue.
+     */
+    private void checkAgainstReference(RLGlueInterface glue) {
+        assertEquals(reference.RL_init(), glue.RL_init());
+        for (int episode = 0; episode < 2; episode++) {
+            assertEquals(0, reference.RL_start().o.compareTo(glue.RL_start().o));
+
+            Reward_observation_terminal_batch first = glue.RL_step_batch(5, true);
+            assertEquals(5, first.getNumSteps());
+            assertFalse(first.isTerminal());
+            for (int i = 0; i < 5; i++) {
+                Reward_observation_action_terminal step = reference.RL_step();
+                assertEquals(step.r, first.getReward(i), 0.0d);
+                assertEquals(0, step.o.compareTo(first.getObservation(i)));
+            }
+
+            Reward_observation_terminal_batch rest = glue.RL_step_batch(0, false);
+            assertFalse(rest.hasObservations());
+            assertTrue(rest.isTerminal());
+            int numSteps = 0;
+            double total = 0.0d;
+            boolean terminal = false;
+            while (!terminal) {
+                Reward_observation_action_terminal step = reference.RL_step();
+                assertEquals(step.r, rest.getReward(numSteps), 0.0d);
+                total += step.r;
+                terminal = step.isTerminal();
+                numSteps++;
+            }
+            assertEquals(numSteps, rest.getNumSteps());
+            assertEquals(total, rest.getTotalReward(), 0.0d);
+            assertEquals(reference.RL_return(), glue.RL_return(), 0.0d);
+            assertEquals(reference.RL_num_steps(), glue.RL_num_steps());
+        }
+        assertEquals(reference.RL_agent_message("total"), glue.RL_agent_message("total"));
+        glue.RL_cleanup();
+    }
+
+    @Test
+    public void localBatchesMatchSteps() {
+        checkAgainstReference(new LocalGlue(new CountingEnvironment(3), new SummingAgent()));
+    }
+
+    @Test
+    public void pooledBatchesMatchSteps() {
+        checkAgainstReference(new LocalGlue(new CountingEnvironment(3), new SummingAgent(), true));
+    }
+
+    @Test
+    public void batchesOnlyGrowAsNeeded() {
+        LocalGlue glue = new LocalGlue(new CountingEnvironment(3), new SummingAgent());
+        glue.RL_init();
+        glue.RL_start();
+        Reward_observation_terminal_batch batch = glue.RL_step_batch(Integer.MAX_VALUE, true);
+        assertTrue(batch.isTerminal());
+        assertEquals(23, batch.getNumSteps());
+        assertTrue(batch.rewards.length < 64);
+        assertTrue(batch.observations.length < 64);
+        glue.RL_cleanup();
+    }
+
+    @Test
+    public void networkBatchesMatchSteps() throws Exception {
+        checkAgainstReference(serveOverNetwork());
+    }
+
+    @Test
+    public void networkCallsMatchLocalGlue() throws Exception {
+        NetGlue glue = serveOverNetwork();
+        assertEquals(reference.RL_init(), glue.RL_init());
+        for (int episode = 0; episode < 3; episode++) {
+            assertEquals(reference.RL_episode(10 * episode), glue.RL_episode(10 * episode));
+            assertEquals(reference.RL_return(), glue.RL_return(), 0.0d);
+            assertEquals(reference.RL_num_steps(), glue.RL_num_steps());
+        }
+        assertEquals(reference.RL_num_episodes(), glue.RL_num_episodes());
+        assertEquals(reference.RL_env_message("x"), glue.RL_env_message("x"));
+        glue.RL_cleanup();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2008 Brian Tanner
+ * http://rl-glue-ext.ext.googlecode.com/
+ * brian@tannerpages.com
+ * http://brian.tannerpages.com
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.rlcommunity.rlglue.codec.trace;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rlcommunity.rlglue.codec.AgentInterface;
+import org.rlcommunity.rlglue.codec.EnvironmentInterface;
+import org.rlcommunity.rlglue.codec.LocalGlue;
+import org.rlcommunity.rlglue.codec.types.Action;
+import org.rlcommunity.rlglue.codec.types.Observation;
+import org.rlcommunity.rlglue.codec.types.Reward_observation_terminal;
+import static org.junit.Assert.*;
+
+/**
+ * Records experiments to traces and replays them.
+ */
+public class TraceTest {
+
+    private File envTrace;
+    private File agentTrace;
+
+    /**
+     * Random walk whose observations depend on the actions, ending after a
+     * seed dependent number of steps.
+     */
+    static class WalkEnvironment implements EnvironmentInterface {
+
+        private final java.util.Random random = new Random(7);
+        private int position;
+        private int steps;
+
+        public String env_init() {
+            return "VERSION RL-Glue-3.0 PROBLEMTYPE episodic EXTRA walk";
+        }
+
+        public Observation env_start() {
+            position = 0;
+            steps = 0;
+            return observation();
+        }
+
+        public Reward_observation_terminal env_step(Action action) {
+            position += action.intArray[0] + random.nextInt(3) - 1;
+            steps++;
+            return new Reward_observation_terminal(position * 0.25, observation(), steps >= 10 + random.nextInt(10));
+        }
+
+        private Observation observation() {
+            Observation o = new Observation(3, 1, 1);
+            o.intArray[0] = position;
+            o.intArray[1] = steps;
+            o.intArray[2] = -position;
+            o.doubleArray[0] = position / 3.0d;
+            o.charArray[0] = (char) ('a' + steps);
+            return o;
+        }
+
+        public void env_cleanup() {
+        }
+
+        public String env_message(String message) {
+            return "";
+        }
+    }
+
+    /**
+     * Steps towards the origin, remembering the sum of what it saw.
+     */
+    static class ReturningAgent implements AgentInterface {
+
+        double seen;
+
+        public void agent_init(String taskSpec) {
+            seen = 0;
+        }
+
+        private Action act(double reward, Observation o) {
+            seen += reward + o.intArray[0] * 3 + o.intArray[1] + o.doubleArray[0] + o.charArray[0];
+            Action a = new Action(1, 0, 0);
+            a.intArray[0] = o.intArray[0] > 0 ? -1 : 1;
+            return a;
+        }
+
+        public Action agent_start(Observation o) {
+            return act(0, o);
+        }
+
+        public Action agent_step(double reward, Observation o) {
+            return act(reward, o);
+        }
+
+        public void agent_end(double reward) {
+            seen += reward;
+        }
+
+        public void agent_cleanup() {
+        }
+
+        public String agent_message(String message) {
+            return "";
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        envTrace = File.createTempFile("env", ".trace");
+        agentTrace = File.createTempFile("agent", ".trace");
+    }
+
+    @After
+    public void tearDown() {
+        envTrace.delete();
+        agentTrace.delete();
+    }
+
+    private static String runEpisodes(LocalGlue glue, ReturningAgent agent, int numEpisodes) {
+        StringBuilder result = new StringBuilder();
+        glue.RL_init();
+        for (int i = 0; i < numEpisodes; i++) {
+            glue.RL_episode(0);
+            result.append(glue.RL_return()).append(' ').append(glue.RL_num_steps()).append(' ');
+        }
+        glue.RL_cleanup();
+        return result.append(agent.seen).toString();
+    }
+
+    private String record(int numEpisodes) throws Exception {
+        TraceWriter envWriter = new TraceWriter(envTrace);
+        TraceWriter agentWriter = new TraceWriter(agentTrace);
+        ReturningAgent agent = new ReturningAgent();
+        String result = runEpisodes(new LocalGlue(new RecordingEnvironment(new WalkEnvironment(), envWriter), new RecordingAgent(agent, agentWriter)), agent, numEpisodes);
+        envWriter.close();
+        agentWriter.close();
+        return result;
+    }
+
+    @Test
+    public void replayMatchesRecording() throws Exception {
+        String recorded = record(5);
+
+        for (int pooled = 0; pooled < 2; pooled++) {
+            ReturningAgent agent = new ReturningAgent();
+            ReplayEnvironment replay = new ReplayEnvironment(envTrace, pooled == 1);
+            assertEquals(recorded, runEpisodes(new LocalGlue(replay, agent, pooled == 1), agent, 5));
+        }
+
+        ReturningAgent agent = new ReturningAgent();
+        assertEquals(recorded, runEpisodes(new LocalGlue(new ReplayEnvironment(agentTrace), agent), agent, 5));
+    }
+
+    @Test
+    public void agentAndEnvironmentRecordTheSameSteps() throws Exception {
+        record(3);
+        TraceReader fromEnv = new TraceReader(envTrace);
+        TraceReader fromAgent = new TraceReader(agentTrace);
+        int numSteps = 0;
+        while (fromEnv.next()) {
+            assertTrue(fromAgent.next());
+            assertEquals(fromEnv.getRecordType(), fromAgent.getRecordType());
+            switch (fromEnv.getRecordType()) {
+                case TraceWriter.kInitRecord:
+                    assertEquals(fromEnv.getTaskSpec(), fromAgent.getTaskSpec());
+                    break;
+                case TraceWriter.kStepRecord:
+                    numSteps++;
+                    assertEquals(0, fromEnv.getAction().compareTo(fromAgent.getAction()));
+                    assertEquals(fromEnv.getReward(), fromAgent.getReward(), 0);
+                    assertEquals(fromEnv.isTerminal(), fromAgent.isTerminal());
+                    if (!fromEnv.isTerminal()) {
+                        assertEquals(0, fromEnv.getObservation().compareTo(fromAgent.getObservation()));
+                    }
+                    break;
+                default:
+                    assertEquals(0, fromEnv.getObservation().compareTo(fromAgent.getObservation()));
+            }
+        }
+        assertFalse(fromAgent.next());
+        assertTrue(numSteps > 30);
+    }
+
+    @Test
+    public void appendsAfterDroppingATornRecord() throws Exception {
+        record(2);
+        TraceReader reader = new TraceReader(envTrace);
+        int numRecords = 0;
+        while (reader.next()) {
+            numRecords++;
+        }
+
+        // Cut the last record in half, as a crash while writing would
+        long length = envTrace.length();
+        RandomAccessFile file = new RandomAccessFile(envTrace, "rw");
+        file.setLength(length - 10);
+        file.close();
+        reader = new TraceReader(envTrace);
+        int numWhole = 0;
+        while (reader.next()) {
+            numWhole++;
+        }
+        assertEquals(numRecords - 1, numWhole);
+
+        TraceWriter writer = new TraceWriter(envTrace);
+        Observation o = new Observation(1, 0, 0);
+        o.intArray[0] = 42;
+        writer.writeStart(o);
+        writer.close();
+
+        reader = new TraceReader(envTrace);
+        int numAfterAppend = 0;
+        while (reader.next()) {
+            numAfterAppend++;
+        }
+        assertEquals(numRecords, numAfterAppend);
+        assertEquals(TraceWriter.kStartRecord, reader.getRecordType());
+        assertEquals(42, reader.getObservation().intArray[0]);
+    }
+}
@@ -38,7 +38,10 @@ public class IslandThread
     m_nextNumber = nextNumber;
     String threadKey = Thread.currentThread().getId() + "/" + m_nextNumber;
     System.out.println("Starting thread: " + nextNumber);
-    Configuration conf = new DefaultConfiguration(threadKey, threadKey);
+    // The configuration is isolated because it is set up here but used by
+    // the island's own thread, concurrently with the other islands.
+    // -------------------------------------------------------------------
+    Configuration conf = new DefaultConfiguration(threadKey, threadKey, true);
     FitnessFunction myFunc =
         new MinimizingMakeChangeFitnessFunction(93);
     conf.setFitnessFunction(myFunc);
@@ -9,12 +9,20 @@
  */
 package org.jgap;
 
+import java.io.*;
 import java.util.*;
-import gnu.trove.*;
+import org.jgap.util.*;
 
 /**
  * The cached fitness function extends the original FitnessFunction
  * functionality in order to reduce evaluating something twice.
+ * <p>
+ * By default, the fitness values are held in a BoundedCache of
+ * DEFAULT_CACHE_SIZE entries that is safe for concurrent evaluation. Its
+ * hit, miss and eviction counters are available via getCache(). Chromosomes
+ * whose genes all have a number, boolean, character or string allele are
+ * looked up by their alleles, other ones by their business key (see
+ * getCacheKey).
  *
  * @author Dennis Fleurbaaij
  * @author Klaus Meffert
@@ -23,21 +31,46 @@ import gnu.trove.*;
  */
 public abstract class CachedFitnessFunction
     extends FitnessFunction {
-  /**@todo allow to restrict size of cache / age of entries*/
   /** String containing the CVS revision. Read out via reflection!*/
-  private final static String CVS_REVISION = "$Revision: 1.4 $";
+  private final static String CVS_REVISION = "$Revision: 1.5 $";
 
-  // Cache with the previous results
+  /**
+   * The number of fitness values cached by default.
+   *
+   * @since 3.7
+   */
+  public final static int DEFAULT_CACHE_SIZE = 10000;
+
+  // Cache with the previous results, if given as a map
   private Map<String, Double> cachedFitnessValues;
 
+  // Cache with the previous results, if bounded
+  private BoundedCache<Object, Double> m_cache;
+
   /**
-   * Default Constructor ensuring downward compatibility.
+   * Constructs a fitness function caching up to DEFAULT_CACHE_SIZE values,
+   * evicting the least recently used ones.
    *
    * @author Tobias Getrost
    * @since 3.3.2
    */
   public CachedFitnessFunction() {
-    this(new THashMap<String, Double> ());
+    this(new BoundedCache<Object, Double> (DEFAULT_CACHE_SIZE));
+  }
+
+  /**
+   * Constructor that allows to use a bounded cache, which may be shared by
+   * several fitness functions evaluating the same.
+   *
+   * @param a_cache the cache for the fitness values
+   *
+   * @since 3.7
+   */
+  public CachedFitnessFunction(BoundedCache<Object, Double> a_cache) {
+    if (a_cache == null) {
+      throw new IllegalArgumentException("Cache must not be null!");
+    }
+    m_cache = a_cache;
   }
 
   /**
@@ -48,7 +81,9 @@ public abstract class CachedFitnessFunction
    * the fitness function.
    *
    * @param cache <code>java.util.Map</code> data structure used to cache the
-   * fitness values
+   * fitness values. It is keyed by business key and not restricted in size,
+   * unless the map takes care of that. <code>new THashMap()</code> was used
+   * by default up to version 3.6
    *
    * @author Tobias Getrost
    * @since 3.3.2
@@ -68,6 +103,9 @@ public abstract class CachedFitnessFunction
    */
   @Override
   public final double getFitnessValue(final IChromosome a_subject) {
+    if (m_cache != null) {
+      return getCachedFitnessValue(a_subject);
+    }
     // Retrieve business key of chromosome.
     // ------------------------------------
     String businessKey = getBusinessKey(a_subject);
@@ -95,6 +133,61 @@ public abstract class CachedFitnessFunction
     return returnValue;
   }
 
+  /**
+   * Looks up the fitness value in the bounded cache.
+   *
+   * @param a_subject the chromosome to evaluate
+   * @return fitness value, from cache if available
+   *
+   * @since 3.7
+   */
+  private double getCachedFitnessValue(final IChromosome a_subject) {
+    Object key = getCacheKey(a_subject);
+    if (key == null) {
+      // Caching not possible.
+      // ---------------------
+      return super.getFitnessValue(a_subject);
+    }
+    Double fitnessValue = m_cache.get(key);
+    if (fitnessValue != null) {
+      return fitnessValue.doubleValue();
+    }
+    double returnValue = super.getFitnessValue(a_subject);
+    m_cache.put(key, returnValue);
+    return returnValue;
+  }
+
+  /**
+   * Retrieves the key to cache the fitness value of a chromosome by.
+   * Chromosomes whose genes all have an immutable allele (a number, boolean,
+   * character or string) are identified by their class and alleles, which is
+   * far cheaper than building their business key. For other chromosomes, the
+   * business key is used. Override to always use the business key if it
+   * identifies chromosomes differently.
+   *
+   * @param a_subject the chromosome to retrieve the key for
+   * @return the key, or null if the fitness value should not be cached
+   *
+   * @since 3.7
+   */
+  protected Object getCacheKey(IChromosome a_subject) {
+    Object key = AlleleKey.forChromosome(a_subject);
+    if (key != null) {
+      return key;
+    }
+    return getBusinessKey(a_subject);
+  }
+
+  /**
+   * @return the bounded cache holding the fitness values together with its
+   * statistics, or null if a map was given as cache
+   *
+   * @since 3.7
+   */
+  public BoundedCache<Object, Double> getCache() {
+    return m_cache;
+  }
+
   /**
    * Retrieves the business key of a chromosome instance.
    *
@@ -119,4 +212,67 @@ public abstract class CachedFitnessFunction
     }
     return result;
   }
+
+  /**
+   * Key of a chromosome consisting of the alleles of its genes.
+   *
+   * @since 3.7
+   */
+  private static class AlleleKey
+      implements Serializable {
+    private final Class m_chromosomeClass;
+
+    private final Object[] m_alleles;
+
+    private final int m_hashCode;
+
+    private AlleleKey(Class a_chromosomeClass, Object[] a_alleles) {
+      m_chromosomeClass = a_chromosomeClass;
+      m_alleles = a_alleles;
+      m_hashCode = 31 * a_chromosomeClass.hashCode()
+          + Arrays.hashCode(a_alleles);
+    }
+
+    /**
+     * @param a_subject the chromosome to build the key for
+     * @return the key, or null if an allele may be modified later on
+     */
+    static AlleleKey forChromosome(IChromosome a_subject) {
+      Gene[] genes = a_subject.getGenes();
+      Object[] alleles = new Object[genes.length];
+      for (int i = 0; i < genes.length; i++) {
+        Object allele = genes[i].getAllele();
+        if (allele != null && !isImmutable(allele.getClass())) {
+          return null;
+        }
+        alleles[i] = allele;
+      }
+      return new AlleleKey(a_subject.getClass(), alleles);
+    }
+
+    private static boolean isImmutable(Class a_class) {
+      return a_class == Integer.class || a_class == Double.class
+          || a_class == Long.class || a_class == Float.class
+          || a_class == Boolean.class || a_class == String.class
+          || a_class == Short.class || a_class == Byte.class
+          || a_class == Character.class;
+    }
+
+    public int hashCode() {
+      return m_hashCode;
+    }
+
+    public boolean equals(Object a_other) {
+      if (this == a_other) {
+        return true;
+      }
+      if (! (a_other instanceof AlleleKey)) {
+        return false;
+      }
+      AlleleKey other = (AlleleKey) a_other;
+      return m_hashCode == other.m_hashCode
+          && m_chromosomeClass == other.m_chromosomeClass
+          && Arrays.equals(m_alleles, other.m_alleles);
+    }
+  }
 }
@@ -48,6 +48,8 @@ package org.jgap;
 import java.lang.reflect.*;
 import java.util.*;
 
+import org.jgap.impl.*;
+
 /**
  * Chromosomes represent potential solutions and consist of a fixed-length
  * collection of genes. Each gene represents a discrete part of the solution.
@@ -349,9 +351,23 @@ public class Chromosome
     if (pool != null) {
       copy = pool.acquireChromosome();
       if (copy != null) {
-        Gene[] genes = copy.getGenes();
-        for (int i = 0; i < size(); i++) {
-          genes[i].setAllele(getGene(i).getAllele());
+        if (!isSameKind(copy)) {
+          // The pool is shared by all chromosomes of the configuration.
+          // Leave a chromosome of another kind to its kind.
+          // -----------------------------------------------------------
+          ChromosomePool.rejectChromosome(pool, copy);
+          copy = null;
+        }
+        else {
+          // Make the recycled chromosome look like a new one.
+          // -------------------------------------------------
+          Gene[] genes = copy.getGenes();
+          for (int i = 0; i < size(); i++) {
+            genes[i].setAllele(cloneAllele(getGene(i).getAllele()));
+          }
+          copy.resetAge();
+          copy.resetOperatedOn();
+          ( (Chromosome) copy).resetMultiObjectives();
         }
       }
     }
@@ -367,25 +383,7 @@ public class Chromosome
           Gene[] copyOfGenes = new Gene[size];
           for (int i = 0; i < size; i++) {
             copyOfGenes[i] = getGene(i).newGene();
-            Object allele = getGene(i).getAllele();
-            if (allele != null) {
-              IJGAPFactory factory = getConfiguration().getJGAPFactory();
-              if (factory != null) {
-                ICloneHandler cloner = factory.
-                    getCloneHandlerFor(allele, allele.getClass());
-                if (cloner != null) {
-                  try {
-                    allele = cloner.perform(allele, null, this);
-                  } catch (Exception ex) {
-                    throw new RuntimeException(ex);
-                  }
-                }
-                else {
-                  /**@todo once output a warning: allele should be cloneable!*/
-                }
-              }
-            }
-            copyOfGenes[i].setAllele(allele);
+            copyOfGenes[i].setAllele(cloneAllele(getGene(i).getAllele()));
           }
           // Now construct a new Chromosome with the copies of the genes and
           // return it. Also clone the IApplicationData object later on.
@@ -464,6 +462,58 @@ public class Chromosome
     return copy;
   }
 
+  /**
+   * Checks if a chromosome, e.g. one recycled from the chromosome pool, can
+   * take the place of a copy of this one: it has to be of the same class and
+   * have genes of the same classes.
+   *
+   * @param a_chromosome the chromosome to check
+   * @return true if the chromosome can be reused as a copy of this one
+   *
+   * @since 3.7
+   */
+  protected boolean isSameKind(final IChromosome a_chromosome) {
+    if (a_chromosome.getClass() != getClass()
+        || a_chromosome.size() != size()) {
+      return false;
+    }
+    for (int i = 0; i < size(); i++) {
+      if (a_chromosome.getGene(i).getClass() != getGene(i).getClass()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Clones an allele by using the clone handler registered for it, if any.
+   *
+   * @param a_allele the allele to clone, may be null
+   * @return cloned allele, or the allele itself if there is no clone handler
+   *
+   * @since 3.7
+   */
+  private Object cloneAllele(Object a_allele) {
+    if (a_allele != null) {
+      IJGAPFactory factory = getConfiguration().getJGAPFactory();
+      if (factory != null) {
+        ICloneHandler cloner = factory.
+            getCloneHandlerFor(a_allele, a_allele.getClass());
+        if (cloner != null) {
+          try {
+            return cloner.perform(a_allele, null, this);
+          } catch (Exception ex) {
+            throw new RuntimeException(ex);
+          }
+        }
+        else {
+          /**@todo once output a warning: allele should be cloneable!*/
+        }
+      }
+    }
+    return a_allele;
+  }
+
   /**
    * Clones an object by using clone handlers. If no deep cloning possible, then
    * return the reference.
@@ -685,6 +735,17 @@ public class Chromosome
     IChromosomePool pool = a_configuration.getChromosomePool();
     if (pool != null) {
       IChromosome randomChromosome = pool.acquireChromosome();
+      IChromosome sample = a_configuration.getSampleChromosome();
+      if (randomChromosome != null
+          && (sample instanceof Chromosome
+              ? !( (Chromosome) sample).isSameKind(randomChromosome)
+              : randomChromosome.getClass() != sample.getClass()
+              || randomChromosome.size() != sample.size())) {
+        // Leave a chromosome of another kind to its kind.
+        // -----------------------------------------------
+        ChromosomePool.rejectChromosome(pool, randomChromosome);
+        randomChromosome = null;
+      }
       if (randomChromosome != null) {
         Gene[] genes = randomChromosome.getGenes();
         RandomGenerator generator = a_configuration.getRandomGenerator();
@@ -694,6 +755,11 @@ public class Chromosome
         }
         randomChromosome.setFitnessValueDirectly(FitnessFunction.
             NO_FITNESS_VALUE);
+        randomChromosome.resetAge();
+        randomChromosome.resetOperatedOn();
+        if (randomChromosome instanceof Chromosome) {
+          ( (Chromosome) randomChromosome).resetMultiObjectives();
+        }
         return randomChromosome;
       }
     }
@@ -1121,4 +1187,14 @@ public class Chromosome
   public List getMultiObjectives() {
     return m_multiObjective;
   }
+
+  /**
+   * Removes the multi-objective values, e.g. of a chromosome recycled from
+   * the chromosome pool.
+   *
+   * @since 3.7
+   */
+  protected void resetMultiObjectives() {
+    m_multiObjective = null;
+  }
 }
@@ -11,6 +11,7 @@ package org.jgap;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.apache.commons.lang.builder.*;
 import org.jgap.audit.*;
@@ -36,6 +37,12 @@ import org.jgap.util.*;
  * for each of the respective mutator methods to determine whether
  * it is required to provide a value for that setting, and what the
  * setting will default to if not.
+ * <p>
+ * Configurations constructed as isolated (see Configuration(String, String,
+ * boolean)) don't register their fitness function and other unique objects
+ * in the thread-keyed system properties. Every isolated configuration belongs
+ * to a single genotype, so several genotypes can be set up and evolved
+ * concurrently within the same JVM.
  *
  * @author Neil Rotstan
  * @author Klaus Meffert
@@ -123,7 +130,7 @@ public class Configuration
    * @author Neil Rotstan
    * @since 1.0
    */
-  private FitnessFunction m_objectiveFunction;
+  private volatile FitnessFunction m_objectiveFunction;
 
   /**
    * The fitness evaluator. See interface class FitnessEvaluator for details.
@@ -153,7 +160,7 @@ public class Configuration
    * @author Neil Rotstan
    * @since 1.0
    */
-  private BulkFitnessFunction m_bulkObjectiveFunction;
+  private volatile BulkFitnessFunction m_bulkObjectiveFunction;
 
 //  /**
 //   * If population size should be kept constant then this selector determines
@@ -182,7 +189,7 @@ public class Configuration
    * @author Neil Rotstan
    * @since 1.0
    */
-  private RandomGenerator m_randomGenerator;
+  private volatile RandomGenerator m_randomGenerator;
 
   /**
    * References the event manager that is to be used for the notification
@@ -339,6 +346,38 @@ public class Configuration
    */
   private IEvolutionMonitor m_monitor;
 
+  /**
+   * The amount of parts the population is split into to evaluate its fitness
+   * concurrently. 1 evaluates the fitness on the evolving thread.
+   *
+   * @since 3.7
+   */
+  private int m_fitnessParallelism;
+
+  /**
+   * The executor evaluating the parts of the population, or null to use a
+   * pool of daemon threads shared by all configurations.
+   *
+   * @since 3.7
+   */
+  private transient ExecutorService m_fitnessExecutor;
+
+  /**
+   * Whether the breeder releases the chromosomes dropped by natural
+   * selection to the chromosome pool.
+   *
+   * @since 3.7
+   */
+  private boolean m_recycleChromosomes;
+
+  /**
+   * True: the configuration is not registered in the thread-keyed system
+   * properties, see isIsolated().
+   *
+   * @since 3.7
+   */
+  private boolean m_isolated;
+
   public Configuration() {
     this("", null);
   }
@@ -354,7 +393,22 @@ public class Configuration
    * @since 1.0
    */
   public Configuration(String a_id, String a_name) {
+    this(a_id, a_name, false);
+  }
+
+  /**
+   * Initialize with default values.
+   *
+   * @param a_id unique id for the configuration within the current thread
+   * @param a_name informative name of the configuration, may be null
+   * @param a_isolated true: don't register the configuration in the
+   * thread-keyed system properties, see isIsolated()
+   *
+   * @since 3.7
+   */
+  public Configuration(String a_id, String a_name, boolean a_isolated) {
 //    m_propertyBag = new Hashtable();
+    m_isolated = a_isolated;
     m_id = a_id;
     setName(a_name);
     makeThreadKey();
@@ -368,6 +422,7 @@ public class Configuration
     m_conHandler.setConfigurable(this);
     m_keepPopulationSizeConstant = true;
     m_alwaysCalculateFitness = false;
+    m_fitnessParallelism = 1;
     // Create factory for being able to configure the used default objects,
     // like random generators or fitness evaluators.
     // --------------------------------------------------------------------
@@ -557,6 +612,11 @@ public class Configuration
    */
   protected void checkProperty(final String a_propname, final Object a_obj,
                                final Object a_oldObj, final String a_errmsg) {
+    if (m_isolated) {
+      // Isolated configurations are not shared, nothing to check.
+      // ---------------------------------------------------------
+      return;
+    }
     String instanceHash = System.getProperty(threadKey + a_propname, null);
     String key = makeKey(a_obj);
     if (instanceHash == null || instanceHash.length() < 1) {
@@ -595,7 +655,7 @@ public class Configuration
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized FitnessFunction getFitnessFunction() {
+  public FitnessFunction getFitnessFunction() {
     return m_objectiveFunction;
   }
 
@@ -656,7 +716,7 @@ public class Configuration
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized BulkFitnessFunction getBulkFitnessFunction() {
+  public BulkFitnessFunction getBulkFitnessFunction() {
     return m_bulkObjectiveFunction;
   }
 
@@ -881,7 +941,7 @@ public class Configuration
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized RandomGenerator getRandomGenerator() {
+  public RandomGenerator getRandomGenerator() {
     return m_randomGenerator;
   }
 
@@ -1046,6 +1106,36 @@ public class Configuration
     return m_chromosomePool;
   }
 
+  /**
+   * Lets the breeder release the chromosomes dropped by the natural selectors
+   * and by keeping the population size constant to the ChromosomePool, from
+   * which the genetic operators acquire them again when cloning. This saves
+   * most of the allocations per generation for large populations.<p>
+   * Released chromosomes are changed when reused. So with recycling, a
+   * chromosome must not be referenced after it dropped out of the population,
+   * e.g. as the best solution found so far; clone it instead.
+   *
+   * @param a_recycleChromosomes true: release dropped chromosomes to the pool
+   * @throws InvalidConfigurationException if this object is locked
+   *
+   * @since 3.7
+   */
+  public void setRecycleChromosomes(final boolean a_recycleChromosomes)
+      throws InvalidConfigurationException {
+    verifyChangesAllowed();
+    m_recycleChromosomes = a_recycleChromosomes;
+  }
+
+  /**
+   * @return true: the breeder releases dropped chromosomes to the chromosome
+   * pool, if there is one
+   *
+   * @since 3.7
+   */
+  public boolean isRecycleChromosomes() {
+    return m_recycleChromosomes;
+  }
+
   /**
    * Locks all of the settings in this configuration object. Once
    * this method is successfully invoked, none of the settings may
@@ -1618,6 +1708,97 @@ public class Configuration
   }
 
 
+  /**
+   * Evaluates the fitness of the chromosomes of a population concurrently
+   * before selection, on a pool of daemon threads shared by all
+   * configurations. The result does not depend on the parallelism: every
+   * chromosome gets the same fitness value and the order of the population is
+   * kept. Fitness functions marked as ISequentialFitnessFunction and bulk
+   * fitness functions are still evaluated on the evolving thread.
+   * <p>
+   * Only chromosomes without a fitness value are evaluated (all of them if
+   * the fitness is always calculated, see setAlwaysCaculateFitness). Note that
+   * with an always calculated fitness, the selectors calculate it again.
+   *
+   * @param a_parallelism the amount of parts to split the population into, 1
+   * for evaluating on the evolving thread
+   *
+   * @since 3.7
+   */
+  public void setParallelFitnessEvaluation(int a_parallelism) {
+    setParallelFitnessEvaluation(a_parallelism, null);
+  }
+
+  /**
+   * Evaluates the fitness of the chromosomes of a population concurrently
+   * before selection, see setParallelFitnessEvaluation(int).
+   *
+   * @param a_parallelism the amount of parts to split the population into, 1
+   * for evaluating on the evolving thread
+   * @param a_executor the executor evaluating the parts, or null to use a
+   * pool of daemon threads shared by all configurations. It is not shut down
+   * by JGAP
+   *
+   * @since 3.7
+   */
+  public void setParallelFitnessEvaluation(int a_parallelism,
+      ExecutorService a_executor) {
+    if (a_parallelism < 1) {
+      throw new IllegalArgumentException(
+          "Fitness parallelism must be at least 1!");
+    }
+    m_fitnessParallelism = a_parallelism;
+    m_fitnessExecutor = a_executor;
+  }
+
+  /**
+   * @return the amount of parts the population is split into to evaluate its
+   * fitness concurrently, 1 if it is evaluated on the evolving thread
+   *
+   * @since 3.7
+   */
+  public int getFitnessParallelism() {
+    return m_fitnessParallelism;
+  }
+
+  /**
+   * @return the executor evaluating the fitness concurrently, or null if the
+   * shared pool is used
+   *
+   * @since 3.7
+   */
+  public ExecutorService getFitnessExecutor() {
+    return m_fitnessExecutor;
+  }
+
+  /**
+   * @return true: the fitness of a population is evaluated concurrently, i.e.
+   * the parallelism is above 1 and the (non-bulk) fitness function is not
+   * marked as ISequentialFitnessFunction
+   *
+   * @since 3.7
+   */
+  public boolean isParallelFitnessEvaluation() {
+    return m_fitnessParallelism > 1 && getBulkFitnessFunction() == null
+        && ! (getFitnessFunction() instanceof ISequentialFitnessFunction);
+  }
+
+  /**
+   * An isolated configuration belongs to a single genotype and is used by one
+   * thread at a time. It doesn't register its fitness function, fitness
+   * evaluator, sample chromosome and event manager in the system properties
+   * keyed by the constructing thread, so Configuration.reset() is not needed
+   * and configurations can be set up on one thread and evolved on another.
+   * Isolated DefaultConfiguration instances use a SplittableRandomGenerator.
+   *
+   * @return true: the configuration is isolated
+   *
+   * @since 3.7
+   */
+  public boolean isIsolated() {
+    return m_isolated;
+  }
+
   protected String makeThreadKey() {
     Thread current = Thread.currentThread();
     threadKey = getThreadKey(current, m_id);
@@ -1757,6 +1938,10 @@ public class Configuration
         result.m_sampleChromosome = (IChromosome) m_sampleChromosome.clone();
       }
       result.m_alwaysCalculateFitness = m_alwaysCalculateFitness;
+      result.m_fitnessParallelism = m_fitnessParallelism;
+      result.m_fitnessExecutor = m_fitnessExecutor;
+      result.m_recycleChromosomes = m_recycleChromosomes;
+      result.m_isolated = m_isolated;
       result.m_settingsLocked = m_settingsLocked;
 //      result.m_propertyBag = (Map)doClone(m_propertyBag);
       // Configurable data.
@@ -0,0 +1,23 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap;
+
+/**
+ * Marker for fitness functions that are not thread-safe. The fitness of a
+ * population is never evaluated concurrently with such a fitness function,
+ * even if parallel fitness evaluation is enabled in the configuration (see
+ * Configuration.setParallelFitnessEvaluation).
+ *
+ * @since 3.7
+ */
+public interface ISequentialFitnessFunction {
+  /** String containing the CVS revision. Read out via reflection!*/
+  final static String CVS_REVISION = "$Revision: 1.1 $";
+}
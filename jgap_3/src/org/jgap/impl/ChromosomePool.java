@@ -9,12 +9,19 @@
  */
 package org.jgap.impl;
 
+import java.util.concurrent.atomic.*;
+
 import org.jgap.*;
 
 /**
  * Provides a pooling mechanism for Chromosome instances so that
  * discarded Chromosome instances can be recycled, thus saving memory and the
- * overhead of constructing new ones from scratch each time.
+ * overhead of constructing new ones from scratch each time.<p>
+ * The pool is bounded and does not lock. It counts how many chromosomes
+ * could be acquired from it and how many had to be constructed instead;
+ * reading and resetting these statistics after each evolution shows the
+ * allocations per generation. See Configuration.setRecycleChromosomes for
+ * letting the breeder release the chromosomes dropped by natural selection.
  *
  * @author Neil Rotstan
  * @author Klaus Meffert
@@ -25,19 +32,67 @@ public class ChromosomePool
   /** String containing the CVS revision. Read out via reflection!*/
   private static final String CVS_REVISION = "$Revision: 1.12 $";
 
+  /**
+   * The default maximum number of chromosomes kept.
+   *
+   * @since 3.7
+   */
+  public static final int DEFAULT_CAPACITY = 10000;
+
   /**
    * The internal pool in which the Chromosomes are stored.
    */
   private Pool m_chromosomePool;
 
   /**
-   * Constructor.
+   * Number of chromosomes acquired from the pool.
+   *
+   * @since 3.7
+   */
+  private final AtomicLong m_hits = new AtomicLong();
+
+  /**
+   * Number of requests the pool was empty for.
+   *
+   * @since 3.7
+   */
+  private final AtomicLong m_misses = new AtomicLong();
+
+  /**
+   * Number of chromosomes released to the pool and kept.
+   *
+   * @since 3.7
+   */
+  private final AtomicLong m_released = new AtomicLong();
+
+  /**
+   * Number of chromosomes released while the pool was full.
+   *
+   * @since 3.7
+   */
+  private final AtomicLong m_discarded = new AtomicLong();
+
+  /**
+   * Constructs a pool keeping at most DEFAULT_CAPACITY chromosomes.
    *
    * @author Neil Rostan
    * @since 1.0
    */
   public ChromosomePool() {
-    m_chromosomePool = new Pool();
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a pool keeping at most the given number of chromosomes. To
+   * recycle all dropped chromosomes, this should be about the population
+   * size.
+   *
+   * @param a_capacity the maximum number of chromosomes kept
+   *
+   * @since 3.7
+   */
+  public ChromosomePool(final int a_capacity) {
+    m_chromosomePool = new Pool(a_capacity);
   }
 
   /**
@@ -51,36 +106,184 @@ public class ChromosomePool
    * @author Neil Rostan
    * @since 1.0
    */
-  public synchronized IChromosome acquireChromosome() {
-    return (IChromosome) m_chromosomePool.acquirePooledObject();
+  public IChromosome acquireChromosome() {
+    IChromosome result = (IChromosome) m_chromosomePool.acquirePooledObject();
+    if (result != null) {
+      m_hits.incrementAndGet();
+    }
+    else {
+      m_misses.incrementAndGet();
+    }
+    return result;
   }
 
   /**
    * Releases a Chromosome to the pool. It's not required that the Chromosome
    * originated from the pool--any Chromosome can be released to it. This
    * method will invoke the cleanup() method on each of the Chromosome's
-   * genes prior to adding it back to the pool.
+   * genes prior to adding it back to the pool. If the pool is full, the
+   * Chromosome is left to the garbage collector.
    *
    * @param a_chromosome the Chromosome instance to be released into the pool
    *
    * @author Neil Rostan
    * @since 1.0
    */
-  public synchronized void releaseChromosome(final IChromosome a_chromosome) {
+  public void releaseChromosome(final IChromosome a_chromosome) {
     if (a_chromosome == null) {
       throw new IllegalArgumentException(
           "Chromosome instance must not be null!");
     }
     // First cleanup the chromosome's genes before returning it back
-    // to the pool.
-    // -------------------------------------------------------------
-    Gene[] genes = a_chromosome.getGenes();
-    int size = a_chromosome.size();
-    for (int i = 0; i < size; i++) {
-      genes[i].cleanup();
+    // to the pool. The values of a DoubleArrayChromosome need no cleanup,
+    // and requesting its genes would create views of them.
+    // -------------------------------------------------------------------
+    if (! (a_chromosome instanceof DoubleArrayChromosome)) {
+      Gene[] genes = a_chromosome.getGenes();
+      int size = a_chromosome.size();
+      for (int i = 0; i < size; i++) {
+        genes[i].cleanup();
+      }
     }
     // Now add it to the pool.
     // -----------------------
-    m_chromosomePool.releaseObject(a_chromosome);
+    if (m_chromosomePool.releaseObject(a_chromosome)) {
+      m_released.incrementAndGet();
+    }
+    else {
+      m_discarded.incrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a chromosome just acquired from the pool that the caller cannot
+   * use, e.g. because it is of another kind or size. The request is counted
+   * as a miss instead of a hit and the chromosome is put back without being
+   * counted as released again. If the pool is full meanwhile, the chromosome
+   * is counted as discarded.
+   *
+   * @param a_chromosome the acquired Chromosome instance to put back
+   *
+   * @since 3.7
+   */
+  public void rejectChromosome(final IChromosome a_chromosome) {
+    if (a_chromosome == null) {
+      throw new IllegalArgumentException(
+          "Chromosome instance must not be null!");
+    }
+    m_hits.decrementAndGet();
+    m_misses.incrementAndGet();
+    // The genes were cleaned up when the chromosome was released.
+    // -----------------------------------------------------------
+    if (!m_chromosomePool.releaseObject(a_chromosome)) {
+      m_discarded.incrementAndGet();
+    }
+  }
+
+  /**
+   * Puts a chromosome acquired from the given pool back without using it.
+   * A ChromosomePool then counts the request as a miss, any other pool gets
+   * the chromosome released again.
+   *
+   * @param a_pool the pool the chromosome was acquired from
+   * @param a_chromosome the acquired Chromosome instance to put back
+   *
+   * @since 3.7
+   */
+  public static void rejectChromosome(final IChromosomePool a_pool,
+                                      final IChromosome a_chromosome) {
+    if (a_pool instanceof ChromosomePool) {
+      ( (ChromosomePool) a_pool).rejectChromosome(a_chromosome);
+    }
+    else {
+      a_pool.releaseChromosome(a_chromosome);
+    }
+  }
+
+  /**
+   * @return the number of chromosomes currently in the pool
+   *
+   * @since 3.7
+   */
+  public int size() {
+    return m_chromosomePool.size();
+  }
+
+  /**
+   * @return the maximum number of chromosomes kept
+   *
+   * @since 3.7
+   */
+  public int getCapacity() {
+    return m_chromosomePool.getCapacity();
+  }
+
+  /**
+   * @return the number of chromosomes acquired from the pool since
+   * construction or the last reset of the statistics
+   *
+   * @since 3.7
+   */
+  public long getHits() {
+    return m_hits.get();
+  }
+
+  /**
+   * @return the number of requests the pool was empty for, i.e. the number
+   * of chromosomes constructed instead, since construction or the last reset
+   * of the statistics
+   *
+   * @since 3.7
+   */
+  public long getMisses() {
+    return m_misses.get();
+  }
+
+  /**
+   * @return the number of chromosomes released to and kept by the pool since
+   * construction or the last reset of the statistics
+   *
+   * @since 3.7
+   */
+  public long getReleased() {
+    return m_released.get();
+  }
+
+  /**
+   * @return the number of chromosomes released while the pool was full since
+   * construction or the last reset of the statistics
+   *
+   * @since 3.7
+   */
+  public long getDiscarded() {
+    return m_discarded.get();
+  }
+
+  /**
+   * @return the fraction of requests served from the pool, 0 if there was no
+   * request
+   *
+   * @since 3.7
+   */
+  public double getHitRate() {
+    long hits = getHits();
+    long total = hits + getMisses();
+    if (total == 0) {
+      return 0.0d;
+    }
+    return (double) hits / total;
+  }
+
+  /**
+   * Resets all counters, e.g. after each generation. The chromosomes in the
+   * pool are kept.
+   *
+   * @since 3.7
+   */
+  public void resetStatistics() {
+    m_hits.set(0);
+    m_misses.set(0);
+    m_released.set(0);
+    m_discarded.set(0);
   }
 }
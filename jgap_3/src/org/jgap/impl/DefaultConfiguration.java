@@ -48,10 +48,32 @@ public class DefaultConfiguration
    * @since 1.0
    */
   public DefaultConfiguration(String a_id, String a_name) {
-    super(a_id, a_name);
+    this(a_id, a_name, false);
+  }
+
+  /**
+   * Constructs a new DefaultConfiguration instance with a number of
+   * configuration settings set to default values, see
+   * DefaultConfiguration(String, String). An isolated configuration uses a
+   * SplittableRandomGenerator of its own.
+   *
+   * @param a_id unique id for the configuration within the current thread
+   * @param a_name informative name of the configuration, may be null
+   * @param a_isolated true: the configuration is confined to a single
+   * genotype, see Configuration.isIsolated()
+   *
+   * @since 3.7
+   */
+  public DefaultConfiguration(String a_id, String a_name, boolean a_isolated) {
+    super(a_id, a_name, a_isolated);
     try {
       setBreeder(new GABreeder());
-      setRandomGenerator(new StockRandomGenerator());
+      if (a_isolated) {
+        setRandomGenerator(new SplittableRandomGenerator());
+      }
+      else {
+        setRandomGenerator(new StockRandomGenerator());
+      }
       setEventManager(new EventManager());
       BestChromosomesSelector bestChromsSelector = new BestChromosomesSelector(
           this, 0.90d);
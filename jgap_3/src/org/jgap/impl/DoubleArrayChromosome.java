@@ -0,0 +1,526 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import java.util.*;
+
+import org.jgap.*;
+
+/**
+ * Chromosome of bounded double values held in a single double[] instead of
+ * one DoubleGene with a boxed allele per locus. Copying, mutating and
+ * crossing over such chromosomes doesn't create any garbage besides the new
+ * array. Use DoubleArrayMutationOperator and DoubleArrayCrossoverOperator to
+ * work on the values directly; fitness functions can read them via
+ * getValue(int) or getValues().<p>
+ * Code working on genes still works: getGenes() returns DoubleGene views of
+ * the values, created when first needed. Changing the allele of a view
+ * changes the value of the chromosome and vice versa, until getValues() is
+ * called, which detaches the views.<p>
+ * The bounds are shared by all copies of a chromosome and must not be
+ * changed. As with DoubleGene, a value outside of its bounds is replaced by a
+ * random value within the bounds.<p>
+ * Copies and random chromosomes reuse released chromosomes with the same
+ * bounds from the chromosome pool of the configuration, if any.
+ *
+ * @since 3.7
+ */
+public class DoubleArrayChromosome
+    extends Chromosome {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  /**
+   * The values of the loci.
+   */
+  private double[] m_values;
+
+  /**
+   * The lower bound of each locus, shared by all copies.
+   */
+  private final double[] m_lowerBounds;
+
+  /**
+   * The upper bound of each locus, shared by all copies.
+   */
+  private final double[] m_upperBounds;
+
+  /**
+   * The genes viewing the values, null if not requested since creation or
+   * the last call of getValues().
+   */
+  private transient Gene[] m_geneView;
+
+  /**
+   * Constructs a chromosome with all values in the same range, set to the
+   * lower bound.
+   *
+   * @param a_configuration the configuration to use
+   * @param a_size the number of values
+   * @param a_lowerBound the lowest value allowed
+   * @param a_upperBound the highest value allowed
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayChromosome(final Configuration a_configuration,
+                               final int a_size, final double a_lowerBound,
+                               final double a_upperBound)
+      throws InvalidConfigurationException {
+    this(a_configuration, fill(a_size, a_lowerBound),
+         fill(a_size, a_upperBound));
+  }
+
+  /**
+   * Constructs a chromosome with a range per value, the values set to the
+   * lower bounds.
+   *
+   * @param a_configuration the configuration to use
+   * @param a_lowerBounds the lowest value allowed for each locus
+   * @param a_upperBounds the highest value allowed for each locus
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayChromosome(final Configuration a_configuration,
+                               final double[] a_lowerBounds,
+                               final double[] a_upperBounds)
+      throws InvalidConfigurationException {
+    this(a_configuration, a_lowerBounds.clone(), a_upperBounds.clone(),
+         a_lowerBounds.clone());
+    if (a_lowerBounds.length < 1) {
+      throw new IllegalArgumentException(
+          "Chromosome size must be greater than zero");
+    }
+    if (a_lowerBounds.length != a_upperBounds.length) {
+      throw new IllegalArgumentException(
+          "There must be as many lower as upper bounds");
+    }
+    for (int i = 0; i < a_lowerBounds.length; i++) {
+      if (! (a_lowerBounds[i] <= a_upperBounds[i])) {
+        throw new IllegalArgumentException("Lower bound at index " + i
+            + " must not be greater than upper bound");
+      }
+    }
+  }
+
+  private DoubleArrayChromosome(final Configuration a_configuration,
+                                final double[] a_lowerBounds,
+                                final double[] a_upperBounds,
+                                final double[] a_values)
+      throws InvalidConfigurationException {
+    super(a_configuration);
+    m_lowerBounds = a_lowerBounds;
+    m_upperBounds = a_upperBounds;
+    m_values = a_values;
+  }
+
+  private static double[] fill(int a_size, double a_value) {
+    double[] result = new double[a_size];
+    Arrays.fill(result, a_value);
+    return result;
+  }
+
+  /**
+   * @param a_locus the locus of the value
+   * @return the value at the locus
+   *
+   * @since 3.7
+   */
+  public double getValue(int a_locus) {
+    return m_values[a_locus];
+  }
+
+  /**
+   * Sets a value, replacing it by a random value within the bounds if it
+   * exceeds them.
+   *
+   * @param a_locus the locus of the value
+   * @param a_value the new value
+   *
+   * @since 3.7
+   */
+  public void setValue(int a_locus, double a_value) {
+    if (m_geneView != null) {
+      // The view writes the value back.
+      // -------------------------------
+      m_geneView[a_locus].setAllele(new Double(a_value));
+    }
+    else {
+      m_values[a_locus] = mapToBounds(a_locus, a_value);
+    }
+  }
+
+  /**
+   * Returns the array holding the values. Changes to the array change the
+   * chromosome; values must be kept within the bounds. Gene views obtained
+   * before no longer reflect the values.
+   *
+   * @return the values of the chromosome
+   *
+   * @since 3.7
+   */
+  public double[] getValues() {
+    m_geneView = null;
+    return m_values;
+  }
+
+  /**
+   * @param a_locus the locus
+   * @return the lowest value allowed at the locus
+   *
+   * @since 3.7
+   */
+  public double getLowerBound(int a_locus) {
+    return m_lowerBounds[a_locus];
+  }
+
+  /**
+   * @param a_locus the locus
+   * @return the highest value allowed at the locus
+   *
+   * @since 3.7
+   */
+  public double getUpperBound(int a_locus) {
+    return m_upperBounds[a_locus];
+  }
+
+  /**
+   * Mutates a value like DoubleGene.applyMutation does.
+   *
+   * @param a_locus the locus of the value
+   * @param a_percentage the fraction of the range to add, between -1 and 1
+   *
+   * @since 3.7
+   */
+  public void applyMutation(int a_locus, double a_percentage) {
+    double range = (m_upperBounds[a_locus] - m_lowerBounds[a_locus])
+        * a_percentage;
+    setValue(a_locus, m_values[a_locus] + range);
+  }
+
+  /**
+   * Maps a value exceeding the bounds of a locus to a random value within
+   * them, like DoubleGene does.
+   *
+   * @param a_locus the locus
+   * @param a_value the value
+   * @return the value if within the bounds, a random value otherwise
+   */
+  private double mapToBounds(int a_locus, double a_value) {
+    double lower = m_lowerBounds[a_locus];
+    double upper = m_upperBounds[a_locus];
+    if ( (a_value > upper || a_value < lower) && !Double.isInfinite(a_value)) {
+      return getConfiguration().getRandomGenerator().nextDouble()
+          * (upper - lower) + lower;
+    }
+    return a_value;
+  }
+
+  public int size() {
+    return m_values.length;
+  }
+
+  /**
+   * @return DoubleGene views of the values, see class comment
+   *
+   * @since 3.7
+   */
+  public synchronized Gene[] getGenes() {
+    if (m_geneView == null) {
+      try {
+        Gene[] view = new Gene[m_values.length];
+        for (int i = 0; i < view.length; i++) {
+          view[i] = new LocusGene(this, i);
+        }
+        m_geneView = view;
+      } catch (InvalidConfigurationException iex) {
+        throw new IllegalStateException(iex.getMessage());
+      }
+    }
+    return m_geneView;
+  }
+
+  public Gene getGene(int a_desiredLocus) {
+    return getGenes()[a_desiredLocus];
+  }
+
+  /**
+   * Takes over the values of the given genes, which must be numbers.
+   *
+   * @param a_genes the genes to take the values from
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public void setGenes(Gene[] a_genes)
+      throws InvalidConfigurationException {
+    if (a_genes.length != m_values.length) {
+      throw new InvalidConfigurationException("Expected "
+          + m_values.length + " genes instead of " + a_genes.length);
+    }
+    for (int i = 0; i < a_genes.length; i++) {
+      if (a_genes[i] != null) {
+        setGene(i, a_genes[i]);
+      }
+    }
+  }
+
+  public void setGene(int a_index, Gene a_gene) {
+    setValue(a_index, ( (Number) a_gene.getAllele()).doubleValue());
+  }
+
+  /**
+   * Persists the values as DoubleGene's, so that the representation can be
+   * read by Chromosome as well.
+   *
+   * @param a_buffer the buffer to append the representation to
+   *
+   * @since 3.7
+   */
+  public void getGenesPersistentRepresentation(StringBuffer a_buffer) {
+    Gene[] genes = getGenes();
+    for (int i = 0; i < genes.length; i++) {
+      a_buffer.append(GENE_DELIMITER_HEADING);
+      a_buffer.append(encode(DoubleGene.class.getName() + GENE_DELIMITER
+                             + genes[i].getPersistentRepresentation()));
+      a_buffer.append(GENE_DELIMITER_CLOSING);
+    }
+  }
+
+  /**
+   * @return a copy sharing the bounds, without any gene views
+   *
+   * @since 3.7
+   */
+  public synchronized Object clone() {
+    try {
+      DoubleArrayChromosome copy = acquirePooledChromosome();
+      if (copy == null) {
+        copy = new DoubleArrayChromosome(getConfiguration(), m_lowerBounds,
+                                         m_upperBounds, m_values.clone());
+      }
+      else {
+        System.arraycopy(m_values, 0, copy.m_values, 0, m_values.length);
+      }
+      copy.setFitnessValue(m_fitnessValue);
+      copy.setConstraintChecker(getConstraintChecker());
+      copy.setApplicationData(cloneObject(getApplicationData()));
+      return copy;
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex.getMessage());
+    }
+  }
+
+  /**
+   * Resets the state of this chromosome and releases it to the chromosome
+   * pool, if any.
+   *
+   * @since 3.7
+   */
+  public void cleanup() {
+    m_fitnessValue = FitnessFunction.NO_FITNESS_VALUE;
+    setIsSelectedForNextGeneration(false);
+    IChromosomePool pool = getConfiguration().getChromosomePool();
+    if (pool != null) {
+      pool.releaseChromosome(this);
+    }
+  }
+
+  /**
+   * @param a_chromosome the chromosome to check
+   * @return true if the chromosome is a DoubleArrayChromosome with the same
+   * bounds as this one
+   *
+   * @since 3.7
+   */
+  protected boolean isSameKind(final IChromosome a_chromosome) {
+    if (a_chromosome.getClass() != getClass()) {
+      return false;
+    }
+    DoubleArrayChromosome other = (DoubleArrayChromosome) a_chromosome;
+    return (other.m_lowerBounds == m_lowerBounds
+            && other.m_upperBounds == m_upperBounds)
+        || (Arrays.equals(other.m_lowerBounds, m_lowerBounds)
+            && Arrays.equals(other.m_upperBounds, m_upperBounds));
+  }
+
+  /**
+   * @return a released chromosome of this class and with the same bounds from
+   * the chromosome pool, or null if there is none. It has no gene views and
+   * its values are undefined
+   */
+  private DoubleArrayChromosome acquirePooledChromosome() {
+    IChromosomePool pool = getConfiguration().getChromosomePool();
+    if (pool == null) {
+      return null;
+    }
+    IChromosome pooled = pool.acquireChromosome();
+    if (pooled == null) {
+      return null;
+    }
+    if (isSameKind(pooled)) {
+      DoubleArrayChromosome result = (DoubleArrayChromosome) pooled;
+      result.m_geneView = null;
+      result.resetAge();
+      result.resetOperatedOn();
+      result.resetMultiObjectives();
+      return result;
+    }
+    // Leave a chromosome of another kind to its kind.
+    // -----------------------------------------------
+    ChromosomePool.rejectChromosome(pool, pooled);
+    return null;
+  }
+
+  /**
+   * Creates a chromosome with the bounds of this one and random values. The
+   * random numbers are drawn like for a Chromosome of DoubleGene's.
+   *
+   * @return the new chromosome
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayChromosome randomInitialChromosome()
+      throws InvalidConfigurationException {
+    getConfiguration().lockSettings();
+    DoubleArrayChromosome result = acquirePooledChromosome();
+    if (result == null) {
+      result = new DoubleArrayChromosome(getConfiguration(), m_lowerBounds,
+                                         m_upperBounds,
+                                         new double[m_values.length]);
+    }
+    else {
+      result.m_fitnessValue = FitnessFunction.NO_FITNESS_VALUE;
+      result.setApplicationData(null);
+    }
+    result.setConstraintChecker(getConstraintChecker());
+    RandomGenerator generator = getConfiguration().getRandomGenerator();
+    double[] values = result.m_values;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (m_upperBounds[i] - m_lowerBounds[i])
+          * generator.nextDouble() + m_lowerBounds[i];
+    }
+    return result;
+  }
+
+  public boolean isHandlerFor(Object a_obj, Class a_class) {
+    return a_class == DoubleArrayChromosome.class;
+  }
+
+  public Object perform(Object a_obj, Class a_class, Object a_params)
+      throws Exception {
+    return randomInitialChromosome();
+  }
+
+  /**
+   * @return the same hash code as a Chromosome of DoubleGene's with the same
+   * values
+   *
+   * @since 3.7
+   */
+  public int hashCode() {
+    int hashCode = 1;
+    for (int i = 0; i < m_values.length; i++) {
+      long bits = Double.doubleToLongBits(m_values[i]);
+      hashCode = 31 * hashCode + (int) (bits ^ (bits >>> 32));
+    }
+    return hashCode;
+  }
+
+  /**
+   * Compares the values directly if the other chromosome is a
+   * DoubleArrayChromosome, otherwise like Chromosome.compareTo.
+   *
+   * @param a_other the chromosome to compare with
+   * @return a negative number, zero or a positive number if this chromosome
+   * is less than, equal to or greater than the other one
+   *
+   * @since 3.7
+   */
+  public int compareTo(Object a_other) {
+    if (a_other instanceof DoubleArrayChromosome) {
+      double[] otherValues = ( (DoubleArrayChromosome) a_other).m_values;
+      if (otherValues.length != m_values.length) {
+        return m_values.length - otherValues.length;
+      }
+      for (int i = 0; i < m_values.length; i++) {
+        int comparison = Double.compare(m_values[i], otherValues[i]);
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      // Equal values: let the fitness value and application data decide.
+      // ----------------------------------------------------------------
+    }
+    return super.compareTo(a_other);
+  }
+
+  public String toString() {
+    StringBuffer representation = new StringBuffer();
+    representation.append(S_SIZE + ":" + size());
+    representation.append(", " + S_FITNESS_VALUE + ":" + m_fitnessValue);
+    representation.append(", " + S_ALLELES + ":");
+    representation.append(Arrays.toString(m_values));
+    return representation.toString();
+  }
+
+  /**
+   * DoubleGene viewing a value of a DoubleArrayChromosome. Setting its
+   * allele sets the value, as long as the view is attached. New genes are
+   * detached views, so that they compare equal to the views.
+   */
+  private static class LocusGene
+      extends DoubleGene {
+    private final DoubleArrayChromosome m_chromosome;
+
+    private final int m_locus;
+
+    LocusGene(DoubleArrayChromosome a_chromosome, int a_locus)
+        throws InvalidConfigurationException {
+      super(a_chromosome.getConfiguration(),
+            a_chromosome.m_lowerBounds[a_locus],
+            a_chromosome.m_upperBounds[a_locus]);
+      m_chromosome = a_chromosome;
+      m_locus = a_locus;
+      super.setAllele(new Double(a_chromosome.m_values[a_locus]));
+    }
+
+    private LocusGene(Configuration a_config, double a_lowerBound,
+                      double a_upperBound)
+        throws InvalidConfigurationException {
+      super(a_config, a_lowerBound, a_upperBound);
+      m_chromosome = null;
+      m_locus = -1;
+    }
+
+    protected Gene newGeneInternal() {
+      try {
+        return new LocusGene(getConfiguration(), getLowerBound(),
+                             getUpperBound());
+      }
+      catch (InvalidConfigurationException iex) {
+        throw new IllegalStateException(iex.getMessage());
+      }
+    }
+
+    public void setAllele(Object a_newValue) {
+      super.setAllele(a_newValue);
+      if (m_chromosome == null) {
+        return;
+      }
+      Gene[] view = m_chromosome.m_geneView;
+      if (view != null && view[m_locus] == this && getAllele() != null) {
+        m_chromosome.m_values[m_locus] = doubleValue();
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import java.util.*;
+
+import org.jgap.*;
+
+/**
+ * Crossover operator swapping the values of DoubleArrayChromosome's
+ * directly, without going through gene views and boxed alleles. It picks
+ * chromosomes and loci exactly like CrossoverOperator does for Chromosome's
+ * of DoubleGene's, which it falls back to for other chromosomes.
+ *
+ * @since 3.7
+ */
+public class DoubleArrayCrossoverOperator
+    extends CrossoverOperator {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  /**
+   * Constructs a crossover operator with a DefaultCrossoverRateCalculator.
+   *
+   * @param a_configuration the configuration to use
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayCrossoverOperator(final Configuration a_configuration)
+      throws InvalidConfigurationException {
+    super(a_configuration);
+  }
+
+  /**
+   * @param a_configuration the configuration to use
+   * @param a_desiredCrossoverRate the desired rate of crossover, expressed
+   * as the denominator of the 1 / X fraction
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayCrossoverOperator(final Configuration a_configuration,
+                                      final int a_desiredCrossoverRate)
+      throws InvalidConfigurationException {
+    super(a_configuration, a_desiredCrossoverRate);
+  }
+
+  /**
+   * @param a_configuration the configuration to use
+   * @param a_crossoverRatePercentage the number of crossovers as a fraction
+   * of the population size
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayCrossoverOperator(final Configuration a_configuration,
+                                      final double a_crossoverRatePercentage)
+      throws InvalidConfigurationException {
+    super(a_configuration, a_crossoverRatePercentage);
+  }
+
+  /**
+   * @param a_configuration the configuration to use
+   * @param a_crossoverRatePercentage the number of crossovers as a fraction
+   * of the population size
+   * @param a_allowFullCrossOver true: crossing over may start at the first
+   * locus
+   * @param a_xoverNewAge true: also cross over newly created chromosomes
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayCrossoverOperator(final Configuration a_configuration,
+                                      final double a_crossoverRatePercentage,
+                                      final boolean a_allowFullCrossOver,
+                                      final boolean a_xoverNewAge)
+      throws InvalidConfigurationException {
+    super(a_configuration, a_crossoverRatePercentage, a_allowFullCrossOver,
+          a_xoverNewAge);
+  }
+
+  protected void doCrossover(IChromosome firstMate, IChromosome secondMate,
+                             List a_candidateChromosomes,
+                             RandomGenerator generator) {
+    if (m_monitorActive || ! (firstMate instanceof DoubleArrayChromosome)
+        || ! (secondMate instanceof DoubleArrayChromosome)) {
+      super.doCrossover(firstMate, secondMate, a_candidateChromosomes,
+                        generator);
+      return;
+    }
+    double[] firstValues = ( (DoubleArrayChromosome) firstMate).getValues();
+    double[] secondValues = ( (DoubleArrayChromosome) secondMate).getValues();
+    int locus = generator.nextInt(firstValues.length);
+    // Swap the values from the locus on.
+    // ----------------------------------
+    for (int j = locus; j < firstValues.length; j++) {
+      double firstValue = firstValues[j];
+      firstValues[j] = secondValues[j];
+      secondValues[j] = firstValue;
+    }
+    a_candidateChromosomes.add(firstMate);
+    a_candidateChromosomes.add(secondMate);
+  }
+}
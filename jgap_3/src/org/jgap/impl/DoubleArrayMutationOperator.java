@@ -0,0 +1,131 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import java.util.*;
+
+import org.jgap.*;
+
+/**
+ * Mutation operator working on the values of DoubleArrayChromosome's
+ * directly, without going through gene views and boxed alleles. It decides
+ * on mutations and draws random numbers exactly like MutationOperator does
+ * for a Chromosome of DoubleGene's. Populations containing other chromosomes
+ * are mutated by MutationOperator.
+ *
+ * @since 3.7
+ */
+public class DoubleArrayMutationOperator
+    extends MutationOperator {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  /**
+   * Constructs a mutation operator with a DefaultMutationRateCalculator.
+   *
+   * @param a_conf the configuration to use
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayMutationOperator(final Configuration a_conf)
+      throws InvalidConfigurationException {
+    super(a_conf);
+  }
+
+  /**
+   * @param a_config the configuration to use
+   * @param a_mutationRateCalculator calculator for dynamic mutation rate
+   * computation
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayMutationOperator(final Configuration a_config,
+                                     final IUniversalRateCalculator
+                                     a_mutationRateCalculator)
+      throws InvalidConfigurationException {
+    super(a_config, a_mutationRateCalculator);
+  }
+
+  /**
+   * @param a_config the configuration to use
+   * @param a_desiredMutationRate the desired rate of mutation, expressed as
+   * the denominator of the 1 / X fraction. A rate of zero disables mutation
+   * @throws InvalidConfigurationException
+   *
+   * @since 3.7
+   */
+  public DoubleArrayMutationOperator(final Configuration a_config,
+                                     final int a_desiredMutationRate)
+      throws InvalidConfigurationException {
+    super(a_config, a_desiredMutationRate);
+  }
+
+  public void operate(final Population a_population,
+                      final List a_candidateChromosomes) {
+    if (a_population == null || a_candidateChromosomes == null) {
+      return;
+    }
+    IUniversalRateCalculator rateCalc = getMutationRateCalc();
+    int mutationRate = getMutationRate();
+    if (mutationRate == 0 && rateCalc == null) {
+      return;
+    }
+    int size = Math.min(getConfiguration().getPopulationSize(),
+                        a_population.size());
+    if (m_monitorActive || !isDoubleArrayPopulation(a_population, size)) {
+      super.operate(a_population, a_candidateChromosomes);
+      return;
+    }
+    RandomGenerator generator = getConfiguration().getRandomGenerator();
+    IGeneticOperatorConstraint constraint = getConfiguration().
+        getJGAPFactory().getGeneticOperatorConstraint();
+    for (int i = 0; i < size; i++) {
+      IChromosome chrom = a_population.getChromosome(i);
+      DoubleArrayChromosome copyOfChromosome = null;
+      int length = chrom.size();
+      for (int j = 0; j < length; j++) {
+        boolean mutate;
+        if (rateCalc != null) {
+          mutate = rateCalc.toBePermutated(chrom, j);
+        }
+        else {
+          mutate = (generator.nextInt(mutationRate) == 0);
+        }
+        if (mutate) {
+          if (constraint != null) {
+            List v = new Vector();
+            v.add(chrom);
+            if (!constraint.isValid(a_population, v, this)) {
+              continue;
+            }
+          }
+          // Mutate a copy, which is considered for natural selection.
+          // ----------------------------------------------------------
+          if (copyOfChromosome == null) {
+            copyOfChromosome = (DoubleArrayChromosome) chrom.clone();
+            a_candidateChromosomes.add(copyOfChromosome);
+          }
+          copyOfChromosome.applyMutation(j, -1 + generator.nextDouble() * 2);
+        }
+      }
+    }
+  }
+
+  private boolean isDoubleArrayPopulation(Population a_population, int a_size) {
+    for (int i = 0; i < a_size; i++) {
+      if (! (a_population.getChromosome(i) instanceof DoubleArrayChromosome)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
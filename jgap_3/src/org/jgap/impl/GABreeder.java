@@ -10,6 +10,8 @@
 package org.jgap.impl;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import org.jgap.*;
 import org.jgap.audit.*;
 import org.jgap.event.*;
@@ -30,6 +32,13 @@ public class GABreeder
 
   private transient Population m_lastPop;
 
+  /**
+   * Pool of daemon threads evaluating the fitness of configurations that
+   * enable parallel fitness evaluation without an executor of their own.
+   * Created when first needed.
+   */
+  private static ExecutorService m_sharedFitnessExecutor;
+
   //It contains clones of the chromosomes with the fitness value removed
   //We will use it to remove the duplicates
   List<IChromosome> m_allChromosomesSoFar;
@@ -57,6 +66,7 @@ public class GABreeder
     Population pop = a_pop;
     BulkFitnessFunction bulkFunction = a_conf.getBulkFitnessFunction();
     boolean monitorActive = a_conf.getMonitor() != null;
+    boolean recycle = isRecycleChromosomes(a_conf);
     IChromosome fittest = null;
     // If first generation: Set age to one to allow genetic operations,
     // see CrossoverOperator for an illustration.
@@ -92,8 +102,12 @@ public class GABreeder
       // not in the very first generation.
       // -------------------------------------------------------------------
       if (a_conf.isPreserveFittestIndividual()) {
-        /**@todo utilize jobs. In pop do also utilize jobs, especially for fitness
-         * computation*/
+        // Determining the fittest chromosome computes missing fitness values,
+        // so compute them concurrently first if wanted.
+        // -------------------------------------------------------------------
+        if (a_conf.isParallelFitnessEvaluation()) {
+          evaluateInParallel(pop, a_conf);
+        }
         fittest = pop.determineFittestChromosome(0, pop.size() - 1);
       }
     }
@@ -107,7 +121,14 @@ public class GABreeder
       // If it is not the last call to evolve() then the next call will
       // ensure the correct population size by calling keepPopSizeConstant.
       // ------------------------------------------------------------------
+      List previous = null;
+      if (recycle) {
+        previous = new ArrayList(pop.getChromosomes());
+      }
       keepPopSizeConstant(pop, a_conf);
+      if (recycle) {
+        recycleDropped(previous, pop, fittest);
+      }
     }
     // Ensure fitness value of all chromosomes is udpated.
     // ---------------------------------------------------
@@ -128,7 +149,11 @@ public class GABreeder
     }
     // Apply certain NaturalSelectors before GeneticOperators will be executed.
     // ------------------------------------------------------------------------
-    pop = applyNaturalSelectors(a_conf, pop, true);
+    Population selected = applyNaturalSelectors(a_conf, pop, true);
+    if (recycle && selected != pop) {
+      recycleDropped(pop.getChromosomes(), selected, fittest);
+    }
+    pop = selected;
     int newChromIndex = pop.size();
     // Execute all of the Genetic Operators.
     // -------------------------------------
@@ -189,7 +214,11 @@ public class GABreeder
     }
     // Apply certain NaturalSelectors after GeneticOperators have been applied.
     // ------------------------------------------------------------------------
-    pop = applyNaturalSelectors(a_conf, pop, false);
+    selected = applyNaturalSelectors(a_conf, pop, false);
+    if (recycle && selected != pop) {
+      recycleDropped(pop.getChromosomes(), selected, fittest);
+    }
+    pop = selected;
     // Fill up population randomly if size dropped below specified percentage
     // of original size.
     // ----------------------------------------------------------------------
@@ -290,6 +319,53 @@ public class GABreeder
     }
   }
 
+  /**
+   * Determines whether dropped chromosomes are released to the chromosome
+   * pool. Monitors and bulk fitness functions may hold on to chromosomes of
+   * earlier populations, so recycling is off for them.
+   *
+   * @param a_conf the configuration to use
+   * @return true: release dropped chromosomes to the pool
+   *
+   * @since 3.7
+   */
+  protected boolean isRecycleChromosomes(Configuration a_conf) {
+    return a_conf.isRecycleChromosomes()
+        && a_conf.getChromosomePool() != null
+        && a_conf.getMonitor() == null
+        && a_conf.getBulkFitnessFunction() == null;
+  }
+
+  /**
+   * Releases the chromosomes that are no longer part of the population to the
+   * chromosome pool by cleaning them up. Each chromosome is released once,
+   * even if it occurred several times.
+   *
+   * @param a_previous the chromosomes before some of them were dropped
+   * @param a_pop the population with the remaining chromosomes
+   * @param a_keep chromosome not to release although dropped, may be null
+   *
+   * @since 3.7
+   */
+  protected void recycleDropped(List a_previous, Population a_pop,
+                                IChromosome a_keep) {
+    Map kept = new IdentityHashMap();
+    int size = a_pop.size();
+    for (int i = 0; i < size; i++) {
+      kept.put(a_pop.getChromosome(i), Boolean.TRUE);
+    }
+    if (a_keep != null) {
+      kept.put(a_keep, Boolean.TRUE);
+    }
+    size = a_previous.size();
+    for (int i = 0; i < size; i++) {
+      IChromosome chrom = (IChromosome) a_previous.get(i);
+      if (kept.put(chrom, Boolean.TRUE) == null) {
+        chrom.cleanup();
+      }
+    }
+  }
+
   protected IChromosome reAddFittest(Population a_pop, IChromosome a_fittest) {
     // Determine if all-time fittest chromosome is in the population.
     // --------------------------------------------------------------
@@ -309,11 +385,116 @@ public class GABreeder
     BulkFitnessFunction bulkFunction = a_conf.getBulkFitnessFunction();
     boolean bulkFitFunc = (bulkFunction != null);
     if (!bulkFitFunc) {
-      for (int i = 0; i < currentPopSize; i++) {
-        IChromosome chrom = a_pop.getChromosome(i);
+      if (a_conf.isParallelFitnessEvaluation()) {
+        evaluateInParallel(a_pop, a_conf);
+      }
+      else {
+        for (int i = 0; i < currentPopSize; i++) {
+          IChromosome chrom = a_pop.getChromosome(i);
+          chrom.getFitnessValue();
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the fitness values of the chromosomes without one concurrently.
+   * The chromosomes are split into contiguous parts, one per unit of the
+   * configured parallelism, and the call returns when all parts are done.
+   * Every chromosome stores its own fitness value, so the outcome does not
+   * depend on the order in which the parts finish.
+   *
+   * @param a_pop the population to evaluate
+   * @param a_conf the configuration to use
+   *
+   * @since 3.7
+   */
+  protected void evaluateInParallel(Population a_pop, Configuration a_conf) {
+    // Collect the chromosomes to evaluate.
+    // ------------------------------------
+    boolean alwaysCalculate = a_conf.isAlwaysCalculateFitness();
+    final List<IChromosome> toEvaluate = new ArrayList<IChromosome>();
+    int size = a_pop.size();
+    for (int i = 0; i < size; i++) {
+      IChromosome chrom = a_pop.getChromosome(i);
+      if (alwaysCalculate
+          || chrom.getFitnessValueDirectly() == FitnessFunction.NO_FITNESS_VALUE) {
+        toEvaluate.add(chrom);
+      }
+    }
+    int numParts = Math.min(a_conf.getFitnessParallelism(), toEvaluate.size());
+    if (numParts < 2) {
+      for (IChromosome chrom : toEvaluate) {
         chrom.getFitnessValue();
       }
+      return;
+    }
+    // Evaluate the parts and wait for all of them.
+    // --------------------------------------------
+    ExecutorService executor = a_conf.getFitnessExecutor();
+    if (executor == null) {
+      executor = getSharedFitnessExecutor();
+    }
+    List<Future<Object>> parts = new ArrayList<Future<Object>>(numParts);
+    for (int part = 0; part < numParts; part++) {
+      final int from = part * toEvaluate.size() / numParts;
+      final int to = (part + 1) * toEvaluate.size() / numParts;
+      parts.add(executor.submit(new Callable<Object>() {
+        public Object call() {
+          for (int i = from; i < to; i++) {
+            toEvaluate.get(i).getFitnessValue();
+          }
+          return null;
+        }
+      }));
+    }
+    Throwable failure = null;
+    for (Future<Object> part : parts) {
+      try {
+        part.get();
+      } catch (ExecutionException ex) {
+        if (failure == null) {
+          failure = ex.getCause();
+        }
+      } catch (InterruptedException ex) {
+        for (Future<Object> other : parts) {
+          other.cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while evaluating fitness", ex);
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+  }
+
+  /**
+   * @return the pool of daemon threads shared by all configurations that
+   * evaluate their fitness concurrently without an executor of their own
+   *
+   * @since 3.7
+   */
+  protected static synchronized ExecutorService getSharedFitnessExecutor() {
+    if (m_sharedFitnessExecutor == null) {
+      final AtomicInteger threadCount = new AtomicInteger();
+      m_sharedFitnessExecutor = Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        public Thread newThread(Runnable a_runnable) {
+          Thread thread = new Thread(a_runnable, "JGAP fitness evaluation "
+                                     + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
     }
+    return m_sharedFitnessExecutor;
   }
 
   private Population removeEvaluatedChromosomes(Population a_from_pop,
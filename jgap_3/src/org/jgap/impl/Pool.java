@@ -10,6 +10,8 @@
 package org.jgap.impl;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * A simple, generic pool class that can be used to pool any kind of object.
@@ -23,7 +25,10 @@ import java.util.*;
  * of cleanup or re-initialization on the objects to restore them to some
  * clean state when they are released to the pool; it's up to the user to
  * reset any necessary state in the object prior to the release call (or
- * just after the acquire call).
+ * just after the acquire call).<p>
+ * The pool may be bounded by a capacity, beyond which released objects are
+ * not kept. It does not lock: any number of threads may release and acquire
+ * objects at the same time.
  *
  * @author Neil Rotstan
  * @author Klaus Meffert
@@ -37,16 +42,46 @@ public class Pool {
   /**
    * The objects currently in the pool.
    */
-  private List m_pooledObjects;
+  private Queue m_pooledObjects;
 
   /**
-   * Constructor.
+   * The number of objects in the pool, including the ones being added.
+   *
+   * @since 3.7
+   */
+  private AtomicInteger m_size;
+
+  /**
+   * The maximum number of objects kept.
+   *
+   * @since 3.7
+   */
+  private int m_capacity;
+
+  /**
+   * Constructs an unbounded pool.
    *
    * @author Neil Rotstan
    * @since 1.0
    */
   public Pool() {
-    m_pooledObjects = Collections.synchronizedList(new ArrayList());
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a pool keeping at most the given number of objects.
+   *
+   * @param a_capacity the maximum number of objects kept
+   *
+   * @since 3.7
+   */
+  public Pool(final int a_capacity) {
+    if (a_capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be at least 1!");
+    }
+    m_pooledObjects = new ConcurrentLinkedQueue();
+    m_size = new AtomicInteger();
+    m_capacity = a_capacity;
   }
 
   /**
@@ -61,18 +96,12 @@ public class Pool {
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized Object acquirePooledObject() {
-    if (m_pooledObjects.isEmpty()) {
-      return null;
-    }
-    else {
-      // Remove the last Object in the pool and return it.
-      // Note that removing the last Object (as opposed to the first
-      // one) is an optimization because it prevents the ArrayList
-      // from resizing itself.
-      // -----------------------------------------------------------
-      return m_pooledObjects.remove(m_pooledObjects.size() - 1);
+  public Object acquirePooledObject() {
+    Object result = m_pooledObjects.poll();
+    if (result != null) {
+      m_size.decrementAndGet();
     }
+    return result;
   }
 
   /**
@@ -80,12 +109,25 @@ public class Pool {
    * originated from the pool - any Object can be released to it.
    *
    * @param a_objectToPool the Object instance to be released into the pool
+   * @return false: the object is null or the pool is full, the object is not
+   * kept
    *
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized void releaseObject(final Object a_objectToPool) {
-    m_pooledObjects.add(a_objectToPool);
+  public boolean releaseObject(final Object a_objectToPool) {
+    if (a_objectToPool == null) {
+      return false;
+    }
+    // Reserve room before adding, so that concurrent releases can't
+    // exceed the capacity.
+    // -------------------------------------------------------------
+    if (m_size.incrementAndGet() > m_capacity) {
+      m_size.decrementAndGet();
+      return false;
+    }
+    m_pooledObjects.offer(a_objectToPool);
+    return true;
   }
 
   /**
@@ -98,9 +140,12 @@ public class Pool {
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized void releaseAllObjects(final Collection a_objectsToPool) {
+  public void releaseAllObjects(final Collection a_objectsToPool) {
     if (a_objectsToPool != null) {
-      m_pooledObjects.addAll(a_objectsToPool);
+      Iterator it = a_objectsToPool.iterator();
+      while (it.hasNext()) {
+        releaseObject(it.next());
+      }
     }
   }
 
@@ -112,8 +157,17 @@ public class Pool {
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized int size() {
-    return m_pooledObjects.size();
+  public int size() {
+    return m_size.get();
+  }
+
+  /**
+   * @return the maximum number of objects kept by this pool
+   *
+   * @since 3.7
+   */
+  public int getCapacity() {
+    return m_capacity;
   }
 
   /**
@@ -122,7 +176,9 @@ public class Pool {
    * @author Neil Rotstan
    * @since 1.0
    */
-  public synchronized void clear() {
-    m_pooledObjects.clear();
+  public void clear() {
+    while (acquirePooledObject() != null) {
+      ;
+    }
   }
 }
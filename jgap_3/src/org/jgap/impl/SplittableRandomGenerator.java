@@ -0,0 +1,183 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import java.util.concurrent.atomic.*;
+
+import org.jgap.*;
+import org.jgap.util.*;
+
+/**
+ * Random generator for configurations that are confined to a single thread
+ * (see Configuration.isIsolated()). It implements the SplitMix64 algorithm:
+ * each number is derived from a counter, so no synchronization or atomic
+ * update is needed, and split() creates a statistically independent generator
+ * for another configuration or thread.<p>
+ * Instances are not thread-safe. Every thread or configuration should use its
+ * own instance, obtained by split() from a common root to get repeatable
+ * results for a root seed.
+ *
+ * @since 3.7
+ */
+public class SplittableRandomGenerator
+    implements RandomGenerator, ICloneable, Comparable {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  /**
+   * The default increment of the counter, the odd integer closest to
+   * 2^64 / golden ratio.
+   */
+  private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * Seeds of generators constructed without a seed.
+   */
+  private final static AtomicLong m_defaultSeeds = new AtomicLong(
+      mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+  /**
+   * The counter the next number is derived from.
+   */
+  private long m_seed;
+
+  /**
+   * The odd increment of the counter.
+   */
+  private final long m_gamma;
+
+  /**
+   * Constructs a generator with a seed that differs from the ones of all other
+   * generators constructed this way.
+   *
+   * @since 3.7
+   */
+  public SplittableRandomGenerator() {
+    this(mix64(m_defaultSeeds.getAndAdd(2 * GOLDEN_GAMMA)));
+  }
+
+  /**
+   * Constructs a generator producing the same numbers for the same seed.
+   *
+   * @param a_seed the seed to initialize randomization with
+   *
+   * @since 3.7
+   */
+  public SplittableRandomGenerator(long a_seed) {
+    this(a_seed, GOLDEN_GAMMA);
+  }
+
+  private SplittableRandomGenerator(long a_seed, long a_gamma) {
+    m_seed = a_seed;
+    m_gamma = a_gamma;
+  }
+
+  /**
+   * Creates a new generator, advancing this one. The numbers of the two
+   * generators are independent of each other. Splitting generators with the
+   * same state in the same order results in the same generators.
+   *
+   * @return the new generator
+   *
+   * @since 3.7
+   */
+  public SplittableRandomGenerator split() {
+    return new SplittableRandomGenerator(nextLong(), mixGamma(nextSeed()));
+  }
+
+  public int nextInt() {
+    return mix32(nextSeed());
+  }
+
+  public int nextInt(int a_ceiling) {
+    if (a_ceiling <= 0) {
+      throw new IllegalArgumentException("Ceiling must be positive!");
+    }
+    int result = nextInt();
+    int mask = a_ceiling - 1;
+    if ( (a_ceiling & mask) == 0) {
+      // Power of two.
+      // -------------
+      return result & mask;
+    }
+    // Reject values from the incomplete last range to avoid a bias.
+    // -------------------------------------------------------------
+    for (int u = result >>> 1; u + mask - (result = u % a_ceiling) < 0;
+         u = nextInt() >>> 1) {
+      ;
+    }
+    return result;
+  }
+
+  public long nextLong() {
+    return mix64(nextSeed());
+  }
+
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  public float nextFloat() {
+    return (nextInt() >>> 8) * 0x1.0p-24f;
+  }
+
+  public boolean nextBoolean() {
+    return nextInt() < 0;
+  }
+
+  /**
+   * @return a generator independent of this one, see split()
+   *
+   * @since 3.7
+   */
+  public Object clone() {
+    return split();
+  }
+
+  /**
+   * @param a_other sic
+   * @return as always
+   *
+   * @since 3.7
+   */
+  public int compareTo(Object a_other) {
+    if (a_other.getClass().equals(getClass())) {
+      return 0;
+    }
+    else {
+      return getClass().getName().compareTo(a_other.getClass().getName());
+    }
+  }
+
+  private long nextSeed() {
+    return m_seed += m_gamma;
+  }
+
+  private static long mix64(long a_z) {
+    a_z = (a_z ^ (a_z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    a_z = (a_z ^ (a_z >>> 27)) * 0x94d049bb133111ebL;
+    return a_z ^ (a_z >>> 31);
+  }
+
+  private static int mix32(long a_z) {
+    a_z = (a_z ^ (a_z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) ( ( (a_z ^ (a_z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  private static long mixGamma(long a_z) {
+    a_z = (a_z ^ (a_z >>> 33)) * 0xff51afd7ed558ccdL;
+    a_z = (a_z ^ (a_z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    a_z = (a_z ^ (a_z >>> 33)) | 1L;
+    // Avoid gammas with too few bit transitions.
+    // ------------------------------------------
+    int transitions = Long.bitCount(a_z ^ (a_z >>> 1));
+    return transitions < 24 ? a_z ^ 0xaaaaaaaaaaaaaaaaL : a_z;
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.util;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Thread-safe cache holding at most a given number of entries. When full,
+ * adding an entry evicts either the least recently used entry (like LRUCache)
+ * or a least frequently used one.<p>
+ * The entries are spread over segments by the hash code of their keys, each
+ * segment with its own lock and an equal share of the capacity, so threads
+ * working on different keys rarely wait for each other. The cache counts its
+ * hits, misses and evictions.<p>
+ * The least frequently used entry is approximated: the oldest entries of a
+ * segment are sampled, the one used least often is evicted, and the others
+ * are moved to the end of the segment with the uses of the evicted entry
+ * subtracted from their own. Thus entries that were popular long ago don't
+ * stay forever.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ *
+ * @since 3.7
+ */
+public class BoundedCache<K, V>
+    implements Serializable {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  /**
+   * Evict the least recently used entry.
+   */
+  public final static int EVICT_LRU = 0;
+
+  /**
+   * Evict an entry used least often.
+   */
+  public final static int EVICT_LFU = 1;
+
+  /**
+   * The maximum number of segments.
+   */
+  private final static int MAX_SEGMENTS = 16;
+
+  /**
+   * The number of entries sampled when evicting the least frequently used one.
+   */
+  private final static int LFU_SAMPLES = 8;
+
+  private final Segment<K, V>[] m_segments;
+
+  private final int m_maxEntries;
+
+  private final int m_evictionPolicy;
+
+  private final AtomicLong m_hits = new AtomicLong();
+
+  private final AtomicLong m_misses = new AtomicLong();
+
+  private final AtomicLong m_evictions = new AtomicLong();
+
+  /**
+   * Constructs a cache evicting the least recently used entries.
+   *
+   * @param a_maxEntries the maximum number of entries held
+   *
+   * @since 3.7
+   */
+  public BoundedCache(int a_maxEntries) {
+    this(a_maxEntries, EVICT_LRU);
+  }
+
+  /**
+   * @param a_maxEntries the maximum number of entries held
+   * @param a_evictionPolicy EVICT_LRU or EVICT_LFU
+   *
+   * @since 3.7
+   */
+  public BoundedCache(int a_maxEntries, int a_evictionPolicy) {
+    if (a_maxEntries < 1) {
+      throw new IllegalArgumentException("Cache size must be positive!");
+    }
+    if (a_evictionPolicy != EVICT_LRU && a_evictionPolicy != EVICT_LFU) {
+      throw new IllegalArgumentException("Unknown eviction policy "
+                                         + a_evictionPolicy);
+    }
+    m_maxEntries = a_maxEntries;
+    m_evictionPolicy = a_evictionPolicy;
+    // Use a power of two number of segments, each holding at least a few
+    // entries so that eviction is not too coarse.
+    // ------------------------------------------------------------------
+    int numSegments = 1;
+    while (numSegments < MAX_SEGMENTS
+           && numSegments * 2 * LFU_SAMPLES <= a_maxEntries) {
+      numSegments *= 2;
+    }
+    m_segments = new Segment[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      // Distribute the remainder so the capacities add up to a_maxEntries.
+      // ------------------------------------------------------------------
+      int capacity = a_maxEntries / numSegments
+          + (i < a_maxEntries % numSegments ? 1 : 0);
+      m_segments[i] = new Segment<K, V>(capacity, this);
+    }
+  }
+
+  /**
+   * @param a_key the key to look up
+   * @return the cached value, or null if there is none
+   *
+   * @since 3.7
+   */
+  public V get(K a_key) {
+    Segment<K, V> segment = segmentFor(a_key);
+    CacheEntry<V> entry;
+    synchronized (segment) {
+      entry = segment.get(a_key);
+      if (entry != null) {
+        entry.m_uses++;
+      }
+    }
+    if (entry == null) {
+      m_misses.incrementAndGet();
+      return null;
+    }
+    m_hits.incrementAndGet();
+    return entry.m_value;
+  }
+
+  /**
+   * Caches a value, possibly evicting another one.
+   *
+   * @param a_key the key of the value
+   * @param a_value the value to cache, must not be null
+   *
+   * @since 3.7
+   */
+  public void put(K a_key, V a_value) {
+    if (a_value == null) {
+      throw new IllegalArgumentException("Value must not be null!");
+    }
+    Segment<K, V> segment = segmentFor(a_key);
+    synchronized (segment) {
+      segment.put(a_key, new CacheEntry<V>(a_value));
+    }
+  }
+
+  /**
+   * Removes all entries. The statistics are kept.
+   *
+   * @since 3.7
+   */
+  public void clear() {
+    for (int i = 0; i < m_segments.length; i++) {
+      synchronized (m_segments[i]) {
+        m_segments[i].clear();
+      }
+    }
+  }
+
+  /**
+   * @return the number of entries currently cached
+   *
+   * @since 3.7
+   */
+  public int size() {
+    int result = 0;
+    for (int i = 0; i < m_segments.length; i++) {
+      synchronized (m_segments[i]) {
+        result += m_segments[i].size();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the maximum number of entries held
+   *
+   * @since 3.7
+   */
+  public int getMaxEntries() {
+    return m_maxEntries;
+  }
+
+  /**
+   * @return EVICT_LRU or EVICT_LFU
+   *
+   * @since 3.7
+   */
+  public int getEvictionPolicy() {
+    return m_evictionPolicy;
+  }
+
+  /**
+   * @return the number of lookups that found a value
+   *
+   * @since 3.7
+   */
+  public long getHits() {
+    return m_hits.get();
+  }
+
+  /**
+   * @return the number of lookups that found no value
+   *
+   * @since 3.7
+   */
+  public long getMisses() {
+    return m_misses.get();
+  }
+
+  /**
+   * @return the number of entries evicted to make room for others
+   *
+   * @since 3.7
+   */
+  public long getEvictions() {
+    return m_evictions.get();
+  }
+
+  /**
+   * @return the fraction of lookups that found a value, 0 without lookups
+   *
+   * @since 3.7
+   */
+  public double getHitRate() {
+    long hits = getHits();
+    long lookups = hits + getMisses();
+    return lookups == 0 ? 0.0d : (double) hits / lookups;
+  }
+
+  /**
+   * Resets the hit, miss and eviction counters.
+   *
+   * @since 3.7
+   */
+  public void resetStatistics() {
+    m_hits.set(0);
+    m_misses.set(0);
+    m_evictions.set(0);
+  }
+
+  public String toString() {
+    return "BoundedCache[size=" + size() + ", maxEntries=" + m_maxEntries
+        + ", hits=" + getHits() + ", misses=" + getMisses()
+        + ", evictions=" + getEvictions() + "]";
+  }
+
+  private Segment<K, V> segmentFor(K a_key) {
+    int hash = a_key.hashCode();
+    // Spread the bits so that keys differing only in high bits are spread.
+    // --------------------------------------------------------------------
+    hash ^= (hash >>> 16);
+    hash ^= (hash >>> 8);
+    return m_segments[hash & (m_segments.length - 1)];
+  }
+
+  /**
+   * A cached value with its number of uses.
+   */
+  private static class CacheEntry<V>
+      implements Serializable {
+    private final V m_value;
+
+    private int m_uses;
+
+    CacheEntry(V a_value) {
+      m_value = a_value;
+    }
+  }
+
+  /**
+   * Part of the cache, guarded by its own monitor. Ordered by access for LRU
+   * eviction and by insertion for LFU eviction.
+   */
+  private static class Segment<K, V>
+      extends LinkedHashMap<K, CacheEntry<V>> {
+    private final int m_capacity;
+
+    private final BoundedCache<K, V> m_cache;
+
+    Segment(int a_capacity, BoundedCache<K, V> a_cache) {
+      super(a_capacity + 1, 0.75f,
+            a_cache.m_evictionPolicy == BoundedCache.EVICT_LRU);
+      m_capacity = a_capacity;
+      m_cache = a_cache;
+    }
+
+    protected boolean removeEldestEntry(
+        Map.Entry<K, CacheEntry<V>> a_eldest) {
+      if (size() <= m_capacity) {
+        return false;
+      }
+      m_cache.m_evictions.incrementAndGet();
+      if (m_cache.m_evictionPolicy == BoundedCache.EVICT_LRU) {
+        return true;
+      }
+      // Sample the oldest entries and evict the one used least often. The
+      // newly added entry is the youngest, so it is never sampled.
+      // -------------------------------------------------------------------
+      List<Map.Entry<K, CacheEntry<V>>> samples =
+          new ArrayList<Map.Entry<K, CacheEntry<V>>>(LFU_SAMPLES);
+      Map.Entry<K, CacheEntry<V>> victim = null;
+      Iterator<Map.Entry<K, CacheEntry<V>>> it = entrySet().iterator();
+      for (int i = 0; i < LFU_SAMPLES && i < m_capacity; i++) {
+        Map.Entry<K, CacheEntry<V>> sample = it.next();
+        samples.add(sample);
+        if (victim == null
+            || sample.getValue().m_uses < victim.getValue().m_uses) {
+          victim = sample;
+        }
+      }
+      int victimUses = victim.getValue().m_uses;
+      remove(victim.getKey());
+      // Age the survivors and give them another round.
+      // ----------------------------------------------
+      for (Map.Entry<K, CacheEntry<V>> sample : samples) {
+        if (sample != victim) {
+          K key = sample.getKey();
+          CacheEntry<V> entry = sample.getValue();
+          entry.m_uses -= victimUses;
+          remove(key);
+          put(key, entry);
+        }
+      }
+      return false;
+    }
+  }
+}
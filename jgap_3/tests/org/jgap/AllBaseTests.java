@@ -27,12 +27,14 @@ public class AllBaseTests
     TestSuite suite = new TestSuite("AllBaseTests");
     suite.addTest(BaseGeneTest.suite());
     suite.addTest(BaseRateCalculatorTest.suite());
+    suite.addTest(CachedFitnessFunctionTest.suite());
     suite.addTest(ChromosomeTest.suite());
     suite.addTest(ConfigurationTest.suite());
     suite.addTest(DefaultFitnessEvaluatorTest.suite());
     suite.addTest(DeltaFitnessEvaluatorTest.suite());
     suite.addTest(FitnessFunctionTest.suite());
     suite.addTest(GenotypeTest.suite());
+    suite.addTest(GenotypeConcurrencyTest.suite());
     suite.addTest(PopulationTest.suite());
     return suite;
   }
@@ -0,0 +1,134 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap;
+
+import java.util.*;
+import org.jgap.impl.*;
+import org.jgap.util.*;
+import junit.framework.*;
+
+/**
+ * Tests the CachedFitnessFunction class.
+ *
+ * @since 3.7
+ */
+public class CachedFitnessFunctionTest
+    extends JGAPTestCase {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(CachedFitnessFunctionTest.class);
+    return suite;
+  }
+
+  /**
+   * Chromosomes with the same alleles are evaluated once.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testGetFitnessValue_0()
+      throws Exception {
+    CountingFitnessFunction fitFunc = new CountingFitnessFunction();
+    assertEquals(CachedFitnessFunction.DEFAULT_CACHE_SIZE,
+                 fitFunc.getCache().getMaxEntries());
+    assertEquals(8, fitFunc.getFitnessValue(createChromosome(3, 4)), DELTA);
+    assertEquals(8, fitFunc.getFitnessValue(createChromosome(3, 4)), DELTA);
+    assertEquals(9, fitFunc.getFitnessValue(createChromosome(4, 4)), DELTA);
+    assertEquals(8, fitFunc.getFitnessValue(createChromosome(4, 3)), DELTA);
+    assertEquals(3, fitFunc.m_evaluations);
+    assertEquals(1, fitFunc.getCache().getHits());
+    assertEquals(3, fitFunc.getCache().getMisses());
+    // Integer alleles are cached without building the business key.
+    // -------------------------------------------------------------
+    Object key = fitFunc.getCacheKey(createChromosome(3, 4));
+    assertFalse(key instanceof String);
+    assertEquals(key, fitFunc.getCacheKey(createChromosome(3, 4)));
+  }
+
+  /**
+   * The cache doesn't grow beyond its size.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testGetFitnessValue_1()
+      throws Exception {
+    CountingFitnessFunction fitFunc = new CountingFitnessFunction(
+        new BoundedCache<Object, Double> (5));
+    for (int i = 0; i < 20; i++) {
+      fitFunc.getFitnessValue(createChromosome(i, 0));
+    }
+    assertEquals(5, fitFunc.getCache().size());
+    assertEquals(15, fitFunc.getCache().getEvictions());
+    fitFunc.getFitnessValue(createChromosome(19, 0));
+    fitFunc.getFitnessValue(createChromosome(0, 0));
+    assertEquals(21, fitFunc.m_evaluations);
+  }
+
+  /**
+   * A map given as cache is keyed by business key.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testGetFitnessValue_2()
+      throws Exception {
+    Map<String, Double> map = new HashMap<String, Double>();
+    CountingFitnessFunction fitFunc = new CountingFitnessFunction(map);
+    assertNull(fitFunc.getCache());
+    fitFunc.getFitnessValue(createChromosome(1, 2));
+    fitFunc.getFitnessValue(createChromosome(1, 2));
+    assertEquals(1, fitFunc.m_evaluations);
+    assertEquals(1, map.size());
+    assertEquals(4.0d, map.values().iterator().next().doubleValue(), DELTA);
+  }
+
+  private Chromosome createChromosome(int a_first, int a_second)
+      throws Exception {
+    Gene[] genes = new Gene[] {
+        new IntegerGene(conf, 0, 100), new IntegerGene(conf, 0, 100)};
+    genes[0].setAllele(new Integer(a_first));
+    genes[1].setAllele(new Integer(a_second));
+    return new Chromosome(conf, genes);
+  }
+
+  /**
+   * Fitness function summing the alleles, counting its evaluations.
+   */
+  class CountingFitnessFunction
+      extends CachedFitnessFunction {
+    int m_evaluations;
+
+    public CountingFitnessFunction() {
+    }
+
+    public CountingFitnessFunction(BoundedCache<Object, Double> a_cache) {
+      super(a_cache);
+    }
+
+    public CountingFitnessFunction(Map<String, Double> a_cache) {
+      super(a_cache);
+    }
+
+    protected double evaluate(IChromosome a_subject) {
+      m_evaluations++;
+      double result = 1;
+      for (int i = 0; i < a_subject.size(); i++) {
+        result += ( (Integer) a_subject.getGene(i).getAllele()).intValue();
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.jgap.impl.*;
+import junit.framework.*;
+
+/**
+ * Stress test evolving many genotypes with isolated configurations
+ * concurrently.
+ *
+ * @since 3.7
+ */
+public class GenotypeConcurrencyTest
+    extends JGAPTestCase {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  private final static int NUM_GENOTYPES = 48;
+
+  private final static int NUM_THREADS = 8;
+
+  private final static int NUM_EVOLUTIONS = 40;
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(GenotypeConcurrencyTest.class);
+    return suite;
+  }
+
+  /**
+   * Isolated configurations on the same thread may use different fitness
+   * functions without resetting the configuration.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testIsolated_0()
+      throws Exception {
+    Configuration conf1 = new DefaultConfiguration("", "", true);
+    Configuration conf2 = new DefaultConfiguration("", "", true);
+    assertTrue(conf1.isIsolated());
+    assertTrue(conf1.getRandomGenerator() instanceof SplittableRandomGenerator);
+    conf1.setFitnessFunction(new SumFitnessFunction());
+    conf2.setFitnessFunction(new SumFitnessFunction());
+    assertTrue(conf1.newInstance("1", "1").isIsolated());
+    assertFalse(conf.isIsolated());
+  }
+
+  /**
+   * Genotypes set up on one thread and evolved concurrently on others produce
+   * the same populations as when evolved one after the other.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testEvolveConcurrently_0()
+      throws Exception {
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < NUM_GENOTYPES; i++) {
+      Genotype genotype = createGenotype(i);
+      genotype.evolve(NUM_EVOLUTIONS);
+      expected.add(describe(genotype));
+    }
+    List<Future<String>> results = new ArrayList<Future<String>>();
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      for (int i = 0; i < NUM_GENOTYPES; i++) {
+        final Genotype genotype = createGenotype(i);
+        results.add(executor.submit(new Callable<String>() {
+          public String call() {
+            for (int j = 0; j < NUM_EVOLUTIONS; j++) {
+              genotype.evolve();
+              Thread.yield();
+            }
+            return describe(genotype);
+          }
+        }));
+      }
+      for (int i = 0; i < NUM_GENOTYPES; i++) {
+        assertEquals("Genotype " + i, expected.get(i), results.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Creates a genotype with an isolated configuration whose random generator
+   * is seeded by the given index.
+   *
+   * @param a_index the index of the genotype
+   * @return the genotype
+   * @throws Exception
+   */
+  private Genotype createGenotype(int a_index)
+      throws Exception {
+    Configuration conf = new DefaultConfiguration("", "", true);
+    conf.setRandomGenerator(new SplittableRandomGenerator(a_index));
+    conf.setFitnessFunction(new SumFitnessFunction());
+    Gene[] genes = new Gene[5];
+    for (int i = 0; i < genes.length; i++) {
+      genes[i] = new IntegerGene(conf, 0, 100);
+    }
+    conf.setSampleChromosome(new Chromosome(conf, genes));
+    conf.setPopulationSize(30);
+    return Genotype.randomInitialGenotype(conf);
+  }
+
+  /**
+   * @param a_genotype the genotype to describe
+   * @return the alleles and fitness values of the population
+   */
+  private static String describe(Genotype a_genotype) {
+    StringBuffer result = new StringBuffer();
+    Population pop = a_genotype.getPopulation();
+    for (int i = 0; i < pop.size(); i++) {
+      IChromosome chrom = pop.getChromosome(i);
+      for (int j = 0; j < chrom.size(); j++) {
+        result.append(chrom.getGene(j).getAllele()).append(' ');
+      }
+      result.append(chrom.getFitnessValue()).append('\n');
+    }
+    return result.toString();
+  }
+
+  /**
+   * Fitness function rewarding genes close to 50.
+   */
+  static class SumFitnessFunction
+      extends FitnessFunction {
+    protected double evaluate(IChromosome a_subject) {
+      double result = 1;
+      for (int i = 0; i < a_subject.size(); i++) {
+        int value = ( (Integer) a_subject.getGene(i).getAllele()).intValue();
+        result += 50 - Math.abs(50 - value);
+      }
+      return result;
+    }
+  }
+}
@@ -45,8 +45,10 @@ public class AllImplTests
     suite.addTest(DefaultCrossoverRateCalculatorTest.suite());
     suite.addTest(DefaultInitializerTest.suite());
     suite.addTest(DefaultMutationRateCalculatorTest.suite());
+    suite.addTest(DoubleArrayChromosomeTest.suite());
     suite.addTest(DoubleGeneTest.suite());
     suite.addTest(FixedBinaryGeneTest.suite());
+    suite.addTest(GABreederTest.suite());
     suite.addTest(FittestPopulationMergerTest.suite());
     suite.addTest(GaussianMutationOperatorTest.suite());
     suite.addTest(GaussianRandomGeneratorTest.suite());
@@ -61,6 +63,7 @@ public class AllImplTests
     suite.addTest(PoolTest.suite());
     suite.addTest(SeededRandomGeneratorTest.suite());
     suite.addTest(SetGeneTest.suite());
+    suite.addTest(SplittableRandomGeneratorTest.suite());
     suite.addTest(StockRandomGeneratorTest.suite());
     suite.addTest(StringGeneTest.suite());
     suite.addTest(ThresholdSelectorTest.suite());
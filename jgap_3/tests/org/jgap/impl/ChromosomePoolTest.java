@@ -9,6 +9,7 @@
  */
 package org.jgap.impl;
 
+import java.util.*;
 import org.jgap.*;
 import junit.framework.*;
 
@@ -86,4 +87,190 @@ public class ChromosomePoolTest
     conf.setSampleChromosome(chrom);
     pool.releaseChromosome(chrom);
   }
+
+  /**
+   * The statistics count hits, misses, releases and discarded chromosomes.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testStatistics_0()
+      throws Exception {
+    ChromosomePool pool = new ChromosomePool(1);
+    assertEquals(1, pool.getCapacity());
+    assertEquals(ChromosomePool.DEFAULT_CAPACITY,
+                 new ChromosomePool().getCapacity());
+    Configuration conf = new DefaultConfiguration();
+    conf.setFitnessFunction(new TestFitnessFunction());
+    Gene sampleGene = new IntegerGene(conf, 1, 10);
+    assertNull(pool.acquireChromosome());
+    assertEquals(0.0d, pool.getHitRate(), DELTA);
+    Chromosome chrom = new Chromosome(conf, sampleGene, 3);
+    pool.releaseChromosome(chrom);
+    pool.releaseChromosome(new Chromosome(conf, sampleGene, 3));
+    assertEquals(1, pool.size());
+    assertSame(chrom, pool.acquireChromosome());
+    assertEquals(1, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(1, pool.getReleased());
+    assertEquals(1, pool.getDiscarded());
+    assertEquals(0.5d, pool.getHitRate(), DELTA);
+    pool.resetStatistics();
+    assertEquals(0, pool.getHits());
+    assertEquals(0, pool.getMisses());
+    assertEquals(0, pool.getReleased());
+    assertEquals(0, pool.getDiscarded());
+  }
+
+  /**
+   * Cloning reuses a released chromosome of the same kind, which then looks
+   * like a new copy.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testAcquireChromosome_1()
+      throws Exception {
+    Configuration conf = new DefaultConfiguration();
+    conf.setFitnessFunction(new TestFitnessFunction());
+    ChromosomePool pool = new ChromosomePool();
+    conf.setChromosomePool(pool);
+    Chromosome chrom = new Chromosome(conf, new IntegerGene(conf, 1, 10), 3);
+    chrom.getGene(0).setAllele(new Integer(4));
+    Chromosome dropped = (Chromosome) chrom.clone();
+    dropped.getGene(0).setAllele(new Integer(7));
+    dropped.increaseAge();
+    dropped.cleanup();
+    Chromosome copy = (Chromosome) chrom.clone();
+    assertSame(dropped, copy);
+    assertEquals(chrom, copy);
+    assertEquals(0, copy.getAge());
+    // A chromosome of another kind stays in the pool and counts as a miss.
+    // --------------------------------------------------------------------
+    Chromosome other = new Chromosome(conf, new IntegerGene(conf, 1, 10), 2);
+    other.cleanup();
+    pool.resetStatistics();
+    assertNotSame(other, chrom.clone());
+    assertEquals(1, pool.size());
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(0, pool.getReleased());
+  }
+
+  /**
+   * A released chromosome of the same size but with other genes is not
+   * reused, and a reused one does not keep its multi-objective values.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testAcquireChromosome_3()
+      throws Exception {
+    Configuration conf = new DefaultConfiguration();
+    conf.setFitnessFunction(new TestFitnessFunction());
+    ChromosomePool pool = new ChromosomePool();
+    conf.setChromosomePool(pool);
+    Chromosome chrom = new Chromosome(conf, new IntegerGene(conf, 1, 10), 3);
+    Chromosome other = new Chromosome(conf, new DoubleGene(conf, 1, 10), 3);
+    other.cleanup();
+    assertNotSame(other, chrom.clone());
+    assertEquals(1, pool.size());
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertSame(other, pool.acquireChromosome());
+    Chromosome dropped = (Chromosome) chrom.clone();
+    List objectives = new Vector();
+    objectives.add(new Double(2.5d));
+    dropped.setMultiObjectives(objectives);
+    dropped.cleanup();
+    Chromosome copy = (Chromosome) chrom.clone();
+    assertSame(dropped, copy);
+    assertNull(copy.getMultiObjectives());
+  }
+
+  /**
+   * DoubleArrayChromosome's are recycled without creating gene views.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testAcquireChromosome_2()
+      throws Exception {
+    Configuration conf = new DefaultConfiguration();
+    conf.setFitnessFunction(new TestFitnessFunction());
+    ChromosomePool pool = new ChromosomePool();
+    conf.setChromosomePool(pool);
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf, 3, 0.0d,
+        1.0d);
+    chrom.setValue(1, 0.5d);
+    DoubleArrayChromosome dropped = (DoubleArrayChromosome) chrom.clone();
+    dropped.setValue(1, 0.25d);
+    dropped.cleanup();
+    assertNull(privateAccessor.getField(dropped, "m_geneView"));
+    DoubleArrayChromosome copy = (DoubleArrayChromosome) chrom.clone();
+    assertSame(dropped, copy);
+    assertEquals(0.5d, copy.getValue(1), DELTA);
+    DoubleArrayChromosome other = new DoubleArrayChromosome(conf, 3, 0.0d,
+        2.0d);
+    other.cleanup();
+    pool.resetStatistics();
+    assertNotSame(other, chrom.clone());
+    assertEquals(1, pool.size());
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(0, pool.getReleased());
+  }
+
+  /**
+   * Rejecting an acquired chromosome turns the hit into a miss and puts the
+   * chromosome back without counting it as released.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testRejectChromosome_0()
+      throws Exception {
+    Configuration conf = new DefaultConfiguration();
+    conf.setFitnessFunction(new TestFitnessFunction());
+    ChromosomePool pool = new ChromosomePool();
+    Chromosome chrom = new Chromosome(conf, new IntegerGene(conf, 1, 10), 3);
+    pool.releaseChromosome(chrom);
+    pool.rejectChromosome(pool.acquireChromosome());
+    assertEquals(1, pool.size());
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(1, pool.getReleased());
+    assertSame(chrom, pool.acquireChromosome());
+  }
+
+  /**
+   * A rejected chromosome that does not fit into the pool anymore is counted
+   * as discarded.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testRejectChromosome_1()
+      throws Exception {
+    Configuration conf = new DefaultConfiguration();
+    conf.setFitnessFunction(new TestFitnessFunction());
+    ChromosomePool pool = new ChromosomePool(1);
+    Chromosome chrom = new Chromosome(conf, new IntegerGene(conf, 1, 10), 3);
+    pool.releaseChromosome(chrom);
+    IChromosome acquired = pool.acquireChromosome();
+    pool.releaseChromosome(new Chromosome(conf, new IntegerGene(conf, 1, 10),
+        2));
+    pool.rejectChromosome(acquired);
+    assertEquals(1, pool.size());
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(2, pool.getReleased());
+    assertEquals(1, pool.getDiscarded());
+  }
 }
@@ -0,0 +1,409 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import java.util.*;
+import org.jgap.*;
+import junit.framework.*;
+
+/**
+ * Tests the DoubleArrayChromosome class and the operators working on it.
+ *
+ * @since 3.7
+ */
+public class DoubleArrayChromosomeTest
+    extends JGAPTestCase {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  private final static double[] LOWER_BOUNDS = {
+      -1.0d, 0.0d, 2.0d, -10.0d, 0.5d};
+
+  private final static double[] UPPER_BOUNDS = {
+      1.0d, 5.0d, 3.0d, 10.0d, 0.75d};
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(DoubleArrayChromosomeTest.class);
+    return suite;
+  }
+
+  public void setUp() {
+    // Random chromosomes need a complete configuration.
+    // -------------------------------------------------
+    Configuration.reset();
+    super.setUp();
+  }
+
+  /**
+   * Values are initialised to the lower bounds and can be read and written.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testConstruct_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    assertEquals(LOWER_BOUNDS.length, chrom.size());
+    for (int i = 0; i < chrom.size(); i++) {
+      assertEquals(LOWER_BOUNDS[i], chrom.getValue(i), DELTA);
+      assertEquals(LOWER_BOUNDS[i], chrom.getLowerBound(i), DELTA);
+      assertEquals(UPPER_BOUNDS[i], chrom.getUpperBound(i), DELTA);
+    }
+    chrom.setValue(1, 4.5d);
+    assertEquals(4.5d, chrom.getValue(1), DELTA);
+  }
+
+  /**
+   * Invalid bounds are rejected.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testConstruct_1()
+      throws Exception {
+    try {
+      new DoubleArrayChromosome(conf, new double[] {0.0d},
+                                new double[] {1.0d, 2.0d});
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+    try {
+      new DoubleArrayChromosome(conf, 3, 1.0d, 0.0d);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+    try {
+      new DoubleArrayChromosome(conf, 0, 0.0d, 1.0d);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+  }
+
+  /**
+   * Values out of bounds are mapped back into their range.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testSetValue_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    for (int i = 0; i < 100; i++) {
+      chrom.setValue(2, 2.0d + i);
+      assertTrue(chrom.getValue(2) >= 2.0d);
+      assertTrue(chrom.getValue(2) <= 3.0d);
+      chrom.applyMutation(4, -0.99d);
+      assertTrue(chrom.getValue(4) >= 0.5d);
+      assertTrue(chrom.getValue(4) <= 0.75d);
+    }
+  }
+
+  /**
+   * The gene view writes through to the values and reflects changes made
+   * to them.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testGetGenes_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    Gene[] genes = chrom.getGenes();
+    assertEquals(LOWER_BOUNDS.length, genes.length);
+    assertTrue(genes[0] instanceof DoubleGene);
+    assertSame(genes, chrom.getGenes());
+    genes[0].setAllele(new Double(0.25d));
+    assertEquals(0.25d, chrom.getValue(0), DELTA);
+    chrom.setValue(1, 3.5d);
+    assertEquals(3.5d, ( (Double) genes[1].getAllele()).doubleValue(), DELTA);
+    assertEquals(3.5d, ( (Double) chrom.getGene(1).getAllele()).doubleValue(),
+                 DELTA);
+    genes[3].applyMutation(0, 0.5d);
+    assertEquals(0.0d, chrom.getValue(3), DELTA);
+  }
+
+  /**
+   * Genes set on the chromosome are copied into the values.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testSetGenes_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf, 2, 0.0d,
+        10.0d);
+    Gene gene1 = new DoubleGene(conf, 0.0d, 10.0d);
+    gene1.setAllele(new Double(7.0d));
+    Gene gene2 = new DoubleGene(conf, 0.0d, 10.0d);
+    gene2.setAllele(new Double(3.0d));
+    chrom.setGenes(new Gene[] {gene1, gene2});
+    assertEquals(7.0d, chrom.getValue(0), DELTA);
+    assertEquals(3.0d, chrom.getValue(1), DELTA);
+    gene1.setAllele(new Double(1.0d));
+    assertEquals(7.0d, chrom.getValue(0), DELTA);
+    chrom.setGene(1, gene1);
+    assertEquals(1.0d, chrom.getValue(1), DELTA);
+  }
+
+  /**
+   * A clone has its own values.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testClone_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    chrom.setValue(3, 5.0d);
+    chrom.setFitnessValueDirectly(12.0d);
+    DoubleArrayChromosome clone = (DoubleArrayChromosome) chrom.clone();
+    assertEquals(chrom, clone);
+    assertEquals(12.0d, clone.getFitnessValueDirectly(), DELTA);
+    clone.setValue(3, -5.0d);
+    assertEquals(5.0d, chrom.getValue(3), DELTA);
+    clone.getGenes()[0].setAllele(new Double(0.5d));
+    assertEquals(-1.0d, chrom.getValue(0), DELTA);
+    assertFalse(chrom.equals(clone));
+  }
+
+  /**
+   * The chromosome hashes and persists like a Chromosome of DoubleGene's
+   * with the same values.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testHashCode_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    chrom.setValue(1, 1.5d);
+    IChromosome geneChrom = createGeneChromosome(conf, chrom);
+    assertEquals(geneChrom.hashCode(), chrom.hashCode());
+    StringBuffer expected = new StringBuffer();
+    ( (Chromosome) geneChrom).getGenesPersistentRepresentation(expected);
+    StringBuffer actual = new StringBuffer();
+    chrom.getGenesPersistentRepresentation(actual);
+    assertEquals(expected.toString(), actual.toString());
+  }
+
+  /**
+   * Random chromosomes stay within the bounds.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testRandomInitialChromosome_0()
+      throws Exception {
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    conf.setFitnessFunction(new StaticFitnessFunction(1.0d));
+    conf.setSampleChromosome(chrom);
+    conf.setPopulationSize(20);
+    for (int j = 0; j < 20; j++) {
+      DoubleArrayChromosome random = chrom.randomInitialChromosome();
+      assertNotSame(chrom, random);
+      for (int i = 0; i < random.size(); i++) {
+        assertTrue(random.getValue(i) >= LOWER_BOUNDS[i]);
+        assertTrue(random.getValue(i) <= UPPER_BOUNDS[i]);
+      }
+    }
+  }
+
+  /**
+   * A random chromosome recycled from the pool takes the constraint checker
+   * of the chromosome creating it.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testRandomInitialChromosome_1()
+      throws Exception {
+    ChromosomePool pool = new ChromosomePool();
+    conf.setChromosomePool(pool);
+    DoubleArrayChromosome chrom = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    DoubleArrayChromosome dropped = new DoubleArrayChromosome(conf,
+        LOWER_BOUNDS, UPPER_BOUNDS);
+    dropped.setConstraintChecker(new IGeneConstraintChecker() {
+      public boolean verify(Gene a_gene, Object a_alleleValue,
+                            IChromosome a_chromosome, int a_geneIndex) {
+        return true;
+      }
+    });
+    dropped.cleanup();
+    conf.setFitnessFunction(new StaticFitnessFunction(1.0d));
+    conf.setSampleChromosome(chrom);
+    conf.setPopulationSize(20);
+    DoubleArrayChromosome random = chrom.randomInitialChromosome();
+    assertSame(dropped, random);
+    assertNull(random.getConstraintChecker());
+  }
+
+  /**
+   * The mutation operator mutates the values exactly like MutationOperator
+   * mutates DoubleGene's, given the same random numbers.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testMutationOperator_0()
+      throws Exception {
+    Configuration arrayConf = createConfiguration("array", 4711L);
+    Configuration geneConf = createConfiguration("gene", 4711L);
+    Population arrayPop = createPopulation(arrayConf, 20);
+    Population genePop = createGenePopulation(geneConf, arrayPop);
+    List arrayCandidates = new Vector();
+    new DoubleArrayMutationOperator(arrayConf, 3).operate(arrayPop,
+        arrayCandidates);
+    List geneCandidates = new Vector();
+    new MutationOperator(geneConf, 3).operate(genePop, geneCandidates);
+    assertTrue(arrayCandidates.size() > 0);
+    assertSameValues(geneCandidates, arrayCandidates);
+  }
+
+  /**
+   * The crossover operator swaps the values exactly like CrossoverOperator
+   * swaps DoubleGene's, given the same random numbers.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testCrossoverOperator_0()
+      throws Exception {
+    Configuration arrayConf = createConfiguration("array", 42L);
+    Configuration geneConf = createConfiguration("gene", 42L);
+    Population arrayPop = createPopulation(arrayConf, 20);
+    Population genePop = createGenePopulation(geneConf, arrayPop);
+    List arrayCandidates = new Vector();
+    new DoubleArrayCrossoverOperator(arrayConf, 0.5d).operate(arrayPop,
+        arrayCandidates);
+    List geneCandidates = new Vector();
+    new CrossoverOperator(geneConf, 0.5d).operate(genePop, geneCandidates);
+    assertEquals(20, arrayCandidates.size());
+    assertSameValues(geneCandidates, arrayCandidates);
+  }
+
+  /**
+   * Populations of other chromosomes are left to the standard operators.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testOperators_0()
+      throws Exception {
+    Configuration arrayConf = createConfiguration("array", 7L);
+    Configuration geneConf = createConfiguration("gene", 7L);
+    Population valuePop = createPopulation(arrayConf, 10);
+    Population arrayPop = createGenePopulation(arrayConf, valuePop);
+    Population genePop = createGenePopulation(geneConf, valuePop);
+    List arrayCandidates = new Vector();
+    new DoubleArrayMutationOperator(arrayConf, 2).operate(arrayPop,
+        arrayCandidates);
+    new DoubleArrayCrossoverOperator(arrayConf, 0.5d).operate(arrayPop,
+        arrayCandidates);
+    List geneCandidates = new Vector();
+    new MutationOperator(geneConf, 2).operate(genePop, geneCandidates);
+    new CrossoverOperator(geneConf, 0.5d).operate(genePop, geneCandidates);
+    assertTrue(arrayCandidates.size() > 0);
+    assertEquals(geneCandidates.size(), arrayCandidates.size());
+    for (int i = 0; i < geneCandidates.size(); i++) {
+      assertEquals(geneCandidates.get(i), arrayCandidates.get(i));
+    }
+  }
+
+  private Configuration createConfiguration(String a_id, long a_seed)
+      throws Exception {
+    Configuration config = new DefaultConfiguration(a_id, a_id, true);
+    config.setRandomGenerator(new SplittableRandomGenerator(a_seed));
+    config.setFitnessFunction(new StaticFitnessFunction(1.0d));
+    config.setSampleChromosome(new DoubleArrayChromosome(config,
+        LOWER_BOUNDS, UPPER_BOUNDS));
+    config.setPopulationSize(20);
+    return config;
+  }
+
+  private Population createPopulation(Configuration a_conf, int a_size)
+      throws Exception {
+    // Leave the random generator of the configuration untouched.
+    // -----------------------------------------------------------
+    Random random = new Random(a_size);
+    Population pop = new Population(a_conf, a_size);
+    for (int i = 0; i < a_size; i++) {
+      DoubleArrayChromosome chrom = new DoubleArrayChromosome(a_conf,
+          LOWER_BOUNDS, UPPER_BOUNDS);
+      for (int j = 0; j < chrom.size(); j++) {
+        chrom.setValue(j, LOWER_BOUNDS[j]
+                       + random.nextDouble() * (UPPER_BOUNDS[j]
+                                                - LOWER_BOUNDS[j]));
+      }
+      chrom.setAge(1);
+      pop.addChromosome(chrom);
+    }
+    return pop;
+  }
+
+  private Population createGenePopulation(Configuration a_conf,
+                                          Population a_arrayPop)
+      throws Exception {
+    Population pop = new Population(a_conf, a_arrayPop.size());
+    for (int i = 0; i < a_arrayPop.size(); i++) {
+      IChromosome chrom = createGeneChromosome(a_conf,
+          (DoubleArrayChromosome) a_arrayPop.getChromosome(i));
+      chrom.setAge(1);
+      pop.addChromosome(chrom);
+    }
+    return pop;
+  }
+
+  private IChromosome createGeneChromosome(Configuration a_conf,
+                                           DoubleArrayChromosome a_chrom)
+      throws Exception {
+    Gene[] genes = new Gene[a_chrom.size()];
+    for (int i = 0; i < genes.length; i++) {
+      genes[i] = new DoubleGene(a_conf, a_chrom.getLowerBound(i),
+                                a_chrom.getUpperBound(i));
+      genes[i].setAllele(new Double(a_chrom.getValue(i)));
+    }
+    return new Chromosome(a_conf, genes);
+  }
+
+  private void assertSameValues(List a_geneChroms, List a_arrayChroms) {
+    assertEquals(a_geneChroms.size(), a_arrayChroms.size());
+    for (int i = 0; i < a_geneChroms.size(); i++) {
+      IChromosome geneChrom = (IChromosome) a_geneChroms.get(i);
+      DoubleArrayChromosome arrayChrom =
+          (DoubleArrayChromosome) a_arrayChroms.get(i);
+      for (int j = 0; j < arrayChrom.size(); j++) {
+        assertEquals( ( (Double) geneChrom.getGene(j).getAllele()).
+                     doubleValue(), arrayChrom.getValue(j), 0.0d);
+      }
+    }
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.jgap.*;
+import junit.framework.*;
+
+/**
+ * Tests the GABreeder class.
+ *
+ * @since 3.7
+ */
+public class GABreederTest
+    extends JGAPTestCase {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(GABreederTest.class);
+    return suite;
+  }
+
+  public void setUp() {
+    // Each test sets its own fitness function.
+    // ----------------------------------------
+    Configuration.reset();
+    super.setUp();
+  }
+
+  /**
+   * Parallel evaluation computes the same fitness values as sequential
+   * evaluation, and not on the calling thread.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testEvaluateInParallel_0()
+      throws Exception {
+    ThreadRecordingFitnessFunction fitFunc =
+        new ThreadRecordingFitnessFunction();
+    conf.setFitnessFunction(fitFunc);
+    conf.setParallelFitnessEvaluation(4);
+    assertTrue(conf.isParallelFitnessEvaluation());
+    Population pop = createPopulation(conf, 50);
+    new GABreeder().evaluateInParallel(pop, conf);
+    for (int i = 0; i < pop.size(); i++) {
+      IChromosome chrom = pop.getChromosome(i);
+      assertEquals(i + 1, chrom.getFitnessValueDirectly(), DELTA);
+    }
+    assertEquals(50, fitFunc.getEvaluations());
+    assertFalse(fitFunc.getThreads().contains(Thread.currentThread()));
+  }
+
+  /**
+   * Only chromosomes without a fitness value are evaluated, on the given
+   * executor.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testEvaluateInParallel_1()
+      throws Exception {
+    ThreadRecordingFitnessFunction fitFunc =
+        new ThreadRecordingFitnessFunction();
+    conf.setFitnessFunction(fitFunc);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      conf.setParallelFitnessEvaluation(2, executor);
+      assertSame(executor, conf.getFitnessExecutor());
+      Population pop = createPopulation(conf, 10);
+      pop.getChromosome(0).setFitnessValueDirectly(100);
+      pop.getChromosome(9).setFitnessValueDirectly(200);
+      new GABreeder().evaluateInParallel(pop, conf);
+      assertEquals(8, fitFunc.getEvaluations());
+      assertEquals(100, pop.getChromosome(0).getFitnessValueDirectly(), DELTA);
+      assertEquals(5, pop.getChromosome(4).getFitnessValueDirectly(), DELTA);
+      assertEquals(200, pop.getChromosome(9).getFitnessValueDirectly(), DELTA);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * A fitness function marked as ISequentialFitnessFunction is evaluated on
+   * the evolving thread.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testUpdateChromosomes_0()
+      throws Exception {
+    ThreadRecordingFitnessFunction fitFunc =
+        new SequentialFitnessFunction();
+    conf.setFitnessFunction(fitFunc);
+    conf.setParallelFitnessEvaluation(4);
+    assertFalse(conf.isParallelFitnessEvaluation());
+    Population pop = createPopulation(conf, 20);
+    new GABreeder().updateChromosomes(pop, conf);
+    assertEquals(20, fitFunc.getEvaluations());
+    assertEquals(1, fitFunc.getThreads().size());
+    assertTrue(fitFunc.getThreads().contains(Thread.currentThread()));
+  }
+
+  /**
+   * An exception thrown by the fitness function is passed on to the caller.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testUpdateChromosomes_1()
+      throws Exception {
+    conf.setFitnessFunction(new ThreadRecordingFitnessFunction() {
+      protected double evaluate(IChromosome a_subject) {
+        double fitness = super.evaluate(a_subject);
+        if (fitness == 7) {
+          throw new IllegalStateException("fitness 7");
+        }
+        return fitness;
+      }
+    });
+    conf.setParallelFitnessEvaluation(3);
+    Population pop = createPopulation(conf, 20);
+    try {
+      new GABreeder().updateChromosomes(pop, conf);
+      fail();
+    } catch (IllegalStateException iex) {
+      assertEquals("fitness 7", iex.getMessage());
+    }
+  }
+
+  /**
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testSetParallelFitnessEvaluation_0()
+      throws Exception {
+    assertEquals(1, conf.getFitnessParallelism());
+    assertFalse(conf.isParallelFitnessEvaluation());
+    try {
+      conf.setParallelFitnessEvaluation(0);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+    conf.setParallelFitnessEvaluation(3);
+    assertEquals(3, conf.getFitnessParallelism());
+    assertNull(conf.getFitnessExecutor());
+    Configuration clone = conf.newInstance(conf.getId() + "_1",
+        conf.getName() + "_1");
+    assertEquals(3, clone.getFitnessParallelism());
+  }
+
+  /**
+   * Recycling dropped chromosomes reuses them for the offspring and does not
+   * change the course of evolution.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testRecycleChromosomes_0()
+      throws Exception {
+    Genotype plain = createGenotype(false);
+    Genotype recycling = createGenotype(true);
+    ChromosomePool pool = (ChromosomePool) recycling.getConfiguration().
+        getChromosomePool();
+    assertTrue(recycling.getConfiguration().isRecycleChromosomes());
+    assertTrue(new GABreeder().isRecycleChromosomes(
+        recycling.getConfiguration()));
+    assertFalse(new GABreeder().isRecycleChromosomes(
+        plain.getConfiguration()));
+    long firstMisses = 0;
+    for (int i = 0; i < 20; i++) {
+      pool.resetStatistics();
+      plain.evolve();
+      recycling.evolve();
+      assertEquals(describe(plain), describe(recycling));
+      if (i == 0) {
+        firstMisses = pool.getMisses();
+      }
+    }
+    // Later generations reuse the chromosomes dropped before.
+    // -------------------------------------------------------
+    assertTrue(pool.getHits() > 0);
+    assertTrue(pool.getMisses() < firstMisses);
+    assertEquals(0, ( (ChromosomePool) plain.getConfiguration().
+                     getChromosomePool()).getReleased());
+  }
+
+  /**
+   * Only chromosomes dropped from the population are released, and each one
+   * only once.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testRecycleDropped_0()
+      throws Exception {
+    conf.setFitnessFunction(new ThreadRecordingFitnessFunction());
+    ChromosomePool pool = new ChromosomePool();
+    conf.setChromosomePool(pool);
+    Population previousPop = createPopulation(conf, 6);
+    List previous = new ArrayList(previousPop.getChromosomes());
+    previous.add(previousPop.getChromosome(1));
+    Population pop = new Population(conf, 3);
+    pop.addChromosome(previousPop.getChromosome(0));
+    pop.addChromosome(previousPop.getChromosome(2));
+    pop.addChromosome(previousPop.getChromosome(3));
+    IChromosome kept = previousPop.getChromosome(4);
+    new GABreeder().recycleDropped(previous, pop, kept);
+    assertEquals(2, pool.size());
+    assertEquals(2, pool.getReleased());
+    assertSame(previous.get(1), pool.acquireChromosome());
+    assertSame(previous.get(5), pool.acquireChromosome());
+  }
+
+  /**
+   * Creates a genotype with an isolated configuration and a fixed seed.
+   *
+   * @param a_recycle true: recycle dropped chromosomes
+   * @return the genotype
+   * @throws Exception
+   */
+  private Genotype createGenotype(boolean a_recycle)
+      throws Exception {
+    Configuration config = new DefaultConfiguration("", "", true);
+    config.setRandomGenerator(new SplittableRandomGenerator(17));
+    config.setFitnessFunction(new ThreadRecordingFitnessFunction());
+    config.setChromosomePool(new ChromosomePool());
+    config.setRecycleChromosomes(a_recycle);
+    config.setPreservFittestIndividual(true);
+    Gene[] genes = new Gene[4];
+    for (int i = 0; i < genes.length; i++) {
+      genes[i] = new IntegerGene(config, 0, 1000);
+    }
+    config.setSampleChromosome(new Chromosome(config, genes));
+    config.setPopulationSize(50);
+    return Genotype.randomInitialGenotype(config);
+  }
+
+  /**
+   * @param a_genotype the genotype to describe
+   * @return the alleles and fitness values of the population
+   */
+  private static String describe(Genotype a_genotype) {
+    StringBuffer result = new StringBuffer();
+    Population pop = a_genotype.getPopulation();
+    for (int i = 0; i < pop.size(); i++) {
+      IChromosome chrom = pop.getChromosome(i);
+      for (int j = 0; j < chrom.size(); j++) {
+        result.append(chrom.getGene(j).getAllele()).append(' ');
+      }
+      result.append(chrom.getFitnessValue()).append('\n');
+    }
+    return result.toString();
+  }
+
+  /**
+   * Creates a population of chromosomes with a single integer gene holding
+   * the index of the chromosome plus one.
+   *
+   * @param a_conf the configuration to use
+   * @param a_size the size of the population
+   * @return the population
+   * @throws Exception
+   */
+  private Population createPopulation(Configuration a_conf, int a_size)
+      throws Exception {
+    Chromosome sample = new Chromosome(a_conf,
+                                       new IntegerGene(a_conf, 0, 1000), 1);
+    a_conf.setSampleChromosome(sample);
+    a_conf.setPopulationSize(a_size);
+    Population pop = new Population(a_conf, a_size);
+    for (int i = 0; i < a_size; i++) {
+      Chromosome chrom = new Chromosome(a_conf,
+                                        new IntegerGene(a_conf, 0, 1000), 1);
+      chrom.getGene(0).setAllele(new Integer(i + 1));
+      pop.addChromosome(chrom);
+    }
+    return pop;
+  }
+
+  /**
+   * Fitness function returning the value of the first gene, remembering the
+   * threads it was evaluated on.
+   */
+  class ThreadRecordingFitnessFunction
+      extends FitnessFunction {
+    private final Set<Thread> m_threads =
+        Collections.synchronizedSet(new HashSet<Thread>());
+
+    private int m_evaluations;
+
+    protected double evaluate(IChromosome a_subject) {
+      m_threads.add(Thread.currentThread());
+      synchronized (this) {
+        m_evaluations++;
+      }
+      return ( (Integer) a_subject.getGene(0).getAllele()).intValue();
+    }
+
+    public Set<Thread> getThreads() {
+      return m_threads;
+    }
+
+    public synchronized int getEvaluations() {
+      return m_evaluations;
+    }
+  }
+
+  /**
+   * Not thread-safe variant of ThreadRecordingFitnessFunction.
+   */
+  class SequentialFitnessFunction
+      extends ThreadRecordingFitnessFunction
+      implements ISequentialFitnessFunction {
+  }
+}
@@ -99,4 +99,72 @@ public class PoolTest
     Pool pool = new Pool();
     assertEquals(0, pool.size());
   }
+
+  /**
+   * A bounded pool does not keep more objects than its capacity.
+   *
+   * @since 3.7
+   */
+  public void testReleaseObject_0() {
+    Pool pool = new Pool(2);
+    assertEquals(2, pool.getCapacity());
+    assertTrue(pool.releaseObject(new Object()));
+    assertTrue(pool.releaseObject(new Object()));
+    assertFalse(pool.releaseObject(new Object()));
+    assertEquals(2, pool.size());
+    assertNotNull(pool.acquirePooledObject());
+    assertTrue(pool.releaseObject(new Object()));
+    assertEquals(2, pool.size());
+    assertFalse(pool.releaseObject(null));
+    assertEquals(Integer.MAX_VALUE, new Pool().getCapacity());
+    try {
+      new Pool(0);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+  }
+
+  /**
+   * Objects released and acquired concurrently are neither lost nor handed
+   * out twice.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testAcquirePooledObject_1()
+      throws Exception {
+    final Pool pool = new Pool(1000);
+    final int numThreads = 4;
+    final int numObjects = 250;
+    for (int i = 0; i < numThreads * numObjects; i++) {
+      pool.releaseObject(new Integer(i));
+    }
+    final Set acquired = Collections.synchronizedSet(new HashSet());
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      threads[i] = new Thread() {
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            Object obj = pool.acquirePooledObject();
+            if (obj != null) {
+              pool.releaseObject(obj);
+            }
+          }
+          for (int j = 0; j < numObjects; j++) {
+            Object obj = pool.acquirePooledObject();
+            if (obj != null && !acquired.add(obj)) {
+              throw new IllegalStateException("Acquired twice: " + obj);
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (int i = 0; i < numThreads; i++) {
+      threads[i].join();
+    }
+    assertEquals(numThreads * numObjects, acquired.size() + pool.size());
+  }
 }
@@ -0,0 +1,101 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.impl;
+
+import org.jgap.*;
+
+import junit.framework.*;
+
+/**
+ * Tests the SplittableRandomGenerator class.
+ *
+ * @since 3.7
+ */
+public class SplittableRandomGeneratorTest
+    extends JGAPTestCase {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private static final String CVS_REVISION = "$Revision: 1.1 $";
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(SplittableRandomGeneratorTest.class);
+    return suite;
+  }
+
+  /**
+   * Generators with the same seed produce the same numbers.
+   *
+   * @since 3.7
+   */
+  public void testConstruct_0() {
+    SplittableRandomGenerator gen1 = new SplittableRandomGenerator(42);
+    SplittableRandomGenerator gen2 = new SplittableRandomGenerator(42);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(gen1.nextLong(), gen2.nextLong());
+      assertEquals(gen1.nextInt(17), gen2.nextInt(17));
+    }
+  }
+
+  /**
+   * Generators constructed without seed differ.
+   *
+   * @since 3.7
+   */
+  public void testConstruct_1() {
+    SplittableRandomGenerator gen1 = new SplittableRandomGenerator();
+    SplittableRandomGenerator gen2 = new SplittableRandomGenerator();
+    assertFalse(gen1.nextLong() == gen2.nextLong()
+                && gen1.nextLong() == gen2.nextLong());
+  }
+
+  /**
+   * Splitting is repeatable and the new generator differs from the original.
+   *
+   * @since 3.7
+   */
+  public void testSplit_0() {
+    SplittableRandomGenerator gen1 = new SplittableRandomGenerator(7);
+    SplittableRandomGenerator gen2 = new SplittableRandomGenerator(7);
+    SplittableRandomGenerator split1 = gen1.split();
+    SplittableRandomGenerator split2 = gen2.split();
+    for (int i = 0; i < 100; i++) {
+      long value = split1.nextLong();
+      assertEquals(value, split2.nextLong());
+      assertFalse(value == gen1.nextLong());
+      gen2.nextLong();
+    }
+    assertTrue(gen1.clone() instanceof SplittableRandomGenerator);
+  }
+
+  /**
+   * @since 3.7
+   */
+  public void testRanges_0() {
+    SplittableRandomGenerator gen = new SplittableRandomGenerator(1);
+    int[] counts = new int[5];
+    for (int i = 0; i < 10000; i++) {
+      counts[gen.nextInt(5)]++;
+      int pow = gen.nextInt(8);
+      assertTrue(pow >= 0 && pow < 8);
+      double d = gen.nextDouble();
+      assertTrue(d >= 0 && d < 1);
+      float f = gen.nextFloat();
+      assertTrue(f >= 0 && f < 1);
+    }
+    for (int i = 0; i < counts.length; i++) {
+      assertTrue(counts[i] > 1800 && counts[i] < 2200);
+    }
+    try {
+      gen.nextInt(0);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+  }
+}
@@ -25,6 +25,7 @@ public class AllUtilTests
 
   public static Test suite() {
     TestSuite suite = new TestSuite("AllUtilTests");
+    suite.addTest(BoundedCacheTest.suite());
     suite.addTest(FileKitTest.suite());
     suite.addTest(NumberKitTest.suite());
     suite.addTest(PluginDiscovererTest.suite());
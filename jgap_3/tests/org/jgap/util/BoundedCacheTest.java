@@ -0,0 +1,147 @@
+/*
+ * This file is part of JGAP.
+ *
+ * JGAP offers a dual license model containing the LGPL as well as the MPL.
+ *
+ * For licensing information please see the file license.txt included with JGAP
+ * or have a look at the top of class org.jgap.Chromosome which representatively
+ * includes the JGAP license policy applicable for any file delivered with JGAP.
+ */
+package org.jgap.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.jgap.*;
+
+import junit.framework.*;
+
+/**
+ * Tests the BoundedCache class.
+ *
+ * @since 3.7
+ */
+public class BoundedCacheTest
+    extends JGAPTestCase {
+  /** String containing the CVS revision. Read out via reflection!*/
+  private final static String CVS_REVISION = "$Revision: 1.1 $";
+
+  public static Test suite() {
+    return new TestSuite(BoundedCacheTest.class);
+  }
+
+  /**
+   * @since 3.7
+   */
+  public void testConstruct_0() {
+    try {
+      new BoundedCache<String, String>(0);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+    try {
+      new BoundedCache<String, String>(10, 2);
+      fail();
+    } catch (IllegalArgumentException iex) {
+      ; //this is OK
+    }
+    BoundedCache<String, String> cache = new BoundedCache<String, String>(10);
+    assertEquals(10, cache.getMaxEntries());
+    assertEquals(BoundedCache.EVICT_LRU, cache.getEvictionPolicy());
+    assertEquals(0.0d, cache.getHitRate(), DELTA);
+  }
+
+  /**
+   * The least recently used entry is evicted.
+   *
+   * @since 3.7
+   */
+  public void testEvictLRU_0() {
+    BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>(3);
+    cache.put(1, "a");
+    cache.put(2, "b");
+    cache.put(3, "c");
+    assertEquals("a", cache.get(1));
+    cache.put(4, "d");
+    assertEquals(3, cache.size());
+    assertNull(cache.get(2));
+    assertEquals("a", cache.get(1));
+    assertEquals("c", cache.get(3));
+    assertEquals("d", cache.get(4));
+    assertEquals(4, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getEvictions());
+    assertEquals(0.8d, cache.getHitRate(), DELTA);
+    cache.resetStatistics();
+    assertEquals(0, cache.getHits());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Entries used often survive, entries used once are evicted.
+   *
+   * @since 3.7
+   */
+  public void testEvictLFU_0() {
+    BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>(
+        10, BoundedCache.EVICT_LFU);
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, "popular");
+      cache.get(i);
+      cache.get(i);
+    }
+    for (int i = 100; i < 200; i++) {
+      cache.put(i, "once");
+    }
+    assertEquals(10, cache.size());
+    assertEquals(95, cache.getEvictions());
+    for (int i = 0; i < 5; i++) {
+      assertEquals("popular", cache.get(i));
+    }
+  }
+
+  /**
+   * The size stays bounded with many segments and concurrent access.
+   *
+   * @throws Exception
+   *
+   * @since 3.7
+   */
+  public void testConcurrentAccess_0()
+      throws Exception {
+    final BoundedCache<Integer, Integer> cache =
+        new BoundedCache<Integer, Integer>(500, BoundedCache.EVICT_LFU);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Object>> results = new ArrayList<Future<Object>>();
+      for (int t = 0; t < 4; t++) {
+        final int seed = t;
+        results.add(executor.submit(new Callable<Object>() {
+          public Object call() {
+            Random random = new Random(seed);
+            for (int i = 0; i < 20000; i++) {
+              Integer key = new Integer(random.nextInt(2000));
+              Integer value = cache.get(key);
+              if (value == null) {
+                cache.put(key, key);
+              }
+              else {
+                assertEquals(key, value);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Object> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.size() <= 500);
+    assertEquals(80000, cache.getHits() + cache.getMisses());
+    assertTrue(cache.getEvictions() > 0);
+  }
+}